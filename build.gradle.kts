@@ -2,6 +2,7 @@ plugins {
     id("com.github.johnrengelman.shadow") version "8.1.1"
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 application {
@@ -19,11 +20,19 @@ repositories {
     maven {
         url = uri("https://repo.papermc.io/repository/maven-public/")
     }
+    maven {
+        url = uri("https://repo.dmulloy2.net/repository/public/")
+    }
 }
 
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.9.1"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    // Tests run without a server, interfaces like Player are faked (see BukkitFakes)
+    testImplementation("io.papermc.paper:paper-api:1.20.4-R0.1-SNAPSHOT")
+    testImplementation("org.jetbrains:annotations:24.1.0")
+    // WorldGuard is not running in tests, the plugin gets in-memory region managers (see FakePolygonRegion)
+    testImplementation("com.sk89q.worldguard:worldguard-core:7.0.9")
 
     // https://mvnrepository.com/artifact/com.fasterxml.jackson.core/jackson-databind
     implementation("com.fasterxml.jackson.core:jackson-databind:2.16.1")
@@ -32,8 +41,22 @@ dependencies {
 
     compileOnly("com.sk89q.worldedit:worldedit-bukkit:7.3.3")
     compileOnly("com.sk89q.worldguard:worldguard-bukkit:7.0.9")
+    compileOnly("com.comphenix.protocol:ProtocolLib:5.1.0")
 
     compileOnly("io.papermc.paper:paper-api:1.20.4-R0.1-SNAPSHOT")
+
+    // Benchmarks (./gradlew jmh) compare the region index against WorldGuard's own lookups
+    jmh("com.sk89q.worldguard:worldguard-core:7.0.9")
+    jmh("org.jetbrains:annotations:24.1.0")
+    // Bukkit classes used by the benchmarked code, interfaces like Player are faked like in the tests (see BukkitFakes)
+    jmh("io.papermc.paper:paper-api:1.20.4-R0.1-SNAPSHOT")
+    jmh(sourceSets.test.get().output)
+}
+
+jmh {
+    // Machine-readable results, e.g. to compare them across versions
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
 }
 
 java {
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.fence;
+
+import coffee.j4n.polygonregion.util.LongHashSet;
+import com.sk89q.worldedit.math.BlockVector2;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the 2D stepping of the wall columns around a polygon (the part of the wall planning that runs on the main thread).<br />
+ * <p>
+ * - The polygon is a regular polygon with {@code vertexCount} points and edges of about {@code edgeLength} blocks.<br />
+ * - The ground lookup is not part of the benchmark, as it needs chunk snapshots of a world.<br />
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WallPlannerBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    public int vertexCount;
+
+    @Param({"4", "32", "256"})
+    public int edgeLength;
+
+    private List<BlockVector2> points;
+
+    @Setup
+    public void setup() {
+        // The circumference of the polygon is vertexCount * edgeLength
+        double radius = vertexCount * edgeLength / (2 * Math.PI);
+
+        points = new ArrayList<>(vertexCount);
+
+        for (int i = 0; i < vertexCount; i++) {
+            double angle = 2 * Math.PI * i / vertexCount;
+            points.add(BlockVector2.at((int) Math.round(Math.cos(angle) * radius), (int) Math.round(Math.sin(angle) * radius)));
+        }
+    }
+
+    @Benchmark
+    public int addWallColumns() {
+        LongHashSet columns = new LongHashSet();
+
+        for (int i = 0; i < points.size(); i++) {
+            WallPlanner.addWallColumns(columns, points.get(i), points.get((i + 1) % points.size()));
+        }
+
+        return columns.size();
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.index;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.managers.index.PriorityRTreeIndex;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks point containment queries of the {@link PolygonGridIndex} against WorldGuard's own lookups.<br />
+ * <p>
+ * - The regions are random star-shaped polygons spread over a square world area.<br />
+ * - Every invocation queries {@value #QUERY_COUNT} random blocks of that area.<br />
+ * - WorldGuard is measured with its R-tree region index (used by region managers) and with a linear scan over all regions.<br />
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolygonIndexBenchmark {
+
+    private static final int QUERY_COUNT = 1024;
+    private static final int WORLD_RADIUS = 10_000;
+
+    @Param({"100", "1000", "10000"})
+    public int regionCount;
+
+    @Param({"8", "64"})
+    public int pointsPerRegion;
+
+    private PolygonGridIndex gridIndex;
+    private PriorityRTreeIndex wgIndex;
+    private List<ProtectedRegion> wgRegions;
+
+    private final int[] queryXs = new int[QUERY_COUNT];
+    private final int[] queryYs = new int[QUERY_COUNT];
+    private final int[] queryZs = new int[QUERY_COUNT];
+    private final BlockVector3[] queryVectors = new BlockVector3[QUERY_COUNT];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        List<IndexedPolygon> polygons = new ArrayList<>();
+        wgRegions = new ArrayList<>();
+
+        for (int i = 0; i < regionCount; i++) {
+            int centerX = random.nextInt(2 * WORLD_RADIUS) - WORLD_RADIUS;
+            int centerZ = random.nextInt(2 * WORLD_RADIUS) - WORLD_RADIUS;
+            int radius = 16 + random.nextInt(240);
+
+            int[] xs = new int[pointsPerRegion];
+            int[] zs = new int[pointsPerRegion];
+            List<BlockVector2> wgPoints = new ArrayList<>();
+
+            for (int p = 0; p < pointsPerRegion; p++) {
+                double angle = 2 * Math.PI * p / pointsPerRegion;
+                double pointRadius = radius * (0.5 + 0.5 * random.nextDouble());
+
+                xs[p] = centerX + (int) Math.round(Math.cos(angle) * pointRadius);
+                zs[p] = centerZ + (int) Math.round(Math.sin(angle) * pointRadius);
+                wgPoints.add(BlockVector2.at(xs[p], zs[p]));
+            }
+
+            polygons.add(new IndexedPolygon("region" + i, xs, zs, -64, 320));
+            wgRegions.add(new ProtectedPolygonalRegion("region" + i, wgPoints, -64, 320));
+        }
+
+        gridIndex = PolygonGridIndex.of(polygons);
+
+        wgIndex = new PriorityRTreeIndex();
+        wgIndex.addAll(wgRegions);
+
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queryXs[i] = random.nextInt(2 * WORLD_RADIUS) - WORLD_RADIUS;
+            queryYs[i] = random.nextInt(128);
+            queryZs[i] = random.nextInt(2 * WORLD_RADIUS) - WORLD_RADIUS;
+            queryVectors[i] = BlockVector3.at(queryXs[i], queryYs[i], queryZs[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERY_COUNT)
+    public void gridIndex(Blackhole blackhole) {
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            blackhole.consume(gridIndex.getFirstContaining(queryXs[i], queryYs[i], queryZs[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERY_COUNT)
+    public void worldGuardRTreeIndex(Blackhole blackhole) {
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            ProtectedRegion[] found = new ProtectedRegion[1];
+
+            wgIndex.applyContaining(queryVectors[i], wgRegion -> {
+                found[0] = wgRegion;
+                return false;
+            });
+
+            blackhole.consume(found[0]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERY_COUNT)
+    public void worldGuardLinearScan(Blackhole blackhole) {
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            ProtectedRegion found = null;
+
+            for (ProtectedRegion wgRegion : wgRegions) {
+                if (wgRegion.contains(queryVectors[i])) {
+                    found = wgRegion;
+                    break;
+                }
+            }
+
+            blackhole.consume(found);
+        }
+    }
+}
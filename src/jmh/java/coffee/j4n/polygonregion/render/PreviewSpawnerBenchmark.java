@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import coffee.j4n.polygonregion.BukkitFakes;
+import coffee.j4n.polygonregion.util.Marker;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Transformation;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks rendering the edge between two markers of the preview.<br />
+ * <p>
+ * - The edge runs diagonally through all three axes, with a length of {@code edgeLength} blocks along the dominant axis.<br />
+ * - The viewer stands at the first marker (a fake player, see {@link BukkitFakes}), the visuals are not spawned, only their handles are collected.<br />
+ * - {@link EdgeRenderMode#BRESENHAM} walks the edge block by block, {@link EdgeRenderMode#STRETCHED} only computes a few segments.<br />
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreviewSpawnerBenchmark {
+
+    @Param({"16", "128", "1024"})
+    public int edgeLength;
+
+    @Param({"BRESENHAM", "STRETCHED"})
+    public EdgeRenderMode edgeRenderMode;
+
+    @Param({"false", "true"})
+    public boolean levelOfDetail;
+
+    private PreviewSpawner spawner;
+    private Player viewer;
+    private Marker markerA;
+    private Marker markerB;
+    private final List<PreviewHandle> spawnedHandles = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        spawner = new PreviewSpawner(new NoOpRenderer(), edgeRenderMode, 32, new PreviewDetail(levelOfDetail, 32, 96, Integer.MAX_VALUE));
+
+        markerA = new Marker(0.5, 64, 0.5, Material.GRASS_BLOCK);
+        markerB = new Marker(edgeLength + 0.5, 64 + edgeLength / 8, edgeLength / 2 + 0.5, Material.GRASS_BLOCK);
+        viewer = BukkitFakes.player(markerA.x, markerA.y + 2, markerA.z);
+    }
+
+    @Benchmark
+    public int spawnEdge() {
+        spawnedHandles.clear();
+        spawner.spawnEdge(viewer, markerA, markerB, 1, spawnedHandles);
+
+        return spawnedHandles.size();
+    }
+
+    /**
+     * A preview renderer that does not render anything.
+     */
+    private static final class NoOpRenderer implements PreviewRenderer {
+
+        private static final PreviewHandle NO_OP_HANDLE = new PreviewHandle() {
+            @Override
+            public void setText(@NotNull String text) {
+            }
+
+            @Override
+            public void remove() {
+            }
+        };
+
+        @Override
+        public @NotNull PreviewHandle spawnBlockDisplay(@NotNull Player viewer, @NotNull Location location, @NotNull Material material, @NotNull Transformation transformation) {
+            return NO_OP_HANDLE;
+        }
+
+        @Override
+        public @NotNull PreviewHandle spawnText(@NotNull Player viewer, @NotNull Location location, @NotNull String text) {
+            return NO_OP_HANDLE;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks the geometry of editing a polygon: finding the insert position of a new marker (the nearest edge)
+ * and simplifying the polygon before a region is created.<br />
+ * <p>
+ * - The polygons are random star-shaped rings with {@code vertexCount} markers and a radius of {@code radius} blocks.<br />
+ * - Every invocation looks up the insert position of {@value #QUERY_COUNT} random markers around the polygon.<br />
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkerRingBenchmark {
+
+    private static final int QUERY_COUNT = 256;
+
+    @Param({"10", "100", "1000", "5000"})
+    public int vertexCount;
+
+    @Param({"64", "1024"})
+    public int radius;
+
+    private MarkerRing ring;
+    private double[] ringXs;
+    private double[] ringZs;
+    private Marker[] queries;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        ring = new MarkerRing();
+        ringXs = new double[vertexCount];
+        ringZs = new double[vertexCount];
+
+        for (int i = 0; i < vertexCount; i++) {
+            double angle = 2 * Math.PI * i / vertexCount;
+            double pointRadius = radius * (0.8 + 0.2 * random.nextDouble());
+
+            // Clicked markers are centered on their block
+            double x = Math.floor(Math.cos(angle) * pointRadius) + 0.5;
+            double y = 64 + random.nextInt(8);
+            double z = Math.floor(Math.sin(angle) * pointRadius) + 0.5;
+
+            if (ring.add(new Marker(x, y, z, Material.GRASS_BLOCK))) {
+                ringXs[ring.size() - 1] = Math.floor(x);
+                ringZs[ring.size() - 1] = Math.floor(z);
+            }
+        }
+
+        ringXs = Arrays.copyOf(ringXs, ring.size());
+        ringZs = Arrays.copyOf(ringZs, ring.size());
+
+        queries = new Marker[QUERY_COUNT];
+
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            double x = random.nextInt(3 * radius) - 1.5 * radius + 0.5;
+            double z = random.nextInt(3 * radius) - 1.5 * radius + 0.5;
+
+            queries[i] = new Marker(x, 64 + random.nextInt(8), z, Material.STONE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERY_COUNT)
+    public void findInsertIndex(Blackhole blackhole) {
+        for (Marker query : queries) {
+            blackhole.consume(ring.findInsertIndex(query));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERY_COUNT)
+    public void insertAndRemove(Blackhole blackhole) {
+        for (Marker query : queries) {
+            if (ring.contains(query)) {
+                continue;
+            }
+
+            int insertIndex = ring.findInsertIndex(query);
+            ring.insert(insertIndex, query);
+            blackhole.consume(ring.remove(insertIndex));
+        }
+    }
+
+    @Benchmark
+    public int[] simplify() {
+        return PolygonSimplifier.simplify(ringXs, ringZs, 1.0);
+    }
+}
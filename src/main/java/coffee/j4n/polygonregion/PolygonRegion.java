@@ -5,22 +5,113 @@
  */
 package coffee.j4n.polygonregion;
 
+import coffee.j4n.polygonregion.chunk.AsyncChunkLoader;
 import coffee.j4n.polygonregion.commands.CmdRegion;
+import coffee.j4n.polygonregion.commit.RegionCommitQueue;
+import coffee.j4n.polygonregion.fence.FallingFenceController;
+import coffee.j4n.polygonregion.fill.RegionFiller;
+import coffee.j4n.polygonregion.index.PolygonRegionIndex;
+import coffee.j4n.polygonregion.info.RegionInfoService;
+import coffee.j4n.polygonregion.index.PolygonRegionIndexService;
+import coffee.j4n.polygonregion.io.RegionExporter;
+import coffee.j4n.polygonregion.io.RegionImporter;
+import coffee.j4n.polygonregion.listeners.EntityChangeBlock;
+import coffee.j4n.polygonregion.listeners.PlayerChangedWorld;
 import coffee.j4n.polygonregion.listeners.PlayerInteract;
+import coffee.j4n.polygonregion.listeners.PlayerJoin;
+import coffee.j4n.polygonregion.listeners.PlayerQuit;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.metrics.PluginMetrics;
+import coffee.j4n.polygonregion.session.MarkerSessionJournal;
+import coffee.j4n.polygonregion.session.SessionManager;
+import coffee.j4n.polygonregion.undo.UndoManager;
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
 
 public class PolygonRegion extends JavaPlugin {
 
     private RegionMarker regionMarker;
+    private AsyncChunkLoader chunkLoader;
+    private FallingFenceController fenceController;
+    private RegionFiller regionFiller;
+    private UndoManager undoManager;
+    private RegionInfoService regionInfo;
+    private PolygonRegionIndexService regionIndex;
+    private RegionCommitQueue regionCommitQueue;
+    private RegionImporter regionImporter;
+    private RegionExporter regionExporter;
+    private MarkerSessionJournal sessionJournal;
+    private SessionManager sessionManager;
+    private OperationCounters operationCounters;
+    private PluginMetrics metrics;
+
+    public PolygonRegion() {
+    }
+
+    /**
+     * Creates the plugin outside of a server (e.g. in tests).
+     */
+    protected PolygonRegion(@NotNull JavaPluginLoader loader, @NotNull PluginDescriptionFile description, @NotNull File dataFolder, @NotNull File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onEnable() {
         getLogger().info("Enabling PolygonRegion...");
 
+        saveDefaultConfig();
+
+        metrics = new PluginMetrics(this);
+        operationCounters = new OperationCounters(this, metrics);
+
+        chunkLoader = new AsyncChunkLoader(this);
+        fenceController = new FallingFenceController(this, operationCounters);
+        undoManager = new UndoManager(this);
+        regionFiller = new RegionFiller(this);
+        regionInfo = new RegionInfoService(this);
+        sessionJournal = new MarkerSessionJournal(this);
+        sessionManager = new SessionManager(this);
+        regionIndex = new PolygonRegionIndexService(this);
+        regionCommitQueue = new RegionCommitQueue(this);
         regionMarker =  new RegionMarker(this);
+        regionImporter = new RegionImporter(this);
+        regionExporter = new RegionExporter(this);
+
+        // evict idle marker sessions
+        sessionManager.start();
+
+        // emit the state of the plugin as JFR events (and to the Prometheus file, if enabled)
+        metrics.start();
+
+        // build the region index once all worlds and regions are loaded and provide it to other plugins
+        getServer().getScheduler().runTask(this, regionIndex::rebuild);
+        getServer().getServicesManager().register(PolygonRegionIndex.class, regionIndex, this, ServicePriority.Normal);
+
+        // pick up regions created, redefined or removed through WorldGuard
+        regionIndex.start();
 
         // register listener
         getServer().getPluginManager().registerEvents(new PlayerInteract(this), this);
+        getServer().getPluginManager().registerEvents(new EntityChangeBlock(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerJoin(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerQuit(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerChangedWorld(this), this);
+
+        // restore the markers of players that are already online (e.g. after a reload)
+        for (Player player : getServer().getOnlinePlayers()) {
+            regionMarker.restoreSession(player);
+        }
 
         // register command
         getCommand("pregion").setExecutor(new CmdRegion(this));
@@ -32,10 +123,107 @@ public class PolygonRegion extends JavaPlugin {
     public void onDisable() {
         getLogger().info("Disabling PolygonRegion");
 
+        // stop loading chunks and release the loaded ones
+        if (chunkLoader != null) {
+            chunkLoader.cancelAll();
+        }
+
+        // the undo journals do not survive a restart, so stop recording before the last fence blocks are placed
+        if (undoManager != null) {
+            undoManager.shutdown();
+        }
+
+        // place all fence blocks that are still falling
+        if (fenceController != null) {
+            fenceController.finishAll();
+        }
+
+        // create and save all regions that have been confirmed but not saved yet
+        if (regionCommitQueue != null) {
+            regionCommitQueue.flushNow();
+        }
+
+        // stop the threads counting the blocks of regions
+        if (regionInfo != null) {
+            regionInfo.shutdown();
+        }
+
+        // remove the previews, the markers stay journaled
+        if (sessionManager != null) {
+            sessionManager.removeAll();
+        }
+
+        // write all marker changes that have not been journaled yet
+        if (sessionJournal != null) {
+            sessionJournal.flushNow();
+        }
+
         getLogger().info("PolygonRegion disabled!");
     }
 
+    /**
+     * Returns the WorldGuard region manager of a world.
+     *
+     * @param world The world
+     * @return The region manager, or null if WorldGuard does not manage regions in the world
+     */
+    public @Nullable RegionManager getRegionManager(@NotNull World world) {
+        return WorldGuard.getInstance().getPlatform().getRegionContainer().get(BukkitAdapter.adapt(world));
+    }
+
     public RegionMarker getPoints() {
         return this.regionMarker;
     }
+
+    public AsyncChunkLoader getChunkLoader() {
+        return this.chunkLoader;
+    }
+
+    public FallingFenceController getFenceController() {
+        return this.fenceController;
+    }
+
+    public UndoManager getUndoManager() {
+        return this.undoManager;
+    }
+
+    public RegionFiller getRegionFiller() {
+        return this.regionFiller;
+    }
+
+    public RegionInfoService getRegionInfo() {
+        return this.regionInfo;
+    }
+
+    public PolygonRegionIndexService getRegionIndex() {
+        return this.regionIndex;
+    }
+
+    public RegionCommitQueue getRegionCommitQueue() {
+        return this.regionCommitQueue;
+    }
+
+    public RegionImporter getRegionImporter() {
+        return this.regionImporter;
+    }
+
+    public RegionExporter getRegionExporter() {
+        return this.regionExporter;
+    }
+
+    public MarkerSessionJournal getSessionJournal() {
+        return this.sessionJournal;
+    }
+
+    public SessionManager getSessionManager() {
+        return this.sessionManager;
+    }
+
+    public OperationCounters getOperationCounters() {
+        return this.operationCounters;
+    }
+
+    public PluginMetrics getMetrics() {
+        return this.metrics;
+    }
 }
\ No newline at end of file
@@ -5,27 +5,32 @@
  */
 package coffee.j4n.polygonregion;
 
+import coffee.j4n.polygonregion.chunk.AsyncChunkLoader;
+import coffee.j4n.polygonregion.commit.CommitResult;
+import coffee.j4n.polygonregion.commit.RegionCommitQueue;
+import coffee.j4n.polygonregion.fence.WallPlanner;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.render.*;
+import coffee.j4n.polygonregion.session.PendingSimplification;
+import coffee.j4n.polygonregion.session.RegionSession;
+import coffee.j4n.polygonregion.session.SessionManager;
+import coffee.j4n.polygonregion.undo.UndoJournal;
+import coffee.j4n.polygonregion.util.BlockKeys;
+import coffee.j4n.polygonregion.util.GroundHeightService;
 import coffee.j4n.polygonregion.util.Marker;
+import coffee.j4n.polygonregion.util.MarkerRing;
+import coffee.j4n.polygonregion.util.PolygonSimplifier;
 import coffee.j4n.polygonregion.util.statics.ItemStacks;
 import coffee.j4n.polygonregion.util.statics.Prefixes;
 import com.sk89q.worldedit.math.BlockVector2;
-import com.sk89q.worldguard.LocalPlayer;
-import com.sk89q.worldguard.WorldGuard;
-import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.protection.flags.Flags;
 import com.sk89q.worldguard.protection.flags.StateFlag;
 import com.sk89q.worldguard.protection.managers.RegionManager;
 import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
-import com.sk89q.worldguard.protection.regions.RegionContainer;
 import org.bukkit.*;
 import org.bukkit.block.Block;
 import org.bukkit.entity.*;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.util.Transformation;
 import org.jetbrains.annotations.NotNull;
-import org.joml.Quaternionf;
-import org.joml.Vector3f;
 
 import java.util.*;
 import java.util.regex.Pattern;
@@ -38,11 +43,66 @@ import java.util.regex.Matcher;
  */
 public class RegionMarker {
 
-    private final Map<Player, List<Marker>> playerRegionMarkers = new HashMap<>();
+    private static final Pattern INVALID_NAME_CHARS = Pattern.compile("[^a-zA-Z0-9]");
+
+    private final SessionManager sessionManager;
+    private final PreviewSpawner previewSpawner;
+    private final GroundHeightService groundHeightService = new GroundHeightService();
+    private final WallPlanner wallPlanner;
     private final PolygonRegion pl;
 
+    // The /pregion show requests whose chunks are still loading
+    private final Map<UUID, AsyncChunkLoader.Request> pendingShows = new HashMap<>();
+
     public RegionMarker(PolygonRegion pl) {
         this.pl = pl;
+        this.previewSpawner = new PreviewSpawner(new CountingPreviewRenderer(createPreviewRenderer(), pl.getOperationCounters()), readEdgeRenderMode(), pl.getConfig().getDouble("preview.max-segment-length", 32), new PreviewDetail(
+                pl.getConfig().getBoolean("preview.lod.enabled", true),
+                pl.getConfig().getDouble("preview.lod.distance-step", 32),
+                pl.getConfig().getDouble("preview.lod.support-radius", 96),
+                pl.getConfig().getInt("preview.max-entities", 1500)
+        ));
+        this.wallPlanner = new WallPlanner(pl, groundHeightService);
+        this.sessionManager = pl.getSessionManager();
+    }
+
+    /**
+     * Creates the preview renderer configured in the config
+     * - "VIRTUAL" renders client-side entities only and requires ProtocolLib
+     * - "ENTITY" (default) spawns real entities in the world
+     *
+     * @return the configured preview renderer
+     */
+    private @NotNull PreviewRenderer createPreviewRenderer() {
+        String configuredBackend = pl.getConfig().getString("preview.backend", "ENTITY");
+
+        if (configuredBackend.equalsIgnoreCase("VIRTUAL")) {
+            if (pl.getServer().getPluginManager().isPluginEnabled("ProtocolLib")) {
+                return new VirtualPreviewRenderer(new ProtocolLibPacketSink());
+            }
+
+            pl.getLogger().warning("preview.backend is set to VIRTUAL, but ProtocolLib is not installed. Using ENTITY instead.");
+        } else if (!configuredBackend.equalsIgnoreCase("ENTITY")) {
+            pl.getLogger().warning("Unknown preview.backend \"" + configuredBackend + "\", using ENTITY");
+        }
+
+        return new EntityPreviewRenderer();
+    }
+
+    /**
+     * Reads the edge render mode from the config, falling back to {@link EdgeRenderMode#STRETCHED} for unknown values
+     *
+     * @return the configured edge render mode
+     */
+    private @NotNull EdgeRenderMode readEdgeRenderMode() {
+        String configuredMode = pl.getConfig().getString("preview.edge-mode", EdgeRenderMode.STRETCHED.name());
+
+        try {
+            return EdgeRenderMode.valueOf(configuredMode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            pl.getLogger().warning("Unknown preview.edge-mode \"" + configuredMode + "\", using " + EdgeRenderMode.STRETCHED.name());
+            return EdgeRenderMode.STRETCHED;
+        }
     }
 
     //<editor-fold desc="Add region markers">
@@ -59,7 +119,18 @@ public class RegionMarker {
      * @param clickedBlock   The block that was clicked
      */
     public void addRegionMarker(Player player, Marker pointToBeAdded, Block clickedBlock) {
-        List<Marker> points = playerRegionMarkers.computeIfAbsent(player, k -> new ArrayList<>());
+        RegionSession session = sessionManager.get(player.getUniqueId());
+
+        if (session == null) {
+            session = sessionManager.create(player, new MarkerRing());
+
+            if (session == null) {
+                return;
+            }
+        }
+
+        session.touch();
+        MarkerRing points = session.getMarkers();
 
         if (points.contains(pointToBeAdded)) {
             player.playSound(player.getLocation(), Sound.ENTITY_ITEM_BREAK, 1, 1);
@@ -67,12 +138,25 @@ public class RegionMarker {
             return;
         }
 
+        if (!sessionManager.isWithinVertexLimit(points.size() + 1)) {
+            player.playSound(player.getLocation(), Sound.ENTITY_ITEM_BREAK, 1, 1);
+            player.sendMessage(Prefixes.PLUGIN + "Du hast bereits die §nmaximale Anzahl§7 von §3" + sessionManager.getMaxVertices() + " §7Punkten gesetzt.");
+            return;
+        }
+
+        // A previewed simplification no longer matches the markers, the preview is rendered from scratch below
+        if (session.getPendingSimplification() != null) {
+            session.setPendingSimplification(null);
+            session.clearPreview();
+        }
+
         // Find the correct position to insert the new point based on proximity
-        int insertIndex = findInsertIndex(points, pointToBeAdded);
-        points.add(insertIndex, pointToBeAdded);
-        playerRegionMarkers.put(player, points);
+        int insertIndex = points.findInsertIndex(pointToBeAdded);
+        points.insert(insertIndex, pointToBeAdded);
+        pl.getSessionJournal().journal(player.getUniqueId(), session.getWorldName(), points);
 
         clickedBlock.setType(Material.SEA_LANTERN);
+        pl.getOperationCounters().increment(OperationCounters.Counter.BLOCK_WRITES);
 
         player.playSound(player.getLocation(), Sound.ENTITY_PLAYER_LEVELUP, 1, 1);
         player.getWorld().playEffect(clickedBlock.getLocation().add(0, 1, 0), Effect.BONE_MEAL_USE, 1);
@@ -81,95 +165,9 @@ public class RegionMarker {
 
         // Update region markers if at least 3 points are present
         if (points.size() >= 3) {
-            updateRegionMarkers(player);
+            updateRegionMarkersAfterInsert(player, insertIndex);
         }
     }
-
-    /**
-     * Find the index to insert a new marker based on proximity to the line segments between the existing markers.
-     *
-     * @param points           the list of existing markers
-     * @param comparisonMarker the new marker to be inserted
-     * @return the index to insert the new marker
-     */
-    private int findInsertIndex(@NotNull List<Marker> points, Marker comparisonMarker) {
-
-        // First marker = first index
-        if (points.isEmpty()) {
-            return 0;
-        }
-
-        double minDistance = Double.MAX_VALUE;
-        // Default: insert every new marker at the end
-        int insertIndex = points.size();
-
-        for (int i = 0; i < points.size(); i++) {
-            Marker marker1 = points.get(i);
-            Marker marker2 = points.get((i + 1) % points.size());
-
-            // Markers should not be equal, so skip if they are
-            if (marker1.equals(marker2)) {
-                continue;
-            }
-
-            double distance = distancePointToSegment(marker1, marker2, comparisonMarker);
-
-            if (distance < minDistance) {
-                minDistance = distance;
-                insertIndex = i + 1;
-            }
-        }
-
-        return insertIndex;
-    }
-
-    /**
-     * Calculate the distance between a point and a line segment
-     *
-     * @param marker1          the first marker of the line segment
-     * @param marker2          the second marker of the line segment
-     * @param comparisonMarker the marker to calculate the distance to
-     * @return the distance between the marker and the line segment
-     */
-    private double distancePointToSegment(@NotNull Marker marker1, @NotNull Marker marker2, Marker comparisonMarker) {
-        // Delta between the x coordinates and z coordinates of the two markers
-        double xCoordDeltaM1M2 = marker2.x - marker1.x;
-        double zCoordDeltaM1M2 = marker2.z - marker1.z;
-
-        if ((xCoordDeltaM1M2 == 0) && (zCoordDeltaM1M2 == 0)) {
-            throw new IllegalArgumentException("marker1 and marker2 cannot be the same");
-        }
-
-        // Calculate the difference in x and z coordinates between comparisonMarker and marker1
-        double xCoordDeltaCMM1 = comparisonMarker.x - marker1.x;
-        double zCoordDeltaCMM1 = comparisonMarker.z - marker1.z;
-
-        // Calculate the dot product of the coordinate differences and the coordinate deltas
-        double dotProduct = xCoordDeltaCMM1 * xCoordDeltaM1M2 + zCoordDeltaCMM1 * zCoordDeltaM1M2;
-        // Calculate the squared length of the vector described by the coordinate deltas
-        double lengthSquared = xCoordDeltaM1M2 * xCoordDeltaM1M2 + zCoordDeltaM1M2 * zCoordDeltaM1M2;
-
-        // Compute the factor that determines the closest point on the line segment to the comparisonMarker
-        double closestPointFactor = dotProduct / lengthSquared;
-
-        final Marker closestPoint;
-
-        // Determine the closest point based on the closestPointFactor
-        if (closestPointFactor < 0) {
-            // Closest point is marker1
-            closestPoint = marker1;
-        } else if (closestPointFactor > 1) {
-            // Closest point is marker2
-            closestPoint = marker2;
-        } else {
-            // Closest point is on the line segment between marker1 and marker2
-            double closestPointX = marker1.x + closestPointFactor * xCoordDeltaM1M2;
-            double closestPointZ = marker1.z + closestPointFactor * zCoordDeltaM1M2;
-            closestPoint = new Marker(closestPointX, marker1.y, closestPointZ, marker1.getOriginalMaterial());
-        }
-
-        return comparisonMarker.getDistanceTo(closestPoint);
-    }
     //</editor-fold>
 
 
@@ -187,41 +185,54 @@ public class RegionMarker {
      * @param clickedBlock     The block that was clicked
      */
     public void removePoint(Player player, Marker pointToBeRemoved, Block clickedBlock) {
-        if (playerRegionMarkers.get(player) == null || playerRegionMarkers.get(player).isEmpty()) {
+        RegionSession session = sessionManager.get(player.getUniqueId());
+        MarkerRing points = session != null ? session.getMarkers() : null;
+
+        if (points == null || points.isEmpty()) {
             player.playSound(player.getLocation(), Sound.ENTITY_BAT_DEATH, 1, 1);
             player.getWorld().playEffect(clickedBlock.getLocation().add(0, 1, 0), Effect.SMOKE, 1);
             player.sendMessage(Prefixes.PLUGIN + "Es sind §nkeine Marker§7 gesetzt, die du entfernen könntest.");
             return;
         }
 
-        // find marker by coordinates
-        Marker coordPoint = playerRegionMarkers.get(player).stream().filter(p ->
-                p.x == pointToBeRemoved.x &&
-                        p.y == pointToBeRemoved.y &&
-                        p.z == pointToBeRemoved.z).findFirst().orElse(null);
-
-
+        // find marker by the clicked block
+        int markerIndex = points.indexOf(pointToBeRemoved);
 
-        if (coordPoint == null || !playerRegionMarkers.get(player).contains(coordPoint)) {
+        if (markerIndex == -1) {
             player.playSound(player.getLocation(), Sound.ENTITY_BAT_DEATH, 1, 1);
             player.getWorld().playEffect(clickedBlock.getLocation().add(0, 1, 0), Effect.SMOKE, 1);
             player.sendMessage(Prefixes.PLUGIN + "Das ist §nkein Marker§7.");
             return;
         }
 
-        int markerIndex = playerRegionMarkers.get(player).indexOf(coordPoint);
-        playerRegionMarkers.get(player).remove(coordPoint);
+        session.touch();
 
-        clickedBlock.setType(coordPoint.getOriginalMaterial());
+        // A previewed simplification no longer matches the markers, the preview is rendered from scratch below
+        if (session.getPendingSimplification() != null) {
+            session.setPendingSimplification(null);
+            session.clearPreview();
+        }
+
+        Marker coordPoint = points.remove(markerIndex);
+        pl.getSessionJournal().journal(player.getUniqueId(), session.getWorldName(), points);
+
+        // The points of a shown region did not replace their blocks, so there is nothing to restore
+        if (coordPoint.hasReplacedBlock() && clickedBlock.getType() == Material.SEA_LANTERN) {
+            clickedBlock.setType(coordPoint.getOriginalMaterial());
+            pl.getOperationCounters().increment(OperationCounters.Counter.BLOCK_WRITES);
+        }
 
         player.getWorld().playEffect(clickedBlock.getLocation().add(0, 1, 0), Effect.COPPER_WAX_ON, 1);
         player.playSound(player.getLocation(), Sound.BLOCK_BEACON_DEACTIVATE, 1, 1);
 
-        player.sendMessage(Prefixes.PLUGIN + "§3" + (playerRegionMarkers.get(player).size() + 1) + ". §7Punkt (Marker §3" + (markerIndex + 1) + "§7) §centfernt§7:");
+        player.sendMessage(Prefixes.PLUGIN + "§3" + (points.size() + 1) + ". §7Punkt (Marker §3" + (markerIndex + 1) + "§7) §centfernt§7:");
         player.sendMessage(Prefixes.ADDITION + pointToBeRemoved.toFancyString(false));
 
-        if (playerRegionMarkers.get(player).size() >= 3) {
-            updateRegionMarkers(player);
+        if (points.size() >= 3) {
+            updateRegionMarkersAfterRemove(player, markerIndex);
+        } else if (points.isEmpty()) {
+            // the last marker has been removed, the session is not needed anymore
+            sessionManager.remove(player.getUniqueId());
         } else {
             // clear region markers (we cant create a polygon with less than 3 points)
             clearRegionMarkers(player);
@@ -231,23 +242,19 @@ public class RegionMarker {
     /**
      * Remove all region markers from a player.<br />
      * - All markers are removed from the world and the player is notified about the removed points.<br />
-     * - The region markers are cleared and removed from the playerRegionMarkers map.<br />
+     * - The session of the player is removed (including its preview and journal).<br />
      * - The player is notified about the successful removal of all points.<br />
      *
      * @param player The player
      */
     public void removeAllMarkers(Player player) {
+        RegionSession session = sessionManager.remove(player.getUniqueId());
 
-        for (Marker currentMarker : playerRegionMarkers.get(player)) {
-            // Subtract 0.5 from the x and z coordinates to get the block at the correct position
-            // --> We add 0.5 to the coordinates when creating location of the markers in the PlayerInteract event
-            Block block = player.getWorld().getBlockAt((int) (currentMarker.x - 0.5), (int) currentMarker.y, (int) (currentMarker.z - 0.5));
-            block.setType(currentMarker.getOriginalMaterial());
+        if (session != null) {
+            sessionManager.restoreMarkerBlocks(session);
         }
 
-        clearRegionMarkers(player);
-
-        playerRegionMarkers.remove(player);
+        pl.getSessionJournal().remove(player.getUniqueId());
 
         player.playSound(player.getLocation(), Sound.ENTITY_ITEM_BREAK, 1, 1);
 
@@ -259,421 +266,427 @@ public class RegionMarker {
     //<editor-fold desc="Display entities (Markers)">
 
     /**
-     * Updates the region markers for a player by creating display entities between the markers.
+     * Updates the region markers for a player by rendering the whole preview from scratch.
      *
      * @param player The player
      */
     private void updateRegionMarkers(Player player) {
-        List<Marker> playerMarkers = playerRegionMarkers.get(player);
+        pl.getOperationCounters().measure("update-region-markers", () -> showPreview(player, sessionManager.get(player.getUniqueId()).getMarkers().asList()));
+    }
+
+    /**
+     * Renders the preview of the given markers from scratch, replacing the current preview of a player.
+     *
+     * @param player  The player
+     * @param markers The markers to be previewed, in order
+     */
+    private void showPreview(Player player, List<Marker> markers) {
+        RegionSession session = sessionManager.get(player.getUniqueId());
+        session.clearPreview();
+
+        RegionPreview preview = new RegionPreview(player, previewSpawner);
+        preview.rebuild(markers);
+        session.setPreview(preview);
+    }
 
-        clearRegionMarkers(player);
+    /**
+     * Updates the region markers for a player after a marker has been inserted.
+     * - If a preview of the previous markers exists, only the affected edges are re-rendered
+     * - Otherwise, the preview is rendered from scratch
+     *
+     * @param player      The player
+     * @param insertIndex The index at which the marker has been inserted
+     */
+    private void updateRegionMarkersAfterInsert(Player player, int insertIndex) {
+        RegionSession session = sessionManager.get(player.getUniqueId());
+        List<Marker> playerMarkers = session.getMarkers().asList();
+        RegionPreview preview = session.getPreview();
 
-        for (int markerIndex = 0; markerIndex < playerMarkers.size() - 1; markerIndex++) {
-            createDisplayEntitiesBetweenPointsBresenham(player, playerMarkers.get(markerIndex), playerMarkers.get(markerIndex + 1));
+        if (preview == null || preview.getVertexCount() < 3 || preview.getVertexCount() != playerMarkers.size() - 1) {
+            updateRegionMarkers(player);
+            return;
         }
 
-        createDisplayEntitiesBetweenPointsBresenham(player, playerMarkers.getLast(), playerMarkers.getFirst());
+        preview.insertVertex(playerMarkers, insertIndex);
     }
 
     /**
-     * removes all entities with the tag "pr_polygon_marker" from the world of a player
+     * Updates the region markers for a player after a marker has been removed.
+     * - If a preview of the previous markers exists, only the affected edges are re-rendered
+     * - Otherwise, the preview is rendered from scratch
+     *
+     * @param player      The player
+     * @param removeIndex The index of the removed marker
+     */
+    private void updateRegionMarkersAfterRemove(Player player, int removeIndex) {
+        RegionSession session = sessionManager.get(player.getUniqueId());
+        List<Marker> playerMarkers = session.getMarkers().asList();
+        RegionPreview preview = session.getPreview();
+
+        if (preview == null || preview.getVertexCount() != playerMarkers.size() + 1) {
+            updateRegionMarkers(player);
+            return;
+        }
+
+        preview.removeVertex(playerMarkers, removeIndex);
+    }
+
+    /**
+     * removes all preview entities (markers, connectors and marker texts) spawned for a player
+     * - Only the entities of the player's preview are removed, other players' previews are left untouched
      *
      * @param player the player
      */
     public void clearRegionMarkers(@NotNull Player player) {
-        player.getWorld().getEntities().stream().filter(entity ->
-                entity.getScoreboardTags().contains("pr_polygon_marker") ||
-                        entity.getScoreboardTags().contains("pr_polygon_connector") ||
-                        entity.getScoreboardTags().contains("pr_polygon_marker_text")).forEach(Entity::remove);
+        RegionSession session = sessionManager.get(player.getUniqueId());
+
+        if (session != null) {
+            pl.getOperationCounters().measure("clear-region-markers", session::clearPreview);
+        }
     }
+    // </editor-fold>
 
 
+    // <editor-fold desc="WorldGuard regions">
+
     /**
-     * Creates the lines (display entities) between two markers
-     * - The lines are created by spawning entities with the tag "pr_polygon_connector" and the material RED_CONCRETE
-     * - The "support" for the lines is created by spawning entities with the tag "pr_polygon_marker" and the material YELLOW_CONCRETE
-     * - Every "support" displays the number of the marker as an armor stand
+     * Returns the characters of a region name that are not allowed (everything but letters and digits)
      *
-     * @param player  The player
-     * @param markerA The first marker
-     * @param markerB The second marker
+     * @param wgRegionName The name of the WorldGuard region
+     * @return The invalid characters separated by spaces, or an empty string if the name is valid
      */
-    private void createDisplayEntitiesBetweenPoints(@NotNull Player player, @NotNull Marker markerA, @NotNull Marker markerB) {
-        // Copy the markers to prevent changes to the original markers
-        //Marker markerA = marker1;
-        //Marker markerB = marker2;
-
-        // Create locations for the markers, 5 blocks above the ground
-        Location locationMarkerA = new Location(player.getWorld(), markerA.x - 0.5, markerA.y + 5.0, markerA.z - 0.5);
-        Location locationMarkerB = new Location(player.getWorld(), markerB.x - 0.5, markerB.y + 5.0, markerB.z - 0.5);
-
-        // Create indexes for the markers
-        int index1 = playerRegionMarkers.get(player).indexOf(markerA) + 1;
-        int index2 = playerRegionMarkers.get(player).indexOf(markerB) + 1;
-
-        //org.bukkit.entity.Marker marker1 = player.getWorld().spawn(location1, org.bukkit.entity.Marker.class, entity -> {
-        //    entity.addScoreboardTag("pr_polygon_marker");
-        //});
-        //org.bukkit.entity.Marker marker2 = player.getWorld().spawn(location2, org.bukkit.entity.Marker.class, entity -> {
-        //    entity.addScoreboardTag("pr_polygon_marker");
-        //});
-
-        // Create text entities for the marker indexes as armor stands above the markers
-        Location textLocation1 = locationMarkerA.clone().add(0.5, 1, 0.5);
-        player.getWorld().spawn(textLocation1, ArmorStand.class, entity -> {
-            entity.setCustomName(String.valueOf(index1));
-            entity.setCustomNameVisible(true);
-            entity.setInvisible(true);
-            entity.setMarker(true);
-            entity.addScoreboardTag("pr_polygon_marker_text");
-        });
+    public static @NotNull String findInvalidNameChars(@NotNull String wgRegionName) {
+        // Regex to find invalid characters
+        Matcher matcher = INVALID_NAME_CHARS.matcher(wgRegionName);
 
-        Location textLocation2 = locationMarkerB.clone().add(0.5, 1, 0.5);
-        player.getWorld().spawn(textLocation2, ArmorStand.class, entity -> {
-            entity.setCustomName(String.valueOf(index2));
-            entity.setCustomNameVisible(true);
-            entity.setInvisible(true);
-            entity.setMarker(true);
-            entity.addScoreboardTag("pr_polygon_marker_text");
-        });
+        StringBuilder invalidChars = new StringBuilder();
 
-        // Create "support" entities for the lines
-        createVerticalSupport(player, markerA, locationMarkerA);
-        createVerticalSupport(player, markerB, locationMarkerB);
+        while (matcher.find()) {
+            invalidChars.append(matcher.group()).append(" ");
+        }
 
-        // Calculate the distance between the two markers
-        double xDeltaLocMBMA = locationMarkerB.getX() - locationMarkerA.getX();
-        double yDeltaLocMBMA = locationMarkerB.getY() - locationMarkerA.getY();
-        double zDeltaLocMBMA = locationMarkerB.getZ() - locationMarkerA.getZ();
-        double totalDistance = Math.sqrt(xDeltaLocMBMA * xDeltaLocMBMA + yDeltaLocMBMA * yDeltaLocMBMA + zDeltaLocMBMA * zDeltaLocMBMA);
+        return invalidChars.toString();
+    }
 
-        // Number of segments (Red concrete blocks) to create (1 block per block)
-        int numSegments = (int) (totalDistance);
+    /**
+     * Create a polygonal WorldGuard region with the default flags of this plugin
+     * - The flags are set to deny block break, chest access, block place, vehicle destruction, fire spread, mob damage and TNT
+     * - The region is not added to any region manager
+     *
+     * @param wgRegionName The name of the WorldGuard region
+     * @param wgPoints     The points of the region
+     * @param minY         The minimum y coordinate of the region
+     * @param maxY         The maximum y coordinate of the region
+     * @return The region
+     */
+    public static @NotNull ProtectedPolygonalRegion createDefaultRegion(@NotNull String wgRegionName, @NotNull List<BlockVector2> wgPoints, int minY, int maxY) {
+        ProtectedPolygonalRegion wgRegion = new ProtectedPolygonalRegion(wgRegionName, wgPoints, minY, maxY);
 
-        double stepX = xDeltaLocMBMA / numSegments;
-        double stepY = yDeltaLocMBMA / numSegments;
-        double stepZ = zDeltaLocMBMA / numSegments;
+        // set flags
+        wgRegion.setFlag(Flags.BLOCK_BREAK, StateFlag.State.DENY);
+        wgRegion.setFlag(Flags.CHEST_ACCESS, StateFlag.State.DENY);
+        wgRegion.setFlag(Flags.BLOCK_PLACE, StateFlag.State.DENY);
+        wgRegion.setFlag(Flags.DESTROY_VEHICLE, StateFlag.State.DENY);
+        wgRegion.setFlag(Flags.FIRE_SPREAD, StateFlag.State.DENY);
+        wgRegion.setFlag(Flags.MOB_DAMAGE, StateFlag.State.DENY);
+        wgRegion.setFlag(Flags.TNT, StateFlag.State.DENY);
 
-        for (int i = 0; i < numSegments; i++) {
-            double segmentX = locationMarkerA.getX() + stepX * i + 0.5;
-            double segmentY = locationMarkerA.getY() + stepY * i + 0.5;
-            double segmentZ = locationMarkerA.getZ() + stepZ * i + 0.5;
+        return wgRegion;
+    }
 
-            spawnRegionBoundaryConnector(player, segmentX, segmentY, segmentZ);
-        }
+    /**
+     * Create a WorldGuard region from the markers of a player, using the configured simplification tolerance
+     *
+     * @param player       The player
+     * @param wgRegionName The name of the WorldGuard region
+     * @see #createWgRegion(Player, String, double)
+     */
+    public void createWgRegion(Player player, String wgRegionName) {
+        createWgRegion(player, wgRegionName, getDefaultSimplificationTolerance());
     }
 
     /**
-     * Creates the vertical support for the lines between two markers using the Bresenham's Algorithm
+     * Create a WorldGuard region from the markers of a player
+     * - The region is created with the name provided by the player
+     * - If simplification is enabled and drops points, the simplified polygon is previewed first and the region is only created once the player confirms again
+     * - Changing the markers in between discards the simplified polygon
+     * - The region is created with the flags set to deny block break, chest access, block place, vehicle destruction, fire spread, mob damage and TNT
+     * - The region is added to the WorldGuard region manager
      *
-     * @param player  The player
-     * @param markerA The first marker
-     * @param markerB The second marker
+     * @param player       The player
+     * @param wgRegionName The name of the WorldGuard region
+     * @param tolerance    The simplification tolerance (in blocks)
      */
-    private void createDisplayEntitiesBetweenPointsBresenham(@NotNull Player player, @NotNull Marker markerA, @NotNull Marker markerB) {
-        // Create locations for the markers, 5 blocks above the ground
-        Location locationMarkerA = new Location(player.getWorld(), markerA.x - 0.5, markerA.y + 5.0, markerA.z - 0.5);
-        Location locationMarkerB = new Location(player.getWorld(), markerB.x - 0.5, markerB.y + 5.0, markerB.z - 0.5);
-
-        // Create indexes for the markers
-        int index1 = playerRegionMarkers.get(player).indexOf(markerA) + 1;
-        int index2 = playerRegionMarkers.get(player).indexOf(markerB) + 1;
-
-        // Create text entities for the marker indexes as armor stands above the markers
-        Location textLocation1 = locationMarkerA.clone().add(0.5, 1, 0.5);
-        player.getWorld().spawn(textLocation1, ArmorStand.class, entity -> {
-            entity.setCustomName(String.valueOf(index1));
-            entity.setCustomNameVisible(true);
-            entity.setInvisible(true);
-            entity.setMarker(true);
-            entity.addScoreboardTag("pr_polygon_marker_text");
-        });
+    public void createWgRegion(Player player, String wgRegionName, double tolerance) {
+        pl.getOperationCounters().measure("create-wg-region", () -> {
+            RegionSession session = sessionManager.get(player.getUniqueId());
+            session.touch();
 
-        Location textLocation2 = locationMarkerB.clone().add(0.5, 1, 0.5);
-        player.getWorld().spawn(textLocation2, ArmorStand.class, entity -> {
-            entity.setCustomName(String.valueOf(index2));
-            entity.setCustomNameVisible(true);
-            entity.setInvisible(true);
-            entity.setMarker(true);
-            entity.addScoreboardTag("pr_polygon_marker_text");
-        });
+            List<Marker> playerMarkers = session.getMarkers().asList();
 
-        // Create "support" entities for the lines
-        createVerticalSupport(player, markerA, locationMarkerA);
-        createVerticalSupport(player, markerB, locationMarkerB);
-
-        // Bresenham's Algorithm to draw the line
-        int xMarker1 = locationMarkerA.getBlockX();
-        int yMarker1 = locationMarkerA.getBlockY();
-        int zMarker1 = locationMarkerA.getBlockZ();
-
-        int xMarker2 = locationMarkerB.getBlockX();
-        int yMarker2 = locationMarkerB.getBlockY();
-        int zMarker2 = locationMarkerB.getBlockZ();
-
-        // Calculate the differences in each coordinate
-        int xDeltaM2M1 = Math.abs(xMarker2 - xMarker1);
-        int yDeltaM2M1 = Math.abs(yMarker2 - yMarker1);
-        int zDeltaM2M1 = Math.abs(zMarker2 - zMarker1);
-
-        // Determine the direction of movement in each axis
-        int stepX = xMarker1 < xMarker2 ? 1 : -1;
-        int stepY = yMarker1 < yMarker2 ? 1 : -1;
-        int stepZ = zMarker1 < zMarker2 ? 1 : -1;
-
-        // Identify the dominant direction
-        if (xDeltaM2M1 >= yDeltaM2M1 && xDeltaM2M1 >= zDeltaM2M1) {
-            // Initialize error terms for YZ and XZ planes
-            int errorYZ = 2 * yDeltaM2M1 - xDeltaM2M1;
-            int errorXZ = 2 * zDeltaM2M1 - xDeltaM2M1;
-
-            while (xMarker1 != xMarker2) {
-                xMarker1 += stepX;
-
-                if (errorYZ >= 0) {
-                    yMarker1 += stepY;
-                    errorYZ -= 2 * xDeltaM2M1;
-                }
+            String invalidChars = findInvalidNameChars(wgRegionName);
 
-                if (errorXZ >= 0) {
-                    zMarker1 += stepZ;
-                    errorXZ -= 2 * xDeltaM2M1;
-                }
+            if (!invalidChars.isEmpty()) {
+                player.sendMessage(Prefixes.ERROR + "Der Regionsname enthält ungültige Zeichen: " + invalidChars);
+                return;
+            }
 
-                errorYZ += 2 * yDeltaM2M1;
-                errorXZ += 2 * zDeltaM2M1;
+            List<BlockVector2> wgPoints = new ArrayList<>();
 
-                // Spawn the connector entity at the current position
-                spawnRegionBoundaryConnector(player, xMarker1, yMarker1, zMarker1);
+            for (Marker playerMarker : playerMarkers) {
+                wgPoints.add(BlockVector2.at(playerMarker.x, playerMarker.z));
             }
-        } else if (yDeltaM2M1 >= xDeltaM2M1 && yDeltaM2M1 >= zDeltaM2M1) {
-            int errorXY = 2 * xDeltaM2M1 - yDeltaM2M1;
-            int errorYZ = 2 * zDeltaM2M1 - yDeltaM2M1;
 
-            while (yMarker1 != yMarker2) {
-                yMarker1 += stepY;
+            if (!isSimplificationEnabled()) {
+                commitWgRegion(player, wgRegionName, wgPoints);
+                return;
+            }
 
-                if (errorXY >= 0) {
-                    xMarker1 += stepX;
-                    errorXY -= 2 * yDeltaM2M1;
-                }
+            // Second confirmation of an already previewed simplification
+            PendingSimplification pending = session.getPendingSimplification();
 
-                if (errorYZ >= 0) {
-                    zMarker1 += stepZ;
-                    errorYZ -= 2 * yDeltaM2M1;
-                }
+            if (pending != null && pending.matches(wgRegionName, tolerance)) {
+                discardPendingSimplification(player);
+                commitWgRegion(player, wgRegionName, pending.getWgPoints());
+                return;
+            }
 
-                errorXY += 2 * xDeltaM2M1;
-                errorYZ += 2 * zDeltaM2M1;
+            discardPendingSimplification(player);
 
-                spawnRegionBoundaryConnector(player, xMarker1, yMarker1, zMarker1);
-            }
-        } else {
-            int errorXY = 2 * yDeltaM2M1 - zDeltaM2M1;
-            int errorXZ = 2 * xDeltaM2M1 - zDeltaM2M1;
+            double[] xs = new double[wgPoints.size()];
+            double[] zs = new double[wgPoints.size()];
 
-            while (zMarker1 != zMarker2) {
-                zMarker1 += stepZ;
+            for (int i = 0; i < wgPoints.size(); i++) {
+                xs[i] = wgPoints.get(i).x();
+                zs[i] = wgPoints.get(i).z();
+            }
 
-                if (errorXY >= 0) {
-                    yMarker1 += stepY;
-                    errorXY -= 2 * zDeltaM2M1;
-                }
+            int[] keptIndices = PolygonSimplifier.simplify(xs, zs, tolerance);
 
-                if (errorXZ >= 0) {
-                    xMarker1 += stepX;
-                    errorXZ -= 2 * zDeltaM2M1;
-                }
+            if (keptIndices.length == wgPoints.size()) {
+                commitWgRegion(player, wgRegionName, wgPoints);
+                return;
+            }
 
-                errorXY += 2 * yDeltaM2M1;
-                errorXZ += 2 * xDeltaM2M1;
+            List<BlockVector2> simplifiedPoints = new ArrayList<>(keptIndices.length);
+            List<Marker> simplifiedMarkers = new ArrayList<>(keptIndices.length);
 
-                spawnRegionBoundaryConnector(player, xMarker1, yMarker1, zMarker1);
+            for (int keptIndex : keptIndices) {
+                simplifiedPoints.add(wgPoints.get(keptIndex));
+                simplifiedMarkers.add(playerMarkers.get(keptIndex));
             }
-        }
+
+            session.setPendingSimplification(new PendingSimplification(wgRegionName, tolerance, simplifiedPoints));
+            showPreview(player, simplifiedMarkers);
+
+            player.sendMessage(Prefixes.PLUGIN + "Die Region wurde von §3" + wgPoints.size() + " §7auf §3" + keptIndices.length + " §7Punkte §avereinfacht §7(Toleranz: §3" + tolerance + " §7Blöcke).");
+            player.sendMessage(Prefixes.ADDITION + "Die vereinfachte Region wird dir nun angezeigt.");
+            player.sendMessage(Prefixes.ADDITION + "Bestätige sie mit §8/§bpregion confirm §3" + wgRegionName + " " + tolerance + "§7.");
+            player.sendMessage(Prefixes.ADDITION + "Mit der Toleranz §30 §7werden nur doppelte Punkte und Punkte auf einer Linie entfernt.");
+        });
     }
 
     /**
-     * Helper method to spawn a region boundary connector entity at a given location
-     * - The entity is spawned with the tag "pr_polygon_connector" and the material RED_CONCRETE
-     * - The entity is scaled to 1/3 of its original size
-     * - The entity is spawned at the given location
+     * Queue a WorldGuard region with the given points for the world of a player and notify the player once it has been created
+     * - The region is validated, added in a batch and saved asynchronously by the {@link RegionCommitQueue}
      *
-     * @param player The player
-     * @param x      The x coordinate
-     * @param y      The y coordinate
-     * @param z      The z coordinate
+     * @param player       The player
+     * @param wgRegionName The name of the WorldGuard region
+     * @param wgPoints     The points of the region
      */
-    private void spawnRegionBoundaryConnector(@NotNull Player player, double x, double y, double z) {
-        Location segmentLocation = new Location(player.getWorld(), x + 0.5, y + 1.125, z + 0.5);
-        player.getWorld().spawn(segmentLocation, ItemDisplay.class, entity -> {
-            entity.setItemStack(new ItemStack(Material.RED_CONCRETE));
-
-            entity.setTransformation(new Transformation(
-                    new Vector3f(0, 0, 0),                 // Translation
-                    new Quaternionf(),                              // Left rotation
-                    new Vector3f(0.333f, 0.333f, 0.333f),  // Scale
-                    new Quaternionf()                               // Right rotation
-            ));
-
-            entity.addScoreboardTag("pr_polygon_connector");
+    private void commitWgRegion(Player player, String wgRegionName, List<BlockVector2> wgPoints) {
+        UUID playerId = player.getUniqueId();
+
+        pl.getRegionCommitQueue().submit(player.getWorld(), wgRegionName, wgPoints, -64, 320, result -> {
+            // The player may have left until the region has been saved
+            Player onlinePlayer = Bukkit.getPlayer(playerId);
+
+            if (onlinePlayer != null) {
+                sendCommitResult(onlinePlayer, result, wgPoints.size());
+            }
         });
     }
 
-
     /**
-     * Creates the vertical support for the lines between two markers
-     * - The support is created by spawning entities with the tag "pr_polygon_connector" and the material YELLOW_CONCRETE and BLACK_CONCRETE
-     * - The support is created in 3 segments to prevent entity clipping
+     * Notify a player about the result of a queued WorldGuard region
      *
-     * @param player   The player
-     * @param point    The marker
-     * @param location The location of the marker
+     * @param player     The player
+     * @param result     The result of the commit
+     * @param pointCount The number of points of the region
      */
-    private void createVerticalSupport(Player player, @NotNull Marker point, Location location) {
-        for (int y = (int) point.y + 1; y <= point.y + 5; y++) {
-            Location segmentLocation = new Location(player.getWorld(), point.x, y + 0.125, point.z);
-            for (int i = 0; i < 3; i++) {
-
-                // skip last iteration to prevent entity clipping
-                if (y == point.y + 5 && i == 1) {
-                    continue;
-                }
+    private void sendCommitResult(Player player, CommitResult result, int pointCount) {
+        String wgRegionName = result.getWgRegionName();
+
+        switch (result.getStatus()) {
+            case NO_REGION_MANAGER -> {
+                player.sendMessage(Prefixes.ERROR + "Fehler beim Zugriff auf das Region-Management.");
+                player.sendMessage(Prefixes.ADDITION + "Versuche es gerne noch einmal, oder kontaktiere ein Serverteammitglied.");
+                return;
+            }
+            case DUPLICATE_NAME -> {
+                player.sendMessage(Prefixes.ERROR + "Eine Region mit dem Namen \"§2" + wgRegionName + "§7\" existiert bereits.");
+                return;
+            }
+            case INVALID_NAME -> {
+                player.sendMessage(Prefixes.ERROR + "Der Regionsname \"§2" + wgRegionName + "§7\" ist ungültig.");
+                return;
+            }
+            case INVALID_GEOMETRY -> {
+                player.sendMessage(Prefixes.ERROR + "Die Region benötigt mindestens §33 §7Punkte, die nicht auf einer Linie liegen.");
+                return;
+            }
+            default -> {
+            }
+        }
 
-                // i = odd -> BLACK_CONCRETE, i = even -> YELLOW_CONCRETE
-                final Material materialToUse = ((i % 2) == 0) ? Material.YELLOW_CONCRETE : Material.BLACK_CONCRETE;
+        ProtectedPolygonalRegion wgRegion = result.getWgRegion();
 
-                Location displayLocation = segmentLocation.clone().add(0, i * (1.0 / 3.0), 0);
+        player.sendMessage(Prefixes.PLUGIN + "Die Region \"§2" + wgRegionName + "§7\" wurde mit §3" + pointCount + " §7Punkten §aerfolgreich §7erstellt.");
+        player.sendMessage(Prefixes.ADDITION + "Die Region ist nun §ageschützt §7und kann von anderen Spielern §nnicht§7 verändert werden.\n");
+        player.sendMessage(Prefixes.ADDITION + "Sie besitzt standardmäßig folgende WorldGuard §nFlags§7:");
 
-                ItemDisplay itemDisplay = player.getWorld().spawn(displayLocation, ItemDisplay.class, entity -> {
-                    entity.setItemStack(new ItemStack(materialToUse));
-                    entity.setTransformation(new Transformation(
-                            new Vector3f(0, 0, 0),                  // Translation
-                            new Quaternionf(),                               // Left rotation
-                            new Vector3f(0.333f, 0.333f, 0.333f),   // Scale
-                            new Quaternionf()                                // Right rotation
-                    ));
+        // Display the flags of the region
+        wgRegion.getFlags().keySet().stream().map(flag -> Prefixes.ADDITION + "§8- §7" + flag.getName() + "§8: §3" + wgRegion.getFlag(flag)).forEach(player::sendMessage);
 
-                    entity.addScoreboardTag("pr_polygon_connector");
-                });
-            }
+        if (result.getStatus() == CommitResult.Status.CREATED_UNSAVED) {
+            player.sendMessage(Prefixes.ERROR + "Die Region konnte noch §cnicht gespeichert §7werden, WorldGuard versucht es später erneut.");
         }
-    }
-    // </editor-fold>
 
+        player.sendMessage("\n" + Prefixes.INFO + "Die Region kann optional über WorldGuard verwaltet werden.");
+    }
 
-    // <editor-fold desc="WorldGuard regions">
 
     /**
-     * Create a WorldGuard region from the markers of a player
-     * - The region is created with the name provided by the player
-     * - The region is created with the flags set to deny block break, chest access, block place, vehicle destruction, fire spread, mob damage and TNT
-     * - The region is added to the WorldGuard region manager
+     * Load the points of a WorldGuard region into the region markers of a player
+     * - The points are loaded from the WorldGuard region manager
+     * - The chunks of the points are loaded asynchronously, the nearest first, so distant regions do not stall the server
+     * - The points are displayed to the player once all of their chunks are loaded
      *
      * @param player       The player
      * @param wgRegionName The name of the WorldGuard region
      */
-    public void createWgRegion(Player player, String wgRegionName) {
-        List<Marker> playerMarkers = playerRegionMarkers.get(player);
+    public void loadPointsFromRegion(Player player, String wgRegionName) {
+        pl.getOperationCounters().measure("load-points-from-region", () -> {
+            RegionManager wgRegionInWgWorld = pl.getRegionManager(player.getWorld());
 
-        LocalPlayer wgPlayer = WorldGuardPlugin.inst().wrapPlayer(player);
+            if (wgRegionInWgWorld == null) {
+                player.sendMessage(Prefixes.ERROR + "Fehler beim Zugriff auf das Region-Management.");
+                player.sendMessage(Prefixes.ADDITION + "Versuche es gerne noch einmal, oder kontaktiere ein Serverteammitglied.");
+                return;
+            }
 
-        RegionContainer wgRegionContainer = WorldGuard.getInstance().getPlatform().getRegionContainer();
-        RegionManager wgRegionInWgWorld = wgRegionContainer.get(wgPlayer.getWorld());
+            ProtectedPolygonalRegion wgPolygonalRegion = (ProtectedPolygonalRegion) wgRegionInWgWorld.getRegion(wgRegionName);
 
-        if (wgRegionInWgWorld == null) {
-            player.sendMessage(Prefixes.ERROR + "Fehler beim Zugriff auf das Region-Management.");
-            player.sendMessage(Prefixes.ADDITION + "Versuche es gerne noch einmal, oder kontaktiere ein Serverteammitglied.");
-            return;
-        }
+            if (wgPolygonalRegion == null) {
+                player.sendMessage(Prefixes.ERROR + "Die Region \"§2§n" + wgRegionName + "§7\" wurde §nnicht gefunden§7.");
+                return;
+            }
 
-        List<BlockVector2> wgPoints = new ArrayList<>();
+            List<BlockVector2> wgPoints = List.copyOf(wgPolygonalRegion.getPoints());
 
-        for (Marker playerMarker : playerMarkers) {
-            wgPoints.add(BlockVector2.at(playerMarker.x, playerMarker.z));
-        }
+            if (!sessionManager.isWithinVertexLimit(wgPoints.size())) {
+                player.sendMessage(Prefixes.ERROR + "Die Region hat §nzu viele§7 Punkte (§3" + wgPoints.size() + "§8/§3" + sessionManager.getMaxVertices() + "§7), um sie anzuzeigen.");
+                return;
+            }
 
-        // Regex to find invalid characters
-        Pattern pattern = Pattern.compile("[^a-zA-Z0-9]");
-        Matcher matcher = pattern.matcher(wgRegionName);
+            player.sendMessage(Prefixes.INFO + "Lade Punkte der Region \"§2" + wgRegionName + "§7\"...");
 
-        StringBuilder invalidChars = new StringBuilder();
+            World world = player.getWorld();
+            int minY = wgPolygonalRegion.getMinimumPoint().y();
+            int maxY = wgPolygonalRegion.getMaximumPoint().y();
 
-        while (matcher.find()) {
-            invalidChars.append(matcher.group()).append(" ");
-        }
+            // The points are grouped by chunk, so every chunk is only loaded once
+            Map<Long, List<Integer>> pointsByChunk = new LinkedHashMap<>();
 
-        if (invalidChars.length() > 0) {
-            player.sendMessage(Prefixes.ERROR + "Der Regionsname enthält ungültige Zeichen: " + invalidChars.toString());
-            return;
-        }
+            for (int i = 0; i < wgPoints.size(); i++) {
+                BlockVector2 wgPoint = wgPoints.get(i);
+                pointsByChunk.computeIfAbsent(BlockKeys.packColumn(wgPoint.x() >> 4, wgPoint.z() >> 4), key -> new ArrayList<>()).add(i);
+            }
 
-        ProtectedPolygonalRegion wgRegion = new ProtectedPolygonalRegion(wgRegionName, wgPoints, -64, 320);
+            long[] chunkKeys = pointsByChunk.keySet().stream().mapToLong(Long::longValue).toArray();
+            Marker[] markers = new Marker[wgPoints.size()];
+            UUID playerId = player.getUniqueId();
 
-        // set flags
-        wgRegion.setFlag(Flags.BLOCK_BREAK, StateFlag.State.DENY);
-        wgRegion.setFlag(Flags.CHEST_ACCESS, StateFlag.State.DENY);
-        wgRegion.setFlag(Flags.BLOCK_PLACE, StateFlag.State.DENY);
-        wgRegion.setFlag(Flags.DESTROY_VEHICLE, StateFlag.State.DENY);
-        wgRegion.setFlag(Flags.FIRE_SPREAD, StateFlag.State.DENY);
-        wgRegion.setFlag(Flags.MOB_DAMAGE, StateFlag.State.DENY);
-        wgRegion.setFlag(Flags.TNT, StateFlag.State.DENY);
+            // A new /pregion show replaces a show that is still loading
+            cancelPendingShow(playerId);
 
-        wgRegionInWgWorld.addRegion(wgRegion);
+            AsyncChunkLoader.Request request = pl.getChunkLoader().load(world, chunkKeys, player.getLocation(), true, true, chunk -> {
+                for (int i : pointsByChunk.get(BlockKeys.packColumn(chunk.getX(), chunk.getZ()))) {
+                    BlockVector2 wgPoint = wgPoints.get(i);
+                    int groundY = groundHeightService.getGroundY(world, wgPoint.x(), wgPoint.z(), minY, maxY, HeightMap.MOTION_BLOCKING);
 
-        player.sendMessage(Prefixes.PLUGIN + "Die Region \"§2" + wgRegionName + "§7\" wurde §aerfolgreich §7erstellt.");
-        player.sendMessage(Prefixes.ADDITION + "Die Region ist nun §ageschützt §7und kann von anderen Spielern §nnicht§7 verändert werden.\n");
-        player.sendMessage(Prefixes.ADDITION + "Sie besitzt standardmäßig folgende WorldGuard §nFlags§7:");
+                    // The points are only shown, no block is replaced that would have to be restored later
+                    markers[i] = new Marker(wgPoint.x() - 0.5, groundY - 0.5, wgPoint.z() - 0.5, null);
+                }
+            }, () -> {
+                pendingShows.remove(playerId);
+                Player onlinePlayer = Bukkit.getPlayer(playerId);
 
-        // Display the flags of the region
-        wgRegion.getFlags().keySet().stream().map(flag -> Prefixes.ADDITION + "§8- §7" + flag.getName() + "§8: §3" + wgRegion.getFlag(flag)).forEach(player::sendMessage);
+                if (onlinePlayer == null || !onlinePlayer.getWorld().equals(world)) {
+                    return;
+                }
 
-        player.sendMessage("\n" + Prefixes.INFO + "Die Region kann optional über WorldGuard verwaltet werden.");
-    }
+                pl.getOperationCounters().measure("show-region-markers", () -> showLoadedPoints(onlinePlayer, wgRegionName, markers));
+            });
 
+            // Chunks that are already loaded may have completed the request right away
+            if (request.isPending()) {
+                pendingShows.put(playerId, request);
+            }
+        });
+    }
 
     /**
-     * Load the points of a WorldGuard region into the region markers of a player
-     * - The points are loaded from the WorldGuard region manager
-     * - The points are displayed to the player
+     * Replaces the session of a player with the loaded points of a region and shows them
+     * - Called once all chunks of the points are loaded
      *
      * @param player       The player
-     * @param wgRegionName The name of the WorldGuard region
+     * @param wgRegionName The name of the region
+     * @param markers      The markers of the points of the region
      */
-    public void loadPointsFromRegion(Player player, String wgRegionName) {
-        LocalPlayer wgPlayer = WorldGuardPlugin.inst().wrapPlayer(player);
+    private void showLoadedPoints(Player player, String wgRegionName, Marker[] markers) {
+        MarkerRing points = new MarkerRing();
 
-        RegionContainer wgRegionContainer = WorldGuard.getInstance().getPlatform().getRegionContainer();
-        RegionManager wgRegionInWgWorld = wgRegionContainer.get(wgPlayer.getWorld());
+        for (Marker marker : markers) {
+            if (marker == null) {
+                player.sendMessage(Prefixes.ERROR + "Die Chunks der Region \"§2" + wgRegionName + "§7\" konnten §nnicht geladen§7 werden.");
+                return;
+            }
 
-        if (wgRegionInWgWorld == null) {
-            player.sendMessage(Prefixes.ERROR + "Fehler beim Zugriff auf das Region-Management.");
-            player.sendMessage(Prefixes.ADDITION + "Versuche es gerne noch einmal, oder kontaktiere ein Serverteammitglied.");
-            return;
+            points.add(marker);
         }
 
-        ProtectedPolygonalRegion wgPolygonalRegion = (ProtectedPolygonalRegion) wgRegionInWgWorld.getRegion(wgRegionName);
+        // Showing a region replaces the current session, whose replaced blocks are restored
+        RegionSession previousSession = sessionManager.get(player.getUniqueId());
 
-        if (wgPolygonalRegion == null) {
-            player.sendMessage(Prefixes.ERROR + "Die Region \"§2§n" + wgRegionName + "§7\" wurde §nnicht gefunden§7.");
-            return;
+        if (previousSession != null) {
+            sessionManager.restoreMarkerBlocks(previousSession);
         }
 
-        player.sendMessage(Prefixes.INFO + "Lade Punkte der Region \"§2" + wgRegionName + "§7\"...");
-
-        List<Marker> points = new ArrayList<>();
-        for (BlockVector2 wgPoint : wgPolygonalRegion.getPoints()) {
-            Location location = new Location(player.getWorld(), wgPoint.x(), player.getWorld().getHighestBlockYAt(wgPoint.x(), wgPoint.z()), wgPoint.z());
-            Block block = location.getBlock();
+        RegionSession session = sessionManager.create(player, points);
 
-            points.add(new Marker(location.getX() - 0.5, location.getY() - 0.5, location.getZ() - 0.5, block.getType()));
+        if (session == null) {
+            return;
         }
 
-        playerRegionMarkers.put(player, points);
+        pl.getSessionJournal().journal(player.getUniqueId(), session.getWorldName(), points);
         player.sendMessage(Prefixes.INFO + "§3" + points.size() + " Markierungen §7wurden gefunden!");
         updateRegionMarkers(player);
         player.sendMessage(Prefixes.INFO + "Die Markierungen der Region \"§2" + wgRegionName + "§7\" werden nun angezeigt.");
     }
+
+    /**
+     * Cancels a /pregion show of a player whose chunks are still loading
+     *
+     * @param playerId The UUID of the player
+     */
+    private void cancelPendingShow(UUID playerId) {
+        AsyncChunkLoader.Request pendingShow = pendingShows.remove(playerId);
+
+        if (pendingShow != null) {
+            pendingShow.cancel();
+        }
+    }
     //</editor-fold>
 
 
@@ -684,6 +697,8 @@ public class RegionMarker {
      * - The wall is created by spawning falling fences around the region
      * - The wall is created by connecting the points of the region with straight lines
      * - The wall is created with a random height between 5 and 20 blocks
+     * - The wall is planned asynchronously from chunk snapshots, the fences are spawned once planning is done
+     * - The replaced blocks are recorded in an undo journal, so the wall can be removed with /pregion unfence
      *
      * @param wgRegionName
      * @param world
@@ -691,126 +706,152 @@ public class RegionMarker {
      * @param wallMaterial
      */
     public void placeWallAroundRegion(String wgRegionName, World world, Player player, Material wallMaterial) {
-        LocalPlayer wgPlayer = WorldGuardPlugin.inst().wrapPlayer(player);
+        pl.getOperationCounters().measure("place-wall-around-region", () -> {
+            RegionManager wgRegionInWgWorld = pl.getRegionManager(player.getWorld());
+
+            if (wgRegionInWgWorld == null) {
+                player.sendMessage(Prefixes.ERROR + "Fehler beim Zugriff auf das Region-Management.");
+                player.sendMessage(Prefixes.ADDITION + "Versuche es gerne noch einmal, oder kontaktiere ein Serverteammitglied.");
+                return;
+            }
 
-        RegionContainer wgRegionContainer = WorldGuard.getInstance().getPlatform().getRegionContainer();
-        RegionManager wgRegionInWgWorld = wgRegionContainer.get(wgPlayer.getWorld());
+            ProtectedPolygonalRegion wgPolygonalRegion = (ProtectedPolygonalRegion) wgRegionInWgWorld.getRegion(wgRegionName);
 
-        if (wgRegionInWgWorld == null) {
-            player.sendMessage(Prefixes.ERROR + "Fehler beim Zugriff auf das Region-Management.");
-            player.sendMessage(Prefixes.ADDITION + "Versuche es gerne noch einmal, oder kontaktiere ein Serverteammitglied.");
-            return;
-        }
+            if (wgPolygonalRegion == null) {
+                player.sendMessage(Prefixes.ERROR + "Die Region \"§2§n" + wgRegionName + "\"§7 konnte §nnicht gefunden§7 werden.");
+                return;
+            }
 
-        ProtectedPolygonalRegion wgPolygonalRegion = (ProtectedPolygonalRegion) wgRegionInWgWorld.getRegion(wgRegionName);
+            // Plan the wall off the main thread and spawn it using falling block entities (to be able to adapt the wall to the terrain)
+            wallPlanner.planWall(world, wgPolygonalRegion.getPoints(), wgPolygonalRegion.getMinimumPoint().y(), wgPolygonalRegion.getMaximumPoint().y(), player.getLocation(), wallBlockKeys -> pl.getOperationCounters().measure("fence-launch", () -> {
+                // Record the blocks the wall replaces, so the fence can be removed again
+                UndoJournal journal = pl.getUndoManager().begin(player, world, wgPolygonalRegion.getId(), UndoJournal.Kind.FENCE, wallMaterial);
+                journal.addPendingChanges(wallBlockKeys.length);
 
-        if (wgPolygonalRegion == null) {
-            player.sendMessage(Prefixes.ERROR + "Die Region \"§2§n" + wgRegionName + "\"§7 konnte §nnicht gefunden§7 werden.");
-            return;
-        }
+                for (long wallBlockKey : wallBlockKeys) {
+                    Location location = new Location(world, BlockKeys.getX(wallBlockKey), BlockKeys.getY(wallBlockKey), BlockKeys.getZ(wallBlockKey));
+                    pl.getFenceController().launch(location, wallMaterial, journal);
+                }
+            }));
+        });
+    }
+    //</editor-fold>
 
-        List<BlockVector2> wgRegionPoints = wgPolygonalRegion.getPoints();
-        Set<Location> wallLocations = new HashSet<>();
 
-        // Generate the wall locations by connecting the points of the region with straight lines
-        for (int i = 0; i < wgRegionPoints.size(); i++) {
-            BlockVector2 point1 = wgRegionPoints.get(i);
-            BlockVector2 point2 = wgRegionPoints.get((i + 1) % wgRegionPoints.size());
-            addWallLocations(world, wallLocations, point1, point2, wgPolygonalRegion.getMinimumPoint().y(), wgPolygonalRegion.getMaximumPoint().y());
-        }
+    //<editor-fold desc="Polygon simplification">
 
-        // Spawn the wall using the locations and falling block entities (to be able to adapt the wall to the terrain)
-        for (Location location : wallLocations) {
-            spawnFallingFence(location, wallMaterial);
-        }
+    /**
+     * Returns whether regions are simplified before they are created
+     *
+     * @return whether simplification is enabled in the config
+     */
+    private boolean isSimplificationEnabled() {
+        return pl.getConfig().getBoolean("simplification.enabled", false);
+    }
+
+    /**
+     * Returns the simplification tolerance (in blocks) used if the player does not provide one
+     *
+     * @return the configured simplification tolerance
+     */
+    public double getDefaultSimplificationTolerance() {
+        return Math.max(0, pl.getConfig().getDouble("simplification.tolerance", 1.0));
     }
 
     /**
-     * Add the locations of a wall around a polygonal region to a set of locations using the Bresenham's line algorithm
+     * Discards the previewed simplification of a player (if any) and shows the preview of the player's markers again
      *
-     * @param world              The world
-     * @param wallBlockLocations The set of wall block locations
-     * @param wgPoint1           The first point of the wall
-     * @param wgPoint2           The second point of the wall
-     * @param minY               The minimum y coordinate of the region
-     * @param maxY               The maximum y coordinate of the region
+     * @param player The player
      */
-    private void addWallLocations(World world, Set<Location> wallBlockLocations, @NotNull BlockVector2 wgPoint1, @NotNull BlockVector2 wgPoint2, int minY, int maxY) {
-        // Calculate the absolute delta between the x and z coordinates of wgPoint1 and wgPoint2
-        int xDeltaP2P1 = Math.abs(wgPoint2.x() - wgPoint1.x());
-        int zDeltaP2P1 = Math.abs(wgPoint2.z() - wgPoint1.z());
+    private void discardPendingSimplification(Player player) {
+        RegionSession session = sessionManager.get(player.getUniqueId());
 
-        // Initialize the current x and z coordinates to the x and z coordinates of wgPoint1
-        int currentXP1 = wgPoint1.x();
-        int currentZP1 = wgPoint1.z();
+        if (session == null || session.getPendingSimplification() == null) {
+            return;
+        }
 
-        // Calculate the number of steps to reach wgPoint2 from wgPoint1
-        int stepsRemaining = 1 + xDeltaP2P1 + zDeltaP2P1;
+        session.setPendingSimplification(null);
 
-        // Determine the direction of the x and z coordinates from wgPoint1 to wgPoint2
-        int xDirection = (wgPoint2.x() > wgPoint1.x()) ? 1 : -1;
-        int zDirection = (wgPoint2.z() > wgPoint1.z()) ? 1 : -1;
+        if (session.getMarkers().size() >= 3) {
+            updateRegionMarkers(player);
+        } else {
+            session.clearPreview();
+        }
+    }
+    //</editor-fold>
 
-        // Initialize the error term based on the delta in the x and z coordinates
-        int errorTerm = xDeltaP2P1 - zDeltaP2P1;
 
-        // Double the deltas for use in the algorithm
-        xDeltaP2P1 *= 2;
-        zDeltaP2P1 *= 2;
+    //<editor-fold desc="Sessions">
 
-        for (; stepsRemaining > 0; --stepsRemaining) {
-            Location highestBlock = getHighestBlock(world, currentXP1, currentZP1, minY, maxY);
+    /**
+     * Restores the journaled markers of a player (e.g. after a restart)
+     * - Nothing happens if the player already has markers or no journaled session
+     * - The session is only restored in the world the markers were set in, otherwise the player is notified about it
+     *
+     * @param player The player
+     */
+    public void restoreSession(Player player) {
+        if (sessionManager.has(player.getUniqueId())) {
+            return;
+        }
 
-            wallBlockLocations.add(highestBlock);
+        pl.getSessionJournal().restore(player.getUniqueId(), restoredSession -> {
+            if (!player.isOnline() || sessionManager.has(player.getUniqueId()) || restoredSession.getMarkers().isEmpty()) {
+                return;
+            }
 
-            // Update the error term and current coordinates based on the error term
-            if (errorTerm > 0) {
-                currentXP1 += xDirection;
-                errorTerm -= zDeltaP2P1;
-            } else {
-                currentZP1 += zDirection;
-                errorTerm += xDeltaP2P1;
+            if (!player.getWorld().getName().equals(restoredSession.getWorldName())) {
+                player.sendMessage(Prefixes.INFO + "Du hast noch §3" + restoredSession.getMarkers().size() + " §7gesetzte Punkte in der Welt \"§2" + restoredSession.getWorldName() + "§7\".");
+                return;
             }
-        }
+
+            // The session stays journaled if it cannot be restored right now
+            if (sessionManager.create(player, restoredSession.getMarkers()) == null) {
+                return;
+            }
+
+            if (restoredSession.getMarkers().size() >= 3) {
+                updateRegionMarkers(player);
+            }
+
+            player.sendMessage(Prefixes.INFO + "Deine §3" + restoredSession.getMarkers().size() + " §7gesetzten Punkte wurden §awiederhergestellt§7.");
+        });
     }
 
     /**
-     * Get the highest block at a given x and z coordinate in a world
+     * Closes the session of a player that leaves the server
+     * - The preview is removed and the markers are dropped from memory
+     * - The markers stay journaled and are restored when the player joins again
      *
-     * @param world The world
-     * @param x     The x coordinate
-     * @param z     The z coordinate
-     * @param minY  The minimum y coordinate
-     * @param maxY  The maximum y coordinate
-     * @return The highest block at the given x and z coordinate
+     * @param player The player
      */
-    private @NotNull Location getHighestBlock(World world, int x, int z, int minY, int maxY) {
-        for (int y = maxY; y >= minY; y--) {
-            Location loc = new Location(world, x, y, z);
-            if (!loc.getBlock().getType().isAir()) {
-                return loc.add(0, 1, 0);
-            }
-        }
-        return new Location(world, x, minY, z);
+    public void closeSession(Player player) {
+        cancelPendingShow(player.getUniqueId());
+        sessionManager.remove(player.getUniqueId());
     }
 
-    private void spawnFallingFence(@NotNull Location location, @NotNull Material wallMaterial) {
-        int randomHeight = (int) (Math.random() * 16) + 5;
-        Location spawnLocation = location.clone().add(0, randomHeight, 0);
+    /**
+     * Ends the session of a player that has changed the world
+     * - The markers cannot be used in the new world, so the blocks replaced by them are restored and the preview is removed
+     * - The session is removed from the journal, so the markers are not restored in the old world either
+     * - A pending /pregion show is cancelled
+     *
+     * @param player The player, already in the new world
+     */
+    public void endSessionInOtherWorld(Player player) {
+        cancelPendingShow(player.getUniqueId());
 
-        FallingBlock fallingWallBlock = location.getWorld().spawnFallingBlock(spawnLocation, wallMaterial.createBlockData());
-        fallingWallBlock.setDropItem(false);
+        RegionSession session = sessionManager.get(player.getUniqueId());
 
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (fallingWallBlock.isOnGround()) {
-                    fallingWallBlock.remove();
-                    location.getBlock().setType(wallMaterial);
-                    this.cancel();
-                }
-            }
-        }.runTaskTimer(pl, 0L, 1L);
+        if (session == null || session.getWorldName().equals(player.getWorld().getName())) {
+            return;
+        }
+
+        sessionManager.remove(player.getUniqueId());
+        sessionManager.restoreMarkerBlocks(session);
+        pl.getSessionJournal().remove(player.getUniqueId());
+
+        player.sendMessage(Prefixes.INFO + "Deine §3" + session.getMarkers().size() + " §7gesetzten Punkte in der Welt \"§2" + session.getWorldName() + "§7\" wurden §centfernt§7.");
     }
     //</editor-fold>
 
@@ -824,7 +865,7 @@ public class RegionMarker {
      * @return whether the player has set points
      */
     public boolean playerExist(Player player) {
-        return playerRegionMarkers.containsKey(player);
+        return sessionManager.has(player.getUniqueId());
     }
 
     /**
@@ -834,7 +875,7 @@ public class RegionMarker {
      * @return whether the player has set enough points
      */
     private boolean playerHasEnoughPoints(Player player) {
-        return playerRegionMarkers.get(player).size() >= 3;
+        return getPointCount(player) >= 3;
     }
 
     /**
@@ -872,7 +913,7 @@ public class RegionMarker {
      * @return the number of points set by the player
      */
     private int getPointCount(Player player) {
-        return playerRegionMarkers.get(player).size();
+        return sessionManager.get(player.getUniqueId()).getMarkers().size();
     }
 
     /**
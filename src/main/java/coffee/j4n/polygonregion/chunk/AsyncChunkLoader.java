@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.chunk;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.util.BlockKeys;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * This class loads chunks through Paper's asynchronous chunk API, so that loading or generating them does not block the main thread.<br />
+ * <p>
+ * - The chunks of a request are loaded in the order of their distance to an origin (e.g. the player), the nearest first.<br />
+ * - At most {@code chunk-loading.max-concurrent} chunks are loaded at the same time, across all requests. Requests are served in order.<br />
+ * - Every loaded chunk is handed to the request on the main thread. Requests that hold tickets keep their chunks loaded (plugin chunk ticket)
+ * until they are done, so the callback of the request can still access all of its chunks. Other chunks may be unloaded right after they are handed over.<br />
+ * - Cancelled requests drop their remaining chunks and release their tickets without calling back.<br />
+ */
+public class AsyncChunkLoader {
+
+    private final PolygonRegion pl;
+    private final int maxConcurrent;
+
+    private final ArrayDeque<Request> requests = new ArrayDeque<>();
+    private int inFlight = 0;
+    private boolean dispatching = false;
+
+    public AsyncChunkLoader(PolygonRegion pl) {
+        this.pl = pl;
+        this.maxConcurrent = Math.max(1, pl.getConfig().getInt("chunk-loading.max-concurrent", 8));
+    }
+
+    /**
+     * Loads chunks asynchronously.<br />
+     * - Has to be called on the main thread, all callbacks are called on the main thread
+     *
+     * @param world     The world of the chunks
+     * @param chunkKeys The chunks as column keys of their chunk coordinates (see {@link BlockKeys#packColumn(int, int)})
+     * @param origin    The location the chunks are ordered by (nearest first)
+     * @param generate    Whether chunks that have never been generated are generated (otherwise they are skipped)
+     * @param holdTickets Whether the loaded chunks are kept loaded until the request is done (only needed if {@code onDone} accesses them)
+     * @param onChunk     Called for every loaded chunk
+     * @param onDone      Called once all chunks have been loaded (while they are still loaded, if the request holds tickets)
+     * @return The request, which can be cancelled
+     */
+    public @NotNull Request load(@NotNull World world, long @NotNull [] chunkKeys, @NotNull Location origin, boolean generate, boolean holdTickets, @NotNull Consumer<Chunk> onChunk, @NotNull Runnable onDone) {
+        Request request = new Request(world, sortByDistance(chunkKeys, origin.getBlockX() >> 4, origin.getBlockZ() >> 4), generate, holdTickets, onChunk, onDone);
+
+        if (request.chunkKeys.length == 0) {
+            onDone.run();
+            return request;
+        }
+
+        requests.add(request);
+        dispatch();
+
+        return request;
+    }
+
+    /**
+     * Returns the number of chunks that are currently being loaded.
+     *
+     * @return The number of in-flight chunk loads
+     */
+    public int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * Cancels all requests (e.g. when the plugin is disabled).
+     */
+    public void cancelAll() {
+        for (Request request : new ArrayList<>(requests)) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * Starts loading the next chunks until the concurrency limit is reached.
+     */
+    private void dispatch() {
+        // Chunks that are already loaded complete right away, which must not start another dispatch
+        if (dispatching) {
+            return;
+        }
+
+        dispatching = true;
+
+        try {
+            dispatchRequests();
+        } finally {
+            dispatching = false;
+        }
+    }
+
+    private void dispatchRequests() {
+        for (Request request : new ArrayList<>(requests)) {
+            while (!request.cancelled && inFlight < maxConcurrent && request.nextChunk < request.chunkKeys.length) {
+                long chunkKey = request.chunkKeys[request.nextChunk++];
+
+                inFlight++;
+                request.inFlight++;
+
+                request.world.getChunkAtAsync(BlockKeys.getColumnX(chunkKey), BlockKeys.getColumnZ(chunkKey), request.generate).whenComplete((chunk, error) -> {
+                    // Paper completes the future on the main thread, but an exceptional completion may happen elsewhere
+                    if (pl.getServer().isPrimaryThread()) {
+                        onLoaded(request, chunk, error);
+                    } else if (pl.isEnabled()) {
+                        pl.getServer().getScheduler().runTask(pl, () -> onLoaded(request, chunk, error));
+                    }
+                });
+            }
+
+            if (inFlight >= maxConcurrent) {
+                return;
+            }
+        }
+    }
+
+    private void onLoaded(@NotNull Request request, Chunk chunk, Throwable error) {
+        inFlight--;
+        request.inFlight--;
+
+        if (!request.cancelled) {
+            if (error != null) {
+                pl.getLogger().log(Level.WARNING, "Failed to load a chunk in " + request.world.getName(), error);
+            } else if (chunk != null) {
+                // Keep the chunk loaded until the request is done, otherwise the server may unload it once it is handed over
+                if (request.holdTickets) {
+                    chunk.addPluginChunkTicket(pl);
+                    request.ticketedChunks.add(chunk);
+                }
+
+                request.onChunk.accept(chunk);
+            }
+
+            if (request.nextChunk == request.chunkKeys.length && request.inFlight == 0) {
+                requests.remove(request);
+
+                try {
+                    request.onDone.run();
+                } finally {
+                    request.releaseTickets();
+                }
+            }
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Sorts chunks by their squared distance to the origin chunk.
+     *
+     * @return The sorted chunk keys
+     */
+    private static long @NotNull [] sortByDistance(long @NotNull [] chunkKeys, int originChunkX, int originChunkZ) {
+        // The distance is stored above the index (23 bits), distances beyond 2^40 are not told apart
+        long[] order = new long[chunkKeys.length];
+
+        for (int i = 0; i < chunkKeys.length; i++) {
+            long deltaX = BlockKeys.getColumnX(chunkKeys[i]) - originChunkX;
+            long deltaZ = BlockKeys.getColumnZ(chunkKeys[i]) - originChunkZ;
+            long distance = Math.min(deltaX * deltaX + deltaZ * deltaZ, (1L << 40) - 1);
+
+            order[i] = (distance << 23) | i;
+        }
+
+        Arrays.sort(order);
+
+        long[] sortedKeys = new long[chunkKeys.length];
+
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = chunkKeys[(int) (order[i] & ((1 << 23) - 1))];
+        }
+
+        return sortedKeys;
+    }
+
+    /**
+     * This class represents a request to load chunks.
+     */
+    public final class Request {
+        private final World world;
+        private final long[] chunkKeys;
+        private final boolean generate;
+        private final boolean holdTickets;
+        private final Consumer<Chunk> onChunk;
+        private final Runnable onDone;
+
+        private final List<Chunk> ticketedChunks = new ArrayList<>();
+        private int nextChunk = 0;
+        private int inFlight = 0;
+        private boolean cancelled = false;
+
+        private Request(World world, long[] chunkKeys, boolean generate, boolean holdTickets, Consumer<Chunk> onChunk, Runnable onDone) {
+            this.world = world;
+            this.chunkKeys = chunkKeys;
+            this.generate = generate;
+            this.holdTickets = holdTickets;
+            this.onChunk = onChunk;
+            this.onDone = onDone;
+        }
+
+        /**
+         * Returns whether the request is still loading chunks (not done and not cancelled).
+         *
+         * @return Whether the request is pending
+         */
+        public boolean isPending() {
+            return !cancelled && requests.contains(this);
+        }
+
+        /**
+         * Stops loading the remaining chunks and releases the loaded ones. The callbacks are not called anymore.
+         */
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+
+            cancelled = true;
+            requests.remove(this);
+            releaseTickets();
+        }
+
+        private void releaseTickets() {
+            for (Chunk chunk : ticketedChunks) {
+                chunk.removePluginChunkTicket(pl);
+            }
+
+            ticketedChunks.clear();
+        }
+    }
+}
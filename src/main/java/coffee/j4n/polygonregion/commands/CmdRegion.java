@@ -6,7 +6,11 @@
 package coffee.j4n.polygonregion.commands;
 
 import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.metrics.PluginMetrics;
+import coffee.j4n.polygonregion.metrics.TimingHistogram;
 import coffee.j4n.polygonregion.util.statics.ItemStacks;
+import coffee.j4n.polygonregion.util.statics.Permissions;
 import coffee.j4n.polygonregion.util.statics.Prefixes;
 import org.bukkit.Material;
 import org.bukkit.command.Command;
@@ -15,15 +19,24 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * This class represents the command executor for the main command of the plugin.<br />
  * It provides the functionality to give the player a region stick, confirm a region, show a region, hide a region, fence a region and unfence a region.<br />
  * - The region stick is a stick that allows the player to set points for a region.<br />
- * - The confirm command creates a region with the points that have been set.<br />
+ * - The confirm command creates a region with the points that have been set (optionally simplified with the given tolerance).<br />
  * - The show command shows the points of a region.<br />
  * - The hide command hides the points of a region.<br />
  * - The fence command places fences around a region.<br />
- * - The unfence command removes the fences around a region.<br />
+ * - The unfence command removes the last fence around a region and restores the blocks it replaced (only the own fences without the unfence permission).<br />
+ * - The undo command restores the blocks replaced by the last fence or fill of the player.<br />
+ * - The fill command fills a layer of a region with a material (at the height of the block below the player by default).<br />
+ * - The info command shows the area, perimeter, bounds and the number of blocks of selected materials of a region.<br />
+ * - The import command creates regions from a GeoJSON or CSV file in the plugin folder.<br />
+ * - The export command writes all polygonal regions to a GeoJSON and a binary file in the plugin folder.<br />
+ * - The stats command shows the main thread time and the side effects of the operations and the live state of the plugin.<br />
  * - The class also provides a help message for the main command.<br />
  */
 public class CmdRegion implements CommandExecutor {
@@ -44,10 +57,17 @@ public class CmdRegion implements CommandExecutor {
             player.sendMessage("\n" + Prefixes.PLUGIN + "§7Hilfe zu §6PolygonRegion§7:");
             player.sendMessage("§7- §8/§bpregion §7oder §8/§bpr §8| §7Hauptbefehl des Plugins und zeigt diese Hilfe an.");
             player.sendMessage("§7- §8/§bpregion stick §8| §7Gibt dir den " + ItemStacks.REGION_STICK_NAME + "§7.");
-            player.sendMessage("§7- §8/§bpregion confirm §8[§3Name§8] | §7Bestätigt die Region und legt den Namen fest.");
+            player.sendMessage("§7- §8/§bpregion confirm §8[§3Name§8] [§3Toleranz§8] | §7Bestätigt die Region und legt den Namen fest.");
             player.sendMessage("§7- §8/§bpregion show §8[§3Name§8] | §7Zeigt die Markierungen der Region an.");
             player.sendMessage("§7- §8/§bpregion hide §8| §7Versteckt alle Regionsmarkierungen.");
             player.sendMessage("§7- §8/§bpregion fence §8[§3Name§8] | §7Zäunt die Region ein.");
+            player.sendMessage("§7- §8/§bpregion unfence §8[§3Name§8] | §7Entfernt den letzten Zaun der Region.");
+            player.sendMessage("§7- §8/§bpregion fill §8[§3Name§8] [§3Material§8] [§3Höhe§8] | §7Füllt eine Ebene der Region (§8/§bpregion fill cancel §7bricht ab).");
+            player.sendMessage("§7- §8/§bpregion undo §8| §7Macht deinen letzten Zaun oder deine letzte Füllung rückgängig.");
+            player.sendMessage("§7- §8/§bpregion info §8[§3Name§8] | §7Zeigt Fläche, Umfang, Ausdehnung und Blöcke der Region an.");
+            player.sendMessage("§7- §8/§bpregion import §8[§3Datei§8] | §7Importiert Regionen aus einer GeoJSON- oder CSV-Datei.");
+            player.sendMessage("§7- §8/§bpregion export §8| §7Exportiert alle Regionen als GeoJSON- und Binärdatei.");
+            player.sendMessage("§7- §8/§bpregion stats §8| §7Zeigt Laufzeiten und Statistiken des Plugins an.");
             return false;
         }
 
@@ -81,7 +101,7 @@ public class CmdRegion implements CommandExecutor {
                 if (!plugin.getPoints().playerExist(player)) {
                     player.sendMessage(Prefixes.ERROR + "§7Dir werden aktuell §nkeine Markierungen§7 angezeigt, die du verstecken könntest.");
                 } else {
-                    plugin.getPoints().removeAllMarkers(player);
+                    plugin.getOperationCounters().measure("remove-all-markers", () -> plugin.getPoints().removeAllMarkers(player));
                     player.sendMessage(Prefixes.INFO + "§7Die Markierungen wurden §aerfolgreich §7versteckt.");
                 }
             }
@@ -92,6 +112,57 @@ public class CmdRegion implements CommandExecutor {
                 player.sendMessage(Prefixes.ERROR + "Fehlende Argumente! Es wurde §nkein Name§7 angegeben.");
                 player.sendMessage(Prefixes.ADDITION + "Korrekte verwendung: §8/§bpregion fence §8[§3§nName§8]");
             }
+
+
+            // Unfence region (name missing)
+            if (args[0].equalsIgnoreCase("unfence")) {
+                player.sendMessage(Prefixes.ERROR + "Fehlende Argumente! Es wurde §nkein Name§7 angegeben.");
+                player.sendMessage(Prefixes.ADDITION + "Korrekte verwendung: §8/§bpregion unfence §8[§3§nName§8]");
+            }
+
+
+            // Undo the last fence or fill
+            if (args[0].equalsIgnoreCase("undo")) {
+                plugin.getOperationCounters().measure("undo", () -> plugin.getUndoManager().undoLast(player));
+            }
+
+
+            // Fill region (name and material missing)
+            if (args[0].equalsIgnoreCase("fill")) {
+                player.sendMessage(Prefixes.ERROR + "Fehlende Argumente! Es wurde §nkein Name§7 angegeben.");
+                player.sendMessage(Prefixes.ADDITION + "Korrekte verwendung: §8/§bpregion fill §8[§3§nName§8] [§3Material§8] [§3Höhe§8]");
+            }
+
+
+            // Region info (name missing)
+            if (args[0].equalsIgnoreCase("info")) {
+                player.sendMessage(Prefixes.ERROR + "Fehlende Argumente! Es wurde §nkein Name§7 angegeben.");
+                player.sendMessage(Prefixes.ADDITION + "Korrekte verwendung: §8/§bpregion info §8[§3§nName§8]");
+            }
+
+
+            // Import regions (file missing)
+            if (args[0].equalsIgnoreCase("import")) {
+                player.sendMessage(Prefixes.ERROR + "Fehlende Argumente! Es wurde §nkeine Datei§7 angegeben.");
+                player.sendMessage(Prefixes.ADDITION + "Korrekte verwendung: §8/§bpregion import §8[§3§nDatei§8]");
+            }
+
+
+            // Export regions
+            if (args[0].equalsIgnoreCase("export")) {
+                if (!player.hasPermission(Permissions.EXPORT)) {
+                    player.sendMessage(Prefixes.ERROR + "Dir fehlt die §nBerechtigung§7, um Regionen zu exportieren.");
+                    return false;
+                }
+
+                plugin.getRegionExporter().exportAll(player);
+            }
+
+
+            // Show statistics
+            if (args[0].equalsIgnoreCase("stats")) {
+                sendStats(player);
+            }
         }
 
         if (args.length == 2) {
@@ -116,7 +187,144 @@ public class CmdRegion implements CommandExecutor {
             if (args[0].equalsIgnoreCase("fence")) {
                 plugin.getPoints().placeWallAroundRegion(args[1], player.getWorld(), player, Material.PURPLE_CONCRETE);
             }
+
+
+            // Unfence region
+            if (args[0].equalsIgnoreCase("unfence")) {
+                plugin.getOperationCounters().measure("unfence-region", () -> plugin.getUndoManager().unfence(player, args[1], player.hasPermission(Permissions.UNFENCE)));
+            }
+
+
+            // Cancel fill / fill region (material missing)
+            if (args[0].equalsIgnoreCase("fill")) {
+                if (args[1].equalsIgnoreCase("cancel")) {
+                    if (!plugin.getRegionFiller().cancel(player)) {
+                        player.sendMessage(Prefixes.ERROR + "Es läuft aktuell §nkeine§7 Füllung von dir.");
+                    }
+                } else {
+                    player.sendMessage(Prefixes.ERROR + "Fehlende Argumente! Es wurde §nkein Material§7 angegeben.");
+                    player.sendMessage(Prefixes.ADDITION + "Korrekte verwendung: §8/§bpregion fill §8[§3Name§8] [§3§nMaterial§8] [§3Höhe§8]");
+                }
+            }
+
+
+            // Region info
+            if (args[0].equalsIgnoreCase("info")) {
+                plugin.getOperationCounters().measure("info-region", () -> plugin.getRegionInfo().showInfo(player, args[1]));
+            }
+
+
+            // Import regions
+            if (args[0].equalsIgnoreCase("import")) {
+                if (!player.hasPermission(Permissions.IMPORT)) {
+                    player.sendMessage(Prefixes.ERROR + "Dir fehlt die §nBerechtigung§7, um Regionen zu importieren.");
+                    return false;
+                }
+
+                plugin.getRegionImporter().importFile(player, args[1]);
+            }
+        }
+
+        if (args.length == 3) {
+            // Confirm region with a simplification tolerance
+            if (args[0].equalsIgnoreCase("confirm")) {
+                double tolerance;
+
+                try {
+                    tolerance = Double.parseDouble(args[2]);
+                } catch (NumberFormatException e) {
+                    tolerance = -1;
+                }
+
+                if (!(tolerance >= 0) || Double.isInfinite(tolerance)) {
+                    player.sendMessage(Prefixes.ERROR + "Die Toleranz \"§3" + args[2] + "§7\" ist §nkeine gültige§7 Anzahl an Blöcken.");
+                    player.sendMessage(Prefixes.ADDITION + "Korrekte verwendung: §8/§bpregion confirm §8[§3Name§8] [§3§nToleranz§8]");
+                    return false;
+                }
+
+                if (!plugin.getPoints().isRegionValid(player)) {
+                    return false;
+                }
+
+                plugin.getPoints().createWgRegion(player, args[1], tolerance);
+            }
+        }
+
+        if (args.length == 3 || args.length == 4) {
+            // Fill region, at the height of the block below the player if no height is given
+            if (args[0].equalsIgnoreCase("fill")) {
+                if (!player.hasPermission(Permissions.FILL)) {
+                    player.sendMessage(Prefixes.ERROR + "Dir fehlt die §nBerechtigung§7, um Regionen zu füllen.");
+                    return false;
+                }
+
+                Material material = Material.matchMaterial(args[2]);
+
+                if (material == null || !material.isBlock()) {
+                    player.sendMessage(Prefixes.ERROR + "Das Material \"§3" + args[2] + "§7\" ist §nkein gültiger§7 Block.");
+                    return false;
+                }
+
+                int y = player.getLocation().getBlockY() - 1;
+
+                if (args.length == 4) {
+                    try {
+                        y = Integer.parseInt(args[3]);
+                    } catch (NumberFormatException e) {
+                        player.sendMessage(Prefixes.ERROR + "Die Höhe \"§3" + args[3] + "§7\" ist §nkeine gültige§7 Zahl.");
+                        player.sendMessage(Prefixes.ADDITION + "Korrekte verwendung: §8/§bpregion fill §8[§3Name§8] [§3Material§8] [§3§nHöhe§8]");
+                        return false;
+                    }
+                }
+
+                int fillY = y;
+                plugin.getOperationCounters().measure("fill-region", () -> plugin.getRegionFiller().fill(player, args[1], material, fillY));
+            }
         }
         return false;
     }
+
+    /**
+     * Sends the live state, the main thread time and the side effects of the operations of the plugin to a player
+     *
+     * @param player The player
+     */
+    private void sendStats(@NotNull Player player) {
+        PluginMetrics metrics = plugin.getMetrics();
+
+        player.sendMessage("\n" + Prefixes.PLUGIN + "§7Statistiken von §6PolygonRegion§7:");
+        player.sendMessage(Prefixes.ADDITION + "Vorschau-Entities: §3" + metrics.getPreviewEntityCount()
+                + " §8| §7Fallende Zaunblöcke: §3" + metrics.getFenceBlocksInFlight()
+                + " §8| §7Aktive Sessions: §3" + metrics.getActiveSessionCount()
+                + " §8| §7Entfernte Sessions: §3" + plugin.getSessionManager().getEvictionCount());
+
+        player.sendMessage(Prefixes.ADDITION + "§nLaufzeit§7 (Main-Thread, Anzahl | Ø | p50 | p99 | max):");
+
+        for (Map.Entry<String, TimingHistogram> entry : metrics.getHistograms().entrySet()) {
+            TimingHistogram histogram = entry.getValue();
+
+            player.sendMessage("§7- §b" + entry.getKey() + "§8: §3" + histogram.getCount()
+                    + " §8| §3" + formatMillis(histogram.getMeanNanos())
+                    + " §8| §3" + formatMillis(histogram.getPercentileNanos(0.5))
+                    + " §8| §3" + formatMillis(histogram.getPercentileNanos(0.99))
+                    + " §8| §3" + formatMillis(histogram.getMaxNanos()));
+        }
+
+        player.sendMessage(Prefixes.ADDITION + "§nNebeneffekte§7 (gesamt, max. pro Aufruf):");
+
+        for (Map.Entry<String, OperationCounters.OperationStats> entry : plugin.getOperationCounters().getStats().entrySet()) {
+            OperationCounters.OperationStats stats = entry.getValue();
+            StringBuilder line = new StringBuilder("§7- §b" + entry.getKey() + "§8:");
+
+            for (OperationCounters.Counter counter : OperationCounters.Counter.values()) {
+                line.append(" §7").append(counter.getKey()).append(" §3").append(stats.getTotal(counter)).append(" §8(§3").append(stats.getMax(counter)).append("§8)");
+            }
+
+            player.sendMessage(line.toString());
+        }
+    }
+
+    private static @NotNull String formatMillis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000.0);
+    }
 }
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.commit;
+
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * This class represents the result of a region submitted to the {@link RegionCommitQueue}.
+ */
+public final class CommitResult {
+
+    /**
+     * The outcome of a commit
+     */
+    public enum Status {
+        /**
+         * The region has been created and saved
+         */
+        CREATED,
+        /**
+         * The region has been created, but saving it failed (WorldGuard retries with its next save)
+         */
+        CREATED_UNSAVED,
+        /**
+         * A region with the same name already exists or is already queued
+         */
+        DUPLICATE_NAME,
+        /**
+         * The name contains characters WorldGuard does not allow
+         */
+        INVALID_NAME,
+        /**
+         * The polygon has less than 3 distinct points or no area
+         */
+        INVALID_GEOMETRY,
+        /**
+         * The region manager of the world is not available
+         */
+        NO_REGION_MANAGER
+    }
+
+    private final Status status;
+    private final String wgRegionName;
+    private final ProtectedPolygonalRegion wgRegion;
+
+    CommitResult(@NotNull Status status, @NotNull String wgRegionName, @Nullable ProtectedPolygonalRegion wgRegion) {
+        this.status = status;
+        this.wgRegionName = wgRegionName;
+        this.wgRegion = wgRegion;
+    }
+
+    public @NotNull Status getStatus() {
+        return status;
+    }
+
+    public @NotNull String getWgRegionName() {
+        return wgRegionName;
+    }
+
+    /**
+     * Returns the created region.
+     *
+     * @return The region, or {@code null} if the region has not been created
+     */
+    public @Nullable ProtectedPolygonalRegion getWgRegion() {
+        return wgRegion;
+    }
+
+    /**
+     * Returns whether the region has been created (even if it could not be saved).
+     *
+     * @return Whether the region has been created
+     */
+    public boolean isCreated() {
+        return status == Status.CREATED || status == Status.CREATED_UNSAVED;
+    }
+}
@@ -0,0 +1,370 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.commit;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.RegionMarker;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.managers.storage.StorageException;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * This class queues the creation of WorldGuard regions and applies them in batches.<br />
+ * <p>
+ * - Names and geometry are validated when a region is submitted, so invalid regions never enter the queue.<br />
+ * - Queued regions are added to their {@link RegionManager} by a single repeating task, at most {@code commits.batch-size} regions per tick.<br />
+ * - Applied regions are saved explicitly: all changes of {@code commits.save-delay-ticks} ticks are coalesced into one save per region manager,
+ * which runs on a background thread. Changes applied while a save is running are saved right after it.<br />
+ * - The callback of a region is called on the main thread once the region has been rejected, or has been applied and saved.<br />
+ * - When the plugin is disabled, the running save is waited for (or taken over, if it has not started yet) and all remaining regions are saved on the main thread.<br />
+ * <p>
+ * All state except the save itself is only accessed on the main thread.
+ */
+public class RegionCommitQueue {
+
+    private final PolygonRegion pl;
+    private final int batchSize;
+    private final long saveDelayTicks;
+
+    /**
+     * Serializes the saves of this queue with the saves of other background threads (e.g. the import)
+     */
+    private final Object saveLock = new Object();
+
+    private final ArrayDeque<QueuedCommit> queue = new ArrayDeque<>();
+    private final Map<String, Set<String>> queuedNamesByWorld = new HashMap<>();
+
+    //<editor-fold desc="Applied, but not yet saved regions">
+    private final Set<RegionManager> dirtyManagers = new LinkedHashSet<>();
+    private final List<QueuedCommit> awaitingSave = new ArrayList<>();
+    private boolean saveScheduled = false;
+    private SaveBatch inFlightSave;
+    //</editor-fold>
+
+    private BukkitTask drainTask;
+
+    public RegionCommitQueue(PolygonRegion pl) {
+        this.pl = pl;
+        this.batchSize = Math.max(1, pl.getConfig().getInt("commits.batch-size", 25));
+        this.saveDelayTicks = Math.max(1L, pl.getConfig().getLong("commits.save-delay-ticks", 40L));
+    }
+
+    /**
+     * Validates a region and queues it for creation.<br />
+     * - The callback is called immediately if the region is rejected.
+     *
+     * @param world        The world of the region
+     * @param wgRegionName The name of the region
+     * @param wgPoints     The points of the region
+     * @param minY         The minimum y coordinate of the region
+     * @param maxY         The maximum y coordinate of the region
+     * @param callback     Called on the main thread with the result of the commit
+     */
+    public void submit(@NotNull World world, @NotNull String wgRegionName, @NotNull List<BlockVector2> wgPoints, int minY, int maxY, @NotNull Consumer<CommitResult> callback) {
+        RegionManager wgRegionManager = pl.getRegionManager(world);
+
+        if (wgRegionManager == null) {
+            callback.accept(new CommitResult(CommitResult.Status.NO_REGION_MANAGER, wgRegionName, null));
+            return;
+        }
+
+        if (wgRegionName.isEmpty() || !RegionMarker.findInvalidNameChars(wgRegionName).isEmpty()) {
+            callback.accept(new CommitResult(CommitResult.Status.INVALID_NAME, wgRegionName, null));
+            return;
+        }
+
+        if (!isValidGeometry(wgPoints)) {
+            callback.accept(new CommitResult(CommitResult.Status.INVALID_GEOMETRY, wgRegionName, null));
+            return;
+        }
+
+        Set<String> queuedNames = queuedNamesByWorld.computeIfAbsent(world.getName(), key -> new HashSet<>());
+
+        // Region names are case-insensitive in WorldGuard
+        String nameKey = wgRegionName.toLowerCase();
+
+        if (wgRegionManager.hasRegion(wgRegionName) || !queuedNames.add(nameKey)) {
+            callback.accept(new CommitResult(CommitResult.Status.DUPLICATE_NAME, wgRegionName, null));
+            return;
+        }
+
+        queue.add(new QueuedCommit(world, nameKey, wgRegionManager, RegionMarker.createDefaultRegion(wgRegionName, wgPoints, minY, maxY), callback));
+
+        if (drainTask == null) {
+            pl.getOperationCounters().increment(OperationCounters.Counter.SCHEDULED_TASKS);
+            drainTask = pl.getServer().getScheduler().runTaskTimer(pl, () -> pl.getOperationCounters().measure("commit-regions", () -> {
+                drain();
+                scheduleSave();
+            }), 1L, 1L);
+        }
+    }
+
+    /**
+     * Returns the number of regions that are queued or waiting for their save.
+     *
+     * @return The number of pending regions
+     */
+    public int getPendingCount() {
+        return queue.size() + awaitingSave.size();
+    }
+
+    /**
+     * Saves a region manager on the calling thread, without overlapping with the saves of this queue.<br />
+     * - Must not be called on the main thread.
+     *
+     * @param wgRegionManager The region manager
+     * @throws StorageException If the region manager could not be saved
+     */
+    public void saveBlocking(@NotNull RegionManager wgRegionManager) throws StorageException {
+        synchronized (saveLock) {
+            wgRegionManager.saveChanges();
+        }
+    }
+
+    /**
+     * Applies all queued regions and saves all region managers on the main thread (e.g. when the plugin is disabled).
+     */
+    public void flushNow() {
+        while (!queue.isEmpty()) {
+            drain();
+        }
+
+        if (inFlightSave != null) {
+            SaveBatch batch = inFlightSave;
+            inFlightSave = null;
+
+            if (batch.claimed.compareAndSet(false, true)) {
+                // The background save has not started yet, so its regions are saved below
+                dirtyManagers.addAll(batch.wgRegionManagers);
+                awaitingSave.addAll(batch.commits);
+            } else {
+                logUnsaved(batch.commits, batch.failed.join());
+            }
+        }
+
+        if (awaitingSave.isEmpty()) {
+            return;
+        }
+
+        Set<RegionManager> saving = new LinkedHashSet<>(dirtyManagers);
+        List<QueuedCommit> saved = new ArrayList<>(awaitingSave);
+        dirtyManagers.clear();
+        awaitingSave.clear();
+
+        logUnsaved(saved, save(saving));
+    }
+
+    /**
+     * Logs the regions whose region manager could not be saved (the plugin is disabled, so the players are not notified anymore).
+     *
+     * @param commits The saved regions
+     * @param failed  The region managers that could not be saved
+     */
+    private void logUnsaved(@NotNull List<QueuedCommit> commits, @NotNull Set<RegionManager> failed) {
+        for (QueuedCommit commit : commits) {
+            if (failed.contains(commit.wgRegionManager)) {
+                pl.getLogger().warning("Region " + commit.wgRegion.getId() + " has been created, but could not be saved.");
+            }
+        }
+    }
+
+    /**
+     * Applies the next batch of queued regions.
+     */
+    private void drain() {
+        // The regions of the batch are indexed with one update per world
+        Map<World, List<ProtectedPolygonalRegion>> indexedRegions = new HashMap<>();
+
+        for (int i = 0; i < batchSize && !queue.isEmpty(); i++) {
+            QueuedCommit commit = queue.poll();
+            queuedNamesByWorld.get(commit.world.getName()).remove(commit.nameKey);
+
+            // The region may have been created by someone else since it has been queued
+            if (commit.wgRegionManager.hasRegion(commit.wgRegion.getId())) {
+                commit.callback.accept(new CommitResult(CommitResult.Status.DUPLICATE_NAME, commit.wgRegion.getId(), null));
+                continue;
+            }
+
+            commit.wgRegionManager.addRegion(commit.wgRegion);
+            indexedRegions.computeIfAbsent(commit.world, world -> new ArrayList<>()).add(commit.wgRegion);
+
+            dirtyManagers.add(commit.wgRegionManager);
+            awaitingSave.add(commit);
+        }
+
+        indexedRegions.forEach((world, wgRegions) -> pl.getRegionIndex().addRegions(world, wgRegions));
+
+        if (queue.isEmpty() && drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+    }
+
+    /**
+     * Schedules a save of all dirty region managers, unless one is already scheduled or running.
+     */
+    private void scheduleSave() {
+        if (saveScheduled || dirtyManagers.isEmpty()) {
+            return;
+        }
+
+        saveScheduled = true;
+        pl.getOperationCounters().increment(OperationCounters.Counter.SCHEDULED_TASKS);
+
+        pl.getServer().getScheduler().runTaskLater(pl, () -> {
+            // Everything applied until now is part of this save
+            SaveBatch batch = new SaveBatch(new LinkedHashSet<>(dirtyManagers), new ArrayList<>(awaitingSave));
+            dirtyManagers.clear();
+            awaitingSave.clear();
+            inFlightSave = batch;
+
+            pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+                // flushNow has taken over the batch
+                if (!batch.claimed.compareAndSet(false, true)) {
+                    return;
+                }
+
+                Set<RegionManager> failed = batch.wgRegionManagers;
+
+                try {
+                    failed = save(batch.wgRegionManagers);
+                } finally {
+                    batch.failed.complete(failed);
+                }
+
+                // Once the plugin is disabled, flushNow waits for the batch instead
+                if (pl.isEnabled()) {
+                    pl.getServer().getScheduler().runTask(pl, () -> onSaved(batch));
+                }
+            });
+        }, saveDelayTicks);
+    }
+
+    /**
+     * Notifies the regions of a finished background save and saves the regions that have been applied meanwhile.
+     *
+     * @param batch The saved batch
+     */
+    private void onSaved(@NotNull SaveBatch batch) {
+        if (inFlightSave != batch) {
+            return;
+        }
+
+        inFlightSave = null;
+        Set<RegionManager> failed = batch.failed.join();
+
+        for (QueuedCommit commit : batch.commits) {
+            CommitResult.Status status = failed.contains(commit.wgRegionManager) ? CommitResult.Status.CREATED_UNSAVED : CommitResult.Status.CREATED;
+            commit.callback.accept(new CommitResult(status, commit.wgRegion.getId(), commit.wgRegion));
+        }
+
+        saveScheduled = false;
+
+        // Save the regions that have been applied while saving
+        scheduleSave();
+    }
+
+    /**
+     * Saves the given region managers.
+     *
+     * @param wgRegionManagers The region managers
+     * @return The region managers that could not be saved
+     */
+    private @NotNull Set<RegionManager> save(@NotNull Set<RegionManager> wgRegionManagers) {
+        Set<RegionManager> failed = new HashSet<>();
+
+        for (RegionManager wgRegionManager : wgRegionManagers) {
+            try {
+                saveBlocking(wgRegionManager);
+            } catch (StorageException e) {
+                pl.getLogger().log(Level.WARNING, "Failed to save the regions of " + wgRegionManager.getName(), e);
+                failed.add(wgRegionManager);
+            }
+        }
+
+        return failed;
+    }
+
+    /**
+     * Checks whether the points form a polygon with at least 3 distinct points and a non-zero area.<br />
+     * - Every way of creating regions (confirm, import) applies this check.
+     *
+     * @param wgPoints The points of the polygon
+     * @return Whether the polygon is valid
+     */
+    public static boolean isValidGeometry(@NotNull List<BlockVector2> wgPoints) {
+        if (new HashSet<>(wgPoints).size() < 3) {
+            return false;
+        }
+
+        // Shoelace formula, collinear points span no area
+        long doubleArea = 0;
+
+        for (int i = 0; i < wgPoints.size(); i++) {
+            BlockVector2 current = wgPoints.get(i);
+            BlockVector2 next = wgPoints.get((i + 1) % wgPoints.size());
+
+            doubleArea += (long) current.x() * next.z() - (long) next.x() * current.z();
+        }
+
+        return doubleArea != 0;
+    }
+
+    /**
+     * This class represents the regions of one background save.<br />
+     * - Either the save thread or {@link #flushNow()} claims the batch, whichever comes first.
+     */
+    private static final class SaveBatch {
+        private final Set<RegionManager> wgRegionManagers;
+        private final List<QueuedCommit> commits;
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+        // Completed with the region managers that could not be saved
+        private final CompletableFuture<Set<RegionManager>> failed = new CompletableFuture<>();
+
+        private SaveBatch(Set<RegionManager> wgRegionManagers, List<QueuedCommit> commits) {
+            this.wgRegionManagers = wgRegionManagers;
+            this.commits = commits;
+        }
+    }
+
+    /**
+     * This class represents a region that has been submitted, but not yet been saved.
+     */
+    private static final class QueuedCommit {
+        private final World world;
+        private final String nameKey;
+        private final RegionManager wgRegionManager;
+        private final ProtectedPolygonalRegion wgRegion;
+        private final Consumer<CommitResult> callback;
+
+        private QueuedCommit(World world, String nameKey, RegionManager wgRegionManager, ProtectedPolygonalRegion wgRegion, Consumer<CommitResult> callback) {
+            this.world = world;
+            this.nameKey = nameKey;
+            this.wgRegionManager = wgRegionManager;
+            this.wgRegion = wgRegion;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.fence;
+
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.undo.UndoJournal;
+import coffee.j4n.polygonregion.util.BlockKeys;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.FallingBlock;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * This class animates the falling blocks of region walls (fences).<br />
+ * <p>
+ * All in-flight fence blocks are tracked in parallel arrays and finalized by a single repeating task:<br />
+ * - A fence block is finalized when it lands (see {@link #onLand(FallingBlock)}), touches the ground,
+ * is removed by something else or has been falling for longer than the landing timeout.<br />
+ * - Finalizing removes the falling block and places the wall material at the target location of the block.
+ * The previous state of the block is recorded in the undo journal of the fence (if any).<br />
+ * - The task only runs while fence blocks are in flight.<br />
+ */
+public class FallingFenceController {
+
+    /**
+     * The number of ticks after which a falling fence block is placed, even if it has not landed yet.
+     */
+    private static final int LANDING_TIMEOUT_TICKS = 200;
+
+    private final Plugin pl;
+    private final OperationCounters counters;
+
+    //<editor-fold desc="In-flight fence blocks (parallel arrays)">
+    private FallingBlock[] fallingBlocks = new FallingBlock[64];
+    private World[] worlds = new World[64];
+    private long[] targetBlockKeys = new long[64];
+    private Material[] wallMaterials = new Material[64];
+    private int[] launchTicks = new int[64];
+    private UndoJournal[] journals = new UndoJournal[64];
+    private int inFlightCount = 0;
+
+    private final Map<UUID, Integer> slotsByEntity = new HashMap<>();
+    //</editor-fold>
+
+    private BukkitTask task;
+    private int currentTick = 0;
+
+    /**
+     * @param pl       The plugin the repeating task is scheduled for
+     * @param counters The counters the spawned entities, block writes and tasks are counted with
+     */
+    public FallingFenceController(@NotNull Plugin pl, @NotNull OperationCounters counters) {
+        this.pl = pl;
+        this.counters = counters;
+    }
+
+    /**
+     * Spawns a falling fence block above the given location, which is placed at the location once it has landed.
+     * - The block falls from a random height between 5 and 20 blocks above the location
+     *
+     * @param location     The location the wall block is placed at
+     * @param wallMaterial The material of the wall
+     * @param journal      The undo journal of the fence, or {@code null}
+     */
+    public void launch(@NotNull Location location, @NotNull Material wallMaterial, @Nullable UndoJournal journal) {
+        int randomHeight = (int) (Math.random() * 16) + 5;
+        Location spawnLocation = location.clone().add(0, randomHeight, 0);
+
+        FallingBlock fallingWallBlock = location.getWorld().spawnFallingBlock(spawnLocation, wallMaterial.createBlockData());
+        fallingWallBlock.setDropItem(false);
+        counters.increment(OperationCounters.Counter.ENTITY_SPAWNS);
+
+        ensureCapacity(inFlightCount + 1);
+
+        int slot = inFlightCount++;
+        fallingBlocks[slot] = fallingWallBlock;
+        worlds[slot] = location.getWorld();
+        targetBlockKeys[slot] = BlockKeys.pack(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        wallMaterials[slot] = wallMaterial;
+        launchTicks[slot] = currentTick;
+        journals[slot] = journal;
+        slotsByEntity.put(fallingWallBlock.getUniqueId(), slot);
+
+        if (task == null) {
+            counters.increment(OperationCounters.Counter.SCHEDULED_TASKS);
+            task = pl.getServer().getScheduler().runTaskTimer(pl, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Finalizes a fence block that is about to turn into a block.
+     *
+     * @param fallingBlock The falling block
+     * @return Whether the falling block is a fence block (and the block change has to be cancelled)
+     */
+    public boolean onLand(@NotNull FallingBlock fallingBlock) {
+        Integer slot = slotsByEntity.get(fallingBlock.getUniqueId());
+
+        if (slot == null) {
+            return false;
+        }
+
+        finalizeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Returns the number of fence blocks that are currently falling.
+     *
+     * @return The number of in-flight fence blocks
+     */
+    public int getInFlightCount() {
+        return inFlightCount;
+    }
+
+    /**
+     * Places all in-flight fence blocks immediately (e.g. when the plugin is disabled).
+     */
+    public void finishAll() {
+        while (inFlightCount > 0) {
+            finalizeSlot(inFlightCount - 1);
+        }
+
+        stopTask();
+    }
+
+    /**
+     * Finalizes all landed, removed and timed out fence blocks in a single pass.
+     */
+    private void tick() {
+        currentTick++;
+
+        // Iterate backwards, as finalizing moves the last fence block into the finalized slot
+        for (int slot = inFlightCount - 1; slot >= 0; slot--) {
+            FallingBlock fallingBlock = fallingBlocks[slot];
+
+            if (!fallingBlock.isValid() || fallingBlock.isOnGround() || currentTick - launchTicks[slot] > LANDING_TIMEOUT_TICKS) {
+                finalizeSlot(slot);
+            }
+        }
+
+        if (inFlightCount == 0) {
+            stopTask();
+        }
+    }
+
+    /**
+     * Removes the falling block of a slot, places the wall block at its target location and frees the slot.
+     *
+     * @param slot The slot
+     */
+    private void finalizeSlot(int slot) {
+        FallingBlock fallingBlock = fallingBlocks[slot];
+        long targetBlockKey = targetBlockKeys[slot];
+
+        fallingBlock.remove();
+
+        Block targetBlock = worlds[slot].getBlockAt(BlockKeys.getX(targetBlockKey), BlockKeys.getY(targetBlockKey), BlockKeys.getZ(targetBlockKey));
+        UndoJournal journal = journals[slot];
+
+        if (journal != null) {
+            journal.record(targetBlockKey, targetBlock.getBlockData());
+            journal.onPendingChangeDone();
+        }
+
+        targetBlock.setType(wallMaterials[slot]);
+        counters.increment(OperationCounters.Counter.ENTITY_REMOVALS);
+        counters.increment(OperationCounters.Counter.BLOCK_WRITES);
+
+        slotsByEntity.remove(fallingBlock.getUniqueId());
+
+        // Move the last fence block into the freed slot to keep the arrays compact
+        int lastSlot = --inFlightCount;
+
+        if (slot != lastSlot) {
+            fallingBlocks[slot] = fallingBlocks[lastSlot];
+            worlds[slot] = worlds[lastSlot];
+            targetBlockKeys[slot] = targetBlockKeys[lastSlot];
+            wallMaterials[slot] = wallMaterials[lastSlot];
+            launchTicks[slot] = launchTicks[lastSlot];
+            journals[slot] = journals[lastSlot];
+            slotsByEntity.put(fallingBlocks[slot].getUniqueId(), slot);
+        }
+
+        fallingBlocks[lastSlot] = null;
+        worlds[lastSlot] = null;
+        wallMaterials[lastSlot] = null;
+        journals[lastSlot] = null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= fallingBlocks.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, fallingBlocks.length * 2);
+        fallingBlocks = Arrays.copyOf(fallingBlocks, newCapacity);
+        worlds = Arrays.copyOf(worlds, newCapacity);
+        targetBlockKeys = Arrays.copyOf(targetBlockKeys, newCapacity);
+        wallMaterials = Arrays.copyOf(wallMaterials, newCapacity);
+        launchTicks = Arrays.copyOf(launchTicks, newCapacity);
+        journals = Arrays.copyOf(journals, newCapacity);
+    }
+
+    private void stopTask() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+}
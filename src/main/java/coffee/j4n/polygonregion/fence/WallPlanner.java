@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.fence;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.chunk.AsyncChunkLoader;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.util.BlockKeys;
+import coffee.j4n.polygonregion.util.GroundHeightService;
+import coffee.j4n.polygonregion.util.LongHashSet;
+import com.sk89q.worldedit.math.BlockVector2;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * This class plans the wall blocks around a polygonal region without blocking the main thread.<br />
+ * <p>
+ * Planning a wall is split into three steps:<br />
+ * - On the main thread, the columns of the perimeter are traced into a primitive column set. The chunks the perimeter crosses are loaded asynchronously
+ * (see {@link AsyncChunkLoader}) and a snapshot of every chunk is taken as soon as it is loaded.<br />
+ * - Off the main thread, the ground height of every column is looked up in the chunk snapshots.<br />
+ * - Back on the main thread, the resulting placements (packed block keys, see {@link BlockKeys}) are handed to the caller.<br />
+ */
+public class WallPlanner {
+
+    private final PolygonRegion pl;
+    private final GroundHeightService groundHeightService;
+
+    public WallPlanner(PolygonRegion pl, GroundHeightService groundHeightService) {
+        this.pl = pl;
+        this.groundHeightService = groundHeightService;
+    }
+
+    /**
+     * Plans the wall around a polygon and hands the wall block positions to the given callback on the main thread.
+     * - Has to be called on the main thread
+     * - Columns in chunks that could not be loaded are left out
+     *
+     * @param world     The world of the polygon
+     * @param points    The points of the polygon
+     * @param minY      The minimum y coordinate of the region
+     * @param maxY      The maximum y coordinate of the region
+     * @param origin    The location the chunks are loaded from (nearest first)
+     * @param onPlanned The callback receiving the block keys of the wall blocks
+     */
+    public void planWall(@NotNull World world, @NotNull List<BlockVector2> points, int minY, int maxY, @NotNull Location origin, @NotNull Consumer<long[]> onPlanned) {
+        LongHashSet columns = new LongHashSet();
+
+        // Generate the wall columns by connecting the points of the region with straight lines
+        for (int i = 0; i < points.size(); i++) {
+            addWallColumns(columns, points.get(i), points.get((i + 1) % points.size()));
+        }
+
+        long[] columnKeys = columns.toArray();
+
+        LongHashSet chunks = new LongHashSet();
+
+        for (long columnKey : columnKeys) {
+            chunks.add(BlockKeys.packColumn(BlockKeys.getColumnX(columnKey) >> 4, BlockKeys.getColumnZ(columnKey) >> 4));
+        }
+
+        // Snapshots have to be taken on the main thread, but only need the heightmap and the block types.
+        // They are taken as soon as a chunk is loaded, so the chunks do not have to be kept loaded until all of them are.
+        Map<Long, ChunkSnapshot> snapshots = new HashMap<>();
+
+        pl.getChunkLoader().load(world, chunks.toArray(), origin, true, false,
+                chunk -> snapshots.put(BlockKeys.packColumn(chunk.getX(), chunk.getZ()), chunk.getChunkSnapshot(true, false, false)),
+                () -> planColumns(world, columnKeys, snapshots, minY, maxY, onPlanned));
+    }
+
+    /**
+     * Looks up the ground height of the wall columns off the main thread and hands the wall block positions to the callback on the main thread.
+     */
+    private void planColumns(@NotNull World world, long @NotNull [] columnKeys, @NotNull Map<Long, ChunkSnapshot> snapshots, int minY, int maxY, @NotNull Consumer<long[]> onPlanned) {
+        int worldMinY = world.getMinHeight();
+        int worldMaxY = world.getMaxHeight();
+
+        pl.getOperationCounters().increment(OperationCounters.Counter.SCHEDULED_TASKS);
+        pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+            long[] wallBlockKeys = new long[columnKeys.length];
+            int wallBlockCount = 0;
+
+            for (long columnKey : columnKeys) {
+                int x = BlockKeys.getColumnX(columnKey);
+                int z = BlockKeys.getColumnZ(columnKey);
+
+                ChunkSnapshot snapshot = snapshots.get(BlockKeys.packColumn(x >> 4, z >> 4));
+
+                if (snapshot == null) {
+                    continue;
+                }
+
+                int groundY = groundHeightService.getGroundY(snapshot, worldMinY, worldMaxY, x & 15, z & 15, minY, maxY);
+
+                // Place the wall on top of the ground, or at the bottom of the region if there is no ground
+                wallBlockKeys[wallBlockCount++] = BlockKeys.pack(x, groundY < minY ? minY : groundY + 1, z);
+            }
+
+            long[] plannedBlockKeys = wallBlockCount == wallBlockKeys.length ? wallBlockKeys : Arrays.copyOf(wallBlockKeys, wallBlockCount);
+
+            if (pl.isEnabled()) {
+                pl.getServer().getScheduler().runTask(pl, () -> onPlanned.accept(plannedBlockKeys));
+            }
+        });
+    }
+
+    /**
+     * Add the columns of a wall between two points to a set of column keys using the Bresenham's line algorithm
+     *
+     * @param columns  The set of wall column keys
+     * @param wgPoint1 The first point of the wall
+     * @param wgPoint2 The second point of the wall
+     */
+    static void addWallColumns(LongHashSet columns, @NotNull BlockVector2 wgPoint1, @NotNull BlockVector2 wgPoint2) {
+        // Calculate the absolute delta between the x and z coordinates of wgPoint1 and wgPoint2
+        int xDeltaP2P1 = Math.abs(wgPoint2.x() - wgPoint1.x());
+        int zDeltaP2P1 = Math.abs(wgPoint2.z() - wgPoint1.z());
+
+        // Initialize the current x and z coordinates to the x and z coordinates of wgPoint1
+        int currentXP1 = wgPoint1.x();
+        int currentZP1 = wgPoint1.z();
+
+        // Calculate the number of steps to reach wgPoint2 from wgPoint1
+        int stepsRemaining = 1 + xDeltaP2P1 + zDeltaP2P1;
+
+        // Determine the direction of the x and z coordinates from wgPoint1 to wgPoint2
+        int xDirection = (wgPoint2.x() > wgPoint1.x()) ? 1 : -1;
+        int zDirection = (wgPoint2.z() > wgPoint1.z()) ? 1 : -1;
+
+        // Initialize the error term based on the delta in the x and z coordinates
+        int errorTerm = xDeltaP2P1 - zDeltaP2P1;
+
+        // Double the deltas for use in the algorithm
+        xDeltaP2P1 *= 2;
+        zDeltaP2P1 *= 2;
+
+        for (; stepsRemaining > 0; --stepsRemaining) {
+            columns.add(BlockKeys.packColumn(currentXP1, currentZP1));
+
+            // Update the error term and current coordinates based on the error term
+            if (errorTerm > 0) {
+                currentXP1 += xDirection;
+                errorTerm -= zDeltaP2P1;
+            } else {
+                currentZP1 += zDirection;
+                errorTerm += xDeltaP2P1;
+            }
+        }
+    }
+}
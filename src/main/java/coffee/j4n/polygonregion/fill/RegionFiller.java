@@ -0,0 +1,417 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.fill;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.chunk.AsyncChunkLoader;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.undo.UndoJournal;
+import coffee.j4n.polygonregion.util.BlockKeys;
+import coffee.j4n.polygonregion.util.LongIntHashMap;
+import coffee.j4n.polygonregion.util.ScanlineRasterizer;
+import coffee.j4n.polygonregion.util.statics.Prefixes;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * This class fills a layer of a polygonal region with a material.<br />
+ * <p>
+ * - The polygon is rasterized into chunk clipped block spans off the main thread (see {@link ScanlineRasterizer}),
+ * so no block has to be tested against the polygon.<br />
+ * - The spans are applied chunk by chunk by a single repeating task, which changes at most {@code fill.blocks-per-tick} blocks per tick.
+ * The budget is shared by all running fills.<br />
+ * - The chunks are loaded asynchronously ahead of the task (see {@link AsyncChunkLoader}), at most {@value #LOAD_WINDOW} chunks per fill at a time,
+ * and are kept loaded until their spans have been applied. Chunks that could not be loaded are skipped.<br />
+ * - Blocks that already have the material are skipped, the blocks are changed without physics updates.
+ * The previous state of every changed block is recorded in an undo journal ({@code /pregion undo}).<br />
+ * - Every player can run one fill at a time, which is reported every 25 % and can be cancelled.<br />
+ */
+public class RegionFiller {
+
+    private static final int PROGRESS_STEPS = 4;
+    private static final int LOAD_WINDOW = 16;
+
+    private final PolygonRegion pl;
+    private final int blocksPerTick;
+    private final long maxBlocks;
+
+    private final Map<UUID, FillJob> jobs = new LinkedHashMap<>();
+    private BukkitTask task;
+
+    public RegionFiller(PolygonRegion pl) {
+        this.pl = pl;
+        this.blocksPerTick = Math.max(1, pl.getConfig().getInt("fill.blocks-per-tick", 4096));
+        this.maxBlocks = Math.max(1L, pl.getConfig().getLong("fill.max-blocks", 4_000_000L));
+    }
+
+    /**
+     * Fills the layer at the given height of a region with a material.
+     *
+     * @param player       The player
+     * @param wgRegionName The name of the WorldGuard region
+     * @param material     The material
+     * @param y            The y coordinate of the layer
+     */
+    public void fill(@NotNull Player player, @NotNull String wgRegionName, @NotNull Material material, int y) {
+        if (jobs.containsKey(player.getUniqueId())) {
+            player.sendMessage(Prefixes.ERROR + "Es läuft bereits eine Füllung von dir.");
+            player.sendMessage(Prefixes.ADDITION + "Du kannst sie mit §8/§bpregion fill cancel §7abbrechen.");
+            return;
+        }
+
+        World world = player.getWorld();
+        RegionManager wgRegionManager = pl.getRegionManager(world);
+
+        if (wgRegionManager == null) {
+            player.sendMessage(Prefixes.ERROR + "Fehler beim Zugriff auf das Region-Management.");
+            player.sendMessage(Prefixes.ADDITION + "Versuche es gerne noch einmal, oder kontaktiere ein Serverteammitglied.");
+            return;
+        }
+
+        ProtectedRegion wgRegion = wgRegionManager.getRegion(wgRegionName);
+
+        if (!(wgRegion instanceof ProtectedPolygonalRegion)) {
+            player.sendMessage(Prefixes.ERROR + "Die Region \"§2§n" + wgRegionName + "\"§7 konnte §nnicht gefunden§7 werden.");
+            return;
+        }
+
+        int minY = Math.max(world.getMinHeight(), wgRegion.getMinimumPoint().y());
+        int maxY = Math.min(world.getMaxHeight() - 1, wgRegion.getMaximumPoint().y());
+
+        if (y < minY || y > maxY) {
+            player.sendMessage(Prefixes.ERROR + "Die Höhe §3" + y + " §7liegt nicht in der Region (§3" + minY + " §7bis §3" + maxY + "§7).");
+            return;
+        }
+
+        List<BlockVector2> wgPoints = wgRegion.getPoints();
+        int[] xs = new int[wgPoints.size()];
+        int[] zs = new int[wgPoints.size()];
+
+        for (int i = 0; i < wgPoints.size(); i++) {
+            xs[i] = wgPoints.get(i).x();
+            zs[i] = wgPoints.get(i).z();
+        }
+
+        UUID playerId = player.getUniqueId();
+        UndoJournal journal = pl.getUndoManager().begin(player, world, wgRegion.getId(), UndoJournal.Kind.FILL, material);
+        journal.addPendingChanges(1);
+
+        FillJob job = new FillJob(playerId, world, player.getLocation(), wgRegion.getId(), material, y, journal);
+        jobs.put(playerId, job);
+
+        player.sendMessage(Prefixes.INFO + "Die Region \"§2" + wgRegion.getId() + "§7\" wird vorbereitet...");
+
+        // Rasterizing only needs the points, so it does not block the main thread
+        pl.getOperationCounters().increment(OperationCounters.Counter.SCHEDULED_TASKS);
+        pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+            long[] spans = ScanlineRasterizer.rasterize(xs, zs, maxBlocks);
+
+            pl.getServer().getScheduler().runTask(pl, () -> start(job, spans));
+        });
+    }
+
+    /**
+     * Cancels the fill of a player.
+     *
+     * @param player The player
+     * @return Whether a fill has been cancelled
+     */
+    public boolean cancel(@NotNull Player player) {
+        FillJob job = jobs.remove(player.getUniqueId());
+
+        if (job == null) {
+            return false;
+        }
+
+        job.cancelled = true;
+        job.releaseChunks();
+        job.journal.onPendingChangeDone();
+        player.sendMessage(Prefixes.PLUGIN + "Die Füllung von \"§2" + job.wgRegionName + "§7\" wurde §cabgebrochen§7 (§3" + job.changedBlocks + " §7Blöcke geändert).");
+
+        return true;
+    }
+
+    /**
+     * Returns the number of running fills.
+     *
+     * @return The number of running fills
+     */
+    public int getRunningCount() {
+        return jobs.size();
+    }
+
+    /**
+     * Starts applying the rasterized spans of a fill.
+     *
+     * @param job   The fill
+     * @param spans The packed spans, or {@code null} if the region is too large
+     */
+    private void start(@NotNull FillJob job, long[] spans) {
+        // Cancelled while rasterizing
+        if (job.cancelled) {
+            return;
+        }
+
+        if (spans == null) {
+            jobs.remove(job.playerId);
+            job.journal.onPendingChangeDone();
+            notify(job, Prefixes.ERROR + "Die Region \"§2" + job.wgRegionName + "§7\" ist zu groß (mehr als §3" + maxBlocks + " §7Blöcke).");
+            return;
+        }
+
+        job.spans = spans;
+        job.chunkSpanStarts = ScanlineRasterizer.groupByChunk(spans);
+        job.chunkKeys = new long[job.chunkSpanStarts.length - 1];
+
+        for (int i = 0; i < job.chunkKeys.length; i++) {
+            long firstSpan = spans[job.chunkSpanStarts[i]];
+            job.chunkKeys[i] = BlockKeys.packColumn(ScanlineRasterizer.getChunkX(firstSpan), ScanlineRasterizer.getChunkZ(firstSpan));
+            job.chunkIndexByKey.put(job.chunkKeys[i], i);
+        }
+
+        for (long span : spans) {
+            job.totalBlocks += ScanlineRasterizer.getToX(span) - ScanlineRasterizer.getFromX(span) + 1;
+        }
+
+        notify(job, Prefixes.INFO + "Fülle §3" + job.totalBlocks + " §7Blöcke der Region \"§2" + job.wgRegionName + "§7\" auf Höhe §3" + job.y + " §7mit §3" + job.material.name().toLowerCase() + "§7...");
+
+        if (task == null) {
+            pl.getOperationCounters().increment(OperationCounters.Counter.SCHEDULED_TASKS);
+            task = pl.getServer().getScheduler().runTaskTimer(pl, () -> pl.getOperationCounters().measure("fill-tick", this::tick), 1L, 1L);
+        }
+    }
+
+    /**
+     * Applies the next spans of all running fills within the block budget.
+     */
+    private void tick() {
+        List<FillJob> runningJobs = new ArrayList<>();
+
+        for (FillJob job : jobs.values()) {
+            if (job.spans != null) {
+                runningJobs.add(job);
+            }
+        }
+
+        if (runningJobs.isEmpty()) {
+            if (jobs.isEmpty()) {
+                task.cancel();
+                task = null;
+            }
+
+            return;
+        }
+
+        // The budget is shared equally, a span is never split
+        int budgetPerJob = Math.max(1, blocksPerTick / runningJobs.size());
+        int changedBlocks = 0;
+
+        for (FillJob job : runningJobs) {
+            loadNextChunks(job);
+            changedBlocks += apply(job, budgetPerJob);
+            reportProgress(job);
+        }
+
+        pl.getOperationCounters().add(OperationCounters.Counter.BLOCK_WRITES, changedBlocks);
+
+        Iterator<FillJob> iterator = jobs.values().iterator();
+
+        while (iterator.hasNext()) {
+            FillJob job = iterator.next();
+
+            if (job.spans != null && job.finishedChunks + job.skippedChunks == job.chunkKeys.length) {
+                iterator.remove();
+                job.journal.onPendingChangeDone();
+                notify(job, Prefixes.PLUGIN + "Die Region \"§2" + job.wgRegionName + "§7\" wurde §aerfolgreich §7gefüllt (§3" + job.changedBlocks + " §7Blöcke geändert).");
+            }
+        }
+    }
+
+    /**
+     * Starts loading the next chunks of a fill, unless enough of its chunks are loaded or still loading.
+     *
+     * @param job The fill
+     */
+    private void loadNextChunks(@NotNull FillJob job) {
+        if ((job.loadRequest != null && job.loadRequest.isPending()) || job.readyChunks.size() >= LOAD_WINDOW || job.nextChunkToLoad == job.chunkKeys.length) {
+            return;
+        }
+
+        int fromChunk = job.nextChunkToLoad;
+        int toChunk = Math.min(job.chunkKeys.length, fromChunk + LOAD_WINDOW);
+        int[] loadedChunks = {0};
+
+        job.nextChunkToLoad = toChunk;
+        job.loadRequest = pl.getChunkLoader().load(job.world, Arrays.copyOfRange(job.chunkKeys, fromChunk, toChunk), job.origin, true, false, chunk -> {
+            // Keep the chunk loaded until its spans have been applied
+            chunk.addPluginChunkTicket(pl);
+            job.readyChunks.add(chunk);
+            loadedChunks[0]++;
+        }, () -> job.skippedChunks += toChunk - fromChunk - loadedChunks[0]);
+    }
+
+    /**
+     * Applies the next spans of the loaded chunks of a fill.
+     *
+     * @param job    The fill
+     * @param budget The number of blocks that may be visited
+     * @return The number of changed blocks
+     */
+    private int apply(@NotNull FillJob job, int budget) {
+        int visitedBlocks = 0;
+        int changedBlocks = 0;
+
+        while (visitedBlocks < budget) {
+            if (job.nextSpan == job.endSpan) {
+                if (job.currentChunk != null) {
+                    job.currentChunk.removePluginChunkTicket(pl);
+                    job.currentChunk = null;
+                    job.finishedChunks++;
+                }
+
+                Chunk chunk = job.readyChunks.poll();
+
+                // The next chunks are still loading
+                if (chunk == null) {
+                    break;
+                }
+
+                int chunkIndex = job.chunkIndexByKey.get(BlockKeys.packColumn(chunk.getX(), chunk.getZ()));
+
+                job.currentChunk = chunk;
+                job.nextSpan = job.chunkSpanStarts[chunkIndex];
+                job.endSpan = job.chunkSpanStarts[chunkIndex + 1];
+                continue;
+            }
+
+            long span = job.spans[job.nextSpan++];
+            int z = ScanlineRasterizer.getZ(span);
+
+            for (int x = ScanlineRasterizer.getFromX(span); x <= ScanlineRasterizer.getToX(span); x++) {
+                Block block = job.world.getBlockAt(x, job.y, z);
+
+                if (block.getType() != job.material) {
+                    job.journal.record(BlockKeys.pack(x, job.y, z), block.getBlockData());
+                    block.setType(job.material, false);
+                    changedBlocks++;
+                }
+
+                visitedBlocks++;
+            }
+        }
+
+        job.visitedBlocks += visitedBlocks;
+        job.changedBlocks += changedBlocks;
+
+        return changedBlocks;
+    }
+
+    private void reportProgress(@NotNull FillJob job) {
+        int step = (int) (job.visitedBlocks * PROGRESS_STEPS / Math.max(1, job.totalBlocks));
+
+        if (step > job.reportedStep && step < PROGRESS_STEPS) {
+            job.reportedStep = step;
+            notify(job, Prefixes.ADDITION + "Füllung von \"§2" + job.wgRegionName + "§7\": §3" + (step * 100 / PROGRESS_STEPS) + " % §8(§3" + job.visitedBlocks + "§8/§3" + job.totalBlocks + "§8)");
+        }
+    }
+
+    /**
+     * Sends a message to the player of a fill, if the player is online.
+     */
+    private void notify(@NotNull FillJob job, @NotNull String message) {
+        Player player = Bukkit.getPlayer(job.playerId);
+
+        if (player != null) {
+            player.sendMessage(message);
+        }
+    }
+
+    /**
+     * This class represents a running fill.
+     */
+    private final class FillJob {
+        private final UUID playerId;
+        private final World world;
+        private final Location origin;
+        private final String wgRegionName;
+        private final Material material;
+        private final int y;
+        private final UndoJournal journal;
+
+        // Set once the region has been rasterized
+        private long[] spans;
+        private int[] chunkSpanStarts;
+        private long[] chunkKeys;
+        private final LongIntHashMap chunkIndexByKey = new LongIntHashMap(-1);
+        private long totalBlocks = 0;
+
+        // The chunks are loaded in windows, loaded chunks wait in the queue until their spans are applied
+        private AsyncChunkLoader.Request loadRequest;
+        private int nextChunkToLoad = 0;
+        private final ArrayDeque<Chunk> readyChunks = new ArrayDeque<>();
+        private Chunk currentChunk;
+        private int finishedChunks = 0;
+        private int skippedChunks = 0;
+
+        // The spans of the current chunk
+        private int nextSpan = 0;
+        private int endSpan = 0;
+        private long visitedBlocks = 0;
+        private long changedBlocks = 0;
+        private int reportedStep = 0;
+        private boolean cancelled = false;
+
+        private FillJob(UUID playerId, World world, Location origin, String wgRegionName, Material material, int y, UndoJournal journal) {
+            this.playerId = playerId;
+            this.world = world;
+            this.origin = origin;
+            this.wgRegionName = wgRegionName;
+            this.material = material;
+            this.y = y;
+            this.journal = journal;
+        }
+
+        /**
+         * Stops loading chunks and releases the loaded ones.
+         */
+        private void releaseChunks() {
+            if (loadRequest != null) {
+                loadRequest.cancel();
+            }
+
+            if (currentChunk != null) {
+                currentChunk.removePluginChunkTicket(pl);
+                currentChunk = null;
+            }
+
+            for (Chunk chunk : readyChunks) {
+                chunk.removePluginChunkTicket(pl);
+            }
+
+            readyChunks.clear();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.index;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * This class classifies the chunks covered by the bounding box of a polygon.<br />
+ * <p>
+ * Every chunk is either fully inside, fully outside or on the boundary of the polygon:<br />
+ * - A chunk is on the boundary if an edge of the polygon touches its area, otherwise all of its blocks share the same state.<br />
+ * - Boundary chunks are found by walking every edge column by column, the other chunks by one scanline per chunk row.<br />
+ * - The classification is stored as two bitsets (inside and boundary) over the chunks of the bounding box, row by row.<br />
+ * - Only blocks in boundary chunks need the exact point-in-polygon test.<br />
+ */
+final class ChunkClassification {
+
+    static final int OUTSIDE = 0;
+    static final int INSIDE = 1;
+    static final int BOUNDARY = 2;
+
+    /**
+     * Polygons covering more chunks than this are not classified (about 1 MiB of bitsets).
+     */
+    static final int MAX_CHUNKS = 1 << 22;
+
+    private static final double EPSILON = 1e-9;
+
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int width;
+    private final int height;
+    private final BitSet inside;
+    private final BitSet boundary;
+
+    private ChunkClassification(int minChunkX, int minChunkZ, int width, int height) {
+        this.minChunkX = minChunkX;
+        this.minChunkZ = minChunkZ;
+        this.width = width;
+        this.height = height;
+        this.inside = new BitSet(width * height);
+        this.boundary = new BitSet(width * height);
+    }
+
+    /**
+     * Classifies the chunks of a polygon.
+     *
+     * @param xs   The x coordinates of the points of the polygon
+     * @param zs   The z coordinates of the points of the polygon
+     * @param minX The minimum x coordinate of the polygon
+     * @param minZ The minimum z coordinate of the polygon
+     * @param maxX The maximum x coordinate of the polygon
+     * @param maxZ The maximum z coordinate of the polygon
+     * @return The classification, or null if the polygon covers more than {@link #MAX_CHUNKS} chunks
+     */
+    static ChunkClassification of(int @NotNull [] xs, int @NotNull [] zs, int minX, int minZ, int maxX, int maxZ) {
+        int minChunkX = minX >> 4;
+        int minChunkZ = minZ >> 4;
+        long width = (maxX >> 4) - minChunkX + 1L;
+        long height = (maxZ >> 4) - minChunkZ + 1L;
+
+        if (width * height > MAX_CHUNKS) {
+            return null;
+        }
+
+        ChunkClassification classification = new ChunkClassification(minChunkX, minChunkZ, (int) width, (int) height);
+
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            classification.markEdge(xs[j], zs[j], xs[i], zs[i]);
+        }
+
+        classification.scanRows(xs, zs);
+
+        return classification;
+    }
+
+    /**
+     * Returns the state of a chunk.
+     *
+     * @param chunkX The x coordinate of the chunk
+     * @param chunkZ The z coordinate of the chunk
+     * @return {@link #INSIDE}, {@link #OUTSIDE} or {@link #BOUNDARY}
+     */
+    int classify(int chunkX, int chunkZ) {
+        int column = chunkX - minChunkX;
+        int row = chunkZ - minChunkZ;
+
+        if (column < 0 || row < 0 || column >= width || row >= height) {
+            return OUTSIDE;
+        }
+
+        int bit = row * width + column;
+
+        if (boundary.get(bit)) {
+            return BOUNDARY;
+        }
+
+        return inside.get(bit) ? INSIDE : OUTSIDE;
+    }
+
+    /**
+     * Marks all chunks whose area is touched by an edge as boundary chunks.<br />
+     * The edge is clipped to every chunk column it crosses (including the column border), so the marking errs on the side of boundary.
+     */
+    private void markEdge(int x1, int z1, int x2, int z2) {
+        if (x1 > x2) {
+            int swap = x1;
+            x1 = x2;
+            x2 = swap;
+            swap = z1;
+            z1 = z2;
+            z2 = swap;
+        }
+
+        for (int chunkX = x1 >> 4; chunkX <= x2 >> 4; chunkX++) {
+            double zFrom, zTo;
+
+            if (x1 == x2) {
+                zFrom = z1;
+                zTo = z2;
+            } else {
+                double slope = (double) (z2 - z1) / (x2 - x1);
+                zFrom = z1 + (Math.max(x1, chunkX << 4) - x1) * slope;
+                zTo = z1 + (Math.min(x2, (chunkX << 4) + 16) - x1) * slope;
+            }
+
+            int fromChunkZ = Math.floorDiv((int) Math.floor(Math.min(zFrom, zTo) - EPSILON), 16);
+            int toChunkZ = Math.floorDiv((int) Math.floor(Math.max(zFrom, zTo) + EPSILON), 16);
+
+            int column = chunkX - minChunkX;
+
+            for (int chunkZ = Math.max(fromChunkZ, minChunkZ); chunkZ <= Math.min(toChunkZ, minChunkZ + height - 1); chunkZ++) {
+                boundary.set((chunkZ - minChunkZ) * width + column);
+            }
+        }
+    }
+
+    /**
+     * Classifies the remaining chunks row by row: the state of a chunk without an edge equals the state of its center,
+     * which is found by counting the edge crossings of a scanline through the centers of the row.
+     */
+    private void scanRows(int @NotNull [] xs, int @NotNull [] zs) {
+        double[] crossings = new double[xs.length];
+
+        for (int row = 0; row < height; row++) {
+            // Not an integer, so the scanline never runs through a point of the polygon
+            double scanZ = ((minChunkZ + row) << 4) + 7.5;
+            int crossingCount = 0;
+
+            for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+                if ((zs[i] < scanZ) != (zs[j] < scanZ)) {
+                    crossings[crossingCount++] = xs[j] + (scanZ - zs[j]) * (xs[i] - xs[j]) / (zs[i] - zs[j]);
+                }
+            }
+
+            Arrays.sort(crossings, 0, crossingCount);
+
+            int crossingIndex = 0;
+
+            for (int column = 0; column < width; column++) {
+                double centerX = ((minChunkX + column) << 4) + 7.5;
+
+                while (crossingIndex < crossingCount && crossings[crossingIndex] < centerX) {
+                    crossingIndex++;
+                }
+
+                int bit = row * width + column;
+
+                if ((crossingIndex & 1) == 1 && !boundary.get(bit)) {
+                    inside.set(bit);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.index;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * This class represents a polygonal region in the spatial index.<br />
+ * <p>
+ * - The points are stored as primitive arrays, so that containment tests do not touch any WorldGuard objects.<br />
+ * - The containment test matches the one of WorldGuard's polygonal regions, including points on the edges and corners.<br />
+ * - The chunks of the polygon are classified on the first containment test (see {@link ChunkClassification}),
+ * so only blocks in chunks on the boundary of the polygon need the exact test.<br />
+ * - The points never change, a region with changed points is indexed as a new polygon with a new classification.<br />
+ */
+public final class IndexedPolygon {
+
+    private final String id;
+    private final int[] xs;
+    private final int[] zs;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+
+    private volatile ChunkClassification chunkClassification;
+    private volatile boolean chunkClassificationBuilt;
+
+    /**
+     * @param id   The id of the region
+     * @param xs   The x coordinates of the points of the polygon
+     * @param zs   The z coordinates of the points of the polygon
+     * @param minY The minimum y coordinate of the region
+     * @param maxY The maximum y coordinate of the region
+     */
+    public IndexedPolygon(@NotNull String id, int @NotNull [] xs, int @NotNull [] zs, int minY, int maxY) {
+        if (xs.length != zs.length || xs.length < 3) {
+            throw new IllegalArgumentException("A polygon needs at least 3 points with an x and a z coordinate each");
+        }
+
+        this.id = id;
+        this.xs = xs.clone();
+        this.zs = zs.clone();
+        this.minY = minY;
+        this.maxY = maxY;
+
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+        for (int i = 0; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+
+        this.minX = minX;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Returns whether the polygon contains a block.
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return Whether the block is inside the polygon or on its boundary
+     */
+    public boolean contains(int x, int y, int z) {
+        if (y < minY || y > maxY || x < minX || x > maxX || z < minZ || z > maxZ) {
+            return false;
+        }
+
+        ChunkClassification classification = getChunkClassification();
+
+        if (classification != null) {
+            int state = classification.classify(x >> 4, z >> 4);
+
+            if (state != ChunkClassification.BOUNDARY) {
+                return state == ChunkClassification.INSIDE;
+            }
+        }
+
+        return containsPoint(x, z);
+    }
+
+    /**
+     * Returns the classification of the chunks of the polygon, building it on first use.
+     *
+     * @return The classification, or null if the polygon is too large to be classified
+     */
+    ChunkClassification getChunkClassification() {
+        if (!chunkClassificationBuilt) {
+            // Building it twice on concurrent first use is harmless, both results are equal
+            chunkClassification = ChunkClassification.of(xs, zs, minX, minZ, maxX, maxZ);
+            chunkClassificationBuilt = true;
+        }
+
+        return chunkClassification;
+    }
+
+    /**
+     * The exact point-in-polygon test, ignoring the bounding box.
+     *
+     * @param x The x coordinate
+     * @param z The z coordinate
+     * @return Whether the point is inside the polygon or on its boundary
+     */
+    private boolean containsPoint(int x, int z) {
+        boolean inside = false;
+
+        int xOld = xs[xs.length - 1];
+        int zOld = zs[zs.length - 1];
+
+        for (int i = 0; i < xs.length; i++) {
+            int xNew = xs[i];
+            int zNew = zs[i];
+
+            // The corners belong to the polygon
+            if (xNew == x && zNew == z) {
+                return true;
+            }
+
+            int x1, z1, x2, z2;
+
+            if (xNew > xOld) {
+                x1 = xOld;
+                z1 = zOld;
+                x2 = xNew;
+                z2 = zNew;
+            } else {
+                x1 = xNew;
+                z1 = zNew;
+                x2 = xOld;
+                z2 = zOld;
+            }
+
+            if (x1 <= x && x <= x2) {
+                long crossProduct = ((long) z - z1) * (x2 - x1) - ((long) z2 - z1) * (x - x1);
+
+                if (crossProduct == 0) {
+                    // The edges belong to the polygon
+                    if ((z1 <= z) == (z <= z2)) {
+                        return true;
+                    }
+                } else if (crossProduct < 0 && x1 != x) {
+                    inside = !inside;
+                }
+            }
+
+            xOld = xNew;
+            zOld = zNew;
+        }
+
+        return inside;
+    }
+
+    /**
+     * Returns whether the polygon intersects an area (e.g. a chunk), ignoring the y coordinates.
+     *
+     * @param areaMinX The minimum x coordinate of the area (inclusive)
+     * @param areaMinZ The minimum z coordinate of the area (inclusive)
+     * @param areaMaxX The maximum x coordinate of the area (inclusive)
+     * @param areaMaxZ The maximum z coordinate of the area (inclusive)
+     * @return Whether at least one block of the area is inside the polygon or on its boundary
+     */
+    public boolean intersects(int areaMinX, int areaMinZ, int areaMaxX, int areaMaxZ) {
+        if (areaMaxX < minX || areaMinX > maxX || areaMaxZ < minZ || areaMinZ > maxZ) {
+            return false;
+        }
+
+        // The area is fully inside the polygon or contains a corner of the polygon
+        if (contains(areaMinX, minY, areaMinZ)) {
+            return true;
+        }
+
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[i] >= areaMinX && xs[i] <= areaMaxX && zs[i] >= areaMinZ && zs[i] <= areaMaxZ) {
+                return true;
+            }
+        }
+
+        // Otherwise, an edge of the polygon has to cross the area
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if (segmentIntersectsArea(xs[j], zs[j], xs[i], zs[i], areaMinX, areaMinZ, areaMaxX, areaMaxZ)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean segmentIntersectsArea(int x1, int z1, int x2, int z2, int areaMinX, int areaMinZ, int areaMaxX, int areaMaxZ) {
+        if (Math.max(x1, x2) < areaMinX || Math.min(x1, x2) > areaMaxX || Math.max(z1, z2) < areaMinZ || Math.min(z1, z2) > areaMaxZ) {
+            return false;
+        }
+
+        // The segment crosses the area if the corners of the area are not all on the same side of the segment
+        long c1 = side(x1, z1, x2, z2, areaMinX, areaMinZ);
+        long c2 = side(x1, z1, x2, z2, areaMaxX, areaMinZ);
+        long c3 = side(x1, z1, x2, z2, areaMinX, areaMaxZ);
+        long c4 = side(x1, z1, x2, z2, areaMaxX, areaMaxZ);
+
+        return !((c1 > 0 && c2 > 0 && c3 > 0 && c4 > 0) || (c1 < 0 && c2 < 0 && c3 < 0 && c4 < 0));
+    }
+
+    private static long side(int x1, int z1, int x2, int z2, int x, int z) {
+        return ((long) x2 - x1) * ((long) z - z1) - ((long) z2 - z1) * ((long) x - x1);
+    }
+
+    public @NotNull String getId() {
+        return id;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    public int getMaxZ() {
+        return maxZ;
+    }
+
+    public int getPointCount() {
+        return xs.length;
+    }
+
+    public int getPointX(int index) {
+        return xs[index];
+    }
+
+    public int getPointZ(int index) {
+        return zs[index];
+    }
+}
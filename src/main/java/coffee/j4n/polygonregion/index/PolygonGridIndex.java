@@ -0,0 +1,376 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.index;
+
+import coffee.j4n.polygonregion.util.BlockKeys;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * This class represents a uniform grid index over the bounds of polygonal regions of one world.<br />
+ * <p>
+ * - The world is divided into square cells of {@value #CELL_SIZE} x {@value #CELL_SIZE} blocks.<br />
+ * - Every cell stores the polygons whose bounds overlap the cell, so a point query only tests the few polygons of one cell.<br />
+ * - The cells are stored in a primitive open addressing table, so queries neither allocate nor box keys.<br />
+ * - The index is immutable: adding or removing polygons returns a new index, so queries never need to be synchronized.<br />
+ * - A new index shares the cells of the polygons that did not change with the previous index and only rebuilds the cells
+ * of the added and removed polygons, so adding a batch of polygons does not depend on the number of polygons already indexed.<br />
+ */
+public final class PolygonGridIndex {
+
+    private static final int CELL_SHIFT = 6;
+    public static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final IndexedPolygon[] NO_POLYGONS = new IndexedPolygon[0];
+
+    private static final PolygonGridIndex EMPTY_INDEX = new PolygonGridIndex(Collections.emptyMap());
+
+    private final Map<String, IndexedPolygon> polygons;
+
+    private final long[] cellKeys;
+    private final IndexedPolygon[][] cellPolygons;
+    // Slots holding a cell key, including cells that became empty
+    private int usedSlots = 0;
+
+    private PolygonGridIndex(@NotNull Map<String, IndexedPolygon> polygons) {
+        this.polygons = polygons;
+
+        // Collect the polygons per cell
+        Map<Long, List<IndexedPolygon>> cells = new HashMap<>();
+
+        for (IndexedPolygon polygon : polygons.values()) {
+            forEachCell(polygon, cellKey -> cells.computeIfAbsent(cellKey, key -> new ArrayList<>()).add(polygon));
+        }
+
+        int tableSize = tableSizeFor(cells.size());
+
+        cellKeys = new long[tableSize];
+        cellPolygons = new IndexedPolygon[tableSize][];
+        Arrays.fill(cellKeys, EMPTY);
+
+        for (Map.Entry<Long, List<IndexedPolygon>> cell : cells.entrySet()) {
+            putCell(cell.getKey(), cell.getValue().toArray(NO_POLYGONS));
+        }
+    }
+
+    /**
+     * Creates an index from the cells of a previous index and the cells that changed since.
+     *
+     * @param polygons     The polygons of the new index
+     * @param previous     The previous index
+     * @param changedCells The new polygons of every changed cell
+     */
+    private PolygonGridIndex(@NotNull Map<String, IndexedPolygon> polygons, @NotNull PolygonGridIndex previous, @NotNull Map<Long, List<IndexedPolygon>> changedCells) {
+        this.polygons = polygons;
+
+        int tableSize = previous.cellKeys.length;
+
+        if ((previous.usedSlots + changedCells.size()) * 2 > tableSize) {
+            // The table is resized, cells that became empty are dropped
+            int cellCount = changedCells.size();
+
+            for (int slot = 0; slot < previous.cellKeys.length; slot++) {
+                if (previous.cellKeys[slot] != EMPTY && previous.cellPolygons[slot].length > 0) {
+                    cellCount++;
+                }
+            }
+
+            cellKeys = new long[tableSizeFor(cellCount)];
+            cellPolygons = new IndexedPolygon[cellKeys.length][];
+            Arrays.fill(cellKeys, EMPTY);
+
+            for (int slot = 0; slot < previous.cellKeys.length; slot++) {
+                if (previous.cellKeys[slot] != EMPTY && previous.cellPolygons[slot].length > 0 && !changedCells.containsKey(previous.cellKeys[slot])) {
+                    putCell(previous.cellKeys[slot], previous.cellPolygons[slot]);
+                }
+            }
+        } else {
+            cellKeys = previous.cellKeys.clone();
+            cellPolygons = previous.cellPolygons.clone();
+            usedSlots = previous.usedSlots;
+        }
+
+        for (Map.Entry<Long, List<IndexedPolygon>> cell : changedCells.entrySet()) {
+            putCell(cell.getKey(), cell.getValue().toArray(NO_POLYGONS));
+        }
+    }
+
+    /**
+     * Returns an index without any polygons.
+     *
+     * @return The empty index
+     */
+    public static @NotNull PolygonGridIndex empty() {
+        return EMPTY_INDEX;
+    }
+
+    /**
+     * Returns an index containing the given polygons.
+     *
+     * @param polygons The polygons (polygons with the same id replace each other)
+     * @return The index
+     */
+    public static @NotNull PolygonGridIndex of(@NotNull Collection<IndexedPolygon> polygons) {
+        Map<String, IndexedPolygon> polygonsById = new LinkedHashMap<>();
+
+        for (IndexedPolygon polygon : polygons) {
+            polygonsById.put(polygon.getId(), polygon);
+        }
+
+        return new PolygonGridIndex(polygonsById);
+    }
+
+    /**
+     * Returns a new index that additionally contains the given polygon.
+     * - A polygon with the same id is replaced
+     *
+     * @param polygon The polygon
+     * @return The new index
+     */
+    public @NotNull PolygonGridIndex withPolygon(@NotNull IndexedPolygon polygon) {
+        return withChanges(List.of(polygon), List.of());
+    }
+
+    /**
+     * Returns a new index without the polygon with the given id.
+     *
+     * @param id The id of the polygon
+     * @return The new index, or this index if it does not contain the polygon
+     */
+    public @NotNull PolygonGridIndex withoutPolygon(@NotNull String id) {
+        return withChanges(List.of(), List.of(id));
+    }
+
+    /**
+     * Returns a new index with polygons added and removed at once.
+     * - Polygons with the same id as an indexed polygon replace it
+     * - Only the cells of the added and removed polygons are rebuilt
+     *
+     * @param addedPolygons The polygons to add (polygons with the same id replace each other)
+     * @param removedIds    The ids of the polygons to remove (removed before the polygons are added)
+     * @return The new index, or this index if nothing changes
+     */
+    public @NotNull PolygonGridIndex withChanges(@NotNull Collection<IndexedPolygon> addedPolygons, @NotNull Collection<String> removedIds) {
+        Map<String, IndexedPolygon> newPolygons = new LinkedHashMap<>(polygons);
+        List<IndexedPolygon> leavingPolygons = new ArrayList<>();
+
+        for (String id : removedIds) {
+            IndexedPolygon removedPolygon = newPolygons.remove(id);
+
+            if (removedPolygon != null) {
+                leavingPolygons.add(removedPolygon);
+            }
+        }
+
+        Map<String, IndexedPolygon> addedById = new LinkedHashMap<>();
+
+        for (IndexedPolygon polygon : addedPolygons) {
+            addedById.put(polygon.getId(), polygon);
+        }
+
+        for (IndexedPolygon polygon : addedById.values()) {
+            IndexedPolygon replacedPolygon = newPolygons.put(polygon.getId(), polygon);
+
+            if (replacedPolygon != null) {
+                leavingPolygons.add(replacedPolygon);
+            }
+        }
+
+        if (leavingPolygons.isEmpty() && addedById.isEmpty()) {
+            return this;
+        }
+
+        // The changed cells start with the polygons of the previous index
+        Map<Long, List<IndexedPolygon>> changedCells = new HashMap<>();
+
+        for (IndexedPolygon polygon : leavingPolygons) {
+            forEachCell(polygon, cellKey -> changedCells.computeIfAbsent(cellKey, this::copyCell).remove(polygon));
+        }
+
+        for (IndexedPolygon polygon : addedById.values()) {
+            forEachCell(polygon, cellKey -> changedCells.computeIfAbsent(cellKey, this::copyCell).add(polygon));
+        }
+
+        return new PolygonGridIndex(newPolygons, this, changedCells);
+    }
+
+    /**
+     * Returns the first polygon that contains a block.
+     * - Does not allocate, intended for tight loops
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The first polygon containing the block, or null if no polygon contains it
+     */
+    public @Nullable IndexedPolygon getFirstContaining(int x, int y, int z) {
+        for (IndexedPolygon polygon : getCell(x >> CELL_SHIFT, z >> CELL_SHIFT)) {
+            if (polygon.contains(x, y, z)) {
+                return polygon;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Passes every polygon that contains a block to a consumer.
+     *
+     * @param x        The x coordinate
+     * @param y        The y coordinate
+     * @param z        The z coordinate
+     * @param consumer The consumer
+     */
+    public void forEachContaining(int x, int y, int z, @NotNull Consumer<IndexedPolygon> consumer) {
+        for (IndexedPolygon polygon : getCell(x >> CELL_SHIFT, z >> CELL_SHIFT)) {
+            if (polygon.contains(x, y, z)) {
+                consumer.accept(polygon);
+            }
+        }
+    }
+
+    /**
+     * Returns all polygons that contain a block.
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The polygons containing the block
+     */
+    public @NotNull List<IndexedPolygon> getContaining(int x, int y, int z) {
+        List<IndexedPolygon> result = new ArrayList<>(1);
+        forEachContaining(x, y, z, result::add);
+
+        return result;
+    }
+
+    /**
+     * Returns all polygons that intersect an area (e.g. a chunk), ignoring the y coordinates.
+     *
+     * @param minX The minimum x coordinate of the area (inclusive)
+     * @param minZ The minimum z coordinate of the area (inclusive)
+     * @param maxX The maximum x coordinate of the area (inclusive)
+     * @param maxZ The maximum z coordinate of the area (inclusive)
+     * @return The polygons intersecting the area
+     */
+    public @NotNull List<IndexedPolygon> getIntersecting(int minX, int minZ, int maxX, int maxZ) {
+        List<IndexedPolygon> result = new ArrayList<>();
+
+        for (int cellX = minX >> CELL_SHIFT; cellX <= maxX >> CELL_SHIFT; cellX++) {
+            for (int cellZ = minZ >> CELL_SHIFT; cellZ <= maxZ >> CELL_SHIFT; cellZ++) {
+                for (IndexedPolygon polygon : getCell(cellX, cellZ)) {
+                    // Polygons spanning several cells are found once per cell
+                    if (!result.contains(polygon) && polygon.intersects(minX, minZ, maxX, maxZ)) {
+                        result.add(polygon);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the polygon with the given id.
+     *
+     * @param id The id of the polygon
+     * @return The polygon, or null if the index does not contain it
+     */
+    public @Nullable IndexedPolygon getPolygon(@NotNull String id) {
+        return polygons.get(id);
+    }
+
+    /**
+     * Returns all polygons of the index.
+     *
+     * @return An unmodifiable view of the polygons
+     */
+    public @NotNull Collection<IndexedPolygon> getPolygons() {
+        return Collections.unmodifiableCollection(polygons.values());
+    }
+
+    /**
+     * Returns the number of polygons in the index.
+     *
+     * @return The number of polygons
+     */
+    public int size() {
+        return polygons.size();
+    }
+
+    private @NotNull List<IndexedPolygon> copyCell(long cellKey) {
+        return new ArrayList<>(Arrays.asList(getCell(cellKey)));
+    }
+
+    private IndexedPolygon @NotNull [] getCell(int cellX, int cellZ) {
+        return getCell(BlockKeys.packColumn(cellX, cellZ));
+    }
+
+    private IndexedPolygon @NotNull [] getCell(long cellKey) {
+        int mask = cellKeys.length - 1;
+        int slot = hash(cellKey) & mask;
+
+        while (cellKeys[slot] != EMPTY) {
+            if (cellKeys[slot] == cellKey) {
+                return cellPolygons[slot];
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return NO_POLYGONS;
+    }
+
+    /**
+     * Stores the polygons of a cell, in the slot of the cell or in a new slot.
+     */
+    private void putCell(long cellKey, IndexedPolygon @NotNull [] polygonsOfCell) {
+        int mask = cellKeys.length - 1;
+        int slot = hash(cellKey) & mask;
+
+        while (cellKeys[slot] != EMPTY && cellKeys[slot] != cellKey) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (cellKeys[slot] == EMPTY) {
+            cellKeys[slot] = cellKey;
+            usedSlots++;
+        }
+
+        cellPolygons[slot] = polygonsOfCell;
+    }
+
+    private static void forEachCell(@NotNull IndexedPolygon polygon, @NotNull LongConsumer consumer) {
+        for (int cellX = polygon.getMinX() >> CELL_SHIFT; cellX <= polygon.getMaxX() >> CELL_SHIFT; cellX++) {
+            for (int cellZ = polygon.getMinZ() >> CELL_SHIFT; cellZ <= polygon.getMaxZ() >> CELL_SHIFT; cellZ++) {
+                consumer.accept(BlockKeys.packColumn(cellX, cellZ));
+            }
+        }
+    }
+
+    /**
+     * Returns the size of a table that is at most half full with the given number of cells.
+     */
+    private static int tableSizeFor(int cellCount) {
+        int tableSize = 16;
+
+        while (tableSize < cellCount * 2) {
+            tableSize <<= 1;
+        }
+
+        return tableSize;
+    }
+
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
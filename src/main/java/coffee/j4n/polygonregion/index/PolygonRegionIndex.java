@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.index;
+
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * This interface provides fast containment queries for the polygonal regions of all worlds.<br />
+ * <p>
+ * It is registered in the services manager of the server and can be used by other plugins:<br />
+ * - {@code Bukkit.getServicesManager().load(PolygonRegionIndex.class)}<br />
+ * - Queries are answered from an in-memory index and can be called from any thread.<br />
+ * - Block positions for batch queries are packed with {@link coffee.j4n.polygonregion.util.BlockKeys#pack(int, int, int)}.<br />
+ */
+public interface PolygonRegionIndex {
+
+    /**
+     * Returns the ids of all polygonal regions that contain a block.
+     *
+     * @param world The world
+     * @param x     The x coordinate
+     * @param y     The y coordinate
+     * @param z     The z coordinate
+     * @return The ids of the regions containing the block
+     */
+    @NotNull List<String> getRegionsAt(@NotNull World world, int x, int y, int z);
+
+    /**
+     * Returns whether any polygonal region contains a block.
+     *
+     * @param world The world
+     * @param x     The x coordinate
+     * @param y     The y coordinate
+     * @param z     The z coordinate
+     * @return Whether a region contains the block
+     */
+    boolean isInsideAnyRegion(@NotNull World world, int x, int y, int z);
+
+    /**
+     * Returns the ids of all polygonal regions that intersect a chunk (ignoring the y coordinates).
+     *
+     * @param world  The world
+     * @param chunkX The x coordinate of the chunk
+     * @param chunkZ The z coordinate of the chunk
+     * @return The ids of the regions intersecting the chunk
+     */
+    @NotNull List<String> getRegionsInChunk(@NotNull World world, int chunkX, int chunkZ);
+
+    /**
+     * Returns which of the given blocks are inside any polygonal region.
+     *
+     * @param world     The world
+     * @param blockKeys The packed block positions
+     * @return A bit set with the indices of the blocks that are inside a region
+     */
+    @NotNull BitSet getBlocksInsideAnyRegion(@NotNull World world, long @NotNull [] blockKeys);
+
+    /**
+     * Passes every pair of block and polygonal region containing it to a consumer.
+     *
+     * @param world     The world
+     * @param blockKeys The packed block positions
+     * @param consumer  The consumer, receiving the index of the block and the id of the region
+     */
+    void forEachRegionAt(@NotNull World world, long @NotNull [] blockKeys, @NotNull BlockRegionConsumer consumer);
+
+    /**
+     * This interface represents a consumer of batch query results.
+     */
+    @FunctionalInterface
+    interface BlockRegionConsumer {
+
+        /**
+         * @param blockIndex The index of the block in the queried array
+         * @param regionId   The id of a region containing the block
+         */
+        void accept(int blockIndex, @NotNull String regionId);
+    }
+}
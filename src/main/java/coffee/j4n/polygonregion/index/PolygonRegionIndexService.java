@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.index;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.util.BlockKeys;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class implements the {@link PolygonRegionIndex} with one {@link PolygonGridIndex} per world.<br />
+ * <p>
+ * - The index is built from the WorldGuard regions of all worlds when the plugin is enabled.<br />
+ * - Regions created by this plugin are added to the index immediately, batches of regions with a single update of the index.<br />
+ * - Regions created, redefined or removed outside of this plugin (e.g. with WorldGuard's commands) are picked up by {@link #revalidate()},
+ * which runs every {@code index.revalidate-seconds} seconds and compares the indexed regions with the ones of WorldGuard.<br />
+ */
+public class PolygonRegionIndexService implements PolygonRegionIndex {
+
+    private final PolygonRegion pl;
+    private final int revalidateSeconds;
+    private final Map<UUID, PolygonGridIndex> worldIndices = new ConcurrentHashMap<>();
+
+    // The WorldGuard regions the polygons have been created from, to detect regions replaced by WorldGuard (only used on the main thread)
+    private final Map<UUID, Map<String, ProtectedRegion>> indexedRegions = new HashMap<>();
+
+    public PolygonRegionIndexService(PolygonRegion pl) {
+        this.pl = pl;
+        this.revalidateSeconds = Math.max(0, pl.getConfig().getInt("index.revalidate-seconds", 30));
+    }
+
+    /**
+     * Starts the periodic revalidation of the index against the regions of WorldGuard.
+     */
+    public void start() {
+        if (revalidateSeconds > 0) {
+            long intervalTicks = revalidateSeconds * 20L;
+            pl.getServer().getScheduler().runTaskTimer(pl, () -> pl.getOperationCounters().measure("revalidate-index", this::revalidate), intervalTicks, intervalTicks);
+        }
+    }
+
+    /**
+     * Rebuilds the index of every world from the polygonal regions known to WorldGuard.
+     */
+    public void rebuild() {
+        for (World world : pl.getServer().getWorlds()) {
+            RegionManager wgRegionManager = pl.getRegionManager(world);
+
+            if (wgRegionManager == null) {
+                continue;
+            }
+
+            List<IndexedPolygon> polygons = new ArrayList<>();
+            Map<String, ProtectedRegion> sources = new HashMap<>();
+
+            for (ProtectedRegion wgRegion : wgRegionManager.getRegions().values()) {
+                if (isIndexed(wgRegion)) {
+                    polygons.add(toIndexedPolygon((ProtectedPolygonalRegion) wgRegion));
+                    sources.put(wgRegion.getId(), wgRegion);
+                }
+            }
+
+            worldIndices.put(world.getUID(), PolygonGridIndex.of(polygons));
+            indexedRegions.put(world.getUID(), sources);
+        }
+
+        pl.getLogger().info("Indexed " + worldIndices.values().stream().mapToInt(PolygonGridIndex::size).sum() + " polygonal regions.");
+    }
+
+    /**
+     * Adds a polygonal region to the index of a world (or replaces the region with the same id).
+     * - Has to be called on the main thread
+     *
+     * @param world    The world of the region
+     * @param wgRegion The region
+     */
+    public void addRegion(@NotNull World world, @NotNull ProtectedPolygonalRegion wgRegion) {
+        addRegions(world, List.of(wgRegion));
+    }
+
+    /**
+     * Adds several polygonal regions to the index of a world with a single update of the index (or replaces the regions with the same ids).
+     * - Has to be called on the main thread
+     *
+     * @param world     The world of the regions
+     * @param wgRegions The regions
+     */
+    public void addRegions(@NotNull World world, @NotNull Collection<ProtectedPolygonalRegion> wgRegions) {
+        if (wgRegions.isEmpty()) {
+            return;
+        }
+
+        List<IndexedPolygon> polygons = new ArrayList<>(wgRegions.size());
+        Map<String, ProtectedRegion> sources = indexedRegions.computeIfAbsent(world.getUID(), key -> new HashMap<>());
+
+        for (ProtectedPolygonalRegion wgRegion : wgRegions) {
+            polygons.add(toIndexedPolygon(wgRegion));
+            sources.put(wgRegion.getId(), wgRegion);
+        }
+
+        worldIndices.put(world.getUID(), getIndex(world).withChanges(polygons, List.of()));
+    }
+
+    /**
+     * Brings the index of every world in line with the regions of WorldGuard.
+     * - Regions that have been created, redefined or removed since they have been indexed are updated with a single update per world
+     * - Has to be called on the main thread
+     */
+    public void revalidate() {
+        for (World world : pl.getServer().getWorlds()) {
+            RegionManager wgRegionManager = pl.getRegionManager(world);
+
+            if (wgRegionManager == null) {
+                continue;
+            }
+
+            Map<String, ProtectedRegion> wgRegions = wgRegionManager.getRegions();
+            Map<String, ProtectedRegion> sources = indexedRegions.computeIfAbsent(world.getUID(), key -> new HashMap<>());
+
+            List<IndexedPolygon> changedPolygons = new ArrayList<>();
+            List<String> removedIds = new ArrayList<>();
+
+            // WorldGuard replaces the region object when a region is redefined, so a different object means a changed region
+            for (ProtectedRegion wgRegion : wgRegions.values()) {
+                if (isIndexed(wgRegion) && sources.get(wgRegion.getId()) != wgRegion) {
+                    changedPolygons.add(toIndexedPolygon((ProtectedPolygonalRegion) wgRegion));
+                    sources.put(wgRegion.getId(), wgRegion);
+                }
+            }
+
+            Iterator<Map.Entry<String, ProtectedRegion>> iterator = sources.entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                String id = iterator.next().getKey();
+
+                if (!isIndexed(wgRegions.get(id))) {
+                    removedIds.add(id);
+                    iterator.remove();
+                }
+            }
+
+            if (!changedPolygons.isEmpty() || !removedIds.isEmpty()) {
+                worldIndices.put(world.getUID(), getIndex(world).withChanges(changedPolygons, removedIds));
+            }
+        }
+    }
+
+    /**
+     * Returns the index of a world.
+     *
+     * @param world The world
+     * @return The index of the world (empty if the world has no polygonal regions)
+     */
+    public @NotNull PolygonGridIndex getIndex(@NotNull World world) {
+        return worldIndices.getOrDefault(world.getUID(), PolygonGridIndex.empty());
+    }
+
+    @Override
+    public @NotNull List<String> getRegionsAt(@NotNull World world, int x, int y, int z) {
+        List<String> regionIds = new ArrayList<>(1);
+        getIndex(world).forEachContaining(x, y, z, polygon -> regionIds.add(polygon.getId()));
+
+        return regionIds;
+    }
+
+    @Override
+    public boolean isInsideAnyRegion(@NotNull World world, int x, int y, int z) {
+        return getIndex(world).getFirstContaining(x, y, z) != null;
+    }
+
+    @Override
+    public @NotNull List<String> getRegionsInChunk(@NotNull World world, int chunkX, int chunkZ) {
+        List<String> regionIds = new ArrayList<>();
+
+        for (IndexedPolygon polygon : getIndex(world).getIntersecting(chunkX << 4, chunkZ << 4, (chunkX << 4) + 15, (chunkZ << 4) + 15)) {
+            regionIds.add(polygon.getId());
+        }
+
+        return regionIds;
+    }
+
+    @Override
+    public @NotNull BitSet getBlocksInsideAnyRegion(@NotNull World world, long @NotNull [] blockKeys) {
+        PolygonGridIndex index = getIndex(world);
+        BitSet inside = new BitSet(blockKeys.length);
+
+        for (int i = 0; i < blockKeys.length; i++) {
+            if (index.getFirstContaining(BlockKeys.getX(blockKeys[i]), BlockKeys.getY(blockKeys[i]), BlockKeys.getZ(blockKeys[i])) != null) {
+                inside.set(i);
+            }
+        }
+
+        return inside;
+    }
+
+    @Override
+    public void forEachRegionAt(@NotNull World world, long @NotNull [] blockKeys, @NotNull BlockRegionConsumer consumer) {
+        PolygonGridIndex index = getIndex(world);
+
+        for (int i = 0; i < blockKeys.length; i++) {
+            int blockIndex = i;
+            index.forEachContaining(BlockKeys.getX(blockKeys[i]), BlockKeys.getY(blockKeys[i]), BlockKeys.getZ(blockKeys[i]), polygon -> consumer.accept(blockIndex, polygon.getId()));
+        }
+    }
+
+    private static boolean isIndexed(ProtectedRegion wgRegion) {
+        return wgRegion instanceof ProtectedPolygonalRegion wgPolygonalRegion && wgPolygonalRegion.getPoints().size() >= 3;
+    }
+
+    private static @NotNull IndexedPolygon toIndexedPolygon(@NotNull ProtectedPolygonalRegion wgRegion) {
+        List<BlockVector2> wgPoints = wgRegion.getPoints();
+
+        int[] xs = new int[wgPoints.size()];
+        int[] zs = new int[wgPoints.size()];
+
+        for (int i = 0; i < wgPoints.size(); i++) {
+            xs[i] = wgPoints.get(i).x();
+            zs[i] = wgPoints.get(i).z();
+        }
+
+        return new IndexedPolygon(wgRegion.getId(), xs, zs, wgRegion.getMinimumPoint().y(), wgRegion.getMaximumPoint().y());
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.info;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents the statistics of a polygonal region.<br />
+ * - The geometry (points and height) the statistics have been computed for is kept to detect changes of the region.<br />
+ * - The material counts are {@code null} if the region has too many chunks to be scanned.<br />
+ */
+public final class RegionInfo {
+
+    private final List<BlockVector2> points;
+    private final BlockVector3 minimumPoint;
+    private final BlockVector3 maximumPoint;
+
+    private final double area;
+    private final double perimeter;
+    private final long blocksPerLayer;
+    private final Map<Material, Long> materialCounts;
+    private final long computedAt;
+
+    RegionInfo(@NotNull List<BlockVector2> points, @NotNull BlockVector3 minimumPoint, @NotNull BlockVector3 maximumPoint, double area, double perimeter, long blocksPerLayer, @Nullable Map<Material, Long> materialCounts, long computedAt) {
+        this.points = points;
+        this.minimumPoint = minimumPoint;
+        this.maximumPoint = maximumPoint;
+        this.area = area;
+        this.perimeter = perimeter;
+        this.blocksPerLayer = blocksPerLayer;
+        this.materialCounts = materialCounts;
+        this.computedAt = computedAt;
+    }
+
+    /**
+     * Returns whether the statistics have been computed for the given geometry.
+     *
+     * @param points       The points of the region
+     * @param minimumPoint The minimum point of the region
+     * @param maximumPoint The maximum point of the region
+     * @return Whether the geometry is unchanged
+     */
+    boolean matches(@NotNull List<BlockVector2> points, @NotNull BlockVector3 minimumPoint, @NotNull BlockVector3 maximumPoint) {
+        return this.minimumPoint.equals(minimumPoint) && this.maximumPoint.equals(maximumPoint) && this.points.equals(points);
+    }
+
+    public int getVertexCount() {
+        return points.size();
+    }
+
+    public @NotNull BlockVector3 getMinimumPoint() {
+        return minimumPoint;
+    }
+
+    public @NotNull BlockVector3 getMaximumPoint() {
+        return maximumPoint;
+    }
+
+    /**
+     * Returns the area enclosed by the points of the region (shoelace formula).
+     *
+     * @return The area in square blocks
+     */
+    public double getArea() {
+        return area;
+    }
+
+    /**
+     * Returns the length of the outline of the region.
+     *
+     * @return The perimeter in blocks
+     */
+    public double getPerimeter() {
+        return perimeter;
+    }
+
+    /**
+     * Returns the number of blocks of one layer of the region (including the blocks on the outline).
+     *
+     * @return The number of blocks per layer, or {@code -1} if the region has not been scanned
+     */
+    public long getBlocksPerLayer() {
+        return blocksPerLayer;
+    }
+
+    /**
+     * Returns the number of blocks of every counted material within the region.
+     *
+     * @return The material counts, or {@code null} if the region has not been scanned
+     */
+    public @Nullable Map<Material, Long> getMaterialCounts() {
+        return materialCounts;
+    }
+
+    /**
+     * Returns when the statistics have been computed.
+     *
+     * @return The time in milliseconds since the epoch
+     */
+    public long getComputedAt() {
+        return computedAt;
+    }
+}
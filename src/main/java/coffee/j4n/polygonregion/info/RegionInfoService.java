@@ -0,0 +1,446 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.info;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.util.BlockKeys;
+import coffee.j4n.polygonregion.util.ScanlineRasterizer;
+import coffee.j4n.polygonregion.util.statics.Prefixes;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class computes the statistics of polygonal regions for {@code /pregion info}.<br />
+ * <p>
+ * - Area (shoelace formula), perimeter, vertex count and bounding box are computed from the points of the region.<br />
+ * - The blocks of the configured materials are counted by rasterizing the region into chunk clipped spans (see {@link ScanlineRasterizer})
+ * and scanning only those spans in snapshots of the chunks.<br />
+ * - The chunks are loaded asynchronously (see {@link coffee.j4n.polygonregion.chunk.AsyncChunkLoader}), the snapshot of every loaded chunk is handed
+ * to a pool of worker threads right away, so only the snapshots that are being scanned are kept in memory.<br />
+ * - Empty chunk sections are skipped, chunks that have never been generated are not generated.<br />
+ * - The statistics are cached per region until the points or the height of the region change.<br />
+ */
+public class RegionInfoService {
+
+    private static final int MAX_CACHED_REGIONS = 256;
+
+    private final PolygonRegion pl;
+    private final int maxChunks;
+
+    //<editor-fold desc="Counted materials">
+    private final Material[] countedMaterials;
+    private final int[] materialIndexByOrdinal;
+    private final boolean countsAir;
+    //</editor-fold>
+
+    private final ExecutorService scanExecutor;
+
+    private final Map<String, RegionInfo> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RegionInfo> eldest) {
+            return size() > MAX_CACHED_REGIONS;
+        }
+    };
+
+    private final Map<String, List<UUID>> waitingPlayers = new HashMap<>();
+
+    public RegionInfoService(PolygonRegion pl) {
+        this.pl = pl;
+        this.maxChunks = Math.max(0, pl.getConfig().getInt("info.max-chunks", 4096));
+
+        List<Material> materials = new ArrayList<>();
+
+        for (String materialName : pl.getConfig().getStringList("info.materials")) {
+            Material material = Material.matchMaterial(materialName);
+
+            if (material == null || !material.isBlock()) {
+                pl.getLogger().warning("Ignoring unknown block material in info.materials: " + materialName);
+                continue;
+            }
+
+            if (!materials.contains(material)) {
+                materials.add(material);
+            }
+        }
+
+        this.countedMaterials = materials.toArray(new Material[0]);
+        this.materialIndexByOrdinal = new int[Material.values().length];
+        Arrays.fill(materialIndexByOrdinal, -1);
+
+        for (int i = 0; i < countedMaterials.length; i++) {
+            materialIndexByOrdinal[countedMaterials[i].ordinal()] = i;
+        }
+
+        this.countsAir = materials.contains(Material.AIR) || materials.contains(Material.CAVE_AIR) || materials.contains(Material.VOID_AIR);
+
+        int threads = pl.getConfig().getInt("info.threads", 0);
+        threads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scanExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "PolygonRegion-Info-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends the statistics of a region to a player, computing them first if the region has changed since they have been cached.
+     *
+     * @param player       The player
+     * @param wgRegionName The name of the WorldGuard region
+     */
+    public void showInfo(@NotNull Player player, @NotNull String wgRegionName) {
+        World world = player.getWorld();
+        RegionManager wgRegionManager = pl.getRegionManager(world);
+
+        if (wgRegionManager == null) {
+            player.sendMessage(Prefixes.ERROR + "Fehler beim Zugriff auf das Region-Management.");
+            player.sendMessage(Prefixes.ADDITION + "Versuche es gerne noch einmal, oder kontaktiere ein Serverteammitglied.");
+            return;
+        }
+
+        ProtectedRegion wgRegion = wgRegionManager.getRegion(wgRegionName);
+
+        if (!(wgRegion instanceof ProtectedPolygonalRegion)) {
+            player.sendMessage(Prefixes.ERROR + "Die Region \"§2§n" + wgRegionName + "\"§7 konnte §nnicht gefunden§7 werden.");
+            return;
+        }
+
+        String cacheKey = world.getName() + "/" + wgRegion.getId();
+        List<BlockVector2> points = List.copyOf(wgRegion.getPoints());
+        BlockVector3 minimumPoint = wgRegion.getMinimumPoint();
+        BlockVector3 maximumPoint = wgRegion.getMaximumPoint();
+
+        RegionInfo cachedInfo = cache.get(cacheKey);
+
+        if (cachedInfo != null && cachedInfo.matches(points, minimumPoint, maximumPoint)) {
+            sendInfo(player, wgRegion.getId(), cachedInfo);
+            return;
+        }
+
+        // The region is already being scanned, the player gets the result as well
+        List<UUID> waiting = waitingPlayers.get(cacheKey);
+
+        if (waiting != null) {
+            waiting.add(player.getUniqueId());
+            return;
+        }
+
+        waiting = new ArrayList<>();
+        waiting.add(player.getUniqueId());
+        waitingPlayers.put(cacheKey, waiting);
+
+        player.sendMessage(Prefixes.INFO + "Die Region \"§2" + wgRegion.getId() + "§7\" wird analysiert...");
+
+        new Scan(world, player.getLocation(), cacheKey, wgRegion.getId(), points, minimumPoint, maximumPoint).start();
+    }
+
+    /**
+     * Stops the worker threads (e.g. when the plugin is disabled).
+     */
+    public void shutdown() {
+        scanExecutor.shutdownNow();
+
+        try {
+            scanExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sendInfo(@NotNull Player player, @NotNull String wgRegionName, @NotNull RegionInfo info) {
+        BlockVector3 min = info.getMinimumPoint();
+        BlockVector3 max = info.getMaximumPoint();
+
+        player.sendMessage("\n" + Prefixes.PLUGIN + "§7Informationen zur Region \"§2" + wgRegionName + "§7\":");
+        player.sendMessage(Prefixes.ADDITION + "Punkte: §3" + info.getVertexCount()
+                + " §8| §7Fläche: §3" + String.format(Locale.ROOT, "%.1f", info.getArea()) + " §7m²"
+                + (info.getBlocksPerLayer() >= 0 ? " (§3" + info.getBlocksPerLayer() + " §7Blöcke pro Ebene)" : "")
+                + " §8| §7Umfang: §3" + String.format(Locale.ROOT, "%.1f", info.getPerimeter()) + " §7m");
+        player.sendMessage(Prefixes.ADDITION + "Ausdehnung: §3" + min.x() + "§8, §3" + min.y() + "§8, §3" + min.z()
+                + " §7bis §3" + max.x() + "§8, §3" + max.y() + "§8, §3" + max.z()
+                + " §8(§3" + (max.x() - min.x() + 1) + " §8× §3" + (max.y() - min.y() + 1) + " §8× §3" + (max.z() - min.z() + 1) + "§8)");
+
+        Map<Material, Long> materialCounts = info.getMaterialCounts();
+
+        if (materialCounts == null) {
+            player.sendMessage(Prefixes.ADDITION + "Die Region ist zu groß, um die Blöcke zu zählen (mehr als §3" + maxChunks + " §7Chunks).");
+        } else if (!materialCounts.isEmpty()) {
+            StringBuilder line = new StringBuilder(Prefixes.ADDITION + "Blöcke:");
+
+            materialCounts.forEach((material, count) -> line.append(" §7").append(material.name().toLowerCase()).append(" §3").append(count));
+            player.sendMessage(line.toString());
+        }
+
+        long ageMinutes = (System.currentTimeMillis() - info.getComputedAt()) / 60_000;
+        player.sendMessage(Prefixes.ADDITION + "§8Berechnet vor §3" + ageMinutes + " §8Minuten, neu berechnet wird nach Änderungen der Punkte.");
+    }
+
+    /**
+     * Computes the area of a polygon using the shoelace formula.
+     *
+     * @param points The points of the polygon
+     * @return The area in square blocks
+     */
+    static double computeArea(@NotNull List<BlockVector2> points) {
+        long doubleArea = 0;
+
+        for (int i = 0; i < points.size(); i++) {
+            BlockVector2 current = points.get(i);
+            BlockVector2 next = points.get((i + 1) % points.size());
+
+            doubleArea += (long) current.x() * next.z() - (long) next.x() * current.z();
+        }
+
+        return Math.abs(doubleArea) / 2.0;
+    }
+
+    /**
+     * Computes the length of the outline of a polygon.
+     *
+     * @param points The points of the polygon
+     * @return The perimeter in blocks
+     */
+    static double computePerimeter(@NotNull List<BlockVector2> points) {
+        double perimeter = 0;
+
+        for (int i = 0; i < points.size(); i++) {
+            BlockVector2 current = points.get(i);
+            BlockVector2 next = points.get((i + 1) % points.size());
+
+            perimeter += Math.hypot(next.x() - current.x(), next.z() - current.z());
+        }
+
+        return perimeter;
+    }
+
+    /**
+     * This class represents the computation of the statistics of one region.
+     */
+    private final class Scan {
+        private final World world;
+        private final Location origin;
+        private final String cacheKey;
+        private final String wgRegionName;
+        private final List<BlockVector2> points;
+        private final BlockVector3 minimumPoint;
+        private final BlockVector3 maximumPoint;
+
+        private final int minY;
+        private final int maxY;
+        private final int worldMinY;
+
+        private double area;
+        private double perimeter;
+        private long blocksPerLayer;
+
+        //<editor-fold desc="Chunk scan">
+        private long[] spans;
+        // Index of the first span of every chunk, followed by the number of spans
+        private int[] chunkSpanStarts;
+        private AtomicLongArray counts;
+        // Chunks that are being scanned, plus one until all chunks have been loaded
+        private AtomicInteger pendingScans;
+        //</editor-fold>
+
+        private Scan(World world, Location origin, String cacheKey, String wgRegionName, List<BlockVector2> points, BlockVector3 minimumPoint, BlockVector3 maximumPoint) {
+            this.world = world;
+            this.origin = origin;
+            this.cacheKey = cacheKey;
+            this.wgRegionName = wgRegionName;
+            this.points = points;
+            this.minimumPoint = minimumPoint;
+            this.maximumPoint = maximumPoint;
+
+            this.worldMinY = world.getMinHeight();
+            this.minY = Math.max(worldMinY, minimumPoint.y());
+            this.maxY = Math.min(world.getMaxHeight() - 1, maximumPoint.y());
+        }
+
+        private void start() {
+            int[] xs = new int[points.size()];
+            int[] zs = new int[points.size()];
+
+            for (int i = 0; i < points.size(); i++) {
+                xs[i] = points.get(i).x();
+                zs[i] = points.get(i).z();
+            }
+
+            // The geometry only needs the points, so it is computed off the main thread
+            pl.getOperationCounters().increment(OperationCounters.Counter.SCHEDULED_TASKS);
+            pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+                area = computeArea(points);
+                perimeter = computePerimeter(points);
+                // A region with more blocks per layer than that has more chunks than are scanned
+                spans = ScanlineRasterizer.rasterize(xs, zs, (long) maxChunks << 8);
+
+                if (spans == null) {
+                    blocksPerLayer = -1;
+                    pl.getServer().getScheduler().runTask(pl, () -> finish(null));
+                    return;
+                }
+
+                for (long span : spans) {
+                    blocksPerLayer += ScanlineRasterizer.getToX(span) - ScanlineRasterizer.getFromX(span) + 1;
+                }
+
+                chunkSpanStarts = ScanlineRasterizer.groupByChunk(spans);
+
+                pl.getServer().getScheduler().runTask(pl, this::startChunkScan);
+            });
+        }
+
+        private void startChunkScan() {
+            int chunkCount = chunkSpanStarts.length - 1;
+
+            if (chunkCount > maxChunks || countedMaterials.length == 0) {
+                finish(chunkCount > maxChunks ? null : new LinkedHashMap<>());
+                return;
+            }
+
+            counts = new AtomicLongArray(countedMaterials.length);
+            pendingScans = new AtomicInteger(1);
+
+            long[] chunkKeys = new long[chunkCount];
+            Map<Long, Integer> chunkIndexByKey = new HashMap<>();
+
+            for (int i = 0; i < chunkCount; i++) {
+                long firstSpan = spans[chunkSpanStarts[i]];
+                chunkKeys[i] = BlockKeys.packColumn(ScanlineRasterizer.getChunkX(firstSpan), ScanlineRasterizer.getChunkZ(firstSpan));
+                chunkIndexByKey.put(chunkKeys[i], i);
+            }
+
+            // Chunks that have never been generated contain nothing worth counting
+            pl.getChunkLoader().load(world, chunkKeys, origin, false, false, chunk -> pl.getOperationCounters().measure("info-snapshots", () -> {
+                int chunkIndex = chunkIndexByKey.get(BlockKeys.packColumn(chunk.getX(), chunk.getZ()));
+                ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+                int fromSpan = chunkSpanStarts[chunkIndex];
+                int toSpan = chunkSpanStarts[chunkIndex + 1];
+
+                pendingScans.incrementAndGet();
+
+                try {
+                    scanExecutor.execute(() -> {
+                        scanChunk(snapshot, fromSpan, toSpan);
+                        onChunkScanned();
+                    });
+                } catch (RejectedExecutionException e) {
+                    // The plugin is being disabled
+                    pendingScans.decrementAndGet();
+                }
+            }), this::onChunkScanned);
+        }
+
+        /**
+         * Counts the blocks of the counted materials within the spans of one chunk.
+         */
+        private void scanChunk(@NotNull ChunkSnapshot snapshot, int fromSpan, int toSpan) {
+            long[] chunkCounts = new long[countedMaterials.length];
+
+            for (int sectionMinY = minY; sectionMinY <= maxY; sectionMinY = ((sectionMinY - worldMinY) | 15) + worldMinY + 1) {
+                int sectionMaxY = Math.min(maxY, ((sectionMinY - worldMinY) | 15) + worldMinY);
+
+                if (!countsAir && snapshot.isSectionEmpty((sectionMinY - worldMinY) >> 4)) {
+                    continue;
+                }
+
+                for (int s = fromSpan; s < toSpan; s++) {
+                    long span = spans[s];
+                    int localZ = ScanlineRasterizer.getZ(span) & 15;
+                    int localToX = ScanlineRasterizer.getToX(span) & 15;
+
+                    for (int y = sectionMinY; y <= sectionMaxY; y++) {
+                        for (int localX = ScanlineRasterizer.getFromX(span) & 15; localX <= localToX; localX++) {
+                            int materialIndex = materialIndexByOrdinal[snapshot.getBlockType(localX, y, localZ).ordinal()];
+
+                            if (materialIndex >= 0) {
+                                chunkCounts[materialIndex]++;
+                            }
+                        }
+                    }
+                }
+            }
+
+            for (int i = 0; i < chunkCounts.length; i++) {
+                if (chunkCounts[i] > 0) {
+                    counts.addAndGet(i, chunkCounts[i]);
+                }
+            }
+        }
+
+        private void onChunkScanned() {
+            if (pendingScans.decrementAndGet() > 0) {
+                return;
+            }
+
+            if (Bukkit.isPrimaryThread()) {
+                finishScan();
+            } else if (pl.isEnabled()) {
+                pl.getServer().getScheduler().runTask(pl, this::finishScan);
+            }
+        }
+
+        private void finishScan() {
+            Map<Material, Long> materialCounts = new LinkedHashMap<>();
+
+            for (int i = 0; i < countedMaterials.length; i++) {
+                materialCounts.put(countedMaterials[i], counts.get(i));
+            }
+
+            finish(materialCounts);
+        }
+
+        /**
+         * Caches the statistics and sends them to all players waiting for them.
+         */
+        private void finish(@Nullable Map<Material, Long> materialCounts) {
+            RegionInfo info = new RegionInfo(points, minimumPoint, maximumPoint, area, perimeter, blocksPerLayer, materialCounts, System.currentTimeMillis());
+            cache.put(cacheKey, info);
+
+            List<UUID> waiting = waitingPlayers.remove(cacheKey);
+
+            if (waiting == null) {
+                return;
+            }
+
+            for (UUID playerId : waiting) {
+                Player player = Bukkit.getPlayer(playerId);
+
+                if (player != null) {
+                    sendInfo(player, wgRegionName, info);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldguard.protection.flags.Flag;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class writes polygonal regions in a compact binary format ("PRGB").<br />
+ * <p>
+ * The file starts with the magic bytes {@code PRGB} and a version byte, followed by the regions:<br />
+ * - Every region is preceded by a {@code 1} byte, the file ends with a {@code 0} byte.<br />
+ * - A region consists of its name and world (modified UTF-8), {@code minY} and {@code maxY} (ints),
+ * the number of points (varint), the points and the flags.<br />
+ * - The points are stored as zigzag varints of the delta to the previous point (the first point is relative to 0, 0),
+ * so neighbouring points usually take 2 to 4 bytes.<br />
+ * - The flags are stored as their number (varint), followed by name and JSON value (modified UTF-8) of each flag.<br />
+ */
+public class BinaryRegionWriter implements RegionWriter {
+
+    public static final byte[] MAGIC = {'P', 'R', 'G', 'B'};
+    public static final int VERSION = 1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final DataOutputStream output;
+
+    public BinaryRegionWriter(@NotNull OutputStream outputStream) throws IOException {
+        this.output = new DataOutputStream(outputStream);
+
+        output.write(MAGIC);
+        output.writeByte(VERSION);
+    }
+
+    @Override
+    public void writeRegion(@NotNull String worldName, @NotNull ProtectedPolygonalRegion wgRegion) throws IOException {
+        List<BlockVector2> wgPoints = wgRegion.getPoints();
+
+        output.writeByte(1);
+        output.writeUTF(wgRegion.getId());
+        output.writeUTF(worldName);
+        output.writeInt(wgRegion.getMinimumPoint().y());
+        output.writeInt(wgRegion.getMaximumPoint().y());
+
+        writeVarInt(wgPoints.size());
+
+        int previousX = 0;
+        int previousZ = 0;
+
+        for (BlockVector2 wgPoint : wgPoints) {
+            writeVarInt(zigZag(wgPoint.x() - previousX));
+            writeVarInt(zigZag(wgPoint.z() - previousZ));
+
+            previousX = wgPoint.x();
+            previousZ = wgPoint.z();
+        }
+
+        Map<Flag<?>, Object> flags = wgRegion.getFlags();
+        writeVarInt(flags.size());
+
+        for (Map.Entry<Flag<?>, Object> flag : flags.entrySet()) {
+            output.writeUTF(flag.getKey().getName());
+            output.writeUTF(MAPPER.writeValueAsString(RegionWriter.marshalFlag(flag.getKey(), flag.getValue())));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.writeByte(0);
+        output.close();
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        output.writeByte(value);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+}
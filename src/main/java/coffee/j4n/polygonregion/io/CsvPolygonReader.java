@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This class reads polygons from a CSV file line by line.<br />
+ * <p>
+ * - Every line contains one point: {@code region,x,z}<br />
+ * - The points of a region have to be consecutive lines, in polygon order.<br />
+ * - Empty lines, lines starting with {@code #} and a header line are ignored.<br />
+ * - Lines that cannot be parsed are counted as skipped.<br />
+ */
+public class CsvPolygonReader implements PolygonReader {
+
+    private final BufferedReader reader;
+
+    public CsvPolygonReader(@NotNull BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public int read(@NotNull Consumer<ImportedPolygon> consumer) throws IOException {
+        int skipped = 0;
+        boolean firstLine = true;
+
+        String currentName = null;
+        List<BlockVector2> currentPoints = new ArrayList<>();
+
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] columns = line.split(",");
+            double x;
+            double z;
+
+            try {
+                if (columns.length < 3) {
+                    throw new NumberFormatException("Missing columns");
+                }
+
+                x = Double.parseDouble(columns[1].trim());
+                z = Double.parseDouble(columns[2].trim());
+            } catch (NumberFormatException e) {
+                // The first line may be a header
+                if (!firstLine) {
+                    skipped++;
+                }
+
+                firstLine = false;
+                continue;
+            }
+
+            firstLine = false;
+            String name = columns[0].trim();
+
+            // A new region starts, so the previous one is complete
+            if (!name.equals(currentName)) {
+                if (currentName != null) {
+                    PolygonReader.removeClosingPoint(currentPoints);
+                    consumer.accept(new ImportedPolygon(currentName, currentPoints, ImportedPolygon.DEFAULT_MIN_Y, ImportedPolygon.DEFAULT_MAX_Y));
+                }
+
+                currentName = name;
+                currentPoints = new ArrayList<>();
+            }
+
+            PolygonReader.addPoint(currentPoints, x, z);
+        }
+
+        if (currentName != null) {
+            PolygonReader.removeClosingPoint(currentPoints);
+            consumer.accept(new ImportedPolygon(currentName, currentPoints, ImportedPolygon.DEFAULT_MIN_Y, ImportedPolygon.DEFAULT_MAX_Y));
+        }
+
+        return skipped;
+    }
+}
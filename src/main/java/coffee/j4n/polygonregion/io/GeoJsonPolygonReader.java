@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sk89q.worldedit.math.BlockVector2;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This class reads polygons from a GeoJSON file with Jackson's streaming parser.<br />
+ * <p>
+ * - The file contains a {@code FeatureCollection} or a single {@code Feature}.<br />
+ * - The feature collection is streamed, only one feature is read into memory at a time.<br />
+ * - The coordinates are block coordinates: the first value of a position is x, the second one is z.<br />
+ * - {@code Polygon} features create one region, {@code MultiPolygon} features create one region per polygon (numbered from 1).<br />
+ * - Holes of polygons are ignored, as WorldGuard regions cannot have holes.<br />
+ * - Polygons whose outer ring is not a list of positions with two numbers each are skipped.<br />
+ * - The name of a region is read from the {@code name} property (or the {@code id} of the feature),
+ * the optional {@code minY} and {@code maxY} properties set its vertical bounds.<br />
+ */
+public class GeoJsonPolygonReader implements PolygonReader {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Reader reader;
+
+    public GeoJsonPolygonReader(@NotNull Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public int read(@NotNull Consumer<ImportedPolygon> consumer) throws IOException {
+        int skipped = 0;
+
+        try (JsonParser parser = MAPPER.createParser(reader)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The GeoJSON file does not contain an object");
+            }
+
+            // Read the root object field by field, so that the features can be streamed
+            String rootType = null;
+            JsonNode rootGeometry = null;
+            JsonNode rootProperties = null;
+            JsonNode rootId = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+
+                switch (fieldName) {
+                    case "type" -> rootType = parser.getValueAsString();
+                    case "features" -> {
+                        if (valueToken != JsonToken.START_ARRAY) {
+                            throw new IOException("The features of the GeoJSON file are not an array");
+                        }
+
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            JsonNode feature = parser.readValueAsTree();
+                            skipped += readFeature(feature.get("id"), feature.get("properties"), feature.get("geometry"), consumer);
+                        }
+                    }
+                    case "geometry" -> rootGeometry = parser.readValueAsTree();
+                    case "properties" -> rootProperties = parser.readValueAsTree();
+                    case "id" -> rootId = parser.readValueAsTree();
+                    default -> parser.skipChildren();
+                }
+            }
+
+            // A single feature instead of a feature collection
+            if ("Feature".equals(rootType)) {
+                skipped += readFeature(rootId, rootProperties, rootGeometry, consumer);
+            }
+        }
+
+        return skipped;
+    }
+
+    /**
+     * Converts a feature to polygons and hands them to the consumer.
+     *
+     * @param id         The id of the feature
+     * @param properties The properties of the feature
+     * @param geometry   The geometry of the feature
+     * @param consumer   The consumer of the polygons
+     * @return The number of skipped polygons
+     */
+    private int readFeature(JsonNode id, JsonNode properties, JsonNode geometry, @NotNull Consumer<ImportedPolygon> consumer) {
+        String name = properties != null && properties.hasNonNull("name") ? properties.get("name").asText() : (id != null && !id.isNull() ? id.asText() : null);
+
+        if (name == null || geometry == null || !geometry.has("coordinates")) {
+            return 1;
+        }
+
+        int minY = properties != null && properties.has("minY") ? properties.get("minY").asInt() : ImportedPolygon.DEFAULT_MIN_Y;
+        int maxY = properties != null && properties.has("maxY") ? properties.get("maxY").asInt() : ImportedPolygon.DEFAULT_MAX_Y;
+
+        JsonNode coordinates = geometry.get("coordinates");
+
+        switch (geometry.path("type").asText()) {
+            case "Polygon" -> {
+                List<BlockVector2> points = readOuterRing(coordinates);
+
+                if (points == null) {
+                    return 1;
+                }
+
+                consumer.accept(new ImportedPolygon(name, points, minY, maxY));
+                return 0;
+            }
+            case "MultiPolygon" -> {
+                int skipped = 0;
+
+                for (int i = 0; i < coordinates.size(); i++) {
+                    String polygonName = coordinates.size() == 1 ? name : name + (i + 1);
+                    List<BlockVector2> points = readOuterRing(coordinates.get(i));
+
+                    if (points == null) {
+                        skipped++;
+                        continue;
+                    }
+
+                    consumer.accept(new ImportedPolygon(polygonName, points, minY, maxY));
+                }
+                return skipped;
+            }
+            default -> {
+                return 1;
+            }
+        }
+    }
+
+    /**
+     * Reads the outer ring of a polygon.
+     *
+     * @param polygonCoordinates The coordinates of the polygon (its rings)
+     * @return The points of the outer ring, or null if the ring is malformed
+     */
+    private @Nullable List<BlockVector2> readOuterRing(@NotNull JsonNode polygonCoordinates) {
+        JsonNode outerRing = polygonCoordinates.path(0);
+
+        if (!outerRing.isArray()) {
+            return null;
+        }
+
+        List<BlockVector2> points = new ArrayList<>(outerRing.size());
+
+        for (JsonNode position : outerRing) {
+            if (!position.isArray() || position.size() < 2 || !position.get(0).isNumber() || !position.get(1).isNumber()) {
+                return null;
+            }
+
+            PolygonReader.addPoint(points, position.path(0).asDouble(), position.path(1).asDouble());
+        }
+
+        PolygonReader.removeClosingPoint(points);
+
+        return points;
+    }
+}
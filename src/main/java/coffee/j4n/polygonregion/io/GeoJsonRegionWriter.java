@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldguard.protection.flags.Flag;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class writes polygonal regions as a GeoJSON {@code FeatureCollection} with Jackson's streaming generator.<br />
+ * <p>
+ * - Every region is a {@code Polygon} feature, positions are block coordinates ({@code [x, z]}).<br />
+ * - The properties contain the name, world, {@code minY}, {@code maxY} and the flags of the region.<br />
+ * - The format matches the one read by {@link GeoJsonPolygonReader}, so exported regions can be imported again.<br />
+ */
+public class GeoJsonRegionWriter implements RegionWriter {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonGenerator generator;
+
+    public GeoJsonRegionWriter(@NotNull Writer writer) throws IOException {
+        this.generator = MAPPER.createGenerator(writer);
+
+        generator.writeStartObject();
+        generator.writeStringField("type", "FeatureCollection");
+        generator.writeArrayFieldStart("features");
+    }
+
+    @Override
+    public void writeRegion(@NotNull String worldName, @NotNull ProtectedPolygonalRegion wgRegion) throws IOException {
+        List<BlockVector2> wgPoints = wgRegion.getPoints();
+
+        generator.writeStartObject();
+        generator.writeStringField("type", "Feature");
+        generator.writeStringField("id", wgRegion.getId());
+
+        // Geometry (GeoJSON rings are closed by repeating the first point)
+        generator.writeObjectFieldStart("geometry");
+        generator.writeStringField("type", "Polygon");
+        generator.writeArrayFieldStart("coordinates");
+        generator.writeStartArray();
+
+        for (int i = 0; i <= wgPoints.size(); i++) {
+            BlockVector2 wgPoint = wgPoints.get(i % wgPoints.size());
+
+            generator.writeStartArray();
+            generator.writeNumber(wgPoint.x());
+            generator.writeNumber(wgPoint.z());
+            generator.writeEndArray();
+        }
+
+        generator.writeEndArray();
+        generator.writeEndArray();
+        generator.writeEndObject();
+
+        // Properties
+        generator.writeObjectFieldStart("properties");
+        generator.writeStringField("name", wgRegion.getId());
+        generator.writeStringField("world", worldName);
+        generator.writeNumberField("minY", wgRegion.getMinimumPoint().y());
+        generator.writeNumberField("maxY", wgRegion.getMaximumPoint().y());
+        generator.writeObjectFieldStart("flags");
+
+        for (Map.Entry<Flag<?>, Object> flag : wgRegion.getFlags().entrySet()) {
+            generator.writeFieldName(flag.getKey().getName());
+            generator.writeObject(RegionWriter.marshalFlag(flag.getKey(), flag.getValue()));
+        }
+
+        generator.writeEndObject();
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * This class represents a polygon read from an import file.<br />
+ * - The points are block coordinates (x and z) without the closing point of the ring.<br />
+ */
+public final class ImportedPolygon {
+
+    /**
+     * The default vertical bounds of imported regions (the same as for regions created with the RegionSTICK).
+     */
+    public static final int DEFAULT_MIN_Y = -64;
+    public static final int DEFAULT_MAX_Y = 320;
+
+    private final String name;
+    private final List<BlockVector2> points;
+    private final int minY;
+    private final int maxY;
+
+    public ImportedPolygon(@NotNull String name, @NotNull List<BlockVector2> points, int minY, int maxY) {
+        this.name = name;
+        this.points = points;
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+
+    public @NotNull List<BlockVector2> getPoints() {
+        return points;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This interface represents a streaming reader of polygons from an import file.<br />
+ * - Polygons are handed to the consumer one by one while reading, so only one polygon is kept in memory at a time.<br />
+ * - Entries that cannot be converted to a polygon are counted as skipped instead of aborting the import.<br />
+ */
+public interface PolygonReader {
+
+    /**
+     * Reads all polygons and hands them to a consumer.
+     *
+     * @param consumer The consumer of the polygons
+     * @return The number of skipped entries
+     * @throws IOException If the file cannot be read or is malformed
+     */
+    int read(@NotNull Consumer<ImportedPolygon> consumer) throws IOException;
+
+    /**
+     * Adds a point to a polygon, unless it repeats the previous point.
+     *
+     * @param points The points of the polygon
+     * @param x      The x coordinate
+     * @param z      The z coordinate
+     */
+    static void addPoint(@NotNull List<BlockVector2> points, double x, double z) {
+        BlockVector2 point = BlockVector2.at(x, z);
+
+        if (points.isEmpty() || !points.get(points.size() - 1).equals(point)) {
+            points.add(point);
+        }
+    }
+
+    /**
+     * Removes the closing point of a ring (a copy of the first point at the end).
+     *
+     * @param points The points of the polygon
+     */
+    static void removeClosingPoint(@NotNull List<BlockVector2> points) {
+        if (points.size() > 1 && points.get(0).equals(points.get(points.size() - 1))) {
+            points.remove(points.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.util.statics.Prefixes;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * This class exports all polygonal regions of all worlds to the {@code export} folder of the plugin.<br />
+ * <p>
+ * - The regions are written to a GeoJSON file (see {@link GeoJsonRegionWriter}) and a binary file (see {@link BinaryRegionWriter}).<br />
+ * - The export runs on a background thread and writes region by region, so neither the tick is blocked nor the serialized regions are kept in memory.<br />
+ * - The files are written to temporary files first and only moved to their final name when the export is complete.<br />
+ * - Only one export runs at a time.<br />
+ * - The sender is notified on the main thread.<br />
+ */
+public class RegionExporter {
+
+    private final PolygonRegion pl;
+    private final AtomicBoolean exportRunning = new AtomicBoolean(false);
+
+    public RegionExporter(PolygonRegion pl) {
+        this.pl = pl;
+    }
+
+    /**
+     * Exports all polygonal regions and notifies the sender when the export is complete.
+     *
+     * @param sender The sender of the export command
+     */
+    public void exportAll(@NotNull CommandSender sender) {
+        // Collect the region managers on the main thread, the regions are read on the export thread
+        Map<String, RegionManager> wgRegionManagers = new LinkedHashMap<>();
+
+        for (World world : pl.getServer().getWorlds()) {
+            RegionManager wgRegionManager = pl.getRegionManager(world);
+
+            if (wgRegionManager != null) {
+                wgRegionManagers.put(world.getName(), wgRegionManager);
+            }
+        }
+
+        if (!exportRunning.compareAndSet(false, true)) {
+            sender.sendMessage(Prefixes.ERROR + "Es läuft bereits ein Export. Bitte warte, bis dieser abgeschlossen ist.");
+            return;
+        }
+
+        String baseName = "regions-" + new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss").format(new Date());
+        Path exportFolder = pl.getDataFolder().toPath().resolve("export");
+        Path geoJsonFile = exportFolder.resolve(baseName + ".geojson");
+        Path binaryFile = exportFolder.resolve(baseName + ".prgb");
+
+        sender.sendMessage(Prefixes.INFO + "Exportiere alle Regionen...");
+
+        pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+            Path geoJsonTempFile = exportFolder.resolve(baseName + ".geojson.tmp");
+            Path binaryTempFile = exportFolder.resolve(baseName + ".prgb.tmp");
+            int exported = 0;
+
+            try {
+                Files.createDirectories(exportFolder);
+
+                try (Writer geoJsonOutput = Files.newBufferedWriter(geoJsonTempFile, StandardCharsets.UTF_8);
+                     RegionWriter geoJsonWriter = new GeoJsonRegionWriter(geoJsonOutput);
+                     RegionWriter binaryWriter = new BinaryRegionWriter(new BufferedOutputStream(Files.newOutputStream(binaryTempFile)))) {
+
+                    for (Map.Entry<String, RegionManager> wgRegionManager : wgRegionManagers.entrySet()) {
+                        for (ProtectedRegion wgRegion : wgRegionManager.getValue().getRegions().values()) {
+                            if (!(wgRegion instanceof ProtectedPolygonalRegion wgPolygonalRegion) || wgPolygonalRegion.getPoints().isEmpty()) {
+                                continue;
+                            }
+
+                            geoJsonWriter.writeRegion(wgRegionManager.getKey(), wgPolygonalRegion);
+                            binaryWriter.writeRegion(wgRegionManager.getKey(), wgPolygonalRegion);
+                            exported++;
+                        }
+                    }
+                }
+
+                Files.move(geoJsonTempFile, geoJsonFile);
+                Files.move(binaryTempFile, binaryFile);
+
+                notify(sender, Prefixes.PLUGIN + "Export §aabgeschlossen§7: §3" + exported + " §7Regionen exportiert.",
+                        Prefixes.ADDITION + "§2export/" + geoJsonFile.getFileName() + " §7und §2export/" + binaryFile.getFileName());
+            } catch (IOException e) {
+                pl.getLogger().log(Level.WARNING, "Failed to export regions", e);
+
+                notify(sender, Prefixes.ERROR + "Der Export ist §cfehlgeschlagen§7: " + e.getMessage());
+
+                try {
+                    Files.deleteIfExists(geoJsonTempFile);
+                    Files.deleteIfExists(binaryTempFile);
+                } catch (IOException ignored) {
+                }
+            } finally {
+                exportRunning.set(false);
+            }
+        });
+    }
+
+    /**
+     * Sends messages to the sender of an export on the main thread.<br />
+     * - Called from the export thread
+     *
+     * @param sender   The sender of the export command
+     * @param messages The messages
+     */
+    private void notify(@NotNull CommandSender sender, @NotNull String... messages) {
+        // The plugin may have been disabled while exporting
+        if (!pl.isEnabled()) {
+            return;
+        }
+
+        pl.getServer().getScheduler().runTask(pl, () -> {
+            // Players may have left in the meantime
+            if (!(sender instanceof Player player) || player.isOnline()) {
+                sender.sendMessage(messages);
+            }
+        });
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.RegionMarker;
+import coffee.j4n.polygonregion.commit.RegionCommitQueue;
+import coffee.j4n.polygonregion.util.statics.Prefixes;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.managers.storage.StorageException;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * This class imports polygonal regions from GeoJSON or CSV files in the plugin folder.<br />
+ * <p>
+ * - The file is streamed on a background thread (see {@link GeoJsonPolygonReader} and {@link CsvPolygonReader}).<br />
+ * - The read polygons are added to WorldGuard in batches on the main thread, the reader waits for each batch,
+ * so at most one batch of polygons is kept in memory.<br />
+ * - The region manager is saved once after the last batch, instead of once per region.<br />
+ * - Regions that already exist, have invalid names or an invalid geometry (see {@link RegionCommitQueue#isValidGeometry(List)}) are skipped.<br />
+ * - The player is notified on the main thread, if still online.<br />
+ * - If the plugin is disabled while importing, the import stops before the next batch and the regions created so far are saved.<br />
+ * - Only one import runs at a time.<br />
+ */
+public class RegionImporter {
+
+    private static final int BATCH_SIZE = 256;
+
+    private final PolygonRegion pl;
+    private final AtomicBoolean importRunning = new AtomicBoolean(false);
+
+    public RegionImporter(PolygonRegion pl) {
+        this.pl = pl;
+    }
+
+    /**
+     * Imports the polygons of a file in the plugin folder as regions into the world of a player.
+     *
+     * @param player   The player
+     * @param fileName The name of the file, relative to the plugin folder
+     */
+    public void importFile(@NotNull Player player, @NotNull String fileName) {
+        Path dataFolder = pl.getDataFolder().toPath().toAbsolutePath().normalize();
+        Path file = dataFolder.resolve(fileName).normalize();
+
+        if (!file.startsWith(dataFolder) || !Files.isRegularFile(file)) {
+            player.sendMessage(Prefixes.ERROR + "Die Datei \"§2§n" + fileName + "§7\" wurde im Plugin-Ordner §nnicht gefunden§7.");
+            return;
+        }
+
+        String lowerFileName = fileName.toLowerCase();
+
+        if (!lowerFileName.endsWith(".geojson") && !lowerFileName.endsWith(".json") && !lowerFileName.endsWith(".csv")) {
+            player.sendMessage(Prefixes.ERROR + "Es werden nur §nGeoJSON§7- (.geojson, .json) und §nCSV§7-Dateien (.csv) unterstützt.");
+            return;
+        }
+
+        World world = player.getWorld();
+        RegionManager wgRegionManager = pl.getRegionManager(world);
+
+        if (wgRegionManager == null) {
+            player.sendMessage(Prefixes.ERROR + "Fehler beim Zugriff auf das Region-Management.");
+            player.sendMessage(Prefixes.ADDITION + "Versuche es gerne noch einmal, oder kontaktiere ein Serverteammitglied.");
+            return;
+        }
+
+        if (!importRunning.compareAndSet(false, true)) {
+            player.sendMessage(Prefixes.ERROR + "Es läuft bereits ein Import. Bitte warte, bis dieser abgeschlossen ist.");
+            return;
+        }
+
+        player.sendMessage(Prefixes.INFO + "Importiere Regionen aus \"§2" + fileName + "§7\"...");
+
+        UUID playerId = player.getUniqueId();
+
+        pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+            ImportResult result = new ImportResult();
+
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                PolygonReader polygonReader = lowerFileName.endsWith(".csv") ? new CsvPolygonReader(reader) : new GeoJsonPolygonReader(reader);
+                List<ImportedPolygon> batch = new ArrayList<>(BATCH_SIZE);
+
+                int skipped = polygonReader.read(polygon -> {
+                    batch.add(polygon);
+
+                    if (batch.size() >= BATCH_SIZE) {
+                        commitBatch(world, wgRegionManager, batch, result);
+                    }
+                });
+
+                commitBatch(world, wgRegionManager, batch, result);
+                result.invalid += skipped;
+
+                // Persist all imported regions at once, without overlapping with the saves of confirmed regions
+                pl.getRegionCommitQueue().saveBlocking(wgRegionManager);
+
+                if (result.existing > 0 || result.invalid > 0) {
+                    notify(playerId, Prefixes.PLUGIN + "Import §aabgeschlossen§7: §3" + result.created + " §7Regionen erstellt.",
+                            Prefixes.ADDITION + "Übersprungen: §3" + result.existing + " §7bereits vorhanden, §3" + result.invalid + " §7ungültig.");
+                } else {
+                    notify(playerId, Prefixes.PLUGIN + "Import §aabgeschlossen§7: §3" + result.created + " §7Regionen erstellt.");
+                }
+            } catch (IOException | StorageException | ImportAbortedException e) {
+                pl.getLogger().log(Level.WARNING, "Failed to import regions from " + file + " (" + result.created + " regions created)", e);
+
+                // Keep the regions of the batches that have been committed, instead of leaving them unsaved
+                if (result.created > 0 && !(e instanceof StorageException)) {
+                    try {
+                        pl.getRegionCommitQueue().saveBlocking(wgRegionManager);
+                    } catch (StorageException saveException) {
+                        pl.getLogger().log(Level.WARNING, "Failed to save the regions imported from " + file, saveException);
+                    }
+                }
+
+                notify(playerId, Prefixes.ERROR + "Der Import ist §cfehlgeschlagen§7: " + e.getMessage(),
+                        Prefixes.ADDITION + "Bis dahin wurden §3" + result.created + " §7Regionen erstellt.");
+            } finally {
+                importRunning.set(false);
+            }
+        });
+    }
+
+    /**
+     * Adds a batch of polygons as regions on the main thread and waits until they have been added.
+     *
+     * @param world           The world of the regions
+     * @param wgRegionManager The region manager of the world
+     * @param batch           The batch of polygons, which is cleared afterwards
+     * @param result          The result of the import
+     */
+    private void commitBatch(@NotNull World world, @NotNull RegionManager wgRegionManager, @NotNull List<ImportedPolygon> batch, @NotNull ImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            pl.getServer().getScheduler().callSyncMethod(pl, () -> {
+                List<ProtectedPolygonalRegion> createdRegions = new ArrayList<>(batch.size());
+
+                for (ImportedPolygon polygon : batch) {
+                    if (polygon.getName().isEmpty() || !RegionMarker.findInvalidNameChars(polygon.getName()).isEmpty() || !RegionCommitQueue.isValidGeometry(polygon.getPoints())) {
+                        result.invalid++;
+                        continue;
+                    }
+
+                    if (wgRegionManager.hasRegion(polygon.getName())) {
+                        result.existing++;
+                        continue;
+                    }
+
+                    ProtectedPolygonalRegion wgRegion = RegionMarker.createDefaultRegion(polygon.getName(), polygon.getPoints(), polygon.getMinY(), polygon.getMaxY());
+
+                    wgRegionManager.addRegion(wgRegion);
+                    createdRegions.add(wgRegion);
+                    result.created++;
+                }
+
+                // The whole batch is indexed with a single update of the index
+                pl.getRegionIndex().addRegions(world, createdRegions);
+
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImportAbortedException("Der Import wurde unterbrochen.");
+        } catch (ExecutionException e) {
+            throw new ImportAbortedException(e.getCause().getMessage());
+        } catch (CancellationException e) {
+            // The plugin has been disabled, the batch has not been committed
+            throw new ImportAbortedException("Das Plugin wurde deaktiviert.");
+        }
+
+        batch.clear();
+    }
+
+    /**
+     * Sends messages to a player on the main thread, if the player is online.<br />
+     * - Called from the import thread
+     *
+     * @param playerId The UUID of the player
+     * @param messages The messages
+     */
+    private void notify(@NotNull UUID playerId, @NotNull String... messages) {
+        // The plugin may have been disabled while importing
+        if (!pl.isEnabled()) {
+            return;
+        }
+
+        pl.getServer().getScheduler().runTask(pl, () -> {
+            Player player = Bukkit.getPlayer(playerId);
+
+            if (player != null) {
+                player.sendMessage(messages);
+            }
+        });
+    }
+
+    /**
+     * This class represents the counters of an import.<br />
+     * - The counters are only changed on the main thread while the import thread waits for the batch.<br />
+     */
+    private static final class ImportResult {
+        private int created = 0;
+        private int existing = 0;
+        private int invalid = 0;
+    }
+
+    /**
+     * This exception aborts an import when a batch could not be committed.
+     */
+    private static final class ImportAbortedException extends RuntimeException {
+        private ImportAbortedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import com.sk89q.worldguard.protection.flags.Flag;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * This interface represents a streaming writer of polygonal regions to an export file.<br />
+ * - Every region is written as soon as it is passed, so no region has to be kept in memory.<br />
+ * - Closing the writer completes the file.<br />
+ */
+public interface RegionWriter extends Closeable {
+
+    /**
+     * Writes a region.
+     *
+     * @param worldName The name of the world of the region
+     * @param wgRegion  The region
+     * @throws IOException If the region cannot be written
+     */
+    void writeRegion(@NotNull String worldName, @NotNull ProtectedPolygonalRegion wgRegion) throws IOException;
+
+    /**
+     * Converts the value of a flag to the form WorldGuard stores it in (strings, numbers, lists and maps).
+     *
+     * @param flag  The flag
+     * @param value The value of the flag
+     * @param <T>   The type of the flag value
+     * @return The stored form of the value
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Object marshalFlag(@NotNull Flag<T> flag, @NotNull Object value) {
+        return flag.marshal((T) value);
+    }
+}
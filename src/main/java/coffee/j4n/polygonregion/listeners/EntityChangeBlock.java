@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.listeners;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import org.bukkit.entity.FallingBlock;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+
+/**
+ * This class represents the listener for entities changing blocks.<br />
+ *
+ * It finalizes falling fence blocks as soon as they land:<br />
+ * - The block change of the falling block is cancelled.<br />
+ * - The wall block is placed at the target location by the fence controller instead.<br />
+ */
+public class EntityChangeBlock implements Listener {
+
+    private final PolygonRegion pl;
+
+    public EntityChangeBlock(PolygonRegion pl) {
+        this.pl = pl;
+    }
+
+    @EventHandler
+    public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+        if (!(event.getEntity() instanceof FallingBlock fallingBlock)) {
+            return;
+        }
+
+        if (pl.getFenceController().onLand(fallingBlock)) {
+            event.setCancelled(true);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.listeners;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+
+/**
+ * This class represents the listener for players changing the world.<br />
+ *
+ * It ends the session of the player in the old world and restores journaled markers that could not be restored on join,
+ * because the player was in another world.<br />
+ */
+public class PlayerChangedWorld implements Listener {
+
+    private final PolygonRegion pl;
+
+    public PlayerChangedWorld(PolygonRegion pl) {
+        this.pl = pl;
+    }
+
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        pl.getPoints().endSessionInOtherWorld(event.getPlayer());
+        pl.getPoints().restoreSession(event.getPlayer());
+    }
+}
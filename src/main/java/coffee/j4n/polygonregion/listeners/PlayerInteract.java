@@ -64,17 +64,17 @@ public class PlayerInteract implements Listener {
 
         if (event.getAction() == Action.RIGHT_CLICK_BLOCK) {
             // Add marker
-            pl.getPoints().addRegionMarker(player, newMarker, clickedBlock);
+            pl.getOperationCounters().measure("add-marker", () -> pl.getPoints().addRegionMarker(player, newMarker, clickedBlock));
 
         } else if (event.getAction() == Action.LEFT_CLICK_BLOCK) {
             // Remove marker
             if (player.isSneaking()) {
                 // Remove all markers
-                pl.getPoints().removeAllMarkers(player);
+                pl.getOperationCounters().measure("remove-all-markers", () -> pl.getPoints().removeAllMarkers(player));
                 return;
             }
 
-            pl.getPoints().removePoint(player, newMarker, clickedBlock);
+            pl.getOperationCounters().measure("remove-marker", () -> pl.getPoints().removePoint(player, newMarker, clickedBlock));
         }
     }
 }
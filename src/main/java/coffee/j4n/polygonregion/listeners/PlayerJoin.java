@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.listeners;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+/**
+ * This class represents the listener for joining players.<br />
+ *
+ * It restores the journaled markers of the player (e.g. after a restart or crash).<br />
+ */
+public class PlayerJoin implements Listener {
+
+    private final PolygonRegion pl;
+
+    public PlayerJoin(PolygonRegion pl) {
+        this.pl = pl;
+    }
+
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        pl.getPoints().restoreSession(event.getPlayer());
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.listeners;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * This class represents the listener for leaving players.<br />
+ *
+ * It removes the preview and the markers of the player from memory.<br />
+ * - The markers stay journaled and are restored when the player joins again.<br />
+ */
+public class PlayerQuit implements Listener {
+
+    private final PolygonRegion pl;
+
+    public PlayerQuit(PolygonRegion pl) {
+        this.pl = pl;
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        pl.getPoints().closeSession(event.getPlayer());
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.metrics;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This class counts the side effects (entity spawns, block writes, scheduled tasks) of the operations of the plugin.<br />
+ * <p>
+ * - An operation (e.g. adding a marker) is measured with {@link #measure(String, Runnable)}, all side effects on the main thread
+ * during the operation are attributed to it.<br />
+ * - Side effects outside an operation (e.g. fence blocks landing in a repeating task) are attributed to {@link #BACKGROUND}.<br />
+ * - For every operation, the number of invocations and the total and maximum count per invocation are kept.<br />
+ * - Operations can have budgets per counter (see {@code budgets} in the config), exceeding a budget logs a warning.
+ * This way, regressions like an entity or task blow-up show up in the log instead of going unnoticed.<br />
+ * - Counting is a few array writes, side effects off the main thread are not counted.<br />
+ */
+public class OperationCounters {
+
+    /**
+     * The operation side effects outside a measured operation are attributed to.
+     */
+    public static final String BACKGROUND = "background";
+
+    /**
+     * The counted side effects.
+     */
+    public enum Counter {
+        ENTITY_SPAWNS,
+        ENTITY_REMOVALS,
+        BLOCK_WRITES,
+        SCHEDULED_TASKS;
+
+        /**
+         * @return The key of the counter in the config (e.g. "entity-spawns")
+         */
+        public @NotNull String getKey() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private static final int COUNTER_COUNT = Counter.values().length;
+
+    private final Plugin pl;
+    private final PluginMetrics metrics;
+    private final Map<String, OperationStats> statsByOperation = new LinkedHashMap<>();
+    private final Map<String, long[]> budgetsByOperation = new LinkedHashMap<>();
+
+    private final long[] currentCounts = new long[COUNTER_COUNT];
+    private String currentOperation = null;
+
+    /**
+     * @param pl      The plugin, whose config holds the budgets
+     * @param metrics The metrics the measured operations are timed with
+     */
+    public OperationCounters(@NotNull Plugin pl, @NotNull PluginMetrics metrics) {
+        this.pl = pl;
+        this.metrics = metrics;
+
+        ConfigurationSection budgetSection = pl.getConfig().getConfigurationSection("budgets");
+
+        if (budgetSection != null) {
+            for (String operation : budgetSection.getKeys(false)) {
+                long[] budgets = new long[COUNTER_COUNT];
+
+                for (Counter counter : Counter.values()) {
+                    budgets[counter.ordinal()] = budgetSection.getLong(operation + "." + counter.getKey(), -1);
+                }
+
+                budgetsByOperation.put(operation, budgets);
+            }
+        }
+    }
+
+    /**
+     * Runs an operation and attributes all side effects on the main thread to it.<br />
+     * - The operation is timed as well (see {@link PluginMetrics#time(String, Runnable)}).<br />
+     * - Operations started within another operation are timed on their own, but their side effects are attributed to the outer operation.<br />
+     *
+     * @param operation The name of the operation (e.g. "add-marker")
+     * @param action    The operation
+     */
+    public void measure(@NotNull String operation, @NotNull Runnable action) {
+        if (!pl.getServer().isPrimaryThread()) {
+            action.run();
+            return;
+        }
+
+        if (currentOperation != null) {
+            metrics.time(operation, action);
+            return;
+        }
+
+        currentOperation = operation;
+        Arrays.fill(currentCounts, 0);
+
+        try {
+            metrics.time(operation, action);
+        } finally {
+            currentOperation = null;
+            record(operation, currentCounts);
+        }
+    }
+
+    /**
+     * Counts one side effect.
+     *
+     * @param counter The counter
+     */
+    public void increment(@NotNull Counter counter) {
+        add(counter, 1);
+    }
+
+    /**
+     * Counts several side effects of the same kind.
+     *
+     * @param counter The counter
+     * @param amount  The number of side effects
+     */
+    public void add(@NotNull Counter counter, long amount) {
+        if (!pl.getServer().isPrimaryThread()) {
+            return;
+        }
+
+        if (currentOperation != null) {
+            currentCounts[counter.ordinal()] += amount;
+            return;
+        }
+
+        OperationStats backgroundStats = statsByOperation.computeIfAbsent(BACKGROUND, operation -> new OperationStats());
+        backgroundStats.totals[counter.ordinal()] += amount;
+    }
+
+    /**
+     * Returns the statistics of all operations measured so far, in the order they were first measured.
+     *
+     * @return The statistics by operation name
+     */
+    public @NotNull Map<String, OperationStats> getStats() {
+        return Collections.unmodifiableMap(statsByOperation);
+    }
+
+    private void record(@NotNull String operation, long @NotNull [] counts) {
+        OperationStats stats = statsByOperation.computeIfAbsent(operation, name -> new OperationStats());
+        stats.invocations++;
+
+        long[] budgets = budgetsByOperation.get(operation);
+
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            stats.totals[i] += counts[i];
+            stats.maxima[i] = Math.max(stats.maxima[i], counts[i]);
+
+            if (budgets != null && budgets[i] >= 0 && counts[i] > budgets[i]) {
+                pl.getLogger().warning("Operation " + operation + " exceeded its budget: " + Counter.values()[i].getKey() + " " + counts[i] + " > " + budgets[i]);
+            }
+        }
+    }
+
+    /**
+     * The side effects of all invocations of an operation.
+     */
+    public static final class OperationStats {
+        private long invocations = 0;
+        private final long[] totals = new long[COUNTER_COUNT];
+        private final long[] maxima = new long[COUNTER_COUNT];
+
+        /**
+         * @return The number of invocations (0 for {@link #BACKGROUND})
+         */
+        public long getInvocations() {
+            return invocations;
+        }
+
+        /**
+         * @param counter The counter
+         * @return The number of side effects of all invocations
+         */
+        public long getTotal(@NotNull Counter counter) {
+            return totals[counter.ordinal()];
+        }
+
+        /**
+         * @param counter The counter
+         * @return The maximum number of side effects of a single invocation
+         */
+        public long getMax(@NotNull Counter counter) {
+            return maxima[counter.ordinal()];
+        }
+    }
+}
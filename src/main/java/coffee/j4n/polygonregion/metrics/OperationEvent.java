@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for an operation of the plugin on the main thread (see {@link PluginMetrics#time(String, Runnable)}).
+ */
+@Name("coffee.j4n.polygonregion.Operation")
+@Label("PolygonRegion Operation")
+@Category("PolygonRegion")
+@Description("Main thread time of an operation of the PolygonRegion plugin")
+class OperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.metrics;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * This class records the main thread time of the operations of the plugin and provides the live state of the plugin.<br />
+ * <p>
+ * - Operations are timed with {@link #time(String, Runnable)} into a {@link TimingHistogram} per operation and emitted as JFR events ({@link OperationEvent}).<br />
+ * - The live state (preview entities, in-flight fence blocks, active sessions) is emitted as JFR event every {@value #STATE_INTERVAL_TICKS} ticks ({@link PluginStateEvent}).<br />
+ * - Optionally, all metrics are dumped to a text file in the Prometheus exposition format (see {@code metrics.prometheus} in the config),
+ * e.g. for the textfile collector of the node exporter.<br />
+ * - All methods have to be called on the main thread.<br />
+ */
+public class PluginMetrics {
+
+    private static final long STATE_INTERVAL_TICKS = 100L;
+
+    private final PolygonRegion pl;
+    private final Map<String, TimingHistogram> histograms = new LinkedHashMap<>();
+
+    public PluginMetrics(PolygonRegion pl) {
+        this.pl = pl;
+    }
+
+    /**
+     * Starts emitting the state events and dumping the Prometheus file (if enabled).
+     */
+    public void start() {
+        pl.getServer().getScheduler().runTaskTimer(pl, this::emitStateEvent, STATE_INTERVAL_TICKS, STATE_INTERVAL_TICKS);
+
+        if (pl.getConfig().getBoolean("metrics.prometheus.enabled", false)) {
+            long intervalTicks = Math.max(1, pl.getConfig().getLong("metrics.prometheus.interval-seconds", 15)) * 20L;
+            Path prometheusFile = pl.getDataFolder().toPath().resolve(pl.getConfig().getString("metrics.prometheus.file", "metrics.prom"));
+
+            pl.getServer().getScheduler().runTaskTimer(pl, () -> dumpPrometheusFile(prometheusFile), intervalTicks, intervalTicks);
+        }
+    }
+
+    /**
+     * Runs an operation and records its duration.
+     *
+     * @param operation The name of the operation (e.g. "load-points-from-region")
+     * @param action    The operation
+     */
+    public void time(@NotNull String operation, @NotNull Runnable action) {
+        OperationEvent event = new OperationEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        try {
+            action.run();
+        } finally {
+            recordTime(operation, System.nanoTime() - start);
+            event.end();
+
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Records the duration of an operation that has been timed by the caller.
+     *
+     * @param operation The name of the operation
+     * @param nanos     The duration in nanoseconds
+     */
+    public void recordTime(@NotNull String operation, long nanos) {
+        histograms.computeIfAbsent(operation, name -> new TimingHistogram()).record(nanos);
+    }
+
+    /**
+     * Returns the histograms of all operations timed so far, in the order they were first timed.
+     *
+     * @return The histograms by operation name
+     */
+    public @NotNull Map<String, TimingHistogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    //<editor-fold desc="Live state">
+
+    /**
+     * @return The number of visuals of all previews
+     */
+    public int getPreviewEntityCount() {
+        return pl.getSessionManager().getPreviewEntityCount();
+    }
+
+    /**
+     * @return The number of fence blocks that are currently falling
+     */
+    public int getFenceBlocksInFlight() {
+        return pl.getFenceController().getInFlightCount();
+    }
+
+    /**
+     * @return The number of marker sessions held in memory
+     */
+    public int getActiveSessionCount() {
+        return pl.getSessionManager().getActiveSessionCount();
+    }
+
+    private void emitStateEvent() {
+        PluginStateEvent event = new PluginStateEvent();
+
+        if (!event.isEnabled()) {
+            return;
+        }
+
+        event.previewEntities = getPreviewEntityCount();
+        event.fenceBlocksInFlight = getFenceBlocksInFlight();
+        event.activeSessions = getActiveSessionCount();
+        event.commit();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="Prometheus">
+
+    /**
+     * Formats all metrics in the Prometheus text exposition format.
+     *
+     * @return The metrics as text
+     */
+    public @NotNull String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+
+        text.append("# HELP polygonregion_operation_seconds Main thread time of the operations of the plugin.\n");
+        text.append("# TYPE polygonregion_operation_seconds histogram\n");
+
+        for (Map.Entry<String, TimingHistogram> entry : histograms.entrySet()) {
+            String labels = "operation=\"" + entry.getKey() + "\"";
+            TimingHistogram histogram = entry.getValue();
+            long cumulative = 0;
+
+            // All buckets are written, so that the bucket boundaries of a series never change
+            for (int i = 0; i < TimingHistogram.BUCKET_COUNT - 1; i++) {
+                cumulative += histogram.getBucketCount(i);
+                text.append("polygonregion_operation_seconds_bucket{").append(labels).append(",le=\"").append(TimingHistogram.getUpperBoundNanos(i) / 1e9).append("\"} ").append(cumulative).append('\n');
+            }
+
+            text.append("polygonregion_operation_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ").append(histogram.getCount()).append('\n');
+            text.append("polygonregion_operation_seconds_sum{").append(labels).append("} ").append(histogram.getSumNanos() / 1e9).append('\n');
+            text.append("polygonregion_operation_seconds_count{").append(labels).append("} ").append(histogram.getCount()).append('\n');
+        }
+
+        text.append("# HELP polygonregion_operation_side_effects_total Side effects of the operations of the plugin.\n");
+        text.append("# TYPE polygonregion_operation_side_effects_total counter\n");
+
+        for (Map.Entry<String, OperationCounters.OperationStats> entry : pl.getOperationCounters().getStats().entrySet()) {
+            for (OperationCounters.Counter counter : OperationCounters.Counter.values()) {
+                text.append("polygonregion_operation_side_effects_total{operation=\"").append(entry.getKey()).append("\",kind=\"").append(counter.getKey()).append("\"} ")
+                        .append(entry.getValue().getTotal(counter)).append('\n');
+            }
+        }
+
+        appendGauge(text, "polygonregion_preview_entities", "Visuals of all region previews.", getPreviewEntityCount());
+        appendGauge(text, "polygonregion_fence_blocks_in_flight", "Fence blocks that are currently falling.", getFenceBlocksInFlight());
+        appendGauge(text, "polygonregion_sessions_active", "Marker sessions held in memory.", getActiveSessionCount());
+
+        text.append("# HELP polygonregion_session_evictions_total Marker sessions evicted for inactivity.\n");
+        text.append("# TYPE polygonregion_session_evictions_total counter\n");
+        text.append("polygonregion_session_evictions_total ").append(pl.getSessionManager().getEvictionCount()).append('\n');
+
+        return text.toString();
+    }
+
+    private static void appendGauge(@NotNull StringBuilder text, @NotNull String name, @NotNull String help, long value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" gauge\n");
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Formats the metrics on the main thread and writes them to a file in the background.
+     *
+     * @param prometheusFile The file
+     */
+    private void dumpPrometheusFile(@NotNull Path prometheusFile) {
+        String text = toPrometheusText();
+
+        pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+            // Write to a temporary file first, so that the collector never reads a partially written file
+            Path tempFile = prometheusFile.resolveSibling(prometheusFile.getFileName() + ".tmp");
+
+            try {
+                Files.createDirectories(prometheusFile.toAbsolutePath().getParent());
+                Files.writeString(tempFile, text, StandardCharsets.UTF_8);
+                Files.move(tempFile, prometheusFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                pl.getLogger().log(Level.WARNING, "Failed to write the metrics to " + prometheusFile, e);
+            }
+        });
+    }
+    //</editor-fold>
+}
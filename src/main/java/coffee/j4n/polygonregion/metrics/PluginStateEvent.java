@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event with the live state of the plugin, emitted every few seconds on the main thread (see {@link PluginMetrics}).
+ */
+@Name("coffee.j4n.polygonregion.State")
+@Label("PolygonRegion State")
+@Category("PolygonRegion")
+@Description("Live preview entities, in-flight fence blocks and active marker sessions of the PolygonRegion plugin")
+@StackTrace(false)
+class PluginStateEvent extends Event {
+
+    @Label("Preview Entities")
+    int previewEntities;
+
+    @Label("Fence Blocks In Flight")
+    int fenceBlocksInFlight;
+
+    @Label("Active Sessions")
+    int activeSessions;
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.metrics;
+
+/**
+ * This class is a histogram of durations with power-of-two buckets.<br />
+ * <p>
+ * - Bucket {@code i} counts durations below {@code 2^i} nanoseconds (and at least {@code 2^(i-1)}), the last bucket counts everything above.<br />
+ * - Recording a duration is a few arithmetic operations and array writes, without any allocation.<br />
+ * - Percentiles are estimated with the upper bound of the bucket they fall into, so they are at most twice the real value.<br />
+ * - Only the main thread records, other threads may read slightly outdated values.<br />
+ */
+public class TimingHistogram {
+
+    /**
+     * The number of buckets, the last regular bucket ends at {@code 2^(BUCKET_COUNT - 1)} nanoseconds (about 9 minutes).
+     */
+    public static final int BUCKET_COUNT = 40;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count = 0;
+    private long sumNanos = 0;
+    private long maxNanos = 0;
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+
+        buckets[Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(nanos))]++;
+        count++;
+        sumNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * Estimates a percentile of the recorded durations.
+     *
+     * @param quantile The quantile (e.g. 0.99 for the 99th percentile)
+     * @return The upper bound of the bucket the percentile falls into (in nanoseconds), capped at the maximum duration
+     */
+    public long getPercentileNanos(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(quantile * count);
+        long cumulative = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += buckets[i];
+
+            if (cumulative >= rank) {
+                return Math.min(maxNanos, getUpperBoundNanos(i));
+            }
+        }
+
+        return maxNanos;
+    }
+
+    /**
+     * Returns the (exclusive) upper bound of a bucket.
+     *
+     * @param bucket The index of the bucket
+     * @return The upper bound in nanoseconds, {@link Long#MAX_VALUE} for the last bucket
+     */
+    public static long getUpperBoundNanos(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    public long getBucketCount(int bucket) {
+        return buckets[bucket];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSumNanos() {
+        return sumNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) sumNanos / count;
+    }
+}
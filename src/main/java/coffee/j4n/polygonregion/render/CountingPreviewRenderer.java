@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Transformation;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * This class counts the visuals spawned and removed by another preview renderer (see {@link OperationCounters}).<br />
+ * - Visuals removed one by one through their handle are not counted, the preview always removes them through the renderer.<br />
+ */
+public class CountingPreviewRenderer implements PreviewRenderer {
+
+    private final PreviewRenderer delegate;
+    private final OperationCounters counters;
+
+    public CountingPreviewRenderer(@NotNull PreviewRenderer delegate, @NotNull OperationCounters counters) {
+        this.delegate = delegate;
+        this.counters = counters;
+    }
+
+    @Override
+    public @NotNull PreviewHandle spawnBlockDisplay(@NotNull Player viewer, @NotNull Location location, @NotNull Material material, @NotNull Transformation transformation) {
+        counters.increment(OperationCounters.Counter.ENTITY_SPAWNS);
+        return delegate.spawnBlockDisplay(viewer, location, material, transformation);
+    }
+
+    @Override
+    public @NotNull PreviewHandle spawnText(@NotNull Player viewer, @NotNull Location location, @NotNull String text) {
+        counters.increment(OperationCounters.Counter.ENTITY_SPAWNS);
+        return delegate.spawnText(viewer, location, text);
+    }
+
+    @Override
+    public void remove(@NotNull Player viewer, @NotNull List<PreviewHandle> handles) {
+        counters.add(OperationCounters.Counter.ENTITY_REMOVALS, handles.size());
+        delegate.remove(viewer, handles);
+    }
+}
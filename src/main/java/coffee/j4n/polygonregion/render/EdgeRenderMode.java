@@ -0,0 +1,22 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+/**
+ * This enum represents the ways the edges between two markers can be rendered.
+ */
+public enum EdgeRenderMode {
+
+    /**
+     * One display entity per block of the edge, placed using the Bresenham's Algorithm.
+     */
+    BRESENHAM,
+
+    /**
+     * One display entity per edge segment, scaled and rotated to span the segment.
+     */
+    STRETCHED
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.ItemDisplay;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Transformation;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * This class renders the region preview with real entities in the world.<br />
+ * - Block displays are item displays with the tag "pr_polygon_connector".<br />
+ * - Texts are invisible marker armor stands with the tag "pr_polygon_marker_text".<br />
+ */
+public class EntityPreviewRenderer implements PreviewRenderer {
+
+    @Override
+    public @NotNull PreviewHandle spawnBlockDisplay(@NotNull Player viewer, @NotNull Location location, @NotNull Material material, @NotNull Transformation transformation) {
+        return new EntityHandle(location.getWorld().spawn(location, ItemDisplay.class, entity -> {
+            entity.setItemStack(new ItemStack(material));
+            entity.setTransformation(transformation);
+            entity.addScoreboardTag("pr_polygon_connector");
+        }));
+    }
+
+    @Override
+    public @NotNull PreviewHandle spawnText(@NotNull Player viewer, @NotNull Location location, @NotNull String text) {
+        return new EntityHandle(location.getWorld().spawn(location, ArmorStand.class, entity -> {
+            entity.setCustomName(text);
+            entity.setCustomNameVisible(true);
+            entity.setInvisible(true);
+            entity.setMarker(true);
+            entity.addScoreboardTag("pr_polygon_marker_text");
+        }));
+    }
+
+    /**
+     * Handle of a preview visual that is a real entity.
+     */
+    private static final class EntityHandle implements PreviewHandle {
+
+        private final Entity entity;
+
+        private EntityHandle(@NotNull Entity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public void setText(@NotNull String text) {
+            entity.setCustomName(text);
+        }
+
+        @Override
+        public void remove() {
+            entity.remove();
+        }
+    }
+}
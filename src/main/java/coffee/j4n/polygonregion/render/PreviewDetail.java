@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+/**
+ * This class holds the level-of-detail settings of the region preview.<br />
+ * - With level of detail enabled, the spacing between connectors grows with the distance to the viewer.<br />
+ * - With level of detail enabled, vertical supports are only drawn for markers within the support radius around the viewer.<br />
+ * - Every preview is limited to a maximum number of entities; above it, the preview is coarsened instead of spawning more entities.<br />
+ */
+public class PreviewDetail {
+
+    private final boolean levelOfDetail;
+    private final double distanceStep;
+    private final double supportRadius;
+    private final int maxEntities;
+
+    /**
+     * @param levelOfDetail Whether the detail is reduced with the distance to the viewer
+     * @param distanceStep  The distance (in blocks) after which the connector spacing grows by one block
+     * @param supportRadius The radius (in blocks) around the viewer in which vertical supports are drawn
+     * @param maxEntities   The maximum number of entities of a single preview
+     */
+    public PreviewDetail(boolean levelOfDetail, double distanceStep, double supportRadius, int maxEntities) {
+        this.levelOfDetail = levelOfDetail;
+        this.distanceStep = Math.max(1.0, distanceStep);
+        this.supportRadius = supportRadius;
+        this.maxEntities = Math.max(1, maxEntities);
+    }
+
+    /**
+     * Returns the spacing between two connectors at the given distance from the viewer.
+     *
+     * @param distance   The distance from the viewer
+     * @param minSpacing The minimum spacing (e.g. required to stay within the entity budget)
+     * @return The spacing in blocks
+     */
+    public int getConnectorSpacing(double distance, int minSpacing) {
+        if (!levelOfDetail) {
+            return minSpacing;
+        }
+
+        return Math.max(minSpacing, 1 + (int) (distance / distanceStep));
+    }
+
+    /**
+     * Returns whether the vertical support of a marker is drawn at the given distance from the viewer.
+     *
+     * @param distance The distance from the viewer
+     * @return Whether the support is drawn
+     */
+    public boolean isSupportVisible(double distance) {
+        return !levelOfDetail || distance <= supportRadius;
+    }
+
+    /**
+     * Returns the maximum number of entities of a single preview.
+     *
+     * @return The maximum number of entities
+     */
+    public int getMaxEntities() {
+        return maxEntities;
+    }
+}
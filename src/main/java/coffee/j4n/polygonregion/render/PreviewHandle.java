@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * This interface represents a single visual of a region preview (e.g. a connector or a marker text),
+ * independent of how it is rendered by the {@link PreviewRenderer}.
+ */
+public interface PreviewHandle {
+
+    /**
+     * Changes the displayed text of the visual (only supported by marker texts).
+     *
+     * @param text The new text
+     */
+    void setText(@NotNull String text);
+
+    /**
+     * Removes the visual.
+     */
+    void remove();
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import org.bukkit.Location;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Transformation;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * This interface represents the packets the {@link VirtualPreviewRenderer} sends to a player.<br />
+ * - The entities only exist on the client of the player, the server does not hold any state for them.<br />
+ * - Implementations translate the calls into spawn, metadata and destroy packets (see {@link ProtocolLibPacketSink}).<br />
+ */
+public interface PreviewPacketSink {
+
+    /**
+     * Returns a new entity id that does not collide with the ids of real entities.
+     *
+     * @return The new entity id
+     */
+    int nextEntityId();
+
+    /**
+     * Sends the spawn packet of a client-side entity.
+     *
+     * @param viewer     The player receiving the packet
+     * @param entityId   The id of the entity
+     * @param uniqueId   The unique id of the entity
+     * @param entityType The type of the entity
+     * @param location   The location of the entity
+     */
+    void sendSpawn(@NotNull Player viewer, int entityId, @NotNull UUID uniqueId, @NotNull EntityType entityType, @NotNull Location location);
+
+    /**
+     * Sends the metadata of a client-side item display.
+     *
+     * @param viewer         The player receiving the packet
+     * @param entityId       The id of the item display
+     * @param itemStack      The displayed item
+     * @param transformation The transformation of the item display
+     */
+    void sendItemDisplayMetadata(@NotNull Player viewer, int entityId, @NotNull ItemStack itemStack, @NotNull Transformation transformation);
+
+    /**
+     * Sends the metadata of a client-side text, an invisible marker armor stand with a visible custom name.
+     *
+     * @param viewer   The player receiving the packet
+     * @param entityId The id of the armor stand
+     * @param text     The displayed text
+     */
+    void sendTextMetadata(@NotNull Player viewer, int entityId, @NotNull String text);
+
+    /**
+     * Sends the destroy packet for one or more client-side entities.
+     *
+     * @param viewer    The player receiving the packet
+     * @param entityIds The ids of the entities
+     */
+    void sendDestroy(@NotNull Player viewer, int @NotNull ... entityIds);
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Transformation;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * This interface represents a backend that renders the visuals of a region preview for a player.<br />
+ * - {@link EntityPreviewRenderer} spawns real display entities and armor stands in the world.<br />
+ * - {@link VirtualPreviewRenderer} only sends the visuals to the player owning the preview, without any server-side entities.<br />
+ */
+public interface PreviewRenderer {
+
+    /**
+     * Renders a block item display (e.g. a connector or a support segment).
+     *
+     * @param viewer         The player owning the preview
+     * @param location       The location of the display
+     * @param material       The displayed material
+     * @param transformation The transformation of the display
+     * @return The handle of the rendered display
+     */
+    @NotNull PreviewHandle spawnBlockDisplay(@NotNull Player viewer, @NotNull Location location, @NotNull Material material, @NotNull Transformation transformation);
+
+    /**
+     * Renders a floating text (e.g. the index of a marker).
+     *
+     * @param viewer   The player owning the preview
+     * @param location The location of the text
+     * @param text     The displayed text
+     * @return The handle of the rendered text
+     */
+    @NotNull PreviewHandle spawnText(@NotNull Player viewer, @NotNull Location location, @NotNull String text);
+
+    /**
+     * Removes several visuals at once. Backends may batch the removal.
+     *
+     * @param viewer  The player owning the preview
+     * @param handles The handles to remove
+     */
+    default void remove(@NotNull Player viewer, @NotNull List<PreviewHandle> handles) {
+        handles.forEach(PreviewHandle::remove);
+    }
+}
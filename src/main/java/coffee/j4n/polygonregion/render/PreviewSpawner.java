@@ -0,0 +1,376 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import coffee.j4n.polygonregion.util.Marker;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Transformation;
+import org.jetbrains.annotations.NotNull;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.util.List;
+
+/**
+ * This class spawns the visuals of a region preview through a {@link PreviewRenderer}.<br />
+ * - Marker texts display the number of the marker.<br />
+ * - Vertical supports are yellow and black concrete displays below the marker text.<br />
+ * - Edges are red concrete displays between two markers, rendered according to the {@link EdgeRenderMode}.<br />
+ * - The amount of detail is controlled by the {@link PreviewDetail}.<br />
+ */
+public class PreviewSpawner {
+
+    /**
+     * The number of displays a single vertical support consists of (5 blocks with 3 segments, minus the skipped one).
+     */
+    public static final int SUPPORT_ENTITY_COUNT = 14;
+
+    private final PreviewRenderer renderer;
+    private final EdgeRenderMode edgeRenderMode;
+    private final double maxSegmentLength;
+    private final PreviewDetail detail;
+
+    /**
+     * @param renderer         The backend rendering the visuals
+     * @param edgeRenderMode   The way edges are rendered
+     * @param maxSegmentLength The maximum length of a single stretched edge segment (only used by {@link EdgeRenderMode#STRETCHED})
+     * @param detail           The level-of-detail settings
+     */
+    public PreviewSpawner(@NotNull PreviewRenderer renderer, @NotNull EdgeRenderMode edgeRenderMode, double maxSegmentLength, @NotNull PreviewDetail detail) {
+        this.renderer = renderer;
+        this.edgeRenderMode = edgeRenderMode;
+        this.maxSegmentLength = Math.max(1.0, maxSegmentLength);
+        this.detail = detail;
+    }
+
+    /**
+     * Returns the backend rendering the visuals.
+     *
+     * @return The renderer
+     */
+    public @NotNull PreviewRenderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * Returns the level-of-detail settings.
+     *
+     * @return The level-of-detail settings
+     */
+    public @NotNull PreviewDetail getDetail() {
+        return detail;
+    }
+
+    /**
+     * Returns whether the vertical support of a marker is within the support radius around the viewer.
+     *
+     * @param viewer The player owning the preview
+     * @param point  The marker
+     * @return Whether the vertical support of the marker is drawn
+     */
+    public boolean isSupportVisible(@NotNull Player viewer, @NotNull Marker point) {
+        Location viewerLocation = viewer.getLocation();
+        return detail.isSupportVisible(distance(viewerLocation, point.x, point.y, point.z));
+    }
+
+    /**
+     * Estimates the number of displays of the line between two markers with a connector spacing of one block.
+     *
+     * @param markerA The first marker
+     * @param markerB The second marker
+     * @return The estimated number of displays
+     */
+    public int estimateEdgeEntities(@NotNull Marker markerA, @NotNull Marker markerB) {
+        double xDelta = markerB.x - markerA.x;
+        double yDelta = markerB.y - markerA.y;
+        double zDelta = markerB.z - markerA.z;
+
+        if (edgeRenderMode == EdgeRenderMode.STRETCHED) {
+            return (int) Math.ceil(Math.sqrt(xDelta * xDelta + yDelta * yDelta + zDelta * zDelta) / maxSegmentLength);
+        }
+
+        // The Bresenham's Algorithm spawns one connector per step along the dominant axis
+        return (int) Math.max(Math.abs(xDelta), Math.max(Math.abs(yDelta), Math.abs(zDelta)));
+    }
+
+    /**
+     * Spawns the text for the index of a marker above the marker
+     *
+     * @param viewer The player owning the preview
+     * @param marker The marker
+     * @param index  The (1-based) index of the marker
+     * @return The handle of the spawned text
+     */
+    public @NotNull PreviewHandle spawnMarkerText(@NotNull Player viewer, @NotNull Marker marker, int index) {
+        Location textLocation = new Location(viewer.getWorld(), marker.x, marker.y + 6.0, marker.z);
+
+        return renderer.spawnText(viewer, textLocation, String.valueOf(index));
+    }
+
+    /**
+     * Creates the vertical support below the text of a marker
+     * - The support is created by spawning entities with the tag "pr_polygon_connector" and the material YELLOW_CONCRETE and BLACK_CONCRETE
+     * - The support is created in 3 segments to prevent entity clipping
+     *
+     * @param viewer         The player owning the preview
+     * @param point          The marker
+     * @param spawnedHandles The list the handles of the spawned displays are added to
+     */
+    public void spawnVerticalSupport(@NotNull Player viewer, @NotNull Marker point, @NotNull List<PreviewHandle> spawnedHandles) {
+        for (int y = (int) point.y + 1; y <= point.y + 5; y++) {
+            Location segmentLocation = new Location(viewer.getWorld(), point.x, y + 0.125, point.z);
+            for (int i = 0; i < 3; i++) {
+
+                // skip last iteration to prevent entity clipping
+                if (y == point.y + 5 && i == 1) {
+                    continue;
+                }
+
+                // i = odd -> BLACK_CONCRETE, i = even -> YELLOW_CONCRETE
+                final Material materialToUse = ((i % 2) == 0) ? Material.YELLOW_CONCRETE : Material.BLACK_CONCRETE;
+
+                Location displayLocation = segmentLocation.clone().add(0, i * (1.0 / 3.0), 0);
+
+                spawnedHandles.add(renderer.spawnBlockDisplay(viewer, displayLocation, materialToUse, new Transformation(
+                        new Vector3f(0, 0, 0),                  // Translation
+                        new Quaternionf(),                               // Left rotation
+                        new Vector3f(0.333f, 0.333f, 0.333f),   // Scale
+                        new Quaternionf()                                // Right rotation
+                )));
+            }
+        }
+    }
+
+    /**
+     * Creates the line (display entities) between two markers
+     * - The line is created by spawning entities with the tag "pr_polygon_connector" and the material RED_CONCRETE
+     * - Depending on the edge render mode, the line consists of one entity per block or of a few stretched entities
+     * - The minimum spacing coarsens the line, e.g. to stay within the entity budget of the preview
+     *
+     * @param viewer         The player owning the preview
+     * @param markerA        The first marker
+     * @param markerB        The second marker
+     * @param minSpacing     The minimum spacing between two connectors (1 = one connector per block)
+     * @param spawnedHandles The list the handles of the spawned displays are added to
+     */
+    public void spawnEdge(@NotNull Player viewer, @NotNull Marker markerA, @NotNull Marker markerB, int minSpacing, @NotNull List<PreviewHandle> spawnedHandles) {
+        // Create locations for the markers, 5 blocks above the ground
+        Location locationMarkerA = new Location(viewer.getWorld(), markerA.x - 0.5, markerA.y + 5.0, markerA.z - 0.5);
+        Location locationMarkerB = new Location(viewer.getWorld(), markerB.x - 0.5, markerB.y + 5.0, markerB.z - 0.5);
+
+        if (edgeRenderMode == EdgeRenderMode.STRETCHED) {
+            spawnStretchedEdge(viewer, locationMarkerA, locationMarkerB, minSpacing, spawnedHandles);
+        } else {
+            spawnBresenhamEdge(viewer, locationMarkerA, locationMarkerB, minSpacing, spawnedHandles);
+        }
+    }
+
+    /**
+     * Creates the line between two marker locations with one connector entity per block using the Bresenham's Algorithm
+     * - The spacing between two connectors grows with the distance from the viewer (see {@link PreviewDetail#getConnectorSpacing(double, int)})
+     *
+     * @param viewer          The player owning the preview
+     * @param locationMarkerA The location of the first marker
+     * @param locationMarkerB The location of the second marker
+     * @param minSpacing      The minimum spacing between two connectors
+     * @param spawnedHandles  The list the handles of the spawned displays are added to
+     */
+    private void spawnBresenhamEdge(@NotNull Player viewer, @NotNull Location locationMarkerA, @NotNull Location locationMarkerB, int minSpacing, @NotNull List<PreviewHandle> spawnedHandles) {
+        Location viewerLocation = viewer.getLocation();
+
+        // Number of steps until the next connector is spawned, the first step always spawns one
+        int stepsUntilConnector = 0;
+
+        // Bresenham's Algorithm to draw the line
+        int xMarker1 = locationMarkerA.getBlockX();
+        int yMarker1 = locationMarkerA.getBlockY();
+        int zMarker1 = locationMarkerA.getBlockZ();
+
+        int xMarker2 = locationMarkerB.getBlockX();
+        int yMarker2 = locationMarkerB.getBlockY();
+        int zMarker2 = locationMarkerB.getBlockZ();
+
+        // Calculate the differences in each coordinate
+        int xDeltaM2M1 = Math.abs(xMarker2 - xMarker1);
+        int yDeltaM2M1 = Math.abs(yMarker2 - yMarker1);
+        int zDeltaM2M1 = Math.abs(zMarker2 - zMarker1);
+
+        // Determine the direction of movement in each axis
+        int stepX = xMarker1 < xMarker2 ? 1 : -1;
+        int stepY = yMarker1 < yMarker2 ? 1 : -1;
+        int stepZ = zMarker1 < zMarker2 ? 1 : -1;
+
+        // Identify the dominant direction
+        if (xDeltaM2M1 >= yDeltaM2M1 && xDeltaM2M1 >= zDeltaM2M1) {
+            // Initialize error terms for YZ and XZ planes
+            int errorYZ = 2 * yDeltaM2M1 - xDeltaM2M1;
+            int errorXZ = 2 * zDeltaM2M1 - xDeltaM2M1;
+
+            while (xMarker1 != xMarker2) {
+                xMarker1 += stepX;
+
+                if (errorYZ >= 0) {
+                    yMarker1 += stepY;
+                    errorYZ -= 2 * xDeltaM2M1;
+                }
+
+                if (errorXZ >= 0) {
+                    zMarker1 += stepZ;
+                    errorXZ -= 2 * xDeltaM2M1;
+                }
+
+                errorYZ += 2 * yDeltaM2M1;
+                errorXZ += 2 * zDeltaM2M1;
+
+                // Spawn the connector entity at the current position
+                if (--stepsUntilConnector <= 0) {
+                    spawnedHandles.add(spawnRegionBoundaryConnector(viewer, xMarker1, yMarker1, zMarker1));
+                    stepsUntilConnector = detail.getConnectorSpacing(distance(viewerLocation, xMarker1, yMarker1, zMarker1), minSpacing);
+                }
+            }
+        } else if (yDeltaM2M1 >= xDeltaM2M1 && yDeltaM2M1 >= zDeltaM2M1) {
+            int errorXY = 2 * xDeltaM2M1 - yDeltaM2M1;
+            int errorYZ = 2 * zDeltaM2M1 - yDeltaM2M1;
+
+            while (yMarker1 != yMarker2) {
+                yMarker1 += stepY;
+
+                if (errorXY >= 0) {
+                    xMarker1 += stepX;
+                    errorXY -= 2 * yDeltaM2M1;
+                }
+
+                if (errorYZ >= 0) {
+                    zMarker1 += stepZ;
+                    errorYZ -= 2 * yDeltaM2M1;
+                }
+
+                errorXY += 2 * xDeltaM2M1;
+                errorYZ += 2 * zDeltaM2M1;
+
+                if (--stepsUntilConnector <= 0) {
+                    spawnedHandles.add(spawnRegionBoundaryConnector(viewer, xMarker1, yMarker1, zMarker1));
+                    stepsUntilConnector = detail.getConnectorSpacing(distance(viewerLocation, xMarker1, yMarker1, zMarker1), minSpacing);
+                }
+            }
+        } else {
+            int errorXY = 2 * yDeltaM2M1 - zDeltaM2M1;
+            int errorXZ = 2 * xDeltaM2M1 - zDeltaM2M1;
+
+            while (zMarker1 != zMarker2) {
+                zMarker1 += stepZ;
+
+                if (errorXY >= 0) {
+                    yMarker1 += stepY;
+                    errorXY -= 2 * zDeltaM2M1;
+                }
+
+                if (errorXZ >= 0) {
+                    xMarker1 += stepX;
+                    errorXZ -= 2 * zDeltaM2M1;
+                }
+
+                errorXY += 2 * yDeltaM2M1;
+                errorXZ += 2 * xDeltaM2M1;
+
+                if (--stepsUntilConnector <= 0) {
+                    spawnedHandles.add(spawnRegionBoundaryConnector(viewer, xMarker1, yMarker1, zMarker1));
+                    stepsUntilConnector = detail.getConnectorSpacing(distance(viewerLocation, xMarker1, yMarker1, zMarker1), minSpacing);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the line between two marker locations with stretched connector entities
+     * - Every segment is a single item display, scaled along its z-axis to the length of the segment and rotated towards the second marker
+     * - The line is split into segments of at most maxSegmentLength blocks, so that the client does not cull long edges too early
+     * - The line starts and ends at the same positions as the connectors of the Bresenham's Algorithm
+     * - A minimum spacing above 1 allows longer segments, reducing the number of displays
+     *
+     * @param viewer          The player owning the preview
+     * @param locationMarkerA The location of the first marker
+     * @param locationMarkerB The location of the second marker
+     * @param minSpacing      The factor the maximum segment length is multiplied with
+     * @param spawnedHandles  The list the handles of the spawned displays are added to
+     */
+    private void spawnStretchedEdge(@NotNull Player viewer, @NotNull Location locationMarkerA, @NotNull Location locationMarkerB, int minSpacing, @NotNull List<PreviewHandle> spawnedHandles) {
+        double startX = locationMarkerA.getBlockX() + 0.5;
+        double startY = locationMarkerA.getBlockY() + 1.125;
+        double startZ = locationMarkerA.getBlockZ() + 0.5;
+
+        double xDelta = locationMarkerB.getBlockX() + 0.5 - startX;
+        double yDelta = locationMarkerB.getBlockY() + 1.125 - startY;
+        double zDelta = locationMarkerB.getBlockZ() + 0.5 - startZ;
+
+        double length = Math.sqrt(xDelta * xDelta + yDelta * yDelta + zDelta * zDelta);
+
+        if (length == 0) {
+            return;
+        }
+
+        int numSegments = (int) Math.ceil(length / (maxSegmentLength * minSpacing));
+        float segmentLength = (float) (length / numSegments);
+
+        // Rotation from the z-axis of the item model to the direction of the edge
+        Quaternionf rotation = new Quaternionf().rotationTo(0, 0, 1, (float) (xDelta / length), (float) (yDelta / length), (float) (zDelta / length));
+
+        for (int i = 0; i < numSegments; i++) {
+            // Every segment is centered between its start and end
+            double segmentFactor = (i + 0.5) / numSegments;
+            Location segmentLocation = new Location(viewer.getWorld(), startX + xDelta * segmentFactor, startY + yDelta * segmentFactor, startZ + zDelta * segmentFactor);
+
+            spawnedHandles.add(renderer.spawnBlockDisplay(viewer, segmentLocation, Material.RED_CONCRETE, new Transformation(
+                    new Vector3f(0, 0, 0),                          // Translation
+                    new Quaternionf(rotation),                               // Left rotation
+                    new Vector3f(0.333f, 0.333f, segmentLength),    // Scale
+                    new Quaternionf()                                        // Right rotation
+            )));
+        }
+    }
+
+    /**
+     * Helper method to spawn a region boundary connector display at a given location
+     * - The display shows the material RED_CONCRETE
+     * - The display is scaled to 1/3 of its original size
+     * - The display is spawned at the given location
+     *
+     * @param viewer The player owning the preview
+     * @param x      The x coordinate
+     * @param y      The y coordinate
+     * @param z      The z coordinate
+     * @return The handle of the spawned connector display
+     */
+    private @NotNull PreviewHandle spawnRegionBoundaryConnector(@NotNull Player viewer, double x, double y, double z) {
+        Location segmentLocation = new Location(viewer.getWorld(), x + 0.5, y + 1.125, z + 0.5);
+
+        return renderer.spawnBlockDisplay(viewer, segmentLocation, Material.RED_CONCRETE, new Transformation(
+                new Vector3f(0, 0, 0),                 // Translation
+                new Quaternionf(),                              // Left rotation
+                new Vector3f(0.333f, 0.333f, 0.333f),  // Scale
+                new Quaternionf()                               // Right rotation
+        ));
+    }
+
+    /**
+     * Calculates the distance between the viewer and a position
+     *
+     * @param viewerLocation The location of the viewer
+     * @param x              The x coordinate
+     * @param y              The y coordinate
+     * @param z              The z coordinate
+     * @return The distance between the viewer and the position
+     */
+    private static double distance(@NotNull Location viewerLocation, double x, double y, double z) {
+        double xDelta = viewerLocation.getX() - x;
+        double yDelta = viewerLocation.getY() - y;
+        double zDelta = viewerLocation.getZ() - z;
+
+        return Math.sqrt(xDelta * xDelta + yDelta * yDelta + zDelta * zDelta);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
+import com.comphenix.protocol.wrappers.WrappedDataValue;
+import com.comphenix.protocol.wrappers.WrappedDataWatcher;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Transformation;
+import org.jetbrains.annotations.NotNull;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * This class sends the packets of the {@link VirtualPreviewRenderer} with ProtocolLib.<br />
+ * - The metadata indices are the ones of Minecraft 1.20.2 - 1.20.4.<br />
+ */
+public class ProtocolLibPacketSink implements PreviewPacketSink {
+
+    //<editor-fold desc="Metadata indices">
+    private static final int ENTITY_FLAGS_INDEX = 0;
+    private static final int ENTITY_CUSTOM_NAME_INDEX = 2;
+    private static final int ENTITY_CUSTOM_NAME_VISIBLE_INDEX = 3;
+    private static final int ARMOR_STAND_FLAGS_INDEX = 15;
+    private static final int DISPLAY_TRANSLATION_INDEX = 11;
+    private static final int DISPLAY_SCALE_INDEX = 12;
+    private static final int DISPLAY_LEFT_ROTATION_INDEX = 13;
+    private static final int DISPLAY_RIGHT_ROTATION_INDEX = 14;
+    private static final int ITEM_DISPLAY_ITEM_INDEX = 23;
+
+    private static final byte ENTITY_FLAG_INVISIBLE = 0x20;
+    private static final byte ARMOR_STAND_FLAG_MARKER = 0x10;
+    //</editor-fold>
+
+    private final ProtocolManager protocolManager = ProtocolLibrary.getProtocolManager();
+
+    @Override
+    public int nextEntityId() {
+        return Bukkit.getUnsafe().nextEntityId();
+    }
+
+    @Override
+    public void sendSpawn(@NotNull Player viewer, int entityId, @NotNull UUID uniqueId, @NotNull EntityType entityType, @NotNull Location location) {
+        PacketContainer packet = protocolManager.createPacket(PacketType.Play.Server.SPAWN_ENTITY);
+
+        packet.getIntegers().write(0, entityId);
+        packet.getUUIDs().write(0, uniqueId);
+        packet.getEntityTypeModifier().write(0, entityType);
+        packet.getDoubles()
+                .write(0, location.getX())
+                .write(1, location.getY())
+                .write(2, location.getZ());
+
+        protocolManager.sendServerPacket(viewer, packet);
+    }
+
+    @Override
+    public void sendItemDisplayMetadata(@NotNull Player viewer, int entityId, @NotNull ItemStack itemStack, @NotNull Transformation transformation) {
+        List<WrappedDataValue> dataValues = new ArrayList<>();
+
+        dataValues.add(new WrappedDataValue(DISPLAY_TRANSLATION_INDEX, WrappedDataWatcher.Registry.get(Vector3f.class), new Vector3f(transformation.getTranslation())));
+        dataValues.add(new WrappedDataValue(DISPLAY_SCALE_INDEX, WrappedDataWatcher.Registry.get(Vector3f.class), new Vector3f(transformation.getScale())));
+        dataValues.add(new WrappedDataValue(DISPLAY_LEFT_ROTATION_INDEX, WrappedDataWatcher.Registry.get(Quaternionf.class), new Quaternionf(transformation.getLeftRotation())));
+        dataValues.add(new WrappedDataValue(DISPLAY_RIGHT_ROTATION_INDEX, WrappedDataWatcher.Registry.get(Quaternionf.class), new Quaternionf(transformation.getRightRotation())));
+        dataValues.add(new WrappedDataValue(ITEM_DISPLAY_ITEM_INDEX, WrappedDataWatcher.Registry.getItemStackSerializer(false), MinecraftReflection.getMinecraftItemStack(itemStack)));
+
+        sendMetadata(viewer, entityId, dataValues);
+    }
+
+    @Override
+    public void sendTextMetadata(@NotNull Player viewer, int entityId, @NotNull String text) {
+        List<WrappedDataValue> dataValues = new ArrayList<>();
+
+        dataValues.add(new WrappedDataValue(ENTITY_FLAGS_INDEX, WrappedDataWatcher.Registry.get(Byte.class), ENTITY_FLAG_INVISIBLE));
+        dataValues.add(new WrappedDataValue(ENTITY_CUSTOM_NAME_INDEX, WrappedDataWatcher.Registry.getChatComponentSerializer(true), Optional.of(WrappedChatComponent.fromText(text).getHandle())));
+        dataValues.add(new WrappedDataValue(ENTITY_CUSTOM_NAME_VISIBLE_INDEX, WrappedDataWatcher.Registry.get(Boolean.class), true));
+        dataValues.add(new WrappedDataValue(ARMOR_STAND_FLAGS_INDEX, WrappedDataWatcher.Registry.get(Byte.class), ARMOR_STAND_FLAG_MARKER));
+
+        sendMetadata(viewer, entityId, dataValues);
+    }
+
+    @Override
+    public void sendDestroy(@NotNull Player viewer, int @NotNull ... entityIds) {
+        PacketContainer packet = protocolManager.createPacket(PacketType.Play.Server.ENTITY_DESTROY);
+
+        List<Integer> entityIdList = new ArrayList<>(entityIds.length);
+        for (int entityId : entityIds) {
+            entityIdList.add(entityId);
+        }
+
+        packet.getIntLists().write(0, entityIdList);
+
+        protocolManager.sendServerPacket(viewer, packet);
+    }
+
+    private void sendMetadata(@NotNull Player viewer, int entityId, @NotNull List<WrappedDataValue> dataValues) {
+        PacketContainer packet = protocolManager.createPacket(PacketType.Play.Server.ENTITY_METADATA);
+
+        packet.getIntegers().write(0, entityId);
+        packet.getDataValueCollectionModifier().write(0, dataValues);
+
+        protocolManager.sendServerPacket(viewer, packet);
+    }
+}
@@ -0,0 +1,336 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import coffee.j4n.polygonregion.util.Marker;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents the rendered preview of the region markers of a player.<br />
+ * <p>
+ * It keeps a model of the rendered vertices and edges, so that changes to the markers only touch the affected parts:<br />
+ * - Every vertex owns its marker text and its vertical support, which are spawned exactly once per vertex.<br />
+ * - Edge {@code i} connects vertex {@code i} with vertex {@code i + 1} (the last edge closes the polygon).<br />
+ * - Inserting or removing a vertex only tears down and spawns the one or two adjacent edges and relabels the marker texts whose index changed.<br />
+ * - All visuals of the preview are owned by this model, so clearing never touches the entity list of the world.<br />
+ * <p>
+ * The preview respects the entity budget of the {@link PreviewDetail}:<br />
+ * - When rendering from scratch, the connector spacing is chosen so that the estimated number of entities stays within the budget,
+ * leaving a tenth of the budget for incremental updates.<br />
+ * - If the budget still does not suffice, the vertical supports are left out.<br />
+ * - If not even one connector per edge fits next to all marker texts, only every n-th marker text and every m-th edge is drawn.
+ * Which texts and edges are drawn is stored per vertex and edge, so it moves along when vertices are inserted or removed:
+ * an inserted vertex always gets its text, the edges replacing an edge are drawn if the replaced edges were drawn.<br />
+ * - Visuals that would exceed the budget are never kept, so a preview rendered from scratch is always within the budget.<br />
+ * - If an incremental update exceeds the budget, the preview is rendered from scratch with coarser detail.<br />
+ */
+public class RegionPreview {
+
+    private final Player viewer;
+    private final PreviewSpawner spawner;
+
+    // Vertices and edges that are not drawn (see the strides) have no text, respectively an empty edge
+    private final List<PreviewHandle> vertexTexts = new ArrayList<>();
+    private final List<List<PreviewHandle>> vertexSupports = new ArrayList<>();
+    private final List<List<PreviewHandle>> edges = new ArrayList<>();
+    private final List<Boolean> drawnEdges = new ArrayList<>();
+
+    private int entityCount = 0;
+    private int connectorSpacing = 1;
+    private boolean supportsEnabled = true;
+    // When rendering from scratch, only vertices (edges) whose index is a multiple of the stride get a text (are drawn), 0 draws none
+    private int textStride = 1;
+    private int edgeStride = 1;
+
+    public RegionPreview(@NotNull Player viewer, @NotNull PreviewSpawner spawner) {
+        this.viewer = viewer;
+        this.spawner = spawner;
+    }
+
+    /**
+     * Clears the preview and renders all vertices and edges of the given markers from scratch.
+     *
+     * @param markers The markers of the polygon, in order
+     */
+    public void rebuild(@NotNull List<Marker> markers) {
+        clear();
+
+        int maxEntities = spawner.getDetail().getMaxEntities();
+        planDetail(markers, Math.max(1, maxEntities - maxEntities / 10));
+
+        for (int i = 0; i < markers.size(); i++) {
+            spawnVertex(markers, i, isDrawn(i, textStride), maxEntities);
+        }
+
+        for (int i = 0; i < markers.size(); i++) {
+            addEdge(i, markers, isDrawn(i, edgeStride), maxEntities);
+        }
+    }
+
+    /**
+     * Updates the preview after a marker has been inserted at the given index.
+     *
+     * @param markers     The markers of the polygon, already containing the new marker
+     * @param insertIndex The index at which the marker has been inserted
+     */
+    public void insertVertex(@NotNull List<Marker> markers, int insertIndex) {
+        int oldSize = vertexTexts.size();
+
+        // The edge that spanned the gap the new marker was inserted into is replaced by two new edges
+        int replacedEdgeIndex = (insertIndex - 1 + oldSize) % oldSize;
+        boolean replacedEdgeDrawn = drawnEdges.remove(replacedEdgeIndex);
+        removeHandles(edges.remove(replacedEdgeIndex));
+
+        // The new marker is the one the player is looking at, so it is labelled even in a sampled preview
+        spawnVertex(markers, insertIndex, true, Integer.MAX_VALUE);
+
+        if (insertIndex == 0) {
+            addEdge(0, markers, replacedEdgeDrawn, Integer.MAX_VALUE);
+            addEdge(markers.size() - 1, markers, replacedEdgeDrawn, Integer.MAX_VALUE);
+        } else {
+            addEdge(insertIndex - 1, markers, replacedEdgeDrawn, Integer.MAX_VALUE);
+            addEdge(insertIndex, markers, replacedEdgeDrawn, Integer.MAX_VALUE);
+        }
+
+        relabelFrom(insertIndex + 1);
+
+        if (entityCount > spawner.getDetail().getMaxEntities()) {
+            rebuild(markers);
+        }
+    }
+
+    /**
+     * Updates the preview after the marker at the given index has been removed.
+     *
+     * @param markers     The markers of the polygon, no longer containing the removed marker
+     * @param removeIndex The index of the removed marker
+     */
+    public void removeVertex(@NotNull List<Marker> markers, int removeIndex) {
+        int oldSize = vertexTexts.size();
+
+        // Both edges adjacent to the removed marker are replaced by one edge connecting its neighbours
+        int previousEdgeIndex = (removeIndex - 1 + oldSize) % oldSize;
+        boolean removedEdgeDrawn = drawnEdges.remove(Math.max(removeIndex, previousEdgeIndex));
+        removedEdgeDrawn |= drawnEdges.remove(Math.min(removeIndex, previousEdgeIndex));
+        List<PreviewHandle> removedHandles = new ArrayList<>(edges.remove(Math.max(removeIndex, previousEdgeIndex)));
+        removedHandles.addAll(edges.remove(Math.min(removeIndex, previousEdgeIndex)));
+        PreviewHandle removedText = vertexTexts.remove(removeIndex);
+
+        if (removedText != null) {
+            removedHandles.add(removedText);
+        }
+
+        removedHandles.addAll(vertexSupports.remove(removeIndex));
+        removeHandles(removedHandles);
+
+        if (markers.isEmpty()) {
+            return;
+        }
+
+        if (removeIndex == 0) {
+            addEdge(markers.size() - 1, markers, removedEdgeDrawn, Integer.MAX_VALUE);
+        } else {
+            addEdge(removeIndex - 1, markers, removedEdgeDrawn, Integer.MAX_VALUE);
+        }
+
+        relabelFrom(removeIndex);
+
+        if (entityCount > spawner.getDetail().getMaxEntities()) {
+            rebuild(markers);
+        }
+    }
+
+    /**
+     * Returns the number of vertices currently rendered.
+     *
+     * @return The number of rendered vertices
+     */
+    public int getVertexCount() {
+        return vertexTexts.size();
+    }
+
+    /**
+     * Returns the number of visuals (entities) the preview currently consists of.
+     *
+     * @return The number of preview visuals
+     */
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    /**
+     * Removes all visuals of the preview.
+     */
+    public void clear() {
+        List<PreviewHandle> removedHandles = new ArrayList<>();
+
+        for (PreviewHandle text : vertexTexts) {
+            if (text != null) {
+                removedHandles.add(text);
+            }
+        }
+
+        vertexSupports.forEach(removedHandles::addAll);
+        edges.forEach(removedHandles::addAll);
+        removeHandles(removedHandles);
+
+        vertexTexts.clear();
+        vertexSupports.clear();
+        edges.clear();
+        drawnEdges.clear();
+    }
+
+    /**
+     * Chooses the connector spacing, whether vertical supports are drawn and which texts and edges are drawn,
+     * so that the preview stays within the given number of entities.
+     *
+     * @param markers     The markers of the polygon, in order
+     * @param maxEntities The number of entities the preview may consist of
+     */
+    private void planDetail(@NotNull List<Marker> markers, int maxEntities) {
+        int vertexCount = markers.size();
+
+        int supportEntities = 0;
+        int[] edgeEntities = new int[vertexCount];
+
+        for (int i = 0; i < vertexCount; i++) {
+            if (spawner.isSupportVisible(viewer, markers.get(i))) {
+                supportEntities += PreviewSpawner.SUPPORT_ENTITY_COUNT;
+            }
+
+            // The estimate is based on the marker positions, the edge itself on the blocks, which can add one step
+            edgeEntities[i] = spawner.estimateEdgeEntities(markers.get(i), markers.get((i + 1) % vertexCount)) + 1;
+        }
+
+        textStride = 1;
+        edgeStride = 1;
+
+        // With a spacing s, an edge of e connectors spawns at most e / s + 1 connectors,
+        // so one connector per edge is reserved on top of the fixed entities
+        int reservedEntities = vertexCount;
+
+        // The marker texts are drawn first, the supports only if there is budget left for the edges
+        int fixedEntities = vertexCount + supportEntities;
+        supportsEnabled = fixedEntities + reservedEntities < maxEntities;
+
+        if (!supportsEnabled) {
+            fixedEntities = vertexCount;
+        }
+
+        if (fixedEntities + reservedEntities >= maxEntities) {
+            // Not even one connector per edge fits next to all texts, so half of the budget is shared by sampled texts
+            // and the other half by sampled edges (again half of it reserved for their last connectors)
+            int textBudget = maxEntities / 2;
+            textStride = strideFor(vertexCount, textBudget);
+            edgeStride = strideFor(vertexCount, (maxEntities - textBudget) / 2);
+
+            fixedEntities = drawnCount(vertexCount, textStride);
+            reservedEntities = drawnCount(vertexCount, edgeStride);
+        }
+
+        long edgeWork = 0;
+
+        for (int i = 0; i < vertexCount; i++) {
+            if (isDrawn(i, edgeStride)) {
+                edgeWork += edgeEntities[i];
+            }
+        }
+
+        int edgeBudget = Math.max(1, maxEntities - fixedEntities - reservedEntities);
+        connectorSpacing = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (edgeWork + edgeBudget - 1) / edgeBudget));
+    }
+
+    /**
+     * Returns the smallest stride that draws at most the given number of items.
+     *
+     * @param count  The number of items
+     * @param budget The number of items that may be drawn
+     * @return The stride, 0 if no item may be drawn
+     */
+    private static int strideFor(int count, int budget) {
+        if (budget <= 0) {
+            return 0;
+        }
+
+        return Math.max(1, (count + budget - 1) / budget);
+    }
+
+    private static int drawnCount(int count, int stride) {
+        return stride == 0 ? 0 : (count + stride - 1) / stride;
+    }
+
+    private static boolean isDrawn(int index, int stride) {
+        return stride != 0 && index % stride == 0;
+    }
+
+    /**
+     * Spawns the text (if drawn) and the vertical support of a vertex, as far as they fit into the given number of entities.
+     */
+    private void spawnVertex(@NotNull List<Marker> markers, int index, boolean textDrawn, int maxEntities) {
+        Marker marker = markers.get(index);
+
+        PreviewHandle text = null;
+        List<PreviewHandle> support = new ArrayList<>();
+
+        if (textDrawn && entityCount < maxEntities) {
+            text = spawner.spawnMarkerText(viewer, marker, index + 1);
+            entityCount++;
+        }
+
+        if (supportsEnabled && spawner.isSupportVisible(viewer, marker) && entityCount + PreviewSpawner.SUPPORT_ENTITY_COUNT <= maxEntities) {
+            spawner.spawnVerticalSupport(viewer, marker, support);
+            entityCount += support.size();
+        }
+
+        vertexTexts.add(index, text);
+        vertexSupports.add(index, support);
+    }
+
+    /**
+     * Spawns an edge if it is drawn and adds it at its start index, an edge that does not fit into the given number of entities is removed again.
+     */
+    private void addEdge(int startIndex, @NotNull List<Marker> markers, boolean drawn, int maxEntities) {
+        edges.add(startIndex, spawnEdge(markers, startIndex, drawn, maxEntities));
+        drawnEdges.add(startIndex, drawn);
+    }
+
+    private @NotNull List<PreviewHandle> spawnEdge(@NotNull List<Marker> markers, int startIndex, boolean drawn, int maxEntities) {
+        List<PreviewHandle> edge = new ArrayList<>();
+
+        if (!drawn) {
+            return edge;
+        }
+
+        spawner.spawnEdge(viewer, markers.get(startIndex), markers.get((startIndex + 1) % markers.size()), connectorSpacing, edge);
+        entityCount += edge.size();
+
+        if (entityCount > maxEntities) {
+            removeHandles(edge);
+            edge.clear();
+        }
+
+        return edge;
+    }
+
+    private void relabelFrom(int fromIndex) {
+        for (int i = fromIndex; i < vertexTexts.size(); i++) {
+            PreviewHandle text = vertexTexts.get(i);
+
+            if (text != null) {
+                text.setText(String.valueOf(i + 1));
+            }
+        }
+    }
+
+    private void removeHandles(@NotNull List<PreviewHandle> handles) {
+        spawner.getRenderer().remove(viewer, handles);
+        entityCount -= handles.size();
+    }
+}
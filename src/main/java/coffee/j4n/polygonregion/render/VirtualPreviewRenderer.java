@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Transformation;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * This class renders the region preview with client-side entities only.<br />
+ * - Spawn, metadata and destroy packets are only sent to the player owning the preview.<br />
+ * - The server holds no entity state for the preview: nothing is ticked, tracked for other players or saved with the chunks.<br />
+ * - The packets are sent through a {@link PreviewPacketSink}, so the renderer can be used with a recording sink without a client.<br />
+ * <p>
+ * The client forgets the entities when the player changes the world or reconnects.
+ */
+public class VirtualPreviewRenderer implements PreviewRenderer {
+
+    private final PreviewPacketSink packetSink;
+
+    public VirtualPreviewRenderer(@NotNull PreviewPacketSink packetSink) {
+        this.packetSink = packetSink;
+    }
+
+    @Override
+    public @NotNull PreviewHandle spawnBlockDisplay(@NotNull Player viewer, @NotNull Location location, @NotNull Material material, @NotNull Transformation transformation) {
+        int entityId = packetSink.nextEntityId();
+
+        packetSink.sendSpawn(viewer, entityId, UUID.randomUUID(), EntityType.ITEM_DISPLAY, location);
+        packetSink.sendItemDisplayMetadata(viewer, entityId, new ItemStack(material), transformation);
+
+        return new VirtualHandle(viewer, entityId);
+    }
+
+    @Override
+    public @NotNull PreviewHandle spawnText(@NotNull Player viewer, @NotNull Location location, @NotNull String text) {
+        int entityId = packetSink.nextEntityId();
+
+        packetSink.sendSpawn(viewer, entityId, UUID.randomUUID(), EntityType.ARMOR_STAND, location);
+        packetSink.sendTextMetadata(viewer, entityId, text);
+
+        return new VirtualHandle(viewer, entityId);
+    }
+
+    @Override
+    public void remove(@NotNull Player viewer, @NotNull List<PreviewHandle> handles) {
+        if (handles.isEmpty()) {
+            return;
+        }
+
+        // Destroy all entities with a single packet
+        int[] entityIds = new int[handles.size()];
+
+        for (int i = 0; i < handles.size(); i++) {
+            entityIds[i] = ((VirtualHandle) handles.get(i)).entityId;
+        }
+
+        packetSink.sendDestroy(viewer, entityIds);
+    }
+
+    /**
+     * Handle of a preview visual that only exists on the client of the viewer.
+     */
+    private final class VirtualHandle implements PreviewHandle {
+
+        private final Player viewer;
+        private final int entityId;
+
+        private VirtualHandle(@NotNull Player viewer, int entityId) {
+            this.viewer = viewer;
+            this.entityId = entityId;
+        }
+
+        @Override
+        public void setText(@NotNull String text) {
+            packetSink.sendTextMetadata(viewer, entityId, text);
+        }
+
+        @Override
+        public void remove() {
+            packetSink.sendDestroy(viewer, entityId);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.session;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.util.Marker;
+import coffee.j4n.polygonregion.util.MarkerRing;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * This class journals the in-progress marker sessions of players to the {@code sessions} folder of the plugin.<br />
+ * <p>
+ * A session consists of the ordered markers of a player (including the original materials of the blocks replaced by markers) and the world they were set in:<br />
+ * - Changes are only recorded in memory on the main thread (as a snapshot of the session) and written behind by a background task.<br />
+ * - All changes within {@link #FLUSH_DELAY_TICKS} are written in one batch, only the latest snapshot of a session is written.<br />
+ * - Every session is written to its own YAML file ({@code sessions/<uuid>.yml}), first to a temporary file that then replaces the old one.<br />
+ * - Sessions are only read when they are restored (e.g. when the owning player joins), never all at once.<br />
+ */
+public class MarkerSessionJournal {
+
+    /**
+     * The number of ticks changes are collected before they are written.
+     */
+    private static final long FLUSH_DELAY_TICKS = 40L;
+
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+
+    private final PolygonRegion pl;
+    private final Path sessionFolder;
+
+    /**
+     * The sessions waiting to be written, a null value marks a session to be deleted.
+     */
+    private final Map<UUID, ObjectNode> pendingWrites = new HashMap<>();
+    private final Object writeLock = new Object();
+    private boolean flushScheduled = false;
+
+    public MarkerSessionJournal(PolygonRegion pl) {
+        this.pl = pl;
+        this.sessionFolder = pl.getDataFolder().toPath().resolve("sessions");
+    }
+
+    /**
+     * Records the current state of a session, it is written with the next batch.
+     *
+     * @param playerId  The UUID of the owning player
+     * @param worldName The name of the world the markers are set in
+     * @param markers   The markers of the session
+     */
+    public void journal(@NotNull UUID playerId, @NotNull String worldName, @NotNull MarkerRing markers) {
+        if (markers.isEmpty()) {
+            remove(playerId);
+            return;
+        }
+
+        ObjectNode session = YAML_MAPPER.createObjectNode();
+        session.put("world", worldName);
+
+        ArrayNode markerNodes = session.putArray("markers");
+
+        for (int i = 0; i < markers.size(); i++) {
+            ObjectNode markerNode = markerNodes.addObject();
+            markerNode.put("x", markers.getX(i));
+            markerNode.put("y", markers.getY(i));
+            markerNode.put("z", markers.getZ(i));
+
+            // Markers that did not replace a block have no material, their block is never restored
+            if (markers.getOriginalMaterial(i) != null) {
+                markerNode.put("material", markers.getOriginalMaterial(i).name());
+            }
+        }
+
+        enqueue(playerId, session);
+    }
+
+    /**
+     * Records that a session has been finished or discarded, its file is deleted with the next batch.
+     *
+     * @param playerId The UUID of the owning player
+     */
+    public void remove(@NotNull UUID playerId) {
+        enqueue(playerId, null);
+    }
+
+    /**
+     * Reads the session of a player in the background and passes it to a consumer on the main thread.<br />
+     * - A change that has not been written yet is used instead of the file.<br />
+     * - The consumer is not called if the player has no session.<br />
+     *
+     * @param playerId The UUID of the owning player
+     * @param consumer The consumer of the restored session
+     */
+    public void restore(@NotNull UUID playerId, @NotNull Consumer<RestoredSession> consumer) {
+        synchronized (pendingWrites) {
+            if (pendingWrites.containsKey(playerId)) {
+                ObjectNode session = pendingWrites.get(playerId);
+
+                if (session != null) {
+                    consumer.accept(toRestoredSession(session));
+                }
+
+                return;
+            }
+        }
+
+        pl.getOperationCounters().increment(OperationCounters.Counter.SCHEDULED_TASKS);
+        pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+            Path sessionFile = getSessionFile(playerId);
+            JsonNode session;
+
+            // Wait for a batch that is being written right now
+            synchronized (writeLock) {
+                if (!Files.isRegularFile(sessionFile)) {
+                    return;
+                }
+
+                try {
+                    session = YAML_MAPPER.readTree(sessionFile.toFile());
+                } catch (IOException e) {
+                    pl.getLogger().log(Level.WARNING, "Failed to read the marker session " + sessionFile.getFileName(), e);
+                    return;
+                }
+            }
+
+            RestoredSession restoredSession = toRestoredSession(session);
+
+            pl.getServer().getScheduler().runTask(pl, () -> consumer.accept(restoredSession));
+        });
+    }
+
+    /**
+     * Writes all pending changes on the calling thread (e.g. when the plugin is disabled).
+     */
+    public void flushNow() {
+        flush();
+    }
+
+    private void enqueue(@NotNull UUID playerId, ObjectNode session) {
+        synchronized (pendingWrites) {
+            pendingWrites.put(playerId, session);
+
+            if (flushScheduled) {
+                return;
+            }
+
+            flushScheduled = true;
+        }
+
+        pl.getOperationCounters().increment(OperationCounters.Counter.SCHEDULED_TASKS);
+        pl.getServer().getScheduler().runTaskLaterAsynchronously(pl, this::flush, FLUSH_DELAY_TICKS);
+    }
+
+    /**
+     * Writes the pending changes as one batch.
+     */
+    private void flush() {
+        // Batches are written one after another, so an older snapshot never overwrites a newer one
+        synchronized (writeLock) {
+            Map<UUID, ObjectNode> batch;
+
+            synchronized (pendingWrites) {
+                batch = new HashMap<>(pendingWrites);
+                pendingWrites.clear();
+                flushScheduled = false;
+            }
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                Files.createDirectories(sessionFolder);
+            } catch (IOException e) {
+                pl.getLogger().log(Level.WARNING, "Failed to create the session folder", e);
+                return;
+            }
+
+            for (Map.Entry<UUID, ObjectNode> entry : batch.entrySet()) {
+                Path sessionFile = getSessionFile(entry.getKey());
+
+                try {
+                    if (entry.getValue() == null) {
+                        Files.deleteIfExists(sessionFile);
+                        continue;
+                    }
+
+                    Path tempFile = sessionFolder.resolve(entry.getKey() + ".yml.tmp");
+                    YAML_MAPPER.writeValue(tempFile.toFile(), entry.getValue());
+                    Files.move(tempFile, sessionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    pl.getLogger().log(Level.WARNING, "Failed to write the marker session " + sessionFile.getFileName(), e);
+                }
+            }
+        }
+    }
+
+    private @NotNull Path getSessionFile(@NotNull UUID playerId) {
+        return sessionFolder.resolve(playerId + ".yml");
+    }
+
+    private @NotNull RestoredSession toRestoredSession(@NotNull JsonNode session) {
+        MarkerRing markers = new MarkerRing();
+
+        for (JsonNode markerNode : session.path("markers")) {
+            Material originalMaterial = null;
+
+            if (markerNode.has("material")) {
+                originalMaterial = Material.matchMaterial(markerNode.path("material").asText());
+            }
+
+            if (markerNode.has("material") && originalMaterial == null) {
+                pl.getLogger().warning("Unknown material \"" + markerNode.path("material").asText() + "\" in a marker session, using AIR");
+                originalMaterial = Material.AIR;
+            }
+
+            markers.add(new Marker(markerNode.path("x").asDouble(), markerNode.path("y").asDouble(), markerNode.path("z").asDouble(), originalMaterial));
+        }
+
+        return new RestoredSession(session.path("world").asText(), markers);
+    }
+
+    /**
+     * A marker session read from the journal.
+     */
+    public static final class RestoredSession {
+        private final String worldName;
+        private final MarkerRing markers;
+
+        private RestoredSession(@NotNull String worldName, @NotNull MarkerRing markers) {
+            this.worldName = worldName;
+            this.markers = markers;
+        }
+
+        /**
+         * @return The name of the world the markers are set in
+         */
+        public @NotNull String getWorldName() {
+            return worldName;
+        }
+
+        /**
+         * @return The markers of the session
+         */
+        public @NotNull MarkerRing getMarkers() {
+            return markers;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.session;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * This class represents a simplified polygon that has been previewed to a player and is waiting for the second confirmation.
+ */
+public final class PendingSimplification {
+
+    private final String wgRegionName;
+    private final double tolerance;
+    private final List<BlockVector2> wgPoints;
+
+    /**
+     * @param wgRegionName The name of the WorldGuard region to be created
+     * @param tolerance    The simplification tolerance (in blocks)
+     * @param wgPoints     The points of the simplified polygon
+     */
+    public PendingSimplification(@NotNull String wgRegionName, double tolerance, @NotNull List<BlockVector2> wgPoints) {
+        this.wgRegionName = wgRegionName;
+        this.tolerance = tolerance;
+        this.wgPoints = List.copyOf(wgPoints);
+    }
+
+    /**
+     * Returns whether this simplification has been previewed for the given confirmation.
+     *
+     * @param wgRegionName The name of the WorldGuard region to be created
+     * @param tolerance    The simplification tolerance (in blocks)
+     * @return Whether name and tolerance match
+     */
+    public boolean matches(@NotNull String wgRegionName, double tolerance) {
+        return this.wgRegionName.equals(wgRegionName) && this.tolerance == tolerance;
+    }
+
+    public @NotNull List<BlockVector2> getWgPoints() {
+        return wgPoints;
+    }
+}
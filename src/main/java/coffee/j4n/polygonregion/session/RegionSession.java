@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.session;
+
+import coffee.j4n.polygonregion.render.RegionPreview;
+import coffee.j4n.polygonregion.util.MarkerRing;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * This class represents the marker session of a player, i.e. a polygon that is being edited.<br />
+ * <p>
+ * - It holds the markers, the rendered preview and a simplification waiting for confirmation (if any).<br />
+ * - The session is bound to the world the markers are set in.<br />
+ * - The time of the last activity is used to evict idle sessions (see {@link SessionManager}).<br />
+ */
+public class RegionSession {
+
+    private final UUID playerId;
+    private final String worldName;
+    private final MarkerRing markers;
+
+    private RegionPreview preview;
+    private PendingSimplification pendingSimplification;
+    private long lastActivity;
+
+    /**
+     * @param playerId  The UUID of the owning player
+     * @param worldName The name of the world the markers are set in
+     * @param markers   The markers of the session
+     */
+    public RegionSession(@NotNull UUID playerId, @NotNull String worldName, @NotNull MarkerRing markers) {
+        this.playerId = playerId;
+        this.worldName = worldName;
+        this.markers = markers;
+        this.lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * Records an activity of the player, which postpones the eviction of the session.
+     */
+    public void touch() {
+        lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * Removes the preview of the session (if any).
+     */
+    public void clearPreview() {
+        if (preview != null) {
+            preview.clear();
+            preview = null;
+        }
+    }
+
+    public @NotNull UUID getPlayerId() {
+        return playerId;
+    }
+
+    public @NotNull String getWorldName() {
+        return worldName;
+    }
+
+    public @NotNull MarkerRing getMarkers() {
+        return markers;
+    }
+
+    public @Nullable RegionPreview getPreview() {
+        return preview;
+    }
+
+    /**
+     * Sets the preview of the session, the previous preview is cleared.
+     *
+     * @param preview The new preview
+     */
+    public void setPreview(@Nullable RegionPreview preview) {
+        if (this.preview != null && this.preview != preview) {
+            this.preview.clear();
+        }
+
+        this.preview = preview;
+    }
+
+    public @Nullable PendingSimplification getPendingSimplification() {
+        return pendingSimplification;
+    }
+
+    public void setPendingSimplification(@Nullable PendingSimplification pendingSimplification) {
+        this.pendingSimplification = pendingSimplification;
+    }
+
+    public long getLastActivity() {
+        return lastActivity;
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.session;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.util.MarkerRing;
+import coffee.j4n.polygonregion.util.statics.Prefixes;
+import org.bukkit.Material;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * This class manages the marker sessions of all players, keyed by the UUID of the owning player.<br />
+ * <p>
+ * - Sessions are removed when the player leaves (the markers stay journaled, see {@link MarkerSessionJournal}).<br />
+ * - Sessions without activity for longer than the idle timeout are evicted: the blocks replaced by markers are restored, the preview is removed and the journal is deleted.<br />
+ * - The number of concurrent sessions and the number of markers per session are capped (see {@code sessions} in the config).<br />
+ * - The manager counts active sessions, evictions, rejected sessions and the markers held by all sessions.<br />
+ * - All methods have to be called on the main thread.<br />
+ */
+public class SessionManager {
+
+    /**
+     * The number of ticks between two checks for idle sessions.
+     */
+    private static final long EVICTION_INTERVAL_TICKS = 20L * 60;
+
+    private final PolygonRegion pl;
+    private final Map<UUID, RegionSession> sessions = new HashMap<>();
+
+    private final long idleTimeoutMillis;
+    private final int maxSessions;
+    private final int maxVertices;
+
+    private long evictionCount = 0;
+    private long rejectedSessionCount = 0;
+
+    public SessionManager(PolygonRegion pl) {
+        this.pl = pl;
+        this.idleTimeoutMillis = Math.max(0, pl.getConfig().getLong("sessions.idle-timeout-minutes", 30)) * 60_000L;
+        this.maxSessions = Math.max(0, pl.getConfig().getInt("sessions.max-sessions", 200));
+        this.maxVertices = Math.max(0, pl.getConfig().getInt("sessions.max-vertices", 1000));
+    }
+
+    /**
+     * Starts the periodic eviction of idle sessions (if an idle timeout is configured).
+     */
+    public void start() {
+        if (idleTimeoutMillis > 0) {
+            pl.getServer().getScheduler().runTaskTimer(pl, () -> pl.getOperationCounters().measure("evict-sessions", this::evictIdleSessions), EVICTION_INTERVAL_TICKS, EVICTION_INTERVAL_TICKS);
+        }
+    }
+
+    /**
+     * Returns the session of a player.
+     *
+     * @param playerId The UUID of the player
+     * @return The session, or null if the player has no session
+     */
+    public @Nullable RegionSession get(@NotNull UUID playerId) {
+        return sessions.get(playerId);
+    }
+
+    /**
+     * Returns whether a player has a session.
+     *
+     * @param playerId The UUID of the player
+     * @return Whether the player has a session
+     */
+    public boolean has(@NotNull UUID playerId) {
+        return sessions.containsKey(playerId);
+    }
+
+    /**
+     * Creates a session for a player in the current world of the player, replacing an existing session.<br />
+     * - If the maximum number of sessions is reached, no session is created and the player is notified.<br />
+     *
+     * @param player  The player
+     * @param markers The markers of the session
+     * @return The new session, or null if the maximum number of sessions is reached
+     */
+    public @Nullable RegionSession create(@NotNull Player player, @NotNull MarkerRing markers) {
+        RegionSession previousSession = sessions.get(player.getUniqueId());
+
+        if (previousSession == null && maxSessions > 0 && sessions.size() >= maxSessions) {
+            rejectedSessionCount++;
+
+            player.playSound(player.getLocation(), Sound.ENTITY_ITEM_BREAK, 1, 1);
+            player.sendMessage(Prefixes.ERROR + "Es bearbeiten gerade §nzu viele§7 Spieler eine Region (§3" + maxSessions + "§7).");
+            player.sendMessage(Prefixes.ADDITION + "Versuche es gerne später noch einmal.");
+            return null;
+        }
+
+        if (previousSession != null) {
+            previousSession.clearPreview();
+        }
+
+        RegionSession session = new RegionSession(player.getUniqueId(), player.getWorld().getName(), markers);
+        sessions.put(player.getUniqueId(), session);
+
+        return session;
+    }
+
+    /**
+     * Removes the session of a player and its preview, the marker blocks are left untouched.
+     *
+     * @param playerId The UUID of the player
+     * @return The removed session, or null if the player had no session
+     */
+    public @Nullable RegionSession remove(@NotNull UUID playerId) {
+        RegionSession session = sessions.remove(playerId);
+
+        if (session != null) {
+            session.clearPreview();
+        }
+
+        return session;
+    }
+
+    /**
+     * Removes all sessions and their previews (e.g. when the plugin is disabled), the markers stay journaled.
+     */
+    public void removeAll() {
+        sessions.values().forEach(RegionSession::clearPreview);
+        sessions.clear();
+    }
+
+    /**
+     * Returns whether a session can hold the given number of markers.
+     *
+     * @param markerCount The number of markers
+     * @return Whether the number of markers is within the configured maximum
+     */
+    public boolean isWithinVertexLimit(int markerCount) {
+        return maxVertices == 0 || markerCount <= maxVertices;
+    }
+
+    /**
+     * Evicts all sessions without activity for longer than the idle timeout.
+     */
+    public void evictIdleSessions() {
+        long now = System.currentTimeMillis();
+        List<RegionSession> idleSessions = new ArrayList<>();
+
+        for (RegionSession session : sessions.values()) {
+            if (now - session.getLastActivity() > idleTimeoutMillis) {
+                idleSessions.add(session);
+            }
+        }
+
+        for (RegionSession session : idleSessions) {
+            remove(session.getPlayerId());
+            restoreMarkerBlocks(session);
+            pl.getSessionJournal().remove(session.getPlayerId());
+
+            evictionCount++;
+
+            Player player = pl.getServer().getPlayer(session.getPlayerId());
+
+            if (player != null) {
+                player.sendMessage(Prefixes.INFO + "Deine gesetzten Punkte wurden wegen §nInaktivität§7 entfernt.");
+            }
+        }
+
+        if (!idleSessions.isEmpty()) {
+            pl.getLogger().info("Evicted " + idleSessions.size() + " idle marker sessions (active: " + getActiveSessionCount() + ", markers: " + getTotalVertexCount() + ")");
+        }
+    }
+
+    /**
+     * Restores the original blocks of all markers of a session.<br />
+     * - Only blocks replaced by a marker are restored (not the points of a region shown with /pregion show).<br />
+     * - A block is only restored if it is still a sea lantern, so blocks changed in the meantime are kept.<br />
+     *
+     * @param session The session
+     */
+    public void restoreMarkerBlocks(@NotNull RegionSession session) {
+        World world = pl.getServer().getWorld(session.getWorldName());
+
+        if (world == null) {
+            return;
+        }
+
+        MarkerRing markers = session.getMarkers();
+        int restoredBlocks = 0;
+
+        for (int i = 0; i < markers.size(); i++) {
+            Material originalMaterial = markers.getOriginalMaterial(i);
+
+            if (originalMaterial == null) {
+                continue;
+            }
+
+            // Markers are placed in the center of the replaced block (see PlayerInteract)
+            Block block = world.getBlockAt((int) Math.floor(markers.getX(i)), (int) Math.floor(markers.getY(i)), (int) Math.floor(markers.getZ(i)));
+
+            if (block.getType() == Material.SEA_LANTERN) {
+                block.setType(originalMaterial);
+                restoredBlocks++;
+            }
+        }
+
+        pl.getOperationCounters().add(OperationCounters.Counter.BLOCK_WRITES, restoredBlocks);
+    }
+
+    //<editor-fold desc="Counters">
+
+    /**
+     * @return The number of sessions currently held in memory
+     */
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return The number of sessions evicted for inactivity since the plugin has been enabled
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return The number of sessions that could not be created, because the maximum number of sessions was reached
+     */
+    public long getRejectedSessionCount() {
+        return rejectedSessionCount;
+    }
+
+    /**
+     * @return The number of visuals of the previews of all sessions
+     */
+    public int getPreviewEntityCount() {
+        int previewEntities = 0;
+
+        for (RegionSession session : sessions.values()) {
+            if (session.getPreview() != null) {
+                previewEntities += session.getPreview().getEntityCount();
+            }
+        }
+
+        return previewEntities;
+    }
+
+    /**
+     * @return The number of markers held by all sessions
+     */
+    public long getTotalVertexCount() {
+        long totalVertices = 0;
+
+        for (RegionSession session : sessions.values()) {
+            totalVertices += session.getMarkers().size();
+        }
+
+        return totalVertices;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public int getMaxVertices() {
+        return maxVertices;
+    }
+    //</editor-fold>
+}
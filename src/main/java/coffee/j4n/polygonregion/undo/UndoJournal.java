@@ -0,0 +1,342 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.undo;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This class records the previous state of every block changed by one operation (e.g. one fence), so it can be undone.<br />
+ * <p>
+ * - Positions are stored as packed block keys (see {@link coffee.j4n.polygonregion.util.BlockKeys}),
+ * the previous block data as an index into a palette of the distinct block data of the operation.<br />
+ * - Entries are collected in segments of {@code undo.memory-entries} entries. Full segments are written to
+ * {@code undo/<journal>-<segment>.bin} off the main thread and dropped from memory, only the palette and the last segment stay in memory.<br />
+ * - Recording is only done on the main thread.<br />
+ */
+public final class UndoJournal {
+
+    private final PolygonRegion pl;
+    private final int id;
+    private final UUID playerId;
+    private final String worldName;
+    private final String wgRegionName;
+    private final Kind kind;
+    private final Material placedMaterial;
+    private final int segmentSize;
+    private final Path spillFolder;
+
+    //<editor-fold desc="Palette">
+    private final List<BlockData> palette = new ArrayList<>();
+    private final Map<BlockData, Integer> paletteIndices = new HashMap<>();
+    //</editor-fold>
+
+    //<editor-fold desc="Entries">
+    private long[] blockKeys;
+    private int[] paletteRefs;
+    private int count = 0;
+
+    private final List<CompletableFuture<Path>> spilledSegments = new ArrayList<>();
+    private long totalCount = 0;
+    //</editor-fold>
+
+    private int pendingChanges = 0;
+    private boolean discarded = false;
+
+    UndoJournal(@NotNull PolygonRegion pl, int id, @NotNull UUID playerId, @NotNull String worldName, @NotNull String wgRegionName, @NotNull Kind kind, @NotNull Material placedMaterial, int segmentSize, @NotNull Path spillFolder) {
+        this.pl = pl;
+        this.id = id;
+        this.playerId = playerId;
+        this.worldName = worldName;
+        this.wgRegionName = wgRegionName;
+        this.kind = kind;
+        this.placedMaterial = placedMaterial;
+        this.segmentSize = segmentSize;
+        this.spillFolder = spillFolder;
+
+        this.blockKeys = new long[Math.min(segmentSize, 256)];
+        this.paletteRefs = new int[blockKeys.length];
+    }
+
+    /**
+     * Records the state of a block before it is changed.
+     *
+     * @param blockKey      The packed position of the block
+     * @param previousState The block data of the block before it is changed
+     */
+    public void record(long blockKey, @NotNull BlockData previousState) {
+        if (discarded) {
+            return;
+        }
+
+        Integer paletteIndex = paletteIndices.get(previousState);
+
+        if (paletteIndex == null) {
+            paletteIndex = palette.size();
+            palette.add(previousState);
+            paletteIndices.put(previousState, paletteIndex);
+        }
+
+        if (count == blockKeys.length) {
+            if (count == segmentSize) {
+                spillSegment();
+            } else {
+                int capacity = Math.min(segmentSize, blockKeys.length * 2);
+                blockKeys = Arrays.copyOf(blockKeys, capacity);
+                paletteRefs = Arrays.copyOf(paletteRefs, capacity);
+            }
+        }
+
+        blockKeys[count] = blockKey;
+        paletteRefs[count] = paletteIndex;
+        count++;
+        totalCount++;
+    }
+
+    /**
+     * Registers changes that are still in progress (e.g. fence blocks that are still falling or a running fill).
+     *
+     * @param changes The number of changes
+     */
+    public void addPendingChanges(int changes) {
+        pendingChanges += changes;
+    }
+
+    /**
+     * Marks a change registered with {@link #addPendingChanges(int)} as done.
+     */
+    public void onPendingChangeDone() {
+        pendingChanges--;
+    }
+
+    /**
+     * Returns whether all changes of the operation are done.
+     *
+     * @return Whether the operation is complete
+     */
+    public boolean isComplete() {
+        return pendingChanges <= 0;
+    }
+
+    /**
+     * Writes the current segment to disk off the main thread and starts a new one.
+     */
+    private void spillSegment() {
+        long[] segmentKeys = blockKeys;
+        int[] segmentRefs = paletteRefs;
+        int segmentCount = count;
+        Path file = spillFolder.resolve(id + "-" + spilledSegments.size() + ".bin");
+
+        CompletableFuture<Path> spilled = new CompletableFuture<>();
+        spilledSegments.add(spilled);
+
+        pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+            try {
+                Files.createDirectories(spillFolder);
+
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                    out.writeInt(segmentCount);
+
+                    for (int i = 0; i < segmentCount; i++) {
+                        out.writeLong(segmentKeys[i]);
+                        out.writeInt(segmentRefs[i]);
+                    }
+                }
+
+                spilled.complete(file);
+            } catch (IOException e) {
+                spilled.completeExceptionally(e);
+            }
+        });
+
+        blockKeys = new long[segmentSize];
+        paletteRefs = new int[segmentSize];
+        count = 0;
+    }
+
+    /**
+     * Captures the entries of the journal on the main thread, so the spilled segments can be read back off the main thread.
+     *
+     * @return The captured entries
+     */
+    @NotNull CapturedEntries capture() {
+        return new CapturedEntries(new Segment(Arrays.copyOf(blockKeys, count), Arrays.copyOf(paletteRefs, count)), new ArrayList<>(spilledSegments));
+    }
+
+    /**
+     * Stops recording without deleting the spilled segments (e.g. when the plugin is disabled).
+     */
+    void close() {
+        discarded = true;
+    }
+
+    /**
+     * Stops recording and deletes the spilled segments off the main thread.
+     */
+    void discard() {
+        discarded = true;
+
+        List<CompletableFuture<Path>> segments = new ArrayList<>(spilledSegments);
+
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+            for (CompletableFuture<Path> segment : segments) {
+                try {
+                    Files.deleteIfExists(segment.join());
+                } catch (IOException | RuntimeException e) {
+                    // The folder is cleared on the next start anyway
+                }
+            }
+        });
+    }
+
+    //<editor-fold desc="Getter">
+    public int getId() {
+        return id;
+    }
+
+    public @NotNull UUID getPlayerId() {
+        return playerId;
+    }
+
+    public @NotNull String getWorldName() {
+        return worldName;
+    }
+
+    public @NotNull String getWgRegionName() {
+        return wgRegionName;
+    }
+
+    public @NotNull Kind getKind() {
+        return kind;
+    }
+
+    public @NotNull Material getPlacedMaterial() {
+        return placedMaterial;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    @NotNull List<BlockData> getPalette() {
+        return palette;
+    }
+    //</editor-fold>
+
+    /**
+     * The operation a journal has been recorded for
+     */
+    public enum Kind {
+        FENCE,
+        FILL
+    }
+
+    /**
+     * This class represents the entries of a journal captured on the main thread.<br />
+     * - The entries are split into the spilled segments and the segment that has been kept in memory (the last one).<br />
+     * - Spilled segments are read back one at a time with {@link #readSpilled(int)} off the main thread, so a restore only holds one segment in memory.<br />
+     */
+    static final class CapturedEntries {
+        private final Segment inMemorySegment;
+        private final List<CompletableFuture<Path>> spilledSegments;
+
+        private CapturedEntries(Segment inMemorySegment, List<CompletableFuture<Path>> spilledSegments) {
+            this.inMemorySegment = inMemorySegment;
+            this.spilledSegments = spilledSegments;
+        }
+
+        /**
+         * Returns the number of spilled segments.
+         *
+         * @return The number of spilled segments
+         */
+        int getSpilledCount() {
+            return spilledSegments.size();
+        }
+
+        /**
+         * Returns the entries that have been recorded after the last spilled segment.
+         *
+         * @return The segment kept in memory
+         */
+        @NotNull Segment getInMemorySegment() {
+            return inMemorySegment;
+        }
+
+        /**
+         * Reads the entries of a spilled segment in the order they have been recorded.<br />
+         * - Waits until the segment has been written, so it must not be called on the main thread.
+         *
+         * @param index The index of the segment, in the order the segments have been spilled
+         * @return The segment
+         * @throws IOException If the segment could not be written or read
+         */
+        @NotNull Segment readSpilled(int index) throws IOException {
+            Path file;
+
+            try {
+                file = spilledSegments.get(index).join();
+            } catch (RuntimeException e) {
+                throw new IOException("Failed to write an undo segment", e.getCause());
+            }
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                int segmentCount = in.readInt();
+                long[] blockKeys = new long[segmentCount];
+                int[] paletteRefs = new int[segmentCount];
+
+                for (int i = 0; i < segmentCount; i++) {
+                    blockKeys[i] = in.readLong();
+                    paletteRefs[i] = in.readInt();
+                }
+
+                return new Segment(blockKeys, paletteRefs);
+            }
+        }
+    }
+
+    /**
+     * This class represents the entries of one segment, in the order they have been recorded.
+     */
+    static final class Segment {
+        private final long[] blockKeys;
+        private final int[] paletteRefs;
+
+        private Segment(long[] blockKeys, int[] paletteRefs) {
+            this.blockKeys = blockKeys;
+            this.paletteRefs = paletteRefs;
+        }
+
+        long[] getBlockKeys() {
+            return blockKeys;
+        }
+
+        int[] getPaletteRefs() {
+            return paletteRefs;
+        }
+    }
+}
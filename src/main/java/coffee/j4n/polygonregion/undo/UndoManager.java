@@ -0,0 +1,520 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.undo;
+
+import coffee.j4n.polygonregion.PolygonRegion;
+import coffee.j4n.polygonregion.chunk.AsyncChunkLoader;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.util.BlockKeys;
+import coffee.j4n.polygonregion.util.LongIntHashMap;
+import coffee.j4n.polygonregion.util.statics.Prefixes;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * This class keeps the undo journals of the fences and fills of every player and restores them.<br />
+ * <p>
+ * - Every player keeps the journals of the last {@code undo.history} operations, older journals are discarded.<br />
+ * - {@code /pregion undo} restores the last operation of a player, {@code /pregion unfence <name>} the last fence of a region
+ * (placed by the player, or by anyone for players with the {@link coffee.j4n.polygonregion.util.statics.Permissions#UNFENCE} permission).<br />
+ * - The entries are restored in reverse order by a single repeating task, at most {@code undo.blocks-per-tick} blocks per tick
+ * (shared by all running restores). The chunks of the blocks are loaded asynchronously ahead of the task (see {@link AsyncChunkLoader}).<br />
+ * - Spilled segments are read back off the main thread one at a time, once the segment after them has been restored.<br />
+ * - Blocks that have been changed again since the operation (no longer the placed material) are left untouched.<br />
+ * - The journals are kept in memory (and the spill folder), so they do not survive a restart.<br />
+ */
+public class UndoManager {
+
+    private static final int LOAD_WINDOW = 16;
+
+    private final PolygonRegion pl;
+    private final int history;
+    private final int segmentSize;
+    private final int blocksPerTick;
+    private final Path spillFolder;
+
+    private final Map<UUID, Deque<UndoJournal>> journalsByPlayer = new HashMap<>();
+    private int nextJournalId = 0;
+
+    private final List<RestoreJob> restoreJobs = new ArrayList<>();
+    private BukkitTask restoreTask;
+
+    public UndoManager(PolygonRegion pl) {
+        this.pl = pl;
+        this.history = Math.max(1, pl.getConfig().getInt("undo.history", 5));
+        this.segmentSize = Math.max(256, pl.getConfig().getInt("undo.memory-entries", 16384));
+        this.blocksPerTick = Math.max(1, pl.getConfig().getInt("undo.blocks-per-tick", 2048));
+        this.spillFolder = pl.getDataFolder().toPath().resolve("undo");
+
+        // Segments of the last run cannot be restored anymore
+        clearSpillFolder();
+    }
+
+    /**
+     * Starts the journal of an operation of a player.
+     *
+     * @param player         The player
+     * @param world          The world of the operation
+     * @param wgRegionName   The name of the region of the operation
+     * @param kind           The kind of the operation
+     * @param placedMaterial The material placed by the operation
+     * @return The journal
+     */
+    public @NotNull UndoJournal begin(@NotNull Player player, @NotNull World world, @NotNull String wgRegionName, @NotNull UndoJournal.Kind kind, @NotNull Material placedMaterial) {
+        UndoJournal journal = new UndoJournal(pl, nextJournalId++, player.getUniqueId(), world.getName(), wgRegionName, kind, placedMaterial, segmentSize, spillFolder);
+
+        Deque<UndoJournal> journals = journalsByPlayer.computeIfAbsent(player.getUniqueId(), key -> new ArrayDeque<>());
+        journals.addLast(journal);
+
+        while (journals.size() > history) {
+            journals.removeFirst().discard();
+        }
+
+        return journal;
+    }
+
+    /**
+     * Restores the last operation of a player.
+     *
+     * @param player The player
+     */
+    public void undoLast(@NotNull Player player) {
+        Deque<UndoJournal> journals = journalsByPlayer.get(player.getUniqueId());
+
+        if (journals == null || journals.isEmpty()) {
+            player.sendMessage(Prefixes.ERROR + "Es gibt §nnichts§7, das rückgängig gemacht werden könnte.");
+            return;
+        }
+
+        restore(player, journals.peekLast());
+    }
+
+    /**
+     * Removes the last fence of a region in the world of a player.
+     *
+     * @param player       The player
+     * @param wgRegionName The name of the WorldGuard region
+     * @param anyPlayer    Whether the fences of all players are considered, otherwise only the fences of the player
+     */
+    public void unfence(@NotNull Player player, @NotNull String wgRegionName, boolean anyPlayer) {
+        UndoJournal lastFence = null;
+
+        for (Map.Entry<UUID, Deque<UndoJournal>> entry : journalsByPlayer.entrySet()) {
+            if (!anyPlayer && !entry.getKey().equals(player.getUniqueId())) {
+                continue;
+            }
+
+            for (UndoJournal journal : entry.getValue()) {
+                if (journal.getKind() == UndoJournal.Kind.FENCE
+                        && journal.getWorldName().equals(player.getWorld().getName())
+                        && journal.getWgRegionName().equalsIgnoreCase(wgRegionName)
+                        && (lastFence == null || journal.getId() > lastFence.getId())) {
+                    lastFence = journal;
+                }
+            }
+        }
+
+        if (lastFence == null) {
+            player.sendMessage(Prefixes.ERROR + "Für die Region \"§2" + wgRegionName + "§7\" wurde seit dem letzten Neustart §nkein Zaun§7" + (anyPlayer ? "" : " von dir") + " gesetzt.");
+            return;
+        }
+
+        restore(player, lastFence);
+    }
+
+    /**
+     * Stops recording all journals and deletes their segments (e.g. when the plugin is disabled).
+     */
+    public void shutdown() {
+        for (Deque<UndoJournal> journals : journalsByPlayer.values()) {
+            journals.forEach(UndoJournal::close);
+        }
+
+        for (RestoreJob job : restoreJobs) {
+            job.cancelled = true;
+            job.releaseChunks();
+            job.journal.close();
+        }
+
+        journalsByPlayer.clear();
+        restoreJobs.clear();
+
+        clearSpillFolder();
+    }
+
+    /**
+     * Removes a journal from the history and restores its blocks.
+     *
+     * @param player  The player
+     * @param journal The journal
+     */
+    private void restore(@NotNull Player player, @NotNull UndoJournal journal) {
+        if (!journal.isComplete()) {
+            player.sendMessage(Prefixes.ERROR + "Die Änderungen an der Region \"§2" + journal.getWgRegionName() + "§7\" sind noch §nnicht abgeschlossen§7.");
+            player.sendMessage(Prefixes.ADDITION + "Warte, bis alle Blöcke platziert wurden, und versuche es dann erneut.");
+            return;
+        }
+
+        World world = Bukkit.getWorld(journal.getWorldName());
+
+        if (world == null) {
+            player.sendMessage(Prefixes.ERROR + "Die Welt \"§2" + journal.getWorldName() + "§7\" ist nicht geladen.");
+            return;
+        }
+
+        journalsByPlayer.get(journal.getPlayerId()).remove(journal);
+
+        player.sendMessage(Prefixes.INFO + "Stelle §3" + journal.getTotalCount() + " §7Blöcke der Region \"§2" + journal.getWgRegionName() + "§7\" wieder her...");
+
+        restoreJobs.add(new RestoreJob(player.getUniqueId(), world, player.getLocation(), journal, journal.capture()));
+
+        if (restoreTask == null) {
+            pl.getOperationCounters().increment(OperationCounters.Counter.SCHEDULED_TASKS);
+            restoreTask = pl.getServer().getScheduler().runTaskTimer(pl, () -> pl.getOperationCounters().measure("undo-tick", this::tick), 1L, 1L);
+        }
+    }
+
+    /**
+     * Restores the next blocks of all running restores within the block budget.
+     */
+    private void tick() {
+        if (restoreJobs.isEmpty()) {
+            restoreTask.cancel();
+            restoreTask = null;
+            return;
+        }
+
+        int budgetPerJob = Math.max(1, blocksPerTick / restoreJobs.size());
+        int restoredBlocks = 0;
+
+        Iterator<RestoreJob> iterator = restoreJobs.iterator();
+
+        while (iterator.hasNext()) {
+            RestoreJob job = iterator.next();
+            restoredBlocks += job.restoreNext(budgetPerJob);
+
+            if (job.isDone()) {
+                iterator.remove();
+                job.journal.discard();
+                notify(job.playerId, Prefixes.PLUGIN + "Die Änderungen an der Region \"§2" + job.journal.getWgRegionName() + "§7\" wurden §aerfolgreich §7rückgängig gemacht (§3" + job.restoredBlocks + " §7Blöcke).");
+            }
+        }
+
+        pl.getOperationCounters().add(OperationCounters.Counter.BLOCK_WRITES, restoredBlocks);
+    }
+
+    private void notify(@NotNull UUID playerId, @NotNull String message) {
+        Player player = Bukkit.getPlayer(playerId);
+
+        if (player != null) {
+            player.sendMessage(message);
+        }
+    }
+
+    private void clearSpillFolder() {
+        if (!Files.isDirectory(spillFolder)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spillFolder, "*.bin")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            pl.getLogger().log(Level.WARNING, "Failed to clear the undo folder", e);
+        }
+    }
+
+    /**
+     * This class represents a running restore of a journal.<br />
+     * - The segments are restored from the last to the first, a spilled segment is only read once the segment after it has been restored.<br />
+     * - The entries of a segment are grouped by chunk. The chunks are loaded asynchronously in windows of {@value UndoManager#LOAD_WINDOW} chunks
+     * and are kept loaded until their blocks have been restored. Chunks that could not be loaded are skipped.<br />
+     */
+    private final class RestoreJob {
+        private final UUID playerId;
+        private final World world;
+        private final Location origin;
+        private final UndoJournal journal;
+        private final UndoJournal.CapturedEntries entries;
+        private final BlockData[] palette;
+
+        // The current segment, its entries grouped by chunk. Within a chunk, the entries are restored from the last to the first,
+        // so a block changed twice ends up in its original state
+        private long[] blockKeys;
+        private int[] paletteRefs;
+        private long[] chunkKeys;
+        private int[] chunkEntryStarts;
+        private int[] entryOrder;
+        private final LongIntHashMap chunkIndexByKey = new LongIntHashMap(-1);
+        private int nextSpilledSegment;
+        private boolean reading = false;
+
+        // The chunks are loaded in windows, loaded chunks wait in the queue until their blocks are restored
+        private AsyncChunkLoader.Request loadRequest;
+        private int nextChunkToLoad;
+        private final ArrayDeque<Chunk> readyChunks = new ArrayDeque<>();
+        private Chunk currentChunk;
+        private int finishedChunks;
+        private int skippedChunks;
+
+        // The entries of the current chunk
+        private int nextEntry;
+        private int endEntry;
+        private boolean cancelled = false;
+        private long restoredBlocks = 0;
+
+        private RestoreJob(UUID playerId, World world, Location origin, UndoJournal journal, UndoJournal.CapturedEntries entries) {
+            this.playerId = playerId;
+            this.world = world;
+            this.origin = origin;
+            this.journal = journal;
+            this.entries = entries;
+            this.palette = journal.getPalette().toArray(new BlockData[0]);
+            this.nextSpilledSegment = entries.getSpilledCount() - 1;
+
+            setSegment(entries.getInMemorySegment());
+        }
+
+        /**
+         * Restores the next blocks of the loaded chunks of the journal.
+         *
+         * @param budget The number of blocks that may be restored
+         * @return The number of restored blocks
+         */
+        private int restoreNext(int budget) {
+            loadNextChunks();
+
+            Material placedMaterial = journal.getPlacedMaterial();
+            int restored = 0;
+
+            while (restored < budget) {
+                if (currentChunk == null) {
+                    Chunk chunk = readyChunks.poll();
+
+                    // The next chunks are still loading
+                    if (chunk == null) {
+                        break;
+                    }
+
+                    int chunkIndex = chunkIndexByKey.get(BlockKeys.packColumn(chunk.getX(), chunk.getZ()));
+
+                    currentChunk = chunk;
+                    nextEntry = chunkEntryStarts[chunkIndex];
+                    endEntry = chunkEntryStarts[chunkIndex + 1];
+                }
+
+                int entry = entryOrder[nextEntry++];
+                long blockKey = blockKeys[entry];
+                Block block = world.getBlockAt(BlockKeys.getX(blockKey), BlockKeys.getY(blockKey), BlockKeys.getZ(blockKey));
+
+                // Leave blocks alone that have been changed since
+                if (block.getType() == placedMaterial) {
+                    block.setBlockData(palette[paletteRefs[entry]], false);
+                    restored++;
+                }
+
+                // Release the chunk as soon as its blocks have been restored
+                if (nextEntry == endEntry) {
+                    currentChunk.removePluginChunkTicket(pl);
+                    currentChunk = null;
+                    finishedChunks++;
+                }
+            }
+
+            restoredBlocks += restored;
+
+            if (isSegmentDone()) {
+                readNextSegment();
+            }
+
+            return restored;
+        }
+
+        /**
+         * Returns whether all segments have been restored.
+         *
+         * @return Whether the restore is done
+         */
+        private boolean isDone() {
+            return isSegmentDone() && nextSpilledSegment < 0 && !reading;
+        }
+
+        private boolean isSegmentDone() {
+            return finishedChunks + skippedChunks == chunkKeys.length;
+        }
+
+        /**
+         * Makes a segment the current one and groups its entries by chunk.
+         *
+         * @param segment The segment
+         */
+        private void setSegment(@NotNull UndoJournal.Segment segment) {
+            blockKeys = segment.getBlockKeys();
+            paletteRefs = segment.getPaletteRefs();
+            chunkIndexByKey.clear();
+
+            // Assign the chunks in the order they are restored (the last recorded first) and count their entries
+            int[] entryChunks = new int[blockKeys.length];
+            long[] segmentChunkKeys = new long[16];
+            int[] entryCounts = new int[16];
+            int chunkCount = 0;
+
+            for (int entry = blockKeys.length - 1; entry >= 0; entry--) {
+                long chunkKey = BlockKeys.packColumn(BlockKeys.getX(blockKeys[entry]) >> 4, BlockKeys.getZ(blockKeys[entry]) >> 4);
+                int chunkIndex = chunkIndexByKey.get(chunkKey);
+
+                if (chunkIndex < 0) {
+                    if (chunkCount == segmentChunkKeys.length) {
+                        segmentChunkKeys = Arrays.copyOf(segmentChunkKeys, chunkCount * 2);
+                        entryCounts = Arrays.copyOf(entryCounts, chunkCount * 2);
+                    }
+
+                    chunkIndex = chunkCount++;
+                    segmentChunkKeys[chunkIndex] = chunkKey;
+                    chunkIndexByKey.put(chunkKey, chunkIndex);
+                }
+
+                entryChunks[entry] = chunkIndex;
+                entryCounts[chunkIndex]++;
+            }
+
+            chunkKeys = Arrays.copyOf(segmentChunkKeys, chunkCount);
+            chunkEntryStarts = new int[chunkCount + 1];
+
+            for (int i = 0; i < chunkCount; i++) {
+                chunkEntryStarts[i + 1] = chunkEntryStarts[i] + entryCounts[i];
+            }
+
+            // Order the entries by chunk, keeping the reverse order within a chunk
+            int[] nextPositions = Arrays.copyOf(chunkEntryStarts, chunkCount);
+            entryOrder = new int[blockKeys.length];
+
+            for (int entry = blockKeys.length - 1; entry >= 0; entry--) {
+                entryOrder[nextPositions[entryChunks[entry]]++] = entry;
+            }
+
+            loadRequest = null;
+            nextChunkToLoad = 0;
+            finishedChunks = 0;
+            skippedChunks = 0;
+        }
+
+        /**
+         * Starts loading the next chunks of the current segment, unless enough of its chunks are loaded or still loading.
+         */
+        private void loadNextChunks() {
+            if ((loadRequest != null && loadRequest.isPending()) || readyChunks.size() >= LOAD_WINDOW || nextChunkToLoad == chunkKeys.length) {
+                return;
+            }
+
+            int fromChunk = nextChunkToLoad;
+            int toChunk = Math.min(chunkKeys.length, fromChunk + LOAD_WINDOW);
+            int[] loadedChunks = {0};
+
+            nextChunkToLoad = toChunk;
+            // Chunks that have never been generated cannot contain changed blocks
+            loadRequest = pl.getChunkLoader().load(world, Arrays.copyOfRange(chunkKeys, fromChunk, toChunk), origin, false, false, chunk -> {
+                // Keep the chunk loaded until its blocks have been restored
+                chunk.addPluginChunkTicket(pl);
+                readyChunks.add(chunk);
+                loadedChunks[0]++;
+            }, () -> skippedChunks += toChunk - fromChunk - loadedChunks[0]);
+        }
+
+        /**
+         * Reads the previous spilled segment off the main thread, unless it is already being read or all segments have been read.
+         */
+        private void readNextSegment() {
+            if (reading || nextSpilledSegment < 0) {
+                return;
+            }
+
+            int index = nextSpilledSegment--;
+            reading = true;
+
+            pl.getOperationCounters().increment(OperationCounters.Counter.SCHEDULED_TASKS);
+            pl.getServer().getScheduler().runTaskAsynchronously(pl, () -> {
+                UndoJournal.Segment segment = null;
+                IOException failure = null;
+
+                try {
+                    segment = entries.readSpilled(index);
+                } catch (IOException e) {
+                    failure = e;
+                }
+
+                UndoJournal.Segment readSegment = segment;
+                IOException readFailure = failure;
+
+                if (pl.isEnabled()) {
+                    pl.getServer().getScheduler().runTask(pl, () -> onSegmentRead(readSegment, readFailure));
+                }
+            });
+        }
+
+        private void onSegmentRead(UndoJournal.Segment segment, IOException failure) {
+            reading = false;
+
+            if (cancelled) {
+                return;
+            }
+
+            if (failure != null) {
+                pl.getLogger().log(Level.WARNING, "Failed to read the undo journal of " + journal.getWgRegionName(), failure);
+                restoreJobs.remove(this);
+                journal.discard();
+                UndoManager.this.notify(playerId, Prefixes.ERROR + "Die gespeicherten Blöcke konnten §cnicht gelesen §7werden (§3" + restoredBlocks + " §7Blöcke wiederhergestellt).");
+                return;
+            }
+
+            setSegment(segment);
+        }
+
+        /**
+         * Stops loading chunks and releases the loaded ones.
+         */
+        private void releaseChunks() {
+            if (loadRequest != null) {
+                loadRequest.cancel();
+            }
+
+            if (currentChunk != null) {
+                currentChunk.removePluginChunkTicket(pl);
+                currentChunk = null;
+            }
+
+            for (Chunk chunk : readyChunks) {
+                chunk.removePluginChunkTicket(pl);
+            }
+
+            readyChunks.clear();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+/**
+ * This class provides static methods to pack block positions into primitive longs.<br />
+ * - Block keys contain x, y and z (26 bits x, 26 bits z, 12 bits y, like Minecraft's packed block positions).<br />
+ * - Column keys contain x and z (32 bits each).<br />
+ */
+public final class BlockKeys {
+
+    private BlockKeys() {
+    }
+
+    /**
+     * Packs a block position into a long.
+     *
+     * @param x The x coordinate (-33554432 to 33554431)
+     * @param y The y coordinate (-2048 to 2047)
+     * @param z The z coordinate (-33554432 to 33554431)
+     * @return The block key
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * Returns the x coordinate of a block key.
+     *
+     * @param blockKey The block key
+     * @return The x coordinate
+     */
+    public static int getX(long blockKey) {
+        return (int) (blockKey >> 38);
+    }
+
+    /**
+     * Returns the y coordinate of a block key.
+     *
+     * @param blockKey The block key
+     * @return The y coordinate
+     */
+    public static int getY(long blockKey) {
+        return (int) (blockKey << 52 >> 52);
+    }
+
+    /**
+     * Returns the z coordinate of a block key.
+     *
+     * @param blockKey The block key
+     * @return The z coordinate
+     */
+    public static int getZ(long blockKey) {
+        return (int) (blockKey << 26 >> 38);
+    }
+
+    /**
+     * Packs a block column (x and z coordinate) into a long.
+     *
+     * @param x The x coordinate
+     * @param z The z coordinate
+     * @return The column key
+     */
+    public static long packColumn(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the x coordinate of a column key.
+     *
+     * @param columnKey The column key
+     * @return The x coordinate
+     */
+    public static int getColumnX(long columnKey) {
+        return (int) (columnKey >> 32);
+    }
+
+    /**
+     * Returns the z coordinate of a column key.
+     *
+     * @param columnKey The column key
+     * @return The z coordinate
+     */
+    public static int getColumnZ(long columnKey) {
+        return (int) columnKey;
+    }
+}
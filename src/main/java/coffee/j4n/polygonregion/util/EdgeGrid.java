@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a uniform grid over the XZ plane that stores the edges of a polygon.<br />
+ * <p>
+ * - Every edge is registered in all cells its segment passes through (not only the cells of its bounds).<br />
+ * - Edges are identified by a stable long id (e.g. the block key of their start vertex), so inserting vertices does not renumber the grid.<br />
+ * - The cells are stored in primitive arrays and looked up through a {@link LongIntHashMap}, so queries do not allocate.<br />
+ * - Removing an edge requires the same coordinates it has been added with.<br />
+ */
+public class EdgeGrid {
+
+    public static final int CELL_SHIFT = 5;
+    public static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    /**
+     * Tolerance added to the z range of an edge within a cell column, so that rounding never drops a touched cell.
+     */
+    private static final double EPSILON = 1e-6;
+
+    private final LongIntHashMap slotsByCellKey = new LongIntHashMap(-1);
+
+    private long[][] cellEdges = new long[16][];
+    private int[] cellSizes = new int[16];
+    private int cellCount = 0;
+
+    private int minCellX = Integer.MAX_VALUE;
+    private int minCellZ = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int maxCellZ = Integer.MIN_VALUE;
+
+    /**
+     * Adds an edge to all cells its segment passes through.
+     *
+     * @param edgeId The id of the edge
+     * @param x1     The x coordinate of the start of the edge
+     * @param z1     The z coordinate of the start of the edge
+     * @param x2     The x coordinate of the end of the edge
+     * @param z2     The z coordinate of the end of the edge
+     */
+    public void add(long edgeId, double x1, double z1, double x2, double z2) {
+        forEachCell(edgeId, x1, z1, x2, z2, true);
+    }
+
+    /**
+     * Removes an edge from all cells its segment passes through.
+     *
+     * @param edgeId The id of the edge
+     * @param x1     The x coordinate of the start of the edge, as it has been added
+     * @param z1     The z coordinate of the start of the edge, as it has been added
+     * @param x2     The x coordinate of the end of the edge, as it has been added
+     * @param z2     The z coordinate of the end of the edge, as it has been added
+     */
+    public void remove(long edgeId, double x1, double z1, double x2, double z2) {
+        forEachCell(edgeId, x1, z1, x2, z2, false);
+    }
+
+    /**
+     * Returns the slot of a cell, which can be used to read the edges of the cell.
+     *
+     * @param cellX The x coordinate of the cell
+     * @param cellZ The z coordinate of the cell
+     * @return The slot of the cell, or -1 if no edge passes through the cell
+     */
+    public int getCellSlot(int cellX, int cellZ) {
+        return slotsByCellKey.get(BlockKeys.packColumn(cellX, cellZ));
+    }
+
+    public int getEdgeCount(int cellSlot) {
+        return cellSizes[cellSlot];
+    }
+
+    public long getEdgeId(int cellSlot, int index) {
+        return cellEdges[cellSlot][index];
+    }
+
+    /**
+     * Returns whether any edge has ever been added to the grid.
+     *
+     * @return Whether the bounds of the grid are set
+     */
+    public boolean hasBounds() {
+        return minCellX <= maxCellX;
+    }
+
+    public int getMinCellX() {
+        return minCellX;
+    }
+
+    public int getMinCellZ() {
+        return minCellZ;
+    }
+
+    public int getMaxCellX() {
+        return maxCellX;
+    }
+
+    public int getMaxCellZ() {
+        return maxCellZ;
+    }
+
+    /**
+     * Removes all edges from the grid.
+     */
+    public void clear() {
+        slotsByCellKey.clear();
+        Arrays.fill(cellSizes, 0, cellCount, 0);
+        cellCount = 0;
+
+        minCellX = Integer.MAX_VALUE;
+        minCellZ = Integer.MAX_VALUE;
+        maxCellX = Integer.MIN_VALUE;
+        maxCellZ = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Returns the cell coordinate of a block coordinate.
+     *
+     * @param coordinate The x or z coordinate
+     * @return The x or z coordinate of the cell
+     */
+    public static int toCell(double coordinate) {
+        return (int) Math.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    private void forEachCell(long edgeId, double x1, double z1, double x2, double z2, boolean add) {
+        double minX = Math.min(x1, x2);
+        double maxX = Math.max(x1, x2);
+
+        // Walk the cell columns the edge spans and add the cells of the z range of the edge within each column
+        for (int cellX = toCell(minX); cellX <= toCell(maxX); cellX++) {
+            double stripMinZ;
+            double stripMaxZ;
+
+            if (x1 == x2) {
+                stripMinZ = Math.min(z1, z2);
+                stripMaxZ = Math.max(z1, z2);
+            } else {
+                double stripMinX = Math.max(minX, (double) (cellX << CELL_SHIFT));
+                double stripMaxX = Math.min(maxX, (double) ((cellX + 1) << CELL_SHIFT));
+
+                double zAtStripMinX = z1 + (stripMinX - x1) * (z2 - z1) / (x2 - x1);
+                double zAtStripMaxX = z1 + (stripMaxX - x1) * (z2 - z1) / (x2 - x1);
+
+                stripMinZ = Math.max(Math.min(z1, z2), Math.min(zAtStripMinX, zAtStripMaxX) - EPSILON);
+                stripMaxZ = Math.min(Math.max(z1, z2), Math.max(zAtStripMinX, zAtStripMaxX) + EPSILON);
+            }
+
+            for (int cellZ = toCell(stripMinZ); cellZ <= toCell(stripMaxZ); cellZ++) {
+                if (add) {
+                    addToCell(cellX, cellZ, edgeId);
+                } else {
+                    removeFromCell(cellX, cellZ, edgeId);
+                }
+            }
+        }
+    }
+
+    private void addToCell(int cellX, int cellZ, long edgeId) {
+        long cellKey = BlockKeys.packColumn(cellX, cellZ);
+        int slot = slotsByCellKey.get(cellKey);
+
+        if (slot == -1) {
+            slot = allocateCell();
+            slotsByCellKey.put(cellKey, slot);
+
+            minCellX = Math.min(minCellX, cellX);
+            minCellZ = Math.min(minCellZ, cellZ);
+            maxCellX = Math.max(maxCellX, cellX);
+            maxCellZ = Math.max(maxCellZ, cellZ);
+        }
+
+        long[] edges = cellEdges[slot];
+
+        if (cellSizes[slot] == edges.length) {
+            edges = cellEdges[slot] = Arrays.copyOf(edges, edges.length * 2);
+        }
+
+        edges[cellSizes[slot]++] = edgeId;
+    }
+
+    private void removeFromCell(int cellX, int cellZ, long edgeId) {
+        int slot = slotsByCellKey.get(BlockKeys.packColumn(cellX, cellZ));
+
+        if (slot == -1) {
+            return;
+        }
+
+        long[] edges = cellEdges[slot];
+
+        for (int i = 0; i < cellSizes[slot]; i++) {
+            if (edges[i] == edgeId) {
+                // Move the last edge of the cell into the freed position
+                edges[i] = edges[--cellSizes[slot]];
+                return;
+            }
+        }
+    }
+
+    private int allocateCell() {
+        // Empty cells are kept, as their edges are likely to be replaced by the edges of an inserted vertex
+        if (cellCount == cellEdges.length) {
+            cellEdges = Arrays.copyOf(cellEdges, cellCount * 2);
+            cellSizes = Arrays.copyOf(cellSizes, cellCount * 2);
+        }
+
+        if (cellEdges[cellCount] == null) {
+            cellEdges[cellCount] = new long[4];
+        }
+
+        return cellCount++;
+    }
+}
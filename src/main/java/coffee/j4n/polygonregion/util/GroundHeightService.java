@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.HeightMap;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * This class looks up the ground height of block columns, clamped to the vertical bounds of a region.<br />
+ * <p>
+ * - The height is read from the heightmaps of the world, which answers most lookups with a single call.<br />
+ * - If the heightmap lies below the bounds, there is no matching block within the bounds.<br />
+ * - If the heightmap lies above the bounds (e.g. overhangs, caves or a ceiling above the region), the column is scanned downwards from the upper bound.<br />
+ * - Lookups on {@link ChunkSnapshot}s are thread-safe and can be used off the main thread.<br />
+ */
+public class GroundHeightService {
+
+    /**
+     * Returns the y coordinate of the highest block within the given bounds that matches the given heightmap.
+     *
+     * @param world     The world
+     * @param x         The x coordinate
+     * @param z         The z coordinate
+     * @param minY      The minimum y coordinate (inclusive)
+     * @param maxY      The maximum y coordinate (inclusive)
+     * @param heightMap The heightmap that defines which blocks count as ground
+     * @return The y coordinate of the highest matching block, or {@code minY - 1} if there is none within the bounds
+     */
+    public int getGroundY(@NotNull World world, int x, int z, int minY, int maxY, @NotNull HeightMap heightMap) {
+        minY = Math.max(minY, world.getMinHeight());
+        maxY = Math.min(maxY, world.getMaxHeight() - 1);
+
+        int heightMapY = world.getHighestBlockYAt(x, z, heightMap);
+
+        if (heightMapY < minY) {
+            return minY - 1;
+        }
+
+        if (heightMapY <= maxY) {
+            return heightMapY;
+        }
+
+        // Ambiguous: the highest block is above the bounds, so the ground within the bounds has to be searched
+        for (int y = maxY; y >= minY; y--) {
+            if (isGround(world.getBlockAt(x, y, z), heightMap)) {
+                return y;
+            }
+        }
+
+        return minY - 1;
+    }
+
+    /**
+     * Returns whether a block counts as ground for the given heightmap.
+     *
+     * @param block     The block
+     * @param heightMap The heightmap
+     * @return Whether the block counts as ground
+     */
+    private boolean isGround(@NotNull Block block, @NotNull HeightMap heightMap) {
+        Material type = block.getType();
+
+        return switch (heightMap) {
+            case MOTION_BLOCKING -> type.isSolid() || block.isLiquid();
+            case MOTION_BLOCKING_NO_LEAVES -> (type.isSolid() || block.isLiquid()) && !Tag.LEAVES.isTagged(type);
+            case OCEAN_FLOOR, OCEAN_FLOOR_WG -> type.isSolid();
+            default -> !type.isAir();
+        };
+    }
+
+    /**
+     * Returns the y coordinate of the highest non-air block within the given bounds of a chunk snapshot.
+     * - The snapshot has to contain its heightmap (see {@link org.bukkit.Chunk#getChunkSnapshot(boolean, boolean, boolean)})
+     * - The heightmap of a snapshot matches {@link HeightMap#WORLD_SURFACE}
+     * - Empty chunk sections are skipped while scanning
+     *
+     * @param snapshot    The chunk snapshot
+     * @param worldMinY   The minimum height of the world the snapshot belongs to
+     * @param worldMaxY   The maximum height (exclusive) of the world the snapshot belongs to
+     * @param localX      The x coordinate within the chunk (0-15)
+     * @param localZ      The z coordinate within the chunk (0-15)
+     * @param minY        The minimum y coordinate (inclusive)
+     * @param maxY        The maximum y coordinate (inclusive)
+     * @return The y coordinate of the highest non-air block, or {@code minY - 1} if there is none within the bounds
+     */
+    public int getGroundY(@NotNull ChunkSnapshot snapshot, int worldMinY, int worldMaxY, int localX, int localZ, int minY, int maxY) {
+        minY = Math.max(minY, worldMinY);
+        maxY = Math.min(maxY, worldMaxY - 1);
+
+        int heightMapY = snapshot.getHighestBlockYAt(localX, localZ);
+
+        if (heightMapY < minY) {
+            return minY - 1;
+        }
+
+        if (heightMapY <= maxY) {
+            return heightMapY;
+        }
+
+        int y = maxY;
+
+        while (y >= minY) {
+            int sectionIndex = (y - worldMinY) >> 4;
+
+            // Skip the rest of an empty section at once
+            if (snapshot.isSectionEmpty(sectionIndex)) {
+                y = worldMinY + (sectionIndex << 4) - 1;
+                continue;
+            }
+
+            if (!snapshot.getBlockType(localX, y, localZ).isAir()) {
+                return y;
+            }
+
+            y--;
+        }
+
+        return minY - 1;
+    }
+}
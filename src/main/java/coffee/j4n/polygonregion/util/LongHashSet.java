@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a set of primitive longs (e.g. block or column keys, see {@link BlockKeys}).<br />
+ * <p>
+ * - The keys are stored in a single open addressing table with linear probing, so adding a key never allocates an object.<br />
+ * - The table is resized to the next power of two when it is more than half full.<br />
+ * - Keys can only be added, which is all the callers need.<br />
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private boolean containsEmptyKey = false;
+    private int size = 0;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        keys = new long[tableSizeFor(expectedSize)];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Adds a key to the set.
+     *
+     * @param key The key
+     * @return Whether the key has been added (false, if the set already contained the key)
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmptyKey) {
+                return false;
+            }
+
+            containsEmptyKey = true;
+            size++;
+            return true;
+        }
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return false;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns whether the set contains a key.
+     *
+     * @param key The key
+     * @return Whether the set contains the key
+     */
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsEmptyKey;
+        }
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return true;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the number of keys in the set.
+     *
+     * @return The number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns all keys of the set in no particular order.
+     *
+     * @return A new array containing the keys
+     */
+    public long[] toArray() {
+        long[] result = new long[size];
+        int index = 0;
+
+        if (containsEmptyKey) {
+            result[index++] = EMPTY;
+        }
+
+        for (long key : keys) {
+            if (key != EMPTY) {
+                result[index++] = key;
+            }
+        }
+
+        return result;
+    }
+
+    private void resize(int newLength) {
+        long[] oldKeys = keys;
+        keys = new long[newLength];
+        Arrays.fill(keys, EMPTY);
+
+        int mask = newLength - 1;
+
+        for (long key : oldKeys) {
+            if (key == EMPTY) {
+                continue;
+            }
+
+            int slot = hash(key) & mask;
+
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = key;
+        }
+    }
+
+    private static int hash(long key) {
+        // Mix the bits of the key, as packed keys differ mostly in their upper and lower bits
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int tableSize = 16;
+
+        while (tableSize < expectedSize * 2) {
+            tableSize <<= 1;
+        }
+
+        return tableSize;
+    }
+}
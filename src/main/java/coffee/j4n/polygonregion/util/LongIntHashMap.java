@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a map from primitive longs (e.g. block keys, see {@link BlockKeys}) to primitive ints.<br />
+ * <p>
+ * - The entries are stored in an open addressing table with linear probing, so neither keys nor values are boxed.<br />
+ * - Removed entries are deleted by shifting the following entries back, so the table never fills up with tombstones.<br />
+ * - The table is resized to the next power of two when it is more than half full.<br />
+ */
+public class LongIntHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int missingValue;
+
+    private long[] keys;
+    private int[] values;
+    private boolean containsEmptyKey = false;
+    private int emptyKeyValue;
+    private int size = 0;
+
+    /**
+     * @param missingValue The value returned for keys that are not in the map
+     */
+    public LongIntHashMap(int missingValue) {
+        this.missingValue = missingValue;
+        this.keys = new long[16];
+        this.values = new int[16];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key The key
+     * @return The value, or the missing value if the map does not contain the key
+     */
+    public int get(long key) {
+        if (key == EMPTY) {
+            return containsEmptyKey ? emptyKeyValue : missingValue;
+        }
+
+        int slot = findSlot(key);
+        return keys[slot] == EMPTY ? missingValue : values[slot];
+    }
+
+    /**
+     * Returns whether the map contains a key.
+     *
+     * @param key The key
+     * @return Whether the map contains the key
+     */
+    public boolean containsKey(long key) {
+        if (key == EMPTY) {
+            return containsEmptyKey;
+        }
+
+        return keys[findSlot(key)] != EMPTY;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key   The key
+     * @param value The value
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            if (!containsEmptyKey) {
+                containsEmptyKey = true;
+                size++;
+            }
+
+            emptyKeyValue = value;
+            return;
+        }
+
+        int slot = findSlot(key);
+
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+
+        values[slot] = value;
+
+        if (size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes a key from the map.
+     *
+     * @param key The key
+     * @return The removed value, or the missing value if the map did not contain the key
+     */
+    public int remove(long key) {
+        if (key == EMPTY) {
+            if (!containsEmptyKey) {
+                return missingValue;
+            }
+
+            containsEmptyKey = false;
+            size--;
+            return emptyKeyValue;
+        }
+
+        int mask = keys.length - 1;
+        int slot = findSlot(key);
+
+        if (keys[slot] == EMPTY) {
+            return missingValue;
+        }
+
+        int removedValue = values[slot];
+        size--;
+
+        // Shift the following entries of the probe sequence back into the freed slot
+        int freeSlot = slot;
+        int nextSlot = (slot + 1) & mask;
+
+        while (keys[nextSlot] != EMPTY) {
+            int homeSlot = hash(keys[nextSlot]) & mask;
+
+            // Only move the entry if the free slot lies between its home slot and its current slot
+            if (((nextSlot - homeSlot) & mask) >= ((nextSlot - freeSlot) & mask)) {
+                keys[freeSlot] = keys[nextSlot];
+                values[freeSlot] = values[nextSlot];
+                freeSlot = nextSlot;
+            }
+
+            nextSlot = (nextSlot + 1) & mask;
+        }
+
+        keys[freeSlot] = EMPTY;
+
+        return removedValue;
+    }
+
+    /**
+     * Removes all entries from the map.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        containsEmptyKey = false;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void resize(int newLength) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new long[newLength];
+        values = new int[newLength];
+        Arrays.fill(keys, EMPTY);
+
+        int mask = newLength - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) {
+                continue;
+            }
+
+            int slot = hash(oldKeys[i]) & mask;
+
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int hash(long key) {
+        // Mix the bits of the key, as packed keys differ mostly in their upper and lower bits
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
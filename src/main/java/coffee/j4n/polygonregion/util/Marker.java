@@ -7,11 +7,14 @@ package coffee.j4n.polygonregion.util;
 
 import org.bukkit.Material;
 
+import java.util.Objects;
+
 /**
  * This class represents a marker in the world.
  *
  * It contains the x, y, z coordinates and the original material of the block at this position.
  * - The original material is used to restore the block to its original state after the marker has been removed.
+ * - Markers that did not replace a block (e.g. the points of a region shown with /pregion show) have no original material.
  *
  * It also provides a method to calculate the distance to another marker.
  * - The distance is calculated using the Euclidean distance formula.
@@ -36,7 +39,7 @@ public class Marker {
     public final double z;
 
     /**
-     * The original material of the block at this position.
+     * The original material of the block at this position, or null if the marker did not replace the block.
      */
     private final Material originalMaterial;
 
@@ -46,7 +49,7 @@ public class Marker {
      * @param x The x coordinate of the marker.
      * @param y The y coordinate of the marker.
      * @param z The z coordinate of the marker.
-     * @param originalMaterial The original material of the block at this position.
+     * @param originalMaterial The original material of the block at this position, or null if the marker did not replace the block.
      */
     public Marker(double x, double y, double z, Material originalMaterial) {
         this.x = x;
@@ -58,12 +61,21 @@ public class Marker {
     /**
      * This method returns the original material of the block at this position.
      *
-     * @return The original material of the block at this position.
+     * @return The original material of the block at this position, or null if the marker did not replace the block.
      */
     public Material getOriginalMaterial() {
         return originalMaterial;
     }
 
+    /**
+     * This method returns whether the marker replaced the block at this position (with a sea lantern).
+     *
+     * @return Whether the block has to be restored when the marker is removed.
+     */
+    public boolean hasReplacedBlock() {
+        return originalMaterial != null;
+    }
+
     /**
      * This method calculates the distance between this marker and another marker.
      *
@@ -87,6 +99,26 @@ public class Marker {
         return "§8[§7X: §b" + x + " §8| " + "§7Y: §b" + y + " §8| " + "§7Z: §b" + z + "§8] " + (withMaterial ? "§7Material: §b" + originalMaterial : "");
     }
 
+    /**
+     * Markers are equal if they are at the same position, regardless of the original material.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof Marker otherMarker)) {
+            return false;
+        }
+
+        return Double.compare(x, otherMarker.x) == 0 && Double.compare(y, otherMarker.y) == 0 && Double.compare(z, otherMarker.z) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(x, y, z);
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,482 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class represents the ordered markers (vertices) of a polygon that is being edited.<br />
+ * <p>
+ * - The coordinates and original materials are stored in primitive parallel arrays in polygon order.<br />
+ * - A hash index maps the block key of every marker to its position, so duplicate detection, lookup by block and index-of are O(1).<br />
+ * - Inserting and removing shift the arrays and update the positions of the shifted markers in the index.<br />
+ * - {@link #asList()} provides the ordered ring as a read-only list of {@link Marker}s (e.g. for rendering).<br />
+ * <p>
+ * The edges of the ring are kept in an {@link EdgeGrid}, so that {@link #findInsertIndex(Marker)} does not have to check every edge:<br />
+ * - Edge {@code i} connects marker {@code i} with marker {@code i + 1} and is identified by the block key of marker {@code i}.<br />
+ * - Inserting or removing a marker only updates the one or two adjacent edges in the grid.<br />
+ */
+public class MarkerRing {
+
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private Material[] originalMaterials = new Material[16];
+    private int size = 0;
+
+    /**
+     * Rings with fewer markers are searched linearly, as the grid search does not pay off.
+     */
+    private static final int LINEAR_SEARCH_LIMIT = 16;
+
+    /**
+     * Relative difference below which squared distances are compared by their square roots.
+     */
+    private static final double TIE_TOLERANCE = 1e-12;
+
+    private final LongIntHashMap indicesByBlockKey = new LongIntHashMap(-1);
+    private final EdgeGrid edgeGrid = new EdgeGrid();
+
+    // Result of the current grid search, kept in fields so that visiting a cell does not allocate
+    private int nearestEdge;
+    private double nearestDistanceSquared;
+
+    private final List<Marker> listView = new AbstractList<>() {
+        @Override
+        public Marker get(int index) {
+            return MarkerRing.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    /**
+     * Returns the block key of a marker position.
+     * - The block key is the key of the block the position lies in
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The block key
+     */
+    public static long blockKeyOf(double x, double y, double z) {
+        return BlockKeys.pack((int) Math.floor(x), (int) Math.floor(y), (int) Math.floor(z));
+    }
+
+    /**
+     * Returns whether the ring contains a marker in the same block as the given marker.
+     *
+     * @param marker The marker
+     * @return Whether the ring contains the marker
+     */
+    public boolean contains(@NotNull Marker marker) {
+        return indicesByBlockKey.containsKey(blockKeyOf(marker.x, marker.y, marker.z));
+    }
+
+    /**
+     * Returns the index of the marker in the same block as the given marker.
+     *
+     * @param marker The marker
+     * @return The index of the marker, or -1 if the ring does not contain it
+     */
+    public int indexOf(@NotNull Marker marker) {
+        return indicesByBlockKey.get(blockKeyOf(marker.x, marker.y, marker.z));
+    }
+
+    /**
+     * Returns the index of the marker in the given block.
+     *
+     * @param blockX The x coordinate of the block
+     * @param blockY The y coordinate of the block
+     * @param blockZ The z coordinate of the block
+     * @return The index of the marker, or -1 if there is no marker in the block
+     */
+    public int indexOfBlock(int blockX, int blockY, int blockZ) {
+        return indicesByBlockKey.get(BlockKeys.pack(blockX, blockY, blockZ));
+    }
+
+    /**
+     * Inserts a marker at the given index.
+     *
+     * @param index  The index (0 to size)
+     * @param marker The marker
+     * @return Whether the marker has been inserted (false, if the ring already contains a marker in the same block)
+     */
+    public boolean insert(int index, @NotNull Marker marker) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+
+        long blockKey = blockKeyOf(marker.x, marker.y, marker.z);
+
+        if (indicesByBlockKey.containsKey(blockKey)) {
+            return false;
+        }
+
+        ensureCapacity(size + 1);
+
+        // The edge spanning the gap the marker is inserted into is replaced by two new edges
+        if (size >= 2) {
+            removeEdge((index - 1 + size) % size);
+        }
+
+        int shifted = size - index;
+        System.arraycopy(xs, index, xs, index + 1, shifted);
+        System.arraycopy(ys, index, ys, index + 1, shifted);
+        System.arraycopy(zs, index, zs, index + 1, shifted);
+        System.arraycopy(originalMaterials, index, originalMaterials, index + 1, shifted);
+
+        xs[index] = marker.x;
+        ys[index] = marker.y;
+        zs[index] = marker.z;
+        originalMaterials[index] = marker.getOriginalMaterial();
+        size++;
+
+        indicesByBlockKey.put(blockKey, index);
+        reindexFrom(index + 1);
+
+        if (size == 2) {
+            addEdge(0);
+            addEdge(1);
+        } else if (size > 2) {
+            addEdge((index - 1 + size) % size);
+            addEdge(index);
+        }
+
+        return true;
+    }
+
+    /**
+     * Appends a marker to the end of the ring.
+     *
+     * @param marker The marker
+     * @return Whether the marker has been appended (false, if the ring already contains a marker in the same block)
+     */
+    public boolean add(@NotNull Marker marker) {
+        return insert(size, marker);
+    }
+
+    /**
+     * Removes the marker at the given index.
+     *
+     * @param index The index
+     * @return The removed marker
+     */
+    public @NotNull Marker remove(int index) {
+        Marker removed = get(index);
+
+        // Both edges adjacent to the marker are replaced by one edge connecting its neighbours
+        if (size >= 2) {
+            removeEdge((index - 1 + size) % size);
+            removeEdge(index);
+        }
+
+        indicesByBlockKey.remove(blockKeyOf(xs[index], ys[index], zs[index]));
+
+        int shifted = size - index - 1;
+        System.arraycopy(xs, index + 1, xs, index, shifted);
+        System.arraycopy(ys, index + 1, ys, index, shifted);
+        System.arraycopy(zs, index + 1, zs, index, shifted);
+        System.arraycopy(originalMaterials, index + 1, originalMaterials, index, shifted);
+
+        size--;
+        originalMaterials[size] = null;
+
+        reindexFrom(index);
+
+        if (size >= 2) {
+            addEdge((index - 1 + size) % size);
+        }
+
+        return removed;
+    }
+
+    /**
+     * Find the index to insert a new marker based on proximity to the edges between the existing markers.
+     * - The marker is inserted after the start of the nearest edge (3D distance, the edges lie at the height of their start marker)
+     * - If several edges are equally near, the first one is chosen
+     * - Edges whose markers only differ in height are treated as a point
+     * - Does not allocate
+     *
+     * @param marker The new marker to be inserted
+     * @return The index to insert the new marker
+     */
+    public int findInsertIndex(@NotNull Marker marker) {
+        // Without edges, every new marker is inserted at the end
+        if (size < 2) {
+            return size;
+        }
+
+        nearestEdge = Integer.MAX_VALUE;
+        nearestDistanceSquared = Double.POSITIVE_INFINITY;
+
+        if (size < LINEAR_SEARCH_LIMIT) {
+            for (int i = 0; i < size; i++) {
+                visitEdge(i, marker.x, marker.y, marker.z);
+            }
+        } else {
+            findNearestEdgeInGrid(marker.x, marker.y, marker.z);
+        }
+
+        return nearestEdge + 1;
+    }
+
+    /**
+     * Returns the marker at the given index.
+     *
+     * @param index The index
+     * @return A new marker with the coordinates and original material at the index
+     */
+    public @NotNull Marker get(int index) {
+        checkIndex(index);
+        return new Marker(xs[index], ys[index], zs[index], originalMaterials[index]);
+    }
+
+    public double getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    public double getY(int index) {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    public double getZ(int index) {
+        checkIndex(index);
+        return zs[index];
+    }
+
+    /**
+     * Returns the original material of the block replaced by a marker.
+     *
+     * @param index The index of the marker
+     * @return The original material, or null if the marker did not replace the block
+     */
+    public @Nullable Material getOriginalMaterial(int index) {
+        checkIndex(index);
+        return originalMaterials[index];
+    }
+
+    /**
+     * Returns the number of markers in the ring.
+     *
+     * @return The number of markers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the ring contains no markers.
+     *
+     * @return Whether the ring is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the markers in polygon order as a read-only list.
+     * - The list is a live view, so it reflects later changes of the ring
+     *
+     * @return The list view of the ring
+     */
+    public @NotNull List<Marker> asList() {
+        return listView;
+    }
+
+    /**
+     * Searches the nearest edge in rings of grid cells around the marker, until no unvisited cell can contain a nearer edge.
+     * - The horizontal distance to a cell is a lower bound of the 3D distance to the edges in it
+     *
+     * @param x The x coordinate of the marker
+     * @param y The y coordinate of the marker
+     * @param z The z coordinate of the marker
+     */
+    private void findNearestEdgeInGrid(double x, double y, double z) {
+        int centerCellX = EdgeGrid.toCell(x);
+        int centerCellZ = EdgeGrid.toCell(z);
+
+        int minCellX = edgeGrid.getMinCellX();
+        int minCellZ = edgeGrid.getMinCellZ();
+        int maxCellX = edgeGrid.getMaxCellX();
+        int maxCellZ = edgeGrid.getMaxCellZ();
+
+        // Rings closer than the bounds of the grid are empty, rings beyond them as well
+        int firstRing = Math.max(Math.max(minCellX - centerCellX, centerCellX - maxCellX), Math.max(Math.max(minCellZ - centerCellZ, centerCellZ - maxCellZ), 0));
+        int lastRing = Math.max(Math.max(Math.abs(centerCellX - minCellX), Math.abs(centerCellX - maxCellX)), Math.max(Math.abs(centerCellZ - minCellZ), Math.abs(centerCellZ - maxCellZ)));
+
+        for (int ring = firstRing; ring <= lastRing; ring++) {
+            int ringMinX = centerCellX - ring;
+            int ringMaxX = centerCellX + ring;
+            int ringMinZ = centerCellZ - ring;
+            int ringMaxZ = centerCellZ + ring;
+
+            for (int cellX = Math.max(ringMinX, minCellX); cellX <= Math.min(ringMaxX, maxCellX); cellX++) {
+                if (cellX == ringMinX || cellX == ringMaxX) {
+                    // Left and right column of the ring
+                    for (int cellZ = Math.max(ringMinZ, minCellZ); cellZ <= Math.min(ringMaxZ, maxCellZ); cellZ++) {
+                        visitCell(cellX, cellZ, x, y, z);
+                    }
+                } else {
+                    // Top and bottom cell of the ring
+                    if (ringMinZ >= minCellZ) {
+                        visitCell(cellX, ringMinZ, x, y, z);
+                    }
+
+                    if (ringMaxZ <= maxCellZ) {
+                        visitCell(cellX, ringMaxZ, x, y, z);
+                    }
+                }
+            }
+
+            // Every unvisited cell is at least this far away from the marker
+            double unvisitedDistance = Math.min(
+                    Math.min(x - ((double) ringMinX * EdgeGrid.CELL_SIZE), ((double) (ringMaxX + 1) * EdgeGrid.CELL_SIZE) - x),
+                    Math.min(z - ((double) ringMinZ * EdgeGrid.CELL_SIZE), ((double) (ringMaxZ + 1) * EdgeGrid.CELL_SIZE) - z)
+            );
+
+            if (unvisitedDistance * unvisitedDistance > nearestDistanceSquared * (1 + TIE_TOLERANCE)) {
+                break;
+            }
+        }
+    }
+
+    private void visitCell(int cellX, int cellZ, double x, double y, double z) {
+        int cellSlot = edgeGrid.getCellSlot(cellX, cellZ);
+
+        if (cellSlot == -1) {
+            return;
+        }
+
+        // Edges spanning several cells are visited several times, which does not change the result
+        for (int i = 0; i < edgeGrid.getEdgeCount(cellSlot); i++) {
+            visitEdge(indicesByBlockKey.get(edgeGrid.getEdgeId(cellSlot, i)), x, y, z);
+        }
+    }
+
+    /**
+     * Replaces the nearest edge of the current search if the given edge is nearer.
+     * - Edges are compared by their distance and, if equally near, by their index
+     * - Squared distances that are almost equal are compared by their square roots, as distances that only differ
+     * in their squares count as equally near (this keeps the insert positions of the original sqrt-based search)
+     *
+     * @param edge The index of the edge
+     * @param x    The x coordinate of the marker
+     * @param y    The y coordinate of the marker
+     * @param z    The z coordinate of the marker
+     */
+    private void visitEdge(int edge, double x, double y, double z) {
+        double distanceSquared = distanceToEdgeSquared(edge, x, y, z);
+
+        boolean nearer;
+
+        if (Math.abs(distanceSquared - nearestDistanceSquared) <= nearestDistanceSquared * TIE_TOLERANCE) {
+            double distance = Math.sqrt(distanceSquared);
+            double nearestDistance = Math.sqrt(nearestDistanceSquared);
+
+            nearer = distance < nearestDistance || (distance == nearestDistance && edge < nearestEdge);
+        } else {
+            nearer = distanceSquared < nearestDistanceSquared;
+        }
+
+        if (nearer) {
+            nearestDistanceSquared = distanceSquared;
+            nearestEdge = edge;
+        }
+    }
+
+    /**
+     * Calculate the squared distance between a point and an edge
+     *
+     * @param edge The index of the edge (and of its start marker)
+     * @param x    The x coordinate of the point
+     * @param y    The y coordinate of the point
+     * @param z    The z coordinate of the point
+     * @return The squared distance between the point and the closest point of the edge
+     */
+    private double distanceToEdgeSquared(int edge, double x, double y, double z) {
+        int end = (edge + 1) % size;
+
+        // Delta between the x coordinates and z coordinates of the two markers
+        double xDelta = xs[end] - xs[edge];
+        double zDelta = zs[end] - zs[edge];
+
+        double closestX;
+        double closestY;
+        double closestZ;
+
+        // Compute the factor that determines the closest point on the edge (edges without horizontal length are a point)
+        double closestPointFactor = (xDelta == 0 && zDelta == 0) ? 0 : ((x - xs[edge]) * xDelta + (z - zs[edge]) * zDelta) / (xDelta * xDelta + zDelta * zDelta);
+
+        if (closestPointFactor < 0) {
+            // Closest point is the start marker
+            closestX = xs[edge];
+            closestY = ys[edge];
+            closestZ = zs[edge];
+        } else if (closestPointFactor > 1) {
+            // Closest point is the end marker
+            closestX = xs[end];
+            closestY = ys[end];
+            closestZ = zs[end];
+        } else {
+            // Closest point is on the edge, at the height of the start marker
+            closestX = xs[edge] + closestPointFactor * xDelta;
+            closestY = ys[edge];
+            closestZ = zs[edge] + closestPointFactor * zDelta;
+        }
+
+        double dx = x - closestX;
+        double dy = y - closestY;
+        double dz = z - closestZ;
+
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void addEdge(int edge) {
+        int end = (edge + 1) % size;
+        edgeGrid.add(blockKeyOf(xs[edge], ys[edge], zs[edge]), xs[edge], zs[edge], xs[end], zs[end]);
+    }
+
+    private void removeEdge(int edge) {
+        int end = (edge + 1) % size;
+        edgeGrid.remove(blockKeyOf(xs[edge], ys[edge], zs[edge]), xs[edge], zs[edge], xs[end], zs[end]);
+    }
+
+    private void reindexFrom(int fromIndex) {
+        for (int i = fromIndex; i < size; i++) {
+            indicesByBlockKey.put(blockKeyOf(xs[i], ys[i], zs[i]), i);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= xs.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, xs.length * 2);
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        zs = Arrays.copyOf(zs, newCapacity);
+        originalMaterials = Arrays.copyOf(originalMaterials, newCapacity);
+    }
+}
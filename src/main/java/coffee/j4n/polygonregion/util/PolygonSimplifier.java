@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * This class simplifies closed polygons on the XZ plane.<br />
+ * <p>
+ * The simplification keeps a subset of the original points (in their original order):<br />
+ * - Points that repeat their predecessor and points that lie exactly on the line between their neighbours are dropped.<br />
+ * - The remaining ring is simplified with the Douglas–Peucker algorithm: a point is dropped if it is at most {@code tolerance} blocks
+ * away from the segment that replaces it.<br />
+ * - The ring is split at the first point and the point farthest away from it, so both halves are simplified as open chains.<br />
+ * - The result always keeps at least 3 points, for large tolerances the point farthest away from the split line is kept.<br />
+ */
+public final class PolygonSimplifier {
+
+    private PolygonSimplifier() {
+    }
+
+    /**
+     * Simplifies a closed polygon.
+     *
+     * @param xs        The x coordinates of the points
+     * @param zs        The z coordinates of the points
+     * @param tolerance The maximum distance (in blocks) of a dropped point to the simplified polygon
+     * @return The indices of the kept points, in ascending order
+     */
+    public static int @NotNull [] simplify(double @NotNull [] xs, double @NotNull [] zs, double tolerance) {
+        int[] ring = removeRedundantPoints(xs, zs);
+
+        if (ring.length <= 3) {
+            return ring;
+        }
+
+        return douglasPeucker(xs, zs, ring, tolerance);
+    }
+
+    /**
+     * Removes duplicate and collinear points of a closed polygon.
+     *
+     * @param xs The x coordinates of the points
+     * @param zs The z coordinates of the points
+     * @return The indices of the remaining points, in ascending order
+     */
+    private static int @NotNull [] removeRedundantPoints(double @NotNull [] xs, double @NotNull [] zs) {
+        int[] ring = new int[xs.length];
+        int size = 0;
+
+        // Drop duplicates (closing duplicates are dropped below)
+        for (int i = 0; i < xs.length; i++) {
+            if (size == 0 || xs[ring[size - 1]] != xs[i] || zs[ring[size - 1]] != zs[i]) {
+                ring[size++] = i;
+            }
+        }
+
+        while (size > 1 && xs[ring[size - 1]] == xs[ring[0]] && zs[ring[size - 1]] == zs[ring[0]]) {
+            size--;
+        }
+
+        // Drop collinear points until none are left (dropping a point can make its neighbours collinear)
+        boolean changed = true;
+
+        while (changed && size > 3) {
+            changed = false;
+            int newSize = 0;
+
+            for (int i = 0; i < size; i++) {
+                int previous = newSize > 0 ? ring[newSize - 1] : ring[size - 1];
+                int current = ring[i];
+                int next = ring[(i + 1) % size];
+
+                if (size - (i - newSize) > 3 && cross(xs, zs, previous, current, next) == 0) {
+                    changed = true;
+                    continue;
+                }
+
+                ring[newSize++] = current;
+            }
+
+            size = newSize;
+        }
+
+        return Arrays.copyOf(ring, size);
+    }
+
+    /**
+     * Simplifies a closed ring of points with the Douglas–Peucker algorithm.
+     *
+     * @param xs        The x coordinates of the points
+     * @param zs        The z coordinates of the points
+     * @param ring      The indices of the points of the ring
+     * @param tolerance The maximum distance of a dropped point to the simplified ring
+     * @return The indices of the kept points, in ascending order
+     */
+    private static int @NotNull [] douglasPeucker(double @NotNull [] xs, double @NotNull [] zs, int @NotNull [] ring, double tolerance) {
+        int n = ring.length;
+        boolean[] keep = new boolean[n + 1];
+
+        // Split the ring at its first point and the point farthest away from it
+        int farthest = 1;
+        double farthestDistance = -1;
+
+        for (int i = 1; i < n; i++) {
+            double dx = xs[ring[i]] - xs[ring[0]];
+            double dz = zs[ring[i]] - zs[ring[0]];
+            double distance = dx * dx + dz * dz;
+
+            if (distance > farthestDistance) {
+                farthestDistance = distance;
+                farthest = i;
+            }
+        }
+
+        keep[0] = true;
+        keep[farthest] = true;
+        keep[n] = true;
+
+        // Chains to simplify (as positions in the ring, position n is the first point again), processed with an explicit stack
+        int[] stack = new int[2 * (n + 1)];
+        int stackSize = 0;
+
+        stack[stackSize++] = 0;
+        stack[stackSize++] = farthest;
+        stack[stackSize++] = farthest;
+        stack[stackSize++] = n;
+
+        double toleranceSquared = tolerance * tolerance;
+
+        while (stackSize > 0) {
+            int end = stack[--stackSize];
+            int start = stack[--stackSize];
+
+            int split = -1;
+            double maxDistance = -1;
+
+            for (int i = start + 1; i < end; i++) {
+                double distance = distanceToSegmentSquared(xs, zs, ring[i], ring[start], ring[end % n]);
+
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    split = i;
+                }
+            }
+
+            if (split != -1 && maxDistance > toleranceSquared) {
+                keep[split] = true;
+
+                stack[stackSize++] = start;
+                stack[stackSize++] = split;
+                stack[stackSize++] = split;
+                stack[stackSize++] = end;
+            }
+        }
+
+        // Keep at least a triangle: add the point farthest away from the line through both split points
+        int keptCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            keptCount += keep[i] ? 1 : 0;
+        }
+
+        if (keptCount < 3) {
+            int apex = -1;
+            double apexDistance = -1;
+
+            for (int i = 1; i < n; i++) {
+                double distance = distanceToSegmentSquared(xs, zs, ring[i], ring[0], ring[farthest]);
+
+                if (i != farthest && distance > apexDistance) {
+                    apexDistance = distance;
+                    apex = i;
+                }
+            }
+
+            keep[apex] = true;
+        }
+
+        int[] kept = new int[n];
+        int size = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                kept[size++] = ring[i];
+            }
+        }
+
+        return Arrays.copyOf(kept, size);
+    }
+
+    private static double cross(double @NotNull [] xs, double @NotNull [] zs, int a, int b, int c) {
+        return (xs[b] - xs[a]) * (zs[c] - zs[a]) - (zs[b] - zs[a]) * (xs[c] - xs[a]);
+    }
+
+    private static double distanceToSegmentSquared(double @NotNull [] xs, double @NotNull [] zs, int point, int start, int end) {
+        double xDelta = xs[end] - xs[start];
+        double zDelta = zs[end] - zs[start];
+        double lengthSquared = xDelta * xDelta + zDelta * zDelta;
+
+        double factor = lengthSquared == 0 ? 0 : ((xs[point] - xs[start]) * xDelta + (zs[point] - zs[start]) * zDelta) / lengthSquared;
+        factor = Math.max(0, Math.min(1, factor));
+
+        double dx = xs[point] - (xs[start] + factor * xDelta);
+        double dz = zs[point] - (zs[start] + factor * zDelta);
+
+        return dx * dx + dz * dz;
+    }
+}
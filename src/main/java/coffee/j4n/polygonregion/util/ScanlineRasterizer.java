@@ -0,0 +1,272 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * This class rasterizes the interior of a polygon into horizontal block spans using a scanline algorithm.<br />
+ * <p>
+ * - The edges are sorted by their minimum z coordinate and kept in an active edge list while the scanline moves from row to row,
+ * so every row only intersects the edges that actually cross it.<br />
+ * - Edges are half-open in z (the upper point is excluded), so a scanline running through a point is only crossed once.<br />
+ * - The points and the horizontal edges of the polygon are added as extra spans, so the boundary is filled as well
+ * (WorldGuard counts blocks on the outline as part of the region).<br />
+ * - Every span is clipped to the chunks it touches and packed into a long (see {@link #packSpan(int, int, int)}).
+ * Sorting the packed spans orders them by chunk (row by row), then by z and x.<br />
+ */
+public final class ScanlineRasterizer {
+
+    /**
+     * Chunk coordinates are offset by this value, so that they are positive (the world border is at about ±1,875,000 chunks)
+     */
+    private static final int CHUNK_OFFSET = 1 << 21;
+
+    private ScanlineRasterizer() {
+    }
+
+    /**
+     * Rasterizes a polygon into chunk clipped spans.
+     *
+     * @param xs        The x coordinates of the points of the polygon
+     * @param zs        The z coordinates of the points of the polygon
+     * @param maxBlocks The maximum number of blocks of the polygon
+     * @return The packed spans in chunk order, or {@code null} if the polygon has more than {@code maxBlocks} blocks
+     */
+    public static long @Nullable [] rasterize(int @NotNull [] xs, int @NotNull [] zs, long maxBlocks) {
+        int pointCount = xs.length;
+
+        int minZ = Integer.MAX_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+
+        for (int z : zs) {
+            minZ = Math.min(minZ, z);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        // Non-horizontal edges sorted by their lower z coordinate (z in the upper, point index in the lower 32 bits)
+        long[] edgesByMinZ = new long[pointCount];
+        int edgeCount = 0;
+
+        // Points and horizontal edges sorted by their z coordinate (their spans are added to the rows explicitly)
+        long[] extrasByZ = new long[pointCount * 2];
+        int extraCount = 0;
+
+        for (int i = 0; i < pointCount; i++) {
+            int next = (i + 1) % pointCount;
+
+            if (zs[i] != zs[next]) {
+                edgesByMinZ[edgeCount++] = ((long) Math.min(zs[i], zs[next]) << 32) | i;
+            } else {
+                extrasByZ[extraCount++] = ((long) zs[i] << 32) | (pointCount + i);
+            }
+
+            extrasByZ[extraCount++] = ((long) zs[i] << 32) | i;
+        }
+
+        Arrays.sort(edgesByMinZ, 0, edgeCount);
+        Arrays.sort(extrasByZ, 0, extraCount);
+
+        int[] activeEdges = new int[edgeCount];
+        int activeCount = 0;
+        int nextEdge = 0;
+        int nextExtra = 0;
+
+        double[] crossings = new double[edgeCount];
+        int[] rowSpans = new int[(edgeCount + extraCount) * 2];
+
+        long[] spans = new long[64];
+        int spanCount = 0;
+        long blockCount = 0;
+
+        for (int z = minZ; z <= maxZ; z++) {
+            // Add the edges starting in this row
+            while (nextEdge < edgeCount && (int) (edgesByMinZ[nextEdge] >> 32) <= z) {
+                activeEdges[activeCount++] = (int) edgesByMinZ[nextEdge++];
+            }
+
+            // Remove the edges ending in this row and intersect the others with the scanline
+            int crossingCount = 0;
+
+            for (int a = 0; a < activeCount; ) {
+                int i = activeEdges[a];
+                int next = (i + 1) % pointCount;
+
+                if (Math.max(zs[i], zs[next]) <= z) {
+                    activeEdges[a] = activeEdges[--activeCount];
+                    continue;
+                }
+
+                crossings[crossingCount++] = xs[i] + (double) (z - zs[i]) * (xs[next] - xs[i]) / (zs[next] - zs[i]);
+                a++;
+            }
+
+            Arrays.sort(crossings, 0, crossingCount);
+
+            // Pairs of crossings enclose the interior, blocks exactly on a crossing belong to the outline
+            int rowSpanCount = 0;
+
+            for (int c = 0; c + 1 < crossingCount; c += 2) {
+                int fromX = (int) Math.ceil(crossings[c]);
+                int toX = (int) Math.floor(crossings[c + 1]);
+
+                if (fromX <= toX) {
+                    rowSpans[rowSpanCount++] = fromX;
+                    rowSpans[rowSpanCount++] = toX;
+                }
+            }
+
+            while (nextExtra < extraCount && (int) (extrasByZ[nextExtra] >> 32) == z) {
+                int extra = (int) extrasByZ[nextExtra++];
+
+                if (extra < pointCount) {
+                    rowSpans[rowSpanCount++] = xs[extra];
+                    rowSpans[rowSpanCount++] = xs[extra];
+                } else {
+                    int i = extra - pointCount;
+                    int next = (i + 1) % pointCount;
+
+                    rowSpans[rowSpanCount++] = Math.min(xs[i], xs[next]);
+                    rowSpans[rowSpanCount++] = Math.max(xs[i], xs[next]);
+                }
+            }
+
+            rowSpanCount = mergeSpans(rowSpans, rowSpanCount);
+
+            // Clip the spans to the chunks
+            for (int s = 0; s < rowSpanCount; s += 2) {
+                int fromX = rowSpans[s];
+                int toX = rowSpans[s + 1];
+
+                blockCount += toX - fromX + 1;
+
+                if (blockCount > maxBlocks) {
+                    return null;
+                }
+
+                for (int chunkFromX = fromX; chunkFromX <= toX; chunkFromX = (chunkFromX | 15) + 1) {
+                    if (spanCount == spans.length) {
+                        spans = Arrays.copyOf(spans, spans.length * 2);
+                    }
+
+                    spans[spanCount++] = packSpan(chunkFromX, Math.min(toX, chunkFromX | 15), z);
+                }
+            }
+        }
+
+        spans = Arrays.copyOf(spans, spanCount);
+        Arrays.sort(spans);
+
+        return spans;
+    }
+
+    /**
+     * Sorts spans (pairs of from and to x coordinates) and merges the overlapping and adjacent ones.
+     *
+     * @param rowSpans      The spans, merged in place
+     * @param rowSpanCount  The number of used elements (twice the number of spans)
+     * @return The number of used elements after merging
+     */
+    private static int mergeSpans(int @NotNull [] rowSpans, int rowSpanCount) {
+        int spanCount = rowSpanCount / 2;
+
+        // Rows of convex polygons only have one span, so the insertion sort is almost always trivial
+        for (int i = 1; i < spanCount; i++) {
+            int fromX = rowSpans[i * 2];
+            int toX = rowSpans[i * 2 + 1];
+            int j = i - 1;
+
+            while (j >= 0 && rowSpans[j * 2] > fromX) {
+                rowSpans[(j + 1) * 2] = rowSpans[j * 2];
+                rowSpans[(j + 1) * 2 + 1] = rowSpans[j * 2 + 1];
+                j--;
+            }
+
+            rowSpans[(j + 1) * 2] = fromX;
+            rowSpans[(j + 1) * 2 + 1] = toX;
+        }
+
+        int merged = 0;
+
+        for (int i = 0; i < spanCount; i++) {
+            int fromX = rowSpans[i * 2];
+            int toX = rowSpans[i * 2 + 1];
+
+            if (merged > 0 && fromX <= rowSpans[merged - 1] + 1) {
+                rowSpans[merged - 1] = Math.max(rowSpans[merged - 1], toX);
+            } else {
+                rowSpans[merged++] = fromX;
+                rowSpans[merged++] = toX;
+            }
+        }
+
+        return merged;
+    }
+
+    //<editor-fold desc="Packed spans">
+
+    /**
+     * Packs a span within a single chunk into a long (22 bits chunk z, 22 bits chunk x, 4 bits each for z, from x and to x within the chunk).
+     *
+     * @param fromX The first x coordinate of the span
+     * @param toX   The last x coordinate of the span (in the same chunk as {@code fromX})
+     * @param z     The z coordinate of the span
+     * @return The packed span
+     */
+    public static long packSpan(int fromX, int toX, int z) {
+        return ((long) ((z >> 4) + CHUNK_OFFSET) << 34)
+                | ((long) ((fromX >> 4) + CHUNK_OFFSET) << 12)
+                | ((z & 15) << 8)
+                | ((fromX & 15) << 4)
+                | (toX & 15);
+    }
+
+    /**
+     * Groups spans sorted by chunk into chunks.
+     *
+     * @param spans The packed spans, sorted by chunk
+     * @return The index of the first span of every chunk, followed by the number of spans
+     */
+    public static int @NotNull [] groupByChunk(long @NotNull [] spans) {
+        int[] chunkSpanStarts = new int[spans.length + 1];
+        int chunkCount = 0;
+
+        for (int i = 0; i < spans.length; i++) {
+            // The chunk is stored in the bits above the position within the chunk
+            if (i == 0 || spans[i] >>> 12 != spans[i - 1] >>> 12) {
+                chunkSpanStarts[chunkCount++] = i;
+            }
+        }
+
+        chunkSpanStarts[chunkCount] = spans.length;
+
+        return Arrays.copyOf(chunkSpanStarts, chunkCount + 1);
+    }
+
+    public static int getFromX(long span) {
+        return ((int) (span >> 12 & 0x3FFFFF) - CHUNK_OFFSET) << 4 | (int) (span >> 4 & 15);
+    }
+
+    public static int getToX(long span) {
+        return ((int) (span >> 12 & 0x3FFFFF) - CHUNK_OFFSET) << 4 | (int) (span & 15);
+    }
+
+    public static int getZ(long span) {
+        return ((int) (span >> 34 & 0x3FFFFF) - CHUNK_OFFSET) << 4 | (int) (span >> 8 & 15);
+    }
+
+    public static int getChunkX(long span) {
+        return (int) (span >> 12 & 0x3FFFFF) - CHUNK_OFFSET;
+    }
+
+    public static int getChunkZ(long span) {
+        return (int) (span >> 34 & 0x3FFFFF) - CHUNK_OFFSET;
+    }
+    //</editor-fold>
+}
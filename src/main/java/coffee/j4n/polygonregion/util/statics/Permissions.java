@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util.statics;
+
+/**
+ * This class provides the permission nodes of the plugin (declared in the plugin.yml).
+ */
+public final class Permissions {
+    /**
+     * The permission to remove the fences of all players, not only the own ones.
+     */
+    public static final String UNFENCE = "polygonregion.unfence";
+
+    /**
+     * The permission to fill regions with /pregion fill.
+     */
+    public static final String FILL = "polygonregion.fill";
+
+    /**
+     * The permission to create regions from files with /pregion import.
+     */
+    public static final String IMPORT = "polygonregion.import";
+
+    /**
+     * The permission to write all regions to files with /pregion export.
+     */
+    public static final String EXPORT = "polygonregion.export";
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * This class provides fakes of Bukkit types, so that the tests run without a server.<br />
+ * <p>
+ * - Fakes are dynamic proxies that answer the methods given to them, all other methods return default values.<br />
+ * - Fakes with state and counters (server, scheduler, world) have their own classes, see {@link FakeServer}, {@link FakeScheduler} and {@link FakeWorld}.<br />
+ */
+public final class BukkitFakes {
+
+    private BukkitFakes() {
+    }
+
+    /**
+     * Creates a player standing at the given location (without a world).
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The fake player
+     */
+    public static @NotNull Player player(double x, double y, double z) {
+        Location location = new Location(null, x, y, z);
+        UUID uniqueId = UUID.randomUUID();
+
+        return fake(Player.class, Map.of(
+                "getLocation", args -> location.clone(),
+                "getUniqueId", args -> uniqueId,
+                "getName", args -> "Tester"
+        ));
+    }
+
+    /**
+     * Creates the block data of a material.
+     *
+     * @param material The material
+     * @return The fake block data
+     */
+    public static @NotNull BlockData blockData(@NotNull Material material) {
+        return fake(BlockData.class, Map.of(
+                "getMaterial", args -> material,
+                "clone", args -> blockData(material),
+                "getAsString", args -> material.name()
+        ));
+    }
+
+    /**
+     * Creates a fake of an interface.
+     *
+     * @param type    The interface
+     * @param answers The answers of the faked methods by method name
+     * @return The fake
+     */
+    public static <T> @NotNull T fake(@NotNull Class<T> type, @NotNull Map<String, Answer> answers) {
+        return type.cast(Proxy.newProxyInstance(BukkitFakes.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Answer answer = answers.get(method.getName());
+
+            if (answer != null) {
+                return answer.answer(args == null ? new Object[0] : args);
+            }
+
+            return defaultValue(proxy, method, args);
+        }));
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        // Fakes are only equal to themselves
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Fake" + proxy.getClass().getInterfaces()[0].getSimpleName();
+        }
+
+        Class<?> returnType = method.getReturnType();
+
+        // The default value of a primitive type is the element of a new array of that type
+        if (returnType.isPrimitive() && returnType != void.class) {
+            return Array.get(Array.newInstance(returnType, 1), 0);
+        }
+
+        return null;
+    }
+
+    /**
+     * The answer of a faked method.
+     */
+    @FunctionalInterface
+    public interface Answer {
+        Object answer(Object @NotNull [] args) throws Throwable;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion;
+
+import coffee.j4n.polygonregion.util.statics.ItemStacks;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * This class fakes a player in a {@link FakeWorld} holding the region stick.<br />
+ * <p>
+ * - The player has every permission and records the messages sent to it.<br />
+ * - Item metas need the item factory of a server, so the region stick answers its name itself.<br />
+ */
+public class FakePlayer {
+
+    private final Player player;
+    private final UUID uniqueId = UUID.randomUUID();
+    private final List<String> messages = new ArrayList<>();
+
+    private Location location;
+    private boolean sneaking = false;
+
+    public FakePlayer(@NotNull FakeWorld world, double x, double y, double z) {
+        this.location = new Location(world.getWorld(), x, y, z);
+
+        ItemMeta regionStickMeta = BukkitFakes.fake(ItemMeta.class, Map.of(
+                "getDisplayName", args -> ItemStacks.REGION_STICK_NAME,
+                "hasDisplayName", args -> true
+        ));
+
+        ItemStack regionStick = new ItemStack(Material.STICK) {
+            @Override
+            public ItemMeta getItemMeta() {
+                return regionStickMeta;
+            }
+        };
+
+        PlayerInventory inventory = BukkitFakes.fake(PlayerInventory.class, Map.of(
+                "getItemInMainHand", args -> regionStick
+        ));
+
+        Map<String, BukkitFakes.Answer> answers = new HashMap<>();
+        answers.put("getUniqueId", args -> uniqueId);
+        answers.put("getName", args -> "Tester");
+        answers.put("getWorld", args -> location.getWorld());
+        answers.put("getLocation", args -> location.clone());
+        answers.put("getInventory", args -> inventory);
+        answers.put("isSneaking", args -> sneaking);
+        answers.put("isOnline", args -> true);
+        answers.put("hasPermission", args -> true);
+        answers.put("isOp", args -> true);
+        answers.put("sendMessage", args -> {
+            if (args[0] instanceof String message) {
+                messages.add(message);
+            }
+
+            return null;
+        });
+
+        this.player = BukkitFakes.fake(Player.class, answers);
+    }
+
+    /**
+     * @return The player to hand to the tested code
+     */
+    public @NotNull Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Moves the player, without firing any event.
+     *
+     * @param world The world the player is moved to
+     * @param x     The x coordinate
+     * @param y     The y coordinate
+     * @param z     The z coordinate
+     */
+    public void teleport(@NotNull FakeWorld world, double x, double y, double z) {
+        location = new Location(world.getWorld(), x, y, z);
+    }
+
+    public void setSneaking(boolean sneaking) {
+        this.sneaking = sneaking;
+    }
+
+    /**
+     * @return The messages sent to the player so far
+     */
+    public @NotNull List<String> getMessages() {
+        return messages;
+    }
+}
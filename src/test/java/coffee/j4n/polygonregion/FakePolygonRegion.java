@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion;
+
+import com.sk89q.worldguard.protection.flags.registry.SimpleFlagRegistry;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.managers.index.HashMapIndex;
+import com.sk89q.worldguard.protection.managers.storage.MemoryRegionDatabase;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class runs the plugin on a {@link FakeServer}, enabled like on a real server.<br />
+ * <p>
+ * - The plugin reads the shipped plugin.yml and config.yml, its data folder is a folder of the test.<br />
+ * - WorldGuard is not running, every world gets an empty region manager that keeps its regions in memory.<br />
+ * - Commands are run through the registered {@code /pregion} command (see {@link #runCommand}).<br />
+ */
+public final class FakePolygonRegion extends PolygonRegion {
+
+    private final Map<String, RegionManager> regionManagers = new HashMap<>();
+
+    private FakePolygonRegion(@NotNull JavaPluginLoader loader, @NotNull PluginDescriptionFile description, @NotNull File dataFolder, @NotNull File file) {
+        super(loader, description, dataFolder, file);
+    }
+
+    /**
+     * Creates the plugin on a fake server and enables it.
+     *
+     * @param server     The fake server
+     * @param dataFolder The data folder of the plugin
+     * @return The enabled plugin
+     */
+    public static @NotNull FakePolygonRegion enable(@NotNull FakeServer server, @NotNull File dataFolder) {
+        PluginDescriptionFile description;
+
+        try (InputStream pluginYml = FakePolygonRegion.class.getResourceAsStream("/plugin.yml")) {
+            description = new PluginDescriptionFile(pluginYml);
+        } catch (IOException | InvalidDescriptionException e) {
+            throw new IllegalStateException("Failed to read the shipped plugin.yml", e);
+        }
+
+        FakePolygonRegion plugin = new FakePolygonRegion(new JavaPluginLoader(server.getServer()), description, dataFolder, new File(dataFolder, "PolygonRegion.jar"));
+
+        server.recordWarnings(plugin.getLogger());
+        server.addCommand(new PluginCommand("pregion", plugin) {
+        });
+
+        plugin.setEnabled(true);
+
+        return plugin;
+    }
+
+    /**
+     * Runs {@code /pregion} with the given arguments.
+     *
+     * @param player The player running the command
+     * @param args   The arguments
+     */
+    public void runCommand(@NotNull FakePlayer player, @NotNull String... args) {
+        getCommand("pregion").execute(player.getPlayer(), "pregion", args);
+    }
+
+    @Override
+    public @NotNull RegionManager getRegionManager(@NotNull World world) {
+        return regionManagers.computeIfAbsent(world.getName(), worldName -> new RegionManager(new MemoryRegionDatabase(), new HashMapIndex.Factory(), new SimpleFlagRegistry()));
+    }
+}
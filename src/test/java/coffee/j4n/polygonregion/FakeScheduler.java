@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * This class fakes the scheduler of a server, time only passes when the test calls {@link #tick()}.<br />
+ * <p>
+ * - Every scheduled task is counted, repeating tasks are counted separately.<br />
+ * - Asynchronous tasks run on the calling thread, like synchronous ones.<br />
+ */
+public class FakeScheduler {
+
+    private final BukkitScheduler scheduler;
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+
+    private int currentTick = 0;
+    private int scheduledTaskCount = 0;
+    private int repeatingTaskCount = 0;
+
+    public FakeScheduler() {
+        Map<String, BukkitFakes.Answer> answers = new HashMap<>();
+        answers.put("runTask", args -> schedule(args, 0, -1));
+        answers.put("runTaskAsynchronously", args -> schedule(args, 0, -1));
+        answers.put("runTaskLater", args -> schedule(args, (long) args[2], -1));
+        answers.put("runTaskLaterAsynchronously", args -> schedule(args, (long) args[2], -1));
+        answers.put("runTaskTimer", args -> schedule(args, (long) args[2], (long) args[3]));
+        answers.put("runTaskTimerAsynchronously", args -> schedule(args, (long) args[2], (long) args[3]));
+
+        this.scheduler = BukkitFakes.fake(BukkitScheduler.class, answers);
+    }
+
+    /**
+     * @return The scheduler to hand to the tested code
+     */
+    public @NotNull BukkitScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Advances the time by one tick and runs all tasks that are due.
+     */
+    public void tick() {
+        currentTick++;
+
+        for (ScheduledTask task : new ArrayList<>(tasks)) {
+            if (task.cancelled || task.nextRunTick > currentTick) {
+                continue;
+            }
+
+            if (task.period < 0) {
+                task.cancelled = true;
+            } else {
+                task.nextRunTick = currentTick + Math.max(1, task.period);
+            }
+
+            task.run();
+        }
+
+        tasks.removeIf(task -> task.cancelled);
+    }
+
+    /**
+     * Advances the time until no task is left, but at most by the given number of ticks.
+     *
+     * @param maxTicks The maximum number of ticks
+     * @return The number of ticks that have passed
+     */
+    public int tickUntilIdle(int maxTicks) {
+        int ticks = 0;
+
+        while (!tasks.isEmpty() && ticks < maxTicks) {
+            tick();
+            ticks++;
+        }
+
+        return ticks;
+    }
+
+    /**
+     * @return The number of tasks scheduled so far (including repeating tasks)
+     */
+    public int getScheduledTaskCount() {
+        return scheduledTaskCount;
+    }
+
+    /**
+     * @return The number of repeating tasks scheduled so far
+     */
+    public int getRepeatingTaskCount() {
+        return repeatingTaskCount;
+    }
+
+    /**
+     * @return The number of repeating tasks that have not been cancelled yet
+     */
+    public int getActiveRepeatingTaskCount() {
+        return (int) tasks.stream().filter(task -> !task.cancelled && task.period >= 0).count();
+    }
+
+    private BukkitTask schedule(Object[] args, long delay, long period) {
+        ScheduledTask task = new ScheduledTask((Plugin) args[0], args[1], currentTick + Math.max(0, delay), period);
+        tasks.add(task);
+
+        scheduledTaskCount++;
+
+        if (period >= 0) {
+            repeatingTaskCount++;
+        }
+
+        return task.bukkitTask;
+    }
+
+    /**
+     * A task waiting for its next run.
+     */
+    private final class ScheduledTask {
+        private final Object action;
+        private final long period;
+        private final BukkitTask bukkitTask;
+
+        private long nextRunTick;
+        private boolean cancelled = false;
+
+        private ScheduledTask(Plugin owner, Object action, long nextRunTick, long period) {
+            this.action = action;
+            this.nextRunTick = nextRunTick;
+            this.period = period;
+
+            int taskId = scheduledTaskCount + 1;
+
+            this.bukkitTask = BukkitFakes.fake(BukkitTask.class, Map.of(
+                    "getTaskId", args -> taskId,
+                    "getOwner", args -> owner,
+                    "isSync", args -> true,
+                    "isCancelled", args -> cancelled,
+                    "cancel", args -> {
+                        cancelled = true;
+                        return null;
+                    }
+            ));
+        }
+
+        @SuppressWarnings("unchecked")
+        private void run() {
+            if (action instanceof Runnable runnable) {
+                runnable.run();
+            } else {
+                ((Consumer<BukkitTask>) action).accept(bukkitTask);
+            }
+        }
+    }
+}
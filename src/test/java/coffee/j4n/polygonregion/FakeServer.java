@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * This class fakes the server the plugin runs on.<br />
+ * <p>
+ * - The server is installed as the Bukkit server once, as some API calls (e.g. {@link Material#createBlockData()}) go through it.<br />
+ * - Every test gets a new scheduler and a new plugin with the shipped config (see {@link #reset()}).<br />
+ * - Worlds, players and commands are only known to the server once the test has added them.<br />
+ * - Listeners and services registered by a plugin are ignored.<br />
+ * - Warnings of the plugin (e.g. exceeded budgets) are recorded.<br />
+ */
+public final class FakeServer {
+
+    private static FakeServer instance;
+
+    private final Server server;
+    private final Logger logger = Logger.getLogger("PolygonRegionTest");
+    private final List<String> warnings = new ArrayList<>();
+    private final Handler warningHandler;
+
+    private final PluginManager pluginManager = BukkitFakes.fake(PluginManager.class, Map.of());
+    private final ServicesManager servicesManager = BukkitFakes.fake(ServicesManager.class, Map.of());
+
+    private final List<World> worlds = new ArrayList<>();
+    private final Map<UUID, Player> players = new HashMap<>();
+    private final Map<String, PluginCommand> commands = new HashMap<>();
+
+    private FakeScheduler scheduler = new FakeScheduler();
+    private Plugin plugin;
+
+    private FakeServer() {
+        Map<String, BukkitFakes.Answer> answers = new HashMap<>();
+        answers.put("getScheduler", args -> scheduler.getScheduler());
+        answers.put("isPrimaryThread", args -> true);
+        answers.put("getLogger", args -> logger);
+        answers.put("getName", args -> "FakeServer");
+        answers.put("createBlockData", args -> BukkitFakes.blockData((Material) args[0]));
+        answers.put("getPluginManager", args -> pluginManager);
+        answers.put("getServicesManager", args -> servicesManager);
+        answers.put("getPluginCommand", args -> commands.get((String) args[0]));
+        answers.put("getWorlds", args -> new ArrayList<>(worlds));
+        answers.put("getWorld", args -> worlds.stream()
+                .filter(world -> args[0] instanceof UUID ? world.getUID().equals(args[0]) : world.getName().equals(args[0]))
+                .findFirst()
+                .orElse(null));
+        answers.put("getOnlinePlayers", args -> new ArrayList<>(players.values()));
+        answers.put("getPlayer", args -> args[0] instanceof UUID ? players.get(args[0]) : null);
+
+        this.server = BukkitFakes.fake(Server.class, answers);
+
+        logger.setUseParentHandlers(false);
+        this.warningHandler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                    warnings.add(record.getMessage());
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(warningHandler);
+    }
+
+    /**
+     * Returns the fake server with a new scheduler and plugin, installing it as the Bukkit server on the first call.
+     *
+     * @return The fake server
+     */
+    public static synchronized @NotNull FakeServer reset() {
+        if (instance == null) {
+            instance = new FakeServer();
+            instance.install();
+        }
+
+        instance.scheduler = new FakeScheduler();
+        instance.plugin = instance.createPlugin();
+        instance.worlds.clear();
+        instance.players.clear();
+        instance.commands.clear();
+        instance.warnings.clear();
+
+        return instance;
+    }
+
+    public @NotNull Server getServer() {
+        return server;
+    }
+
+    public @NotNull FakeScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return A plugin on this server with the config shipped with the plugin
+     */
+    public @NotNull Plugin getPlugin() {
+        return plugin;
+    }
+
+    /**
+     * Adds a world to the server.
+     *
+     * @param world The world
+     */
+    public void addWorld(@NotNull FakeWorld world) {
+        worlds.add(world.getWorld());
+    }
+
+    /**
+     * Lets a player join the server.
+     *
+     * @param player The player
+     */
+    public void addPlayer(@NotNull Player player) {
+        players.put(player.getUniqueId(), player);
+    }
+
+    /**
+     * Adds a command of a plugin to the server (like the commands of its plugin.yml).
+     *
+     * @param command The command
+     */
+    public void addCommand(@NotNull PluginCommand command) {
+        commands.put(command.getName(), command);
+    }
+
+    /**
+     * Records the warnings of another logger as well (e.g. of a plugin with its own logger).
+     *
+     * @param otherLogger The logger
+     */
+    public void recordWarnings(@NotNull Logger otherLogger) {
+        // Plugin loggers are shared by name, so they may already record them
+        if (!Arrays.asList(otherLogger.getHandlers()).contains(warningHandler)) {
+            otherLogger.addHandler(warningHandler);
+        }
+    }
+
+    /**
+     * @return The warnings logged since the last reset
+     */
+    public @NotNull List<String> getWarnings() {
+        return warnings;
+    }
+
+    private @NotNull Plugin createPlugin() {
+        YamlConfiguration config;
+
+        try (Reader reader = new InputStreamReader(FakeServer.class.getResourceAsStream("/config.yml"), StandardCharsets.UTF_8)) {
+            config = YamlConfiguration.loadConfiguration(reader);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to read the shipped config.yml", e);
+        }
+
+        return BukkitFakes.fake(Plugin.class, Map.of(
+                "getServer", args -> server,
+                "getConfig", args -> config,
+                "getLogger", args -> logger,
+                "getName", args -> "PolygonRegion",
+                "isEnabled", args -> true
+        ));
+    }
+
+    private void install() {
+        // Bukkit.setServer() logs the version of the server, which is read from the manifest of a server jar
+        try {
+            Field serverField = Bukkit.class.getDeclaredField("server");
+            serverField.setAccessible(true);
+            serverField.set(null, server);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to install the fake server", e);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion;
+
+import coffee.j4n.polygonregion.util.BlockKeys;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.FallingBlock;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * This class fakes a world: every block is air unless it has been set.<br />
+ * <p>
+ * - Block writes, entity spawns, entity removals, entity-list scans, chunk loads and plugin chunk tickets are counted.<br />
+ * - Chunks are loaded right away, their snapshots see the blocks of the world.<br />
+ * - Spawned falling blocks stay in the air until the test lets them land (see {@link #landFallingBlocks()}).<br />
+ */
+public class FakeWorld {
+
+    private final World world;
+    private final UUID uniqueId = UUID.randomUUID();
+
+    private final Map<Long, Material> blocks = new HashMap<>();
+    private final List<FallingBlockState> fallingBlocks = new ArrayList<>();
+
+    private int blockWrites = 0;
+    private int entitySpawns = 0;
+    private int entityRemovals = 0;
+    private int entityScans = 0;
+    private int chunkLoads = 0;
+    private int chunkTickets = 0;
+
+    public FakeWorld(@NotNull String name) {
+        Map<String, BukkitFakes.Answer> answers = new HashMap<>();
+        answers.put("getName", args -> name);
+        answers.put("getUID", args -> uniqueId);
+        answers.put("getMinHeight", args -> -64);
+        answers.put("getMaxHeight", args -> 320);
+        answers.put("getBlockAt", args -> args.length == 1
+                ? getBlockAt(((Location) args[0]).getBlockX(), ((Location) args[0]).getBlockY(), ((Location) args[0]).getBlockZ())
+                : getBlockAt((int) args[0], (int) args[1], (int) args[2]));
+        answers.put("spawnFallingBlock", args -> spawnFallingBlock((Location) args[0], (BlockData) args[1]));
+        answers.put("spawn", args -> spawn((Location) args[0], (Class<?>) args[1], args[args.length - 1] instanceof Consumer<?> function ? function : null));
+        answers.put("getChunkAtAsync", args -> {
+            chunkLoads++;
+            return CompletableFuture.completedFuture(getChunkAt((int) args[0], (int) args[1]));
+        });
+
+        // The entity lists of a world are expensive on a server, every scan is counted
+        BukkitFakes.Answer scan = args -> {
+            entityScans++;
+            return new ArrayList<>();
+        };
+
+        answers.put("getEntities", scan);
+        answers.put("getLivingEntities", scan);
+        answers.put("getEntitiesByClass", scan);
+        answers.put("getEntitiesByClasses", scan);
+        answers.put("getNearbyEntities", scan);
+
+        this.world = BukkitFakes.fake(World.class, answers);
+    }
+
+    /**
+     * @return The world to hand to the tested code
+     */
+    public @NotNull World getWorld() {
+        return world;
+    }
+
+    /**
+     * Returns the material of a block.
+     *
+     * @param x The x coordinate of the block
+     * @param y The y coordinate of the block
+     * @param z The z coordinate of the block
+     * @return The material, air if the block has not been set
+     */
+    public @NotNull Material getType(int x, int y, int z) {
+        return blocks.getOrDefault(BlockKeys.pack(x, y, z), Material.AIR);
+    }
+
+    /**
+     * Sets a block without counting it as block write (e.g. to prepare the world).
+     *
+     * @param x        The x coordinate of the block
+     * @param y        The y coordinate of the block
+     * @param z        The z coordinate of the block
+     * @param material The material
+     */
+    public void setType(int x, int y, int z, @NotNull Material material) {
+        blocks.put(BlockKeys.pack(x, y, z), material);
+    }
+
+    /**
+     * Lets all falling blocks that have not been removed touch the ground.
+     */
+    public void landFallingBlocks() {
+        for (FallingBlockState fallingBlock : fallingBlocks) {
+            fallingBlock.onGround = true;
+        }
+    }
+
+    /**
+     * @return The number of falling blocks that have not been removed yet
+     */
+    public int getFallingBlockCount() {
+        return (int) fallingBlocks.stream().filter(fallingBlock -> fallingBlock.valid).count();
+    }
+
+    public int getBlockWrites() {
+        return blockWrites;
+    }
+
+    public int getEntitySpawns() {
+        return entitySpawns;
+    }
+
+    public int getEntityRemovals() {
+        return entityRemovals;
+    }
+
+    public int getEntityScans() {
+        return entityScans;
+    }
+
+    public int getChunkLoads() {
+        return chunkLoads;
+    }
+
+    /**
+     * @return The number of plugin chunk tickets that have been added and not removed yet
+     */
+    public int getChunkTickets() {
+        return chunkTickets;
+    }
+
+    private @NotNull Block getBlockAt(int x, int y, int z) {
+        long blockKey = BlockKeys.pack(x, y, z);
+
+        return BukkitFakes.fake(Block.class, Map.of(
+                "getX", args -> x,
+                "getY", args -> y,
+                "getZ", args -> z,
+                "getWorld", args -> world,
+                "getLocation", args -> new Location(world, x, y, z),
+                "getType", args -> getType(x, y, z),
+                "getBlockData", args -> BukkitFakes.blockData(getType(x, y, z)),
+                "setType", args -> {
+                    blocks.put(blockKey, (Material) args[0]);
+                    blockWrites++;
+                    return null;
+                },
+                "setBlockData", args -> {
+                    blocks.put(blockKey, ((BlockData) args[0]).getMaterial());
+                    blockWrites++;
+                    return null;
+                }
+        ));
+    }
+
+    @SuppressWarnings("unchecked")
+    private @NotNull Entity spawn(@NotNull Location location, @NotNull Class<?> type, Consumer<?> function) {
+        Location spawnLocation = location.clone();
+        UUID entityId = UUID.randomUUID();
+        boolean[] valid = {true};
+
+        entitySpawns++;
+
+        Entity entity = (Entity) BukkitFakes.fake(type, Map.of(
+                "getUniqueId", args -> entityId,
+                "getLocation", args -> spawnLocation.clone(),
+                "getWorld", args -> world,
+                "isValid", args -> valid[0],
+                "remove", args -> {
+                    if (valid[0]) {
+                        valid[0] = false;
+                        entityRemovals++;
+                    }
+
+                    return null;
+                }
+        ));
+
+        if (function != null) {
+            ((Consumer<Entity>) function).accept(entity);
+        }
+
+        return entity;
+    }
+
+    private @NotNull Chunk getChunkAt(int chunkX, int chunkZ) {
+        return BukkitFakes.fake(Chunk.class, Map.of(
+                "getX", args -> chunkX,
+                "getZ", args -> chunkZ,
+                "getWorld", args -> world,
+                "isLoaded", args -> true,
+                "getChunkSnapshot", args -> getChunkSnapshot(chunkX, chunkZ),
+                "addPluginChunkTicket", args -> {
+                    chunkTickets++;
+                    return true;
+                },
+                "removePluginChunkTicket", args -> {
+                    chunkTickets--;
+                    return true;
+                }
+        ));
+    }
+
+    private @NotNull ChunkSnapshot getChunkSnapshot(int chunkX, int chunkZ) {
+        int minHeight = world.getMinHeight();
+
+        return BukkitFakes.fake(ChunkSnapshot.class, Map.of(
+                "getX", args -> chunkX,
+                "getZ", args -> chunkZ,
+                "getWorldName", args -> world.getName(),
+                "getBlockType", args -> getType((chunkX << 4) + (int) args[0], (int) args[1], (chunkZ << 4) + (int) args[2]),
+                "getHighestBlockYAt", args -> getHighestBlockY((chunkX << 4) + (int) args[0], (chunkZ << 4) + (int) args[1]),
+                "isSectionEmpty", args -> isSectionEmpty(chunkX, chunkZ, minHeight + ((int) args[0] << 4))
+        ));
+    }
+
+    private int getHighestBlockY(int x, int z) {
+        int highestY = world.getMinHeight() - 1;
+
+        for (Map.Entry<Long, Material> block : blocks.entrySet()) {
+            long blockKey = block.getKey();
+
+            if (BlockKeys.getX(blockKey) == x && BlockKeys.getZ(blockKey) == z && !block.getValue().isAir()) {
+                highestY = Math.max(highestY, BlockKeys.getY(blockKey));
+            }
+        }
+
+        return highestY;
+    }
+
+    private boolean isSectionEmpty(int chunkX, int chunkZ, int sectionMinY) {
+        for (Map.Entry<Long, Material> block : blocks.entrySet()) {
+            long blockKey = block.getKey();
+
+            if (BlockKeys.getX(blockKey) >> 4 == chunkX && BlockKeys.getZ(blockKey) >> 4 == chunkZ
+                    && BlockKeys.getY(blockKey) >= sectionMinY && BlockKeys.getY(blockKey) < sectionMinY + 16
+                    && !block.getValue().isAir()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private @NotNull FallingBlock spawnFallingBlock(@NotNull Location location, @NotNull BlockData blockData) {
+        FallingBlockState state = new FallingBlockState();
+        Location spawnLocation = location.clone();
+        UUID entityId = UUID.randomUUID();
+
+        fallingBlocks.add(state);
+        entitySpawns++;
+
+        return BukkitFakes.fake(FallingBlock.class, Map.of(
+                "getUniqueId", args -> entityId,
+                "getLocation", args -> spawnLocation.clone(),
+                "getWorld", args -> world,
+                "getBlockData", args -> blockData,
+                "isValid", args -> state.valid,
+                "isOnGround", args -> state.onGround,
+                "remove", args -> {
+                    state.valid = false;
+                    return null;
+                }
+        ));
+    }
+
+    /**
+     * The state of a spawned falling block.
+     */
+    private static final class FallingBlockState {
+        private boolean valid = true;
+        private boolean onGround = false;
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.commands;
+
+import coffee.j4n.polygonregion.FakePlayer;
+import coffee.j4n.polygonregion.FakePolygonRegion;
+import coffee.j4n.polygonregion.FakeServer;
+import coffee.j4n.polygonregion.FakeWorld;
+import coffee.j4n.polygonregion.RegionMarker;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import com.sk89q.worldedit.math.BlockVector2;
+import org.bukkit.Material;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Budgets of the commands, run through {@code /pregion} against a region in the in-memory region manager of the fake plugin.
+ */
+class CmdRegionTest {
+
+    private static final int GROUND_Y = 63;
+    private static final int SIDE_LENGTH = 125;
+
+    @TempDir
+    File dataFolder;
+
+    private FakeServer server;
+    private FakeWorld world;
+    private FakePlayer player;
+    private FakePolygonRegion plugin;
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.reset();
+        world = new FakeWorld("world");
+        player = new FakePlayer(world, SIDE_LENGTH / 2.0, GROUND_Y + 1, SIDE_LENGTH / 2.0);
+
+        server.addWorld(world);
+        server.addPlayer(player.getPlayer());
+
+        plugin = FakePolygonRegion.enable(server, dataFolder);
+
+        // A square with a perimeter of 500 blocks on flat ground
+        List<BlockVector2> points = List.of(BlockVector2.at(0, 0), BlockVector2.at(SIDE_LENGTH, 0), BlockVector2.at(SIDE_LENGTH, SIDE_LENGTH), BlockVector2.at(0, SIDE_LENGTH));
+        plugin.getRegionManager(world.getWorld()).addRegion(RegionMarker.createDefaultRegion("square", points, -64, 320));
+
+        for (int i = 0; i < SIDE_LENGTH; i++) {
+            world.setType(i, GROUND_Y, 0, Material.GRASS_BLOCK);
+            world.setType(SIDE_LENGTH, GROUND_Y, i, Material.GRASS_BLOCK);
+            world.setType(SIDE_LENGTH - i, GROUND_Y, SIDE_LENGTH, Material.GRASS_BLOCK);
+            world.setType(0, GROUND_Y, SIDE_LENGTH - i, Material.GRASS_BLOCK);
+        }
+    }
+
+    @Test
+    void fencingA500BlockPerimeterSchedulesOneRepeatingTask() {
+        int repeatingTasksBefore = server.getScheduler().getRepeatingTaskCount();
+
+        plugin.runCommand(player, "fence", "square");
+
+        // Planning only loads the 28 chunks on the border of the 8x8 chunks of the region and hands their snapshots over to one background task
+        OperationCounters.OperationStats planning = plugin.getOperationCounters().getStats().get("place-wall-around-region");
+        assertEquals(1, planning.getMax(OperationCounters.Counter.SCHEDULED_TASKS));
+        assertEquals(0, planning.getMax(OperationCounters.Counter.ENTITY_SPAWNS));
+        assertEquals(0, planning.getMax(OperationCounters.Counter.BLOCK_WRITES));
+        assertEquals(28, world.getChunkLoads());
+
+        // The command is timed under the name of the method, not of the command
+        assertEquals(1, plugin.getMetrics().getHistograms().get("place-wall-around-region").getCount());
+
+        // The background task plans the wall, the next tick launches it
+        server.getScheduler().tick();
+        server.getScheduler().tick();
+
+        OperationCounters.OperationStats launch = plugin.getOperationCounters().getStats().get("fence-launch");
+        assertEquals(1, launch.getMax(OperationCounters.Counter.SCHEDULED_TASKS));
+        assertEquals(500, launch.getMax(OperationCounters.Counter.ENTITY_SPAWNS));
+        assertEquals(1, server.getScheduler().getRepeatingTaskCount() - repeatingTasksBefore);
+        assertEquals(500, world.getFallingBlockCount());
+        assertEquals(0, world.getEntityScans());
+
+        world.landFallingBlocks();
+        server.getScheduler().tick();
+
+        assertEquals(0, world.getFallingBlockCount());
+        assertEquals(500, world.getBlockWrites());
+        assertEquals(Material.PURPLE_CONCRETE, world.getType(0, GROUND_Y + 1, 0));
+        assertEquals(Material.PURPLE_CONCRETE, world.getType(SIDE_LENGTH, GROUND_Y + 1, SIDE_LENGTH / 2));
+
+        // The budgets shipped in the config hold
+        assertTrue(server.getWarnings().isEmpty(), server.getWarnings().toString());
+    }
+
+    @Test
+    void fencingAnUnknownRegionDoesNothing() {
+        plugin.runCommand(player, "fence", "unknown");
+        server.getScheduler().tick();
+
+        assertEquals(0, plugin.getOperationCounters().getStats().get("place-wall-around-region").getMax(OperationCounters.Counter.SCHEDULED_TASKS));
+        assertEquals(0, world.getChunkLoads());
+        assertEquals(0, world.getEntitySpawns());
+        assertTrue(player.getMessages().stream().anyMatch(message -> message.contains("unknown")), player.getMessages().toString());
+    }
+
+    @Test
+    void unfencingRestoresTheReplacedBlocksWithinTheUndoBudget() {
+        plugin.runCommand(player, "fence", "square");
+        server.getScheduler().tick();
+        server.getScheduler().tick();
+        world.landFallingBlocks();
+        server.getScheduler().tick();
+
+        plugin.runCommand(player, "unfence", "square");
+
+        // The journal is kept in memory and restored by a single repeating task
+        server.getScheduler().tickUntilIdle(100);
+
+        assertEquals(Material.AIR, world.getType(0, GROUND_Y + 1, 0));
+        assertEquals(1000, world.getBlockWrites());
+        assertEquals(1, plugin.getOperationCounters().getStats().get("unfence-region").getMax(OperationCounters.Counter.SCHEDULED_TASKS));
+        assertTrue(server.getWarnings().isEmpty(), server.getWarnings().toString());
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.fence;
+
+import coffee.j4n.polygonregion.FakeServer;
+import coffee.j4n.polygonregion.FakeWorld;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.metrics.PluginMetrics;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FallingFenceControllerTest {
+
+    private FakeServer server;
+    private FakeWorld world;
+    private OperationCounters counters;
+    private FallingFenceController controller;
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.reset();
+        world = new FakeWorld("world");
+        // The metrics only time the operations here
+        counters = new OperationCounters(server.getPlugin(), new PluginMetrics(null));
+        controller = new FallingFenceController(server.getPlugin(), counters);
+    }
+
+    @Test
+    void fencingA500BlockPerimeterSchedulesOneRepeatingTask() {
+        List<Location> perimeter = squarePerimeter(0, 0, 125);
+        assertEquals(500, perimeter.size());
+
+        launch(perimeter);
+
+        OperationCounters.OperationStats stats = counters.getStats().get("fence-launch");
+
+        assertEquals(1, server.getScheduler().getScheduledTaskCount());
+        assertEquals(1, server.getScheduler().getRepeatingTaskCount());
+        assertEquals(1, stats.getMax(OperationCounters.Counter.SCHEDULED_TASKS));
+        assertEquals(500, stats.getMax(OperationCounters.Counter.ENTITY_SPAWNS));
+        assertEquals(500, world.getEntitySpawns());
+        assertEquals(0, world.getEntityScans());
+
+        // The budgets shipped in the config hold
+        assertTrue(server.getWarnings().isEmpty(), server.getWarnings().toString());
+    }
+
+    @Test
+    void fenceLaunchedWhileAnotherIsFallingSharesItsTask() {
+        launch(squarePerimeter(0, 0, 125));
+        launch(squarePerimeter(500, 500, 50));
+
+        assertEquals(1, server.getScheduler().getRepeatingTaskCount());
+        assertEquals(700, controller.getInFlightCount());
+    }
+
+    @Test
+    void landedFenceBlocksArePlacedAndTheTaskStops() {
+        List<Location> perimeter = squarePerimeter(0, 0, 125);
+        launch(perimeter);
+
+        server.getScheduler().tick();
+
+        assertEquals(500, controller.getInFlightCount());
+        assertEquals(0, world.getBlockWrites());
+
+        world.landFallingBlocks();
+        server.getScheduler().tick();
+
+        assertEquals(0, controller.getInFlightCount());
+        assertEquals(0, world.getFallingBlockCount());
+        assertEquals(500, world.getBlockWrites());
+        assertEquals(0, server.getScheduler().getActiveRepeatingTaskCount());
+        assertEquals(0, world.getEntityScans());
+
+        for (Location location : perimeter) {
+            assertEquals(Material.OAK_FENCE, world.getType(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        }
+
+        // Landing is not part of an operation
+        assertEquals(500, counters.getStats().get(OperationCounters.BACKGROUND).getTotal(OperationCounters.Counter.BLOCK_WRITES));
+    }
+
+    @Test
+    void fenceBlocksThatNeverLandArePlacedAfterTheTimeout() {
+        launch(squarePerimeter(0, 0, 125));
+
+        int ticks = server.getScheduler().tickUntilIdle(1000);
+
+        assertTrue(ticks > 100 && ticks < 1000, String.valueOf(ticks));
+        assertEquals(0, controller.getInFlightCount());
+        assertEquals(500, world.getBlockWrites());
+    }
+
+    @Test
+    void fenceAfterTheTaskStoppedSchedulesANewTask() {
+        launch(squarePerimeter(0, 0, 125));
+        world.landFallingBlocks();
+        server.getScheduler().tick();
+
+        launch(squarePerimeter(500, 500, 50));
+
+        assertEquals(2, server.getScheduler().getRepeatingTaskCount());
+        assertEquals(1, server.getScheduler().getActiveRepeatingTaskCount());
+    }
+
+    private void launch(List<Location> wall) {
+        // Like a planned wall, all blocks of a fence are launched in one operation
+        counters.measure("fence-launch", () -> {
+            for (Location location : wall) {
+                controller.launch(location, Material.OAK_FENCE, null);
+            }
+        });
+    }
+
+    private List<Location> squarePerimeter(int minX, int minZ, int sideLength) {
+        List<Location> perimeter = new ArrayList<>();
+
+        for (int i = 0; i < sideLength; i++) {
+            perimeter.add(new Location(world.getWorld(), minX + i, 64, minZ));
+            perimeter.add(new Location(world.getWorld(), minX + sideLength, 64, minZ + i));
+            perimeter.add(new Location(world.getWorld(), minX + sideLength - i, 64, minZ + sideLength));
+            perimeter.add(new Location(world.getWorld(), minX, 64, minZ + sideLength - i));
+        }
+
+        return perimeter;
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexedPolygonTest {
+
+    @Test
+    void concavePolygonsAreClassifiedLikeTheExactTest() {
+        Random random = new Random(3);
+
+        for (int i = 0; i < 150; i++) {
+            assertClassifiedBlocksAreExact(randomStar(random, false));
+        }
+    }
+
+    @Test
+    void polygonsWithEdgesOnChunkBordersAreClassifiedLikeTheExactTest() {
+        Random random = new Random(4);
+
+        for (int i = 0; i < 150; i++) {
+            assertClassifiedBlocksAreExact(randomStar(random, true));
+        }
+    }
+
+    @Test
+    void rectanglesOnChunkBordersAreClassifiedLikeTheExactTest() {
+        // Edges on the first and on the last block of a chunk, on both sides of the origin
+        for (int minX : new int[]{-32, -17, 0, 15, 16}) {
+            for (int maxX : new int[]{31, 32, 47, 63}) {
+                assertClassifiedBlocksAreExact(new IndexedPolygon("rectangle", new int[]{minX, maxX, maxX, minX}, new int[]{-16, -16, 47, 47}, 0, 255));
+            }
+        }
+
+        // A concave outline whose notch ends exactly on a chunk corner
+        assertClassifiedBlocksAreExact(new IndexedPolygon("notch", new int[]{0, 64, 64, 32, 32, 0}, new int[]{0, 0, 64, 64, 16, 16}, 0, 255));
+    }
+
+    /**
+     * Checks every block in the INSIDE and OUTSIDE chunks around a polygon against the exact point test.
+     */
+    private static void assertClassifiedBlocksAreExact(IndexedPolygon polygon) {
+        ChunkClassification classification = polygon.getChunkClassification();
+        assertNotNull(classification);
+
+        int checked = 0;
+
+        for (int x = polygon.getMinX() - 16; x <= polygon.getMaxX() + 16; x++) {
+            for (int z = polygon.getMinZ() - 16; z <= polygon.getMaxZ() + 16; z++) {
+                if (classification.classify(x >> 4, z >> 4) == ChunkClassification.BOUNDARY) {
+                    continue;
+                }
+
+                assertEquals(containsExactly(polygon, x, z), polygon.contains(x, 64, z), polygon.getId() + " at " + x + ", " + z);
+                checked++;
+            }
+        }
+
+        assertTrue(checked > 0);
+    }
+
+    /**
+     * Returns a star-shaped (and thus simple, but usually concave) polygon.
+     *
+     * @param onChunkBorders Whether the points are moved onto the first or the last block of their chunk
+     */
+    private static IndexedPolygon randomStar(Random random, boolean onChunkBorders) {
+        int centerX = random.nextInt(2000) - 1000;
+        int centerZ = random.nextInt(2000) - 1000;
+        int pointCount = 3 + random.nextInt(14);
+
+        int[] xs = new int[pointCount];
+        int[] zs = new int[pointCount];
+
+        for (int i = 0; i < pointCount; i++) {
+            double angle = 2 * Math.PI * i / pointCount;
+            int radius = 8 + random.nextInt(120);
+            xs[i] = centerX + (int) Math.round(Math.cos(angle) * radius);
+            zs[i] = centerZ + (int) Math.round(Math.sin(angle) * radius);
+
+            if (onChunkBorders) {
+                xs[i] = (xs[i] & ~15) + (random.nextBoolean() ? 0 : 15);
+                zs[i] = (zs[i] & ~15) + (random.nextBoolean() ? 0 : 15);
+            }
+        }
+
+        return new IndexedPolygon(onChunkBorders ? "border-star" : "star", xs, zs, 0, 255);
+    }
+
+    /**
+     * The exact point test, independent of the one of the polygon: blocks on an edge are inside,
+     * all other blocks are inside if a ray in the +x direction crosses an odd number of edges.
+     */
+    private static boolean containsExactly(IndexedPolygon polygon, int x, int z) {
+        boolean inside = false;
+
+        for (int i = 0, j = polygon.getPointCount() - 1; i < polygon.getPointCount(); j = i++) {
+            long x1 = polygon.getPointX(j);
+            long z1 = polygon.getPointZ(j);
+            long x2 = polygon.getPointX(i);
+            long z2 = polygon.getPointZ(i);
+
+            long cross = (x2 - x1) * (z - z1) - (z2 - z1) * (x - x1);
+
+            if (cross == 0 && Math.min(x1, x2) <= x && x <= Math.max(x1, x2) && Math.min(z1, z2) <= z && z <= Math.max(z1, z2)) {
+                return true;
+            }
+
+            if ((z1 > z) != (z2 > z)) {
+                // The ray crosses the edge if the edge is right of the block at its z coordinate
+                boolean edgeIsRight = z2 > z1 ? cross > 0 : cross < 0;
+
+                if (edgeIsRight) {
+                    inside = !inside;
+                }
+            }
+        }
+
+        return inside;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PolygonGridIndexTest {
+
+    @Test
+    void batchOfPolygonsIsIndexedLikeAFullBuild() {
+        Random random = new Random(1);
+        List<IndexedPolygon> polygons = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++) {
+            polygons.add(randomPolygon(random, "region" + i));
+        }
+
+        PolygonGridIndex index = PolygonGridIndex.empty();
+
+        for (int i = 0; i < polygons.size(); i += 25) {
+            index = index.withChanges(polygons.subList(i, Math.min(polygons.size(), i + 25)), List.of());
+        }
+
+        assertSameQueries(PolygonGridIndex.of(polygons), index, random);
+    }
+
+    @Test
+    void addedReplacedAndRemovedPolygonsAreIndexedLikeAFullBuild() {
+        Random random = new Random(2);
+        Map<String, IndexedPolygon> expected = new LinkedHashMap<>();
+        PolygonGridIndex index = PolygonGridIndex.empty();
+
+        for (int round = 0; round < 200; round++) {
+            List<IndexedPolygon> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+
+            for (int i = 0; i < 1 + random.nextInt(10); i++) {
+                // Ids repeat, so polygons are replaced as well
+                String id = "region" + random.nextInt(150);
+
+                if (random.nextInt(4) == 0) {
+                    removed.add(id);
+                } else {
+                    added.add(randomPolygon(random, id));
+                }
+            }
+
+            removed.forEach(expected::remove);
+            added.forEach(polygon -> expected.put(polygon.getId(), polygon));
+
+            index = index.withChanges(added, removed);
+            assertEquals(expected.size(), index.size());
+        }
+
+        assertSameQueries(PolygonGridIndex.of(expected.values()), index, random);
+    }
+
+    @Test
+    void removedPolygonIsNotFoundAnymore() {
+        IndexedPolygon polygon = new IndexedPolygon("square", new int[]{0, 10, 10, 0}, new int[]{0, 0, 10, 10}, 0, 255);
+        PolygonGridIndex index = PolygonGridIndex.empty().withPolygon(polygon);
+
+        assertSame(polygon, index.getFirstContaining(5, 64, 5));
+
+        PolygonGridIndex withoutPolygon = index.withoutPolygon("square");
+
+        assertNull(withoutPolygon.getFirstContaining(5, 64, 5));
+        assertNull(withoutPolygon.getPolygon("square"));
+        // The previous index is not changed
+        assertSame(polygon, index.getFirstContaining(5, 64, 5));
+    }
+
+    @Test
+    void unchangedIndexIsReturnedWithoutChanges() {
+        PolygonGridIndex index = PolygonGridIndex.empty().withPolygon(new IndexedPolygon("square", new int[]{0, 10, 10, 0}, new int[]{0, 0, 10, 10}, 0, 255));
+
+        assertSame(index, index.withChanges(List.of(), List.of("unknown")));
+    }
+
+    private static IndexedPolygon randomPolygon(Random random, String id) {
+        int centerX = random.nextInt(4000) - 2000;
+        int centerZ = random.nextInt(4000) - 2000;
+        int radius = 5 + random.nextInt(150);
+        int pointCount = 3 + random.nextInt(8);
+
+        int[] xs = new int[pointCount];
+        int[] zs = new int[pointCount];
+
+        for (int i = 0; i < pointCount; i++) {
+            double angle = 2 * Math.PI * i / pointCount;
+            xs[i] = centerX + (int) (Math.cos(angle) * radius);
+            zs[i] = centerZ + (int) (Math.sin(angle) * radius);
+        }
+
+        return new IndexedPolygon(id, xs, zs, 0, 255);
+    }
+
+    private static void assertSameQueries(PolygonGridIndex expected, PolygonGridIndex actual, Random random) {
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(4400) - 2200;
+            int z = random.nextInt(4400) - 2200;
+
+            assertEquals(ids(expected.getContaining(x, 64, z)), ids(actual.getContaining(x, 64, z)), "Block " + x + ", " + z);
+            assertEquals(ids(expected.getIntersecting(x, z, x + 15, z + 15)), ids(actual.getIntersecting(x, z, x + 15, z + 15)), "Area " + x + ", " + z);
+        }
+    }
+
+    private static List<String> ids(List<IndexedPolygon> polygons) {
+        return polygons.stream().map(IndexedPolygon::getId).sorted(Comparator.naturalOrder()).toList();
+    }
+}
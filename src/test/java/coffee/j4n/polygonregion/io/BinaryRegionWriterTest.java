@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BinaryRegionWriterTest {
+
+    @Test
+    void pointsAreReadBackFromTheirZigZagDeltas() throws IOException {
+        // Negative coordinates, coordinates and deltas above 2^21 (more than three varint bytes) and up to the world border
+        List<BlockVector2> border = List.of(BlockVector2.at(-1, 0), BlockVector2.at(2_097_152, -5), BlockVector2.at(30_000_000, 29_999_999), BlockVector2.at(-30_000_000, -30_000_000));
+        List<BlockVector2> small = List.of(BlockVector2.at(-64, -64), BlockVector2.at(63, -64), BlockVector2.at(0, 64));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (BinaryRegionWriter writer = new BinaryRegionWriter(bytes)) {
+            writer.writeRegion("world", new ProtectedPolygonalRegion("border", border, -64, 320));
+            writer.writeRegion("world_nether", new ProtectedPolygonalRegion("small", small, 0, 127));
+        }
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertArrayEquals(BinaryRegionWriter.MAGIC, input.readNBytes(4));
+        assertEquals(BinaryRegionWriter.VERSION, input.readUnsignedByte());
+
+        assertRegion(input, "border", "world", -64, 320, border);
+        assertRegion(input, "small", "world_nether", 0, 127, small);
+
+        assertEquals(0, input.readUnsignedByte());
+        assertEquals(-1, input.read());
+    }
+
+    @Test
+    void neighbouringPointsTakeFewBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (BinaryRegionWriter writer = new BinaryRegionWriter(bytes)) {
+            writer.writeRegion("w", new ProtectedPolygonalRegion("r", List.of(BlockVector2.at(0, 0), BlockVector2.at(-1, 1), BlockVector2.at(-1, -64)), 0, 0));
+        }
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream expectedOutput = new DataOutputStream(expected);
+
+        expectedOutput.write(BinaryRegionWriter.MAGIC);
+        expectedOutput.writeByte(BinaryRegionWriter.VERSION);
+        expectedOutput.writeByte(1);
+        expectedOutput.writeUTF("r");
+        expectedOutput.writeUTF("w");
+        expectedOutput.writeInt(0);
+        expectedOutput.writeInt(0);
+        // 3 points with the deltas (0, 0), (-1, 1) and (0, -65), the last one takes two bytes
+        expectedOutput.write(new byte[]{3, 0, 0, 1, 2, 0, (byte) 0x81, 1});
+        // No flags, end of file
+        expectedOutput.write(new byte[]{0, 0});
+
+        assertArrayEquals(expected.toByteArray(), bytes.toByteArray(), Arrays.toString(bytes.toByteArray()));
+    }
+
+    private static void assertRegion(DataInputStream input, String name, String worldName, int minY, int maxY, List<BlockVector2> points) throws IOException {
+        assertEquals(1, input.readUnsignedByte());
+        assertEquals(name, input.readUTF());
+        assertEquals(worldName, input.readUTF());
+        assertEquals(minY, input.readInt());
+        assertEquals(maxY, input.readInt());
+
+        int pointCount = readVarInt(input);
+        List<BlockVector2> readPoints = new ArrayList<>(pointCount);
+        int x = 0;
+        int z = 0;
+
+        for (int i = 0; i < pointCount; i++) {
+            x += unZigZag(readVarInt(input));
+            z += unZigZag(readVarInt(input));
+            readPoints.add(BlockVector2.at(x, z));
+        }
+
+        assertEquals(points, readPoints);
+
+        // The regions have no flags
+        assertEquals(0, readVarInt(input));
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
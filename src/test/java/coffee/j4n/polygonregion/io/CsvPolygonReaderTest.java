@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import coffee.j4n.polygonregion.commit.RegionCommitQueue;
+import com.sk89q.worldedit.math.BlockVector2;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvPolygonReaderTest {
+
+    @Test
+    void consecutiveLinesOfARegionAreReadAsOnePolygon() throws IOException {
+        List<ImportedPolygon> polygons = new ArrayList<>();
+        int skipped = read("""
+                region,x,z
+                # A closed square and an open triangle
+                square,0,0
+                square,10,0
+                square,10,10
+                square,0,10
+                square,0,0
+
+                triangle, -5, -5
+                triangle, 5, -5
+                triangle, 0, 5
+                """, polygons);
+
+        assertEquals(0, skipped);
+        assertEquals(2, polygons.size());
+
+        assertEquals("square", polygons.get(0).getName());
+        assertEquals(List.of(BlockVector2.at(0, 0), BlockVector2.at(10, 0), BlockVector2.at(10, 10), BlockVector2.at(0, 10)), polygons.get(0).getPoints());
+        assertEquals(ImportedPolygon.DEFAULT_MIN_Y, polygons.get(0).getMinY());
+        assertEquals(ImportedPolygon.DEFAULT_MAX_Y, polygons.get(0).getMaxY());
+
+        assertEquals("triangle", polygons.get(1).getName());
+        assertEquals(List.of(BlockVector2.at(-5, -5), BlockVector2.at(5, -5), BlockVector2.at(0, 5)), polygons.get(1).getPoints());
+    }
+
+    @Test
+    void malformedLinesOfARingAreSkipped() throws IOException {
+        List<ImportedPolygon> polygons = new ArrayList<>();
+        int skipped = read("""
+                square,0,0
+                square,10,zero
+                square,10
+                square,10,10
+                square,0,10
+                """, polygons);
+
+        assertEquals(2, skipped);
+        assertEquals(1, polygons.size());
+        assertEquals(List.of(BlockVector2.at(0, 0), BlockVector2.at(10, 10), BlockVector2.at(0, 10)), polygons.get(0).getPoints());
+    }
+
+    @Test
+    void regionsWithoutAnAreaAreRejectedByTheGeometryCheck() throws IOException {
+        List<ImportedPolygon> polygons = new ArrayList<>();
+        int skipped = read("""
+                point,0,0
+                line,0,0
+                line,10,0
+                collinear,0,0
+                collinear,5,0
+                collinear,10,0
+                """, polygons);
+
+        // The reader hands every region over, the importer counts them as invalid
+        assertEquals(0, skipped);
+        assertEquals(3, polygons.size());
+
+        for (ImportedPolygon polygon : polygons) {
+            assertFalse(RegionCommitQueue.isValidGeometry(polygon.getPoints()), polygon.getName());
+        }
+
+        assertTrue(RegionCommitQueue.isValidGeometry(List.of(BlockVector2.at(0, 0), BlockVector2.at(10, 0), BlockVector2.at(0, 10))));
+    }
+
+    private static int read(String csv, List<ImportedPolygon> polygons) throws IOException {
+        return new CsvPolygonReader(new BufferedReader(new StringReader(csv))).read(polygons::add);
+    }
+}
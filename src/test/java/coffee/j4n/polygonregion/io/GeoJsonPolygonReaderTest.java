@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.io;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GeoJsonPolygonReaderTest {
+
+    @Test
+    void polygonFeaturesAreReadWithoutTheirClosingPoint() throws IOException {
+        List<ImportedPolygon> polygons = new ArrayList<>();
+        int skipped = read("""
+                {"type": "FeatureCollection", "features": [
+                  {"type": "Feature", "properties": {"name": "square", "minY": 0, "maxY": 100},
+                   "geometry": {"type": "Polygon", "coordinates": [[[0, 0], [10, 0], [10, 10], [0, 10], [0, 0]], [[2, 2], [3, 2], [3, 3]]]}},
+                  {"type": "Feature", "id": "triangle",
+                   "geometry": {"type": "Polygon", "coordinates": [[[-5, -5], [5, -5], [0, 5]]]}}
+                ]}
+                """, polygons);
+
+        assertEquals(0, skipped);
+        assertEquals(2, polygons.size());
+
+        // The hole is ignored
+        assertEquals("square", polygons.get(0).getName());
+        assertEquals(List.of(BlockVector2.at(0, 0), BlockVector2.at(10, 0), BlockVector2.at(10, 10), BlockVector2.at(0, 10)), polygons.get(0).getPoints());
+        assertEquals(0, polygons.get(0).getMinY());
+        assertEquals(100, polygons.get(0).getMaxY());
+
+        // Without a name property, the id is the name
+        assertEquals("triangle", polygons.get(1).getName());
+        assertEquals(ImportedPolygon.DEFAULT_MIN_Y, polygons.get(1).getMinY());
+        assertEquals(ImportedPolygon.DEFAULT_MAX_Y, polygons.get(1).getMaxY());
+    }
+
+    @Test
+    void polygonsWithMalformedRingsAreSkipped() throws IOException {
+        List<ImportedPolygon> polygons = new ArrayList<>();
+        int skipped = read("""
+                {"type": "FeatureCollection", "features": [
+                  {"type": "Feature", "properties": {"name": "flat"},
+                   "geometry": {"type": "Polygon", "coordinates": [[0, 0], [10, 0], [10, 10]]}},
+                  {"type": "Feature", "properties": {"name": "text"},
+                   "geometry": {"type": "Polygon", "coordinates": [[["a", "b"], [10, 0], [10, 10]]]}},
+                  {"type": "Feature", "properties": {"name": "parts"},
+                   "geometry": {"type": "MultiPolygon", "coordinates": [[[[0, 0], [10, 0], [10, 10]]], [[[20], [30, 0], [30, 10]]]]}}
+                ]}
+                """, polygons);
+
+        // Only the valid part of the multi polygon is read
+        assertEquals(3, skipped);
+        assertEquals(1, polygons.size());
+        assertEquals("parts1", polygons.get(0).getName());
+        assertEquals(3, polygons.get(0).getPoints().size());
+    }
+
+    @Test
+    void featuresWithoutPolygonGeometryAreSkipped() throws IOException {
+        List<ImportedPolygon> polygons = new ArrayList<>();
+        int skipped = read("""
+                {"type": "FeatureCollection", "features": [
+                  {"type": "Feature", "properties": {"name": "point"}, "geometry": {"type": "Point", "coordinates": [0, 0]}},
+                  {"type": "Feature", "properties": {"name": "line"}, "geometry": {"type": "LineString", "coordinates": [[0, 0], [10, 0]]}},
+                  {"type": "Feature", "properties": {"name": "nothing"}, "geometry": null}
+                ]}
+                """, polygons);
+
+        assertEquals(3, skipped);
+        assertEquals(0, polygons.size());
+    }
+
+    @Test
+    void aSingleFeatureIsReadAsWell() throws IOException {
+        List<ImportedPolygon> polygons = new ArrayList<>();
+        int skipped = read("""
+                {"type": "Feature", "properties": {"name": "single"},
+                 "geometry": {"type": "Polygon", "coordinates": [[[0, 0], [10, 0], [10, 10]]]}}
+                """, polygons);
+
+        assertEquals(0, skipped);
+        assertEquals(1, polygons.size());
+        assertEquals("single", polygons.get(0).getName());
+    }
+
+    @Test
+    void filesWithoutAnObjectAreRejected() {
+        assertThrows(IOException.class, () -> read("[]", new ArrayList<>()));
+    }
+
+    private static int read(String geoJson, List<ImportedPolygon> polygons) throws IOException {
+        return new GeoJsonPolygonReader(new StringReader(geoJson)).read(polygons::add);
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.listeners;
+
+import coffee.j4n.polygonregion.FakePlayer;
+import coffee.j4n.polygonregion.FakePolygonRegion;
+import coffee.j4n.polygonregion.FakeServer;
+import coffee.j4n.polygonregion.FakeWorld;
+import coffee.j4n.polygonregion.session.MarkerSessionJournal;
+import coffee.j4n.polygonregion.session.RegionSession;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sessions of players that change the world while they have set markers.
+ */
+class PlayerChangedWorldTest {
+
+    private static final int GROUND_Y = 63;
+
+    @TempDir
+    File dataFolder;
+
+    private FakeServer server;
+    private FakeWorld world;
+    private FakeWorld otherWorld;
+    private FakePlayer player;
+    private FakePolygonRegion plugin;
+    private PlayerInteract interactListener;
+    private PlayerChangedWorld changedWorldListener;
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.reset();
+        world = new FakeWorld("world");
+        otherWorld = new FakeWorld("world_nether");
+        player = new FakePlayer(world, 0, GROUND_Y + 1, 0);
+
+        server.addWorld(world);
+        server.addWorld(otherWorld);
+        server.addPlayer(player.getPlayer());
+
+        plugin = FakePolygonRegion.enable(server, dataFolder);
+        interactListener = new PlayerInteract(plugin);
+        changedWorldListener = new PlayerChangedWorld(plugin);
+    }
+
+    @Test
+    void changingTheWorldEndsTheSessionAndRestoresItsBlocks() {
+        for (int i = 0; i < 4; i++) {
+            click(groundBlock(world, i * 10, i % 2 == 0 ? 0 : 10));
+        }
+
+        assertEquals(Material.SEA_LANTERN, world.getType(0, GROUND_Y, 0));
+
+        changeWorld();
+
+        assertNull(plugin.getSessionManager().get(player.getPlayer().getUniqueId()));
+        assertNull(restoreJournaledSession());
+
+        // The marker blocks and the preview in the old world are gone
+        for (int i = 0; i < 4; i++) {
+            assertEquals(Material.STONE, world.getType(i * 10, GROUND_Y, i % 2 == 0 ? 0 : 10));
+        }
+
+        assertEquals(world.getEntitySpawns(), world.getEntityRemovals());
+        assertTrue(player.getMessages().stream().anyMatch(message -> message.contains("entfernt") && message.contains("world")), player.getMessages().toString());
+    }
+
+    @Test
+    void markersSetAfterChangingTheWorldStartANewSessionInTheNewWorld() {
+        click(groundBlock(world, 0, 0));
+        click(groundBlock(world, 10, 0));
+
+        changeWorld();
+        click(groundBlock(otherWorld, 5, 5));
+
+        RegionSession session = plugin.getSessionManager().get(player.getPlayer().getUniqueId());
+        assertNotNull(session);
+        assertEquals("world_nether", session.getWorldName());
+        assertEquals(1, session.getMarkers().size());
+
+        // The markers of the old world are not mixed into the new session, and the session is journaled with its own world
+        MarkerSessionJournal.RestoredSession journaled = restoreJournaledSession();
+        assertNotNull(journaled);
+        assertEquals("world_nether", journaled.getWorldName());
+        assertEquals(1, journaled.getMarkers().size());
+
+        assertEquals(Material.STONE, world.getType(0, GROUND_Y, 0));
+        assertEquals(Material.SEA_LANTERN, otherWorld.getType(5, GROUND_Y, 5));
+    }
+
+    private void changeWorld() {
+        player.teleport(otherWorld, 0, GROUND_Y + 1, 0);
+        changedWorldListener.onPlayerChangedWorld(new PlayerChangedWorldEvent(player.getPlayer(), world.getWorld()));
+        server.getScheduler().tick();
+    }
+
+    private void click(Block block) {
+        interactListener.onPlayerInteract(new PlayerInteractEvent(player.getPlayer(), Action.RIGHT_CLICK_BLOCK, player.getPlayer().getInventory().getItemInMainHand(), block, BlockFace.UP, EquipmentSlot.HAND));
+    }
+
+    /**
+     * Returns the session of the player as it would be restored from the journal (changes that have not been written yet included).
+     */
+    private MarkerSessionJournal.RestoredSession restoreJournaledSession() {
+        AtomicReference<MarkerSessionJournal.RestoredSession> restored = new AtomicReference<>();
+        plugin.getSessionJournal().restore(player.getPlayer().getUniqueId(), restored::set);
+        server.getScheduler().tick();
+        server.getScheduler().tick();
+
+        return restored.get();
+    }
+
+    private Block groundBlock(FakeWorld fakeWorld, int x, int z) {
+        fakeWorld.setType(x, GROUND_Y, z, Material.STONE);
+        return fakeWorld.getWorld().getBlockAt(x, GROUND_Y, z);
+    }
+}
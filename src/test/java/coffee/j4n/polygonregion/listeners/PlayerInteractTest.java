@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.listeners;
+
+import coffee.j4n.polygonregion.FakePlayer;
+import coffee.j4n.polygonregion.FakePolygonRegion;
+import coffee.j4n.polygonregion.FakeServer;
+import coffee.j4n.polygonregion.FakeWorld;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.render.EdgeRenderMode;
+import coffee.j4n.polygonregion.render.EntityPreviewRenderer;
+import coffee.j4n.polygonregion.render.PreviewDetail;
+import coffee.j4n.polygonregion.render.PreviewSpawner;
+import coffee.j4n.polygonregion.util.Marker;
+import coffee.j4n.polygonregion.util.MarkerRing;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Budgets of setting and removing points with the region stick, from the click to the rendered preview (the add-marker and remove-marker operations).
+ */
+class PlayerInteractTest {
+
+    private static final int GROUND_Y = 63;
+
+    @TempDir
+    File dataFolder;
+
+    private FakeServer server;
+    private FakeWorld world;
+    private FakePlayer player;
+    private FakePolygonRegion plugin;
+    private PlayerInteract listener;
+
+    // Estimates the preview entities like the plugin's spawner with the shipped config
+    private final PreviewSpawner estimator = new PreviewSpawner(new EntityPreviewRenderer(), EdgeRenderMode.STRETCHED, 32, new PreviewDetail(true, 32, 96, 1500));
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.reset();
+        world = new FakeWorld("world");
+        player = new FakePlayer(world, 0, GROUND_Y + 1, 0);
+
+        server.addWorld(world);
+        server.addPlayer(player.getPlayer());
+
+        plugin = FakePolygonRegion.enable(server, dataFolder);
+        listener = new PlayerInteract(plugin);
+    }
+
+    @Test
+    void addingThe50thVertexOnlySpawnsItsTextSupportAndEdges() {
+        for (int i = 0; i < 49; i++) {
+            click(Action.RIGHT_CLICK_BLOCK, circlePoint(i, 49));
+        }
+
+        // The new point lies between the first two points, a bit further out
+        Block added = groundBlock(
+                (int) Math.floor((circlePoint(0, 49).getX() + circlePoint(1, 49).getX()) / 2.0 * 1.1),
+                (int) Math.floor((circlePoint(0, 49).getZ() + circlePoint(1, 49).getZ()) / 2.0 * 1.1));
+
+        int spawnsBefore = world.getEntitySpawns();
+        int scansBefore = world.getEntityScans();
+
+        click(Action.RIGHT_CLICK_BLOCK, added);
+
+        MarkerRing markers = markers();
+        int addedIndex = markers.indexOfBlock(added.getX(), added.getY(), added.getZ());
+        Marker previous = markers.get(Math.floorMod(addedIndex - 1, markers.size()));
+        Marker next = markers.get((addedIndex + 1) % markers.size());
+
+        // Edges may have a connector more than estimated, e.g. at their end
+        long budget = 1 + PreviewSpawner.SUPPORT_ENTITY_COUNT
+                + estimator.estimateEdgeEntities(previous, markers.get(addedIndex)) + 1
+                + estimator.estimateEdgeEntities(markers.get(addedIndex), next) + 1;
+
+        assertEquals(50, markers.size());
+        assertTrue(world.getEntitySpawns() - spawnsBefore <= budget, (world.getEntitySpawns() - spawnsBefore) + " > " + budget);
+        assertEquals(scansBefore, world.getEntityScans());
+
+        // Only the clicked block is replaced, and the journal is written by at most one task
+        OperationCounters.OperationStats stats = plugin.getOperationCounters().getStats().get("add-marker");
+        assertEquals(50, stats.getInvocations());
+        assertEquals(1, stats.getMax(OperationCounters.Counter.BLOCK_WRITES));
+        assertTrue(stats.getMax(OperationCounters.Counter.SCHEDULED_TASKS) <= 1);
+        assertEquals(Material.SEA_LANTERN, world.getType(added.getX(), added.getY(), added.getZ()));
+
+        // The previews of the first points are rendered from scratch, which is timed on its own but counted towards adding the marker
+        assertTrue(plugin.getMetrics().getHistograms().get("update-region-markers").getCount() > 0);
+        assertNull(plugin.getOperationCounters().getStats().get("update-region-markers"));
+
+        // The budgets shipped in the config hold
+        assertTrue(server.getWarnings().isEmpty(), server.getWarnings().toString());
+    }
+
+    @Test
+    void removingThe50thVertexOnlySpawnsTheNewEdge() {
+        for (int i = 0; i < 50; i++) {
+            click(Action.RIGHT_CLICK_BLOCK, circlePoint(i, 50));
+        }
+
+        Block removed = circlePoint(49, 50);
+        MarkerRing markers = markers();
+        int removedIndex = markers.indexOfBlock(removed.getX(), removed.getY(), removed.getZ());
+        Marker previous = markers.get(Math.floorMod(removedIndex - 1, markers.size()));
+        Marker next = markers.get((removedIndex + 1) % markers.size());
+
+        int spawnsBefore = world.getEntitySpawns();
+
+        click(Action.LEFT_CLICK_BLOCK, removed);
+
+        long budget = estimator.estimateEdgeEntities(previous, next) + 1;
+
+        assertEquals(49, markers().size());
+        assertTrue(world.getEntitySpawns() - spawnsBefore <= budget, (world.getEntitySpawns() - spawnsBefore) + " > " + budget);
+        assertEquals(0, world.getEntityScans());
+
+        // The replaced block is restored
+        assertEquals(Material.STONE, world.getType(removed.getX(), removed.getY(), removed.getZ()));
+        assertEquals(1, plugin.getOperationCounters().getStats().get("remove-marker").getMax(OperationCounters.Counter.BLOCK_WRITES));
+        assertTrue(server.getWarnings().isEmpty(), server.getWarnings().toString());
+    }
+
+    @Test
+    void removingAllPointsRemovesEveryPreviewEntity() {
+        for (int i = 0; i < 50; i++) {
+            click(Action.RIGHT_CLICK_BLOCK, circlePoint(i, 50));
+        }
+
+        player.setSneaking(true);
+        click(Action.LEFT_CLICK_BLOCK, circlePoint(0, 50));
+
+        assertEquals(world.getEntitySpawns(), world.getEntityRemovals());
+        assertEquals(0, world.getEntityScans());
+
+        for (int i = 0; i < 50; i++) {
+            Block block = circlePoint(i, 50);
+            assertEquals(Material.STONE, world.getType(block.getX(), block.getY(), block.getZ()));
+        }
+    }
+
+    private void click(Action action, Block block) {
+        listener.onPlayerInteract(new PlayerInteractEvent(player.getPlayer(), action, player.getPlayer().getInventory().getItemInMainHand(), block, BlockFace.UP, EquipmentSlot.HAND));
+    }
+
+    private MarkerRing markers() {
+        return plugin.getSessionManager().get(player.getPlayer().getUniqueId()).getMarkers();
+    }
+
+    /**
+     * Returns a ground block on a circle around the player.
+     */
+    private Block circlePoint(int index, int pointCount) {
+        double angle = 2 * Math.PI * index / pointCount;
+        return groundBlock((int) Math.floor(Math.cos(angle) * 40), (int) Math.floor(Math.sin(angle) * 40));
+    }
+
+    /**
+     * Returns a ground block, placing the ground if it is not there yet.
+     */
+    private Block groundBlock(int x, int z) {
+        if (world.getType(x, GROUND_Y, z) == Material.AIR) {
+            world.setType(x, GROUND_Y, z, Material.STONE);
+        }
+
+        return world.getWorld().getBlockAt(x, GROUND_Y, z);
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import coffee.j4n.polygonregion.BukkitFakes;
+import coffee.j4n.polygonregion.FakeServer;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.metrics.PluginMetrics;
+import coffee.j4n.polygonregion.util.Marker;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Budgets of the entities spawned when a marker is added to or removed from a rendered preview (the add-marker and remove-marker operations).
+ */
+class PreviewBudgetTest {
+
+    private final Player viewer = BukkitFakes.player(0, 64, 0);
+
+    private FakeServer server;
+    private OperationCounters counters;
+    private RecordingPacketSink sink;
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.reset();
+        counters = newCounters();
+        sink = new RecordingPacketSink();
+    }
+
+    @Test
+    void addingThe50thVertexOnlySpawnsItsTextSupportAndEdges() {
+        for (EdgeRenderMode edgeRenderMode : EdgeRenderMode.values()) {
+            counters = newCounters();
+            PreviewSpawner spawner = spawner(edgeRenderMode);
+            List<Marker> markers = circle(49, 40);
+            RegionPreview preview = new RegionPreview(viewer, spawner);
+
+            preview.rebuild(markers);
+
+            // The new vertex lies between the first two vertices, a bit further out
+            Marker previous = markers.get(0);
+            Marker next = markers.get(1);
+            Marker added = new Marker(Math.floor((previous.x + next.x) / 2 * 1.1) + 0.5, 63.5, Math.floor((previous.z + next.z) / 2 * 1.1) + 0.5, Material.STONE);
+            markers.add(1, added);
+
+            counters.measure("add-marker", () -> preview.insertVertex(markers, 1));
+
+            // Edges may have a connector more than estimated, e.g. at their end
+            long budget = 1 + PreviewSpawner.SUPPORT_ENTITY_COUNT
+                    + spawner.estimateEdgeEntities(previous, added) + 1
+                    + spawner.estimateEdgeEntities(added, next) + 1;
+
+            long spawns = counters.getStats().get("add-marker").getMax(OperationCounters.Counter.ENTITY_SPAWNS);
+            assertTrue(spawns <= budget, edgeRenderMode + ": " + spawns + " > " + budget);
+            assertEquals(50, preview.getVertexCount());
+        }
+
+        assertTrue(server.getWarnings().isEmpty(), server.getWarnings().toString());
+    }
+
+    @Test
+    void removingThe50thVertexOnlySpawnsTheNewEdge() {
+        for (EdgeRenderMode edgeRenderMode : EdgeRenderMode.values()) {
+            counters = newCounters();
+            PreviewSpawner spawner = spawner(edgeRenderMode);
+            List<Marker> markers = circle(50, 40);
+            RegionPreview preview = new RegionPreview(viewer, spawner);
+
+            preview.rebuild(markers);
+            markers.remove(49);
+
+            counters.measure("remove-marker", () -> preview.removeVertex(markers, 49));
+
+            long budget = spawner.estimateEdgeEntities(markers.get(48), markers.get(0)) + 1;
+            long spawns = counters.getStats().get("remove-marker").getMax(OperationCounters.Counter.ENTITY_SPAWNS);
+
+            assertTrue(spawns <= budget, edgeRenderMode + ": " + spawns + " > " + budget);
+            assertEquals(49, preview.getVertexCount());
+        }
+
+        assertTrue(server.getWarnings().isEmpty(), server.getWarnings().toString());
+    }
+
+    @Test
+    void renderingFromScratchIsNotWithinTheBudgetOfAnInsert() {
+        // Makes sure the budget above actually tells an incremental update from a full render
+        PreviewSpawner spawner = spawner(EdgeRenderMode.STRETCHED);
+        List<Marker> markers = circle(50, 40);
+
+        counters.measure("show-region-markers", () -> new RegionPreview(viewer, spawner).rebuild(markers));
+
+        long budget = 1 + PreviewSpawner.SUPPORT_ENTITY_COUNT + 2 * (spawner.estimateEdgeEntities(markers.get(0), markers.get(1)) + 1);
+        assertTrue(counters.getStats().get("show-region-markers").getMax(OperationCounters.Counter.ENTITY_SPAWNS) > budget);
+    }
+
+    private OperationCounters newCounters() {
+        // The metrics only time the operations here
+        return new OperationCounters(server.getPlugin(), new PluginMetrics(null));
+    }
+
+    private PreviewSpawner spawner(EdgeRenderMode edgeRenderMode) {
+        PreviewRenderer renderer = new CountingPreviewRenderer(new VirtualPreviewRenderer(sink), counters);
+        return new PreviewSpawner(renderer, edgeRenderMode, 32, new PreviewDetail(true, 32, 96, 1500));
+    }
+
+    private static List<Marker> circle(int vertexCount, double radius) {
+        List<Marker> markers = new ArrayList<>();
+
+        for (int i = 0; i < vertexCount; i++) {
+            double angle = 2 * Math.PI * i / vertexCount;
+            markers.add(new Marker(Math.floor(Math.cos(angle) * radius) + 0.5, 63.5, Math.floor(Math.sin(angle) * radius) + 0.5, Material.STONE));
+        }
+
+        return markers;
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Transformation;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * This class records the packets of the {@link VirtualPreviewRenderer} instead of sending them to a client.<br />
+ * - Entity ids are handed out in ascending order, starting at 1.<br />
+ */
+public class RecordingPacketSink implements PreviewPacketSink {
+
+    private final List<Packet> packets = new ArrayList<>();
+    private int lastEntityId = 0;
+
+    @Override
+    public int nextEntityId() {
+        return ++lastEntityId;
+    }
+
+    @Override
+    public void sendSpawn(@NotNull Player viewer, int entityId, @NotNull UUID uniqueId, @NotNull EntityType entityType, @NotNull Location location) {
+        packets.add(new Packet(PacketKind.SPAWN, viewer, new int[]{entityId}, entityType, null, null, location));
+    }
+
+    @Override
+    public void sendItemDisplayMetadata(@NotNull Player viewer, int entityId, @NotNull ItemStack itemStack, @NotNull Transformation transformation) {
+        packets.add(new Packet(PacketKind.ITEM_DISPLAY_METADATA, viewer, new int[]{entityId}, null, itemStack.getType(), null, null));
+    }
+
+    @Override
+    public void sendTextMetadata(@NotNull Player viewer, int entityId, @NotNull String text) {
+        packets.add(new Packet(PacketKind.TEXT_METADATA, viewer, new int[]{entityId}, null, null, text, null));
+    }
+
+    @Override
+    public void sendDestroy(@NotNull Player viewer, int @NotNull ... entityIds) {
+        packets.add(new Packet(PacketKind.DESTROY, viewer, entityIds.clone(), null, null, null, null));
+    }
+
+    /**
+     * Returns the recorded packets in the order they have been sent.
+     *
+     * @return The recorded packets
+     */
+    public @NotNull List<Packet> getPackets() {
+        return packets;
+    }
+
+    /**
+     * Forgets the recorded packets.
+     */
+    public void clear() {
+        packets.clear();
+    }
+
+    /**
+     * The kind of a recorded packet
+     */
+    public enum PacketKind {
+        SPAWN,
+        ITEM_DISPLAY_METADATA,
+        TEXT_METADATA,
+        DESTROY
+    }
+
+    /**
+     * This class represents a recorded packet. Fields that do not apply to the kind of the packet are {@code null}.
+     */
+    public static final class Packet {
+        private final PacketKind kind;
+        private final Player viewer;
+        private final int[] entityIds;
+        private final EntityType entityType;
+        private final Material material;
+        private final String text;
+        private final Location location;
+
+        private Packet(PacketKind kind, Player viewer, int[] entityIds, EntityType entityType, Material material, String text, Location location) {
+            this.kind = kind;
+            this.viewer = viewer;
+            this.entityIds = entityIds;
+            this.entityType = entityType;
+            this.material = material;
+            this.text = text;
+            this.location = location;
+        }
+
+        public PacketKind getKind() {
+            return kind;
+        }
+
+        public Player getViewer() {
+            return viewer;
+        }
+
+        public int[] getEntityIds() {
+            return entityIds;
+        }
+
+        public int getEntityId() {
+            return entityIds[0];
+        }
+
+        public EntityType getEntityType() {
+            return entityType;
+        }
+
+        public Material getMaterial() {
+            return material;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Location getLocation() {
+            return location;
+        }
+    }
+}
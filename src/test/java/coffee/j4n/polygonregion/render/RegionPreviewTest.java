@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import coffee.j4n.polygonregion.BukkitFakes;
+import coffee.j4n.polygonregion.util.Marker;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionPreviewTest {
+
+    private static final int MAX_ENTITIES = 1500;
+
+    private final Player viewer = BukkitFakes.player(0, 64, 0);
+    private final RecordingPacketSink sink = new RecordingPacketSink();
+
+    @Test
+    void smallPreviewDrawsEverything() {
+        RegionPreview preview = preview(EdgeRenderMode.BRESENHAM, MAX_ENTITIES);
+        List<Marker> markers = circle(4, 10);
+
+        preview.rebuild(markers);
+
+        assertEquals(4, countTexts());
+        assertEquals(liveEntities(), preview.getEntityCount());
+        // Every marker is near the viewer, so every marker has a support
+        assertTrue(preview.getEntityCount() > 4 * (1 + PreviewSpawner.SUPPORT_ENTITY_COUNT));
+    }
+
+    @Test
+    void previewWithMoreVerticesThanTheBudgetAllowsStaysWithinTheBudget() {
+        // 1000 vertices need 1000 texts and at least 1000 connectors, far more than the budget
+        for (EdgeRenderMode edgeRenderMode : EdgeRenderMode.values()) {
+            sink.clear();
+            RegionPreview preview = preview(edgeRenderMode, MAX_ENTITIES);
+
+            preview.rebuild(circle(1000, 500));
+
+            assertTrue(preview.getEntityCount() <= MAX_ENTITIES, edgeRenderMode + ": " + preview.getEntityCount());
+            assertEquals(liveEntities(), preview.getEntityCount());
+            assertEquals(1000, preview.getVertexCount());
+        }
+    }
+
+    @Test
+    void tinyBudgetIsNeverExceeded() {
+        RegionPreview preview = preview(EdgeRenderMode.BRESENHAM, 10);
+
+        preview.rebuild(circle(100, 200));
+
+        assertTrue(preview.getEntityCount() <= 10, String.valueOf(preview.getEntityCount()));
+        assertEquals(liveEntities(), preview.getEntityCount());
+    }
+
+    @Test
+    void insertingIntoALargePreviewDoesNotRenderFromScratchEveryTime() {
+        RegionPreview preview = preview(EdgeRenderMode.STRETCHED, MAX_ENTITIES);
+        List<Marker> markers = circle(1000, 500);
+        List<Marker> current = new ArrayList<>();
+
+        // Every other vertex first, the rest is inserted one by one
+        for (int i = 0; i < markers.size(); i += 2) {
+            current.add(markers.get(i));
+        }
+
+        preview.rebuild(current);
+
+        int renders = 0;
+
+        for (int i = 1; i < markers.size(); i += 2) {
+            int insertIndex = i;
+            current.add(insertIndex, markers.get(i));
+
+            int spawnsBefore = countSpawns();
+            preview.insertVertex(current, insertIndex);
+
+            if (countSpawns() - spawnsBefore > 100) {
+                renders++;
+            }
+
+            assertTrue(preview.getEntityCount() <= MAX_ENTITIES, String.valueOf(preview.getEntityCount()));
+            assertEquals(liveEntities(), preview.getEntityCount());
+        }
+
+        // A tenth of the budget is left for incremental updates, so only a few of the 500 inserts render from scratch
+        assertTrue(renders <= 50, String.valueOf(renders));
+    }
+
+    @Test
+    void removingVerticesKeepsTheCountConsistent() {
+        RegionPreview preview = preview(EdgeRenderMode.BRESENHAM, MAX_ENTITIES);
+        List<Marker> markers = new ArrayList<>(circle(800, 400));
+
+        preview.rebuild(markers);
+
+        for (int i = 0; i < 400; i++) {
+            int removeIndex = (i * 7) % markers.size();
+            markers.remove(removeIndex);
+            preview.removeVertex(markers, removeIndex);
+
+            assertTrue(preview.getEntityCount() <= MAX_ENTITIES);
+            assertEquals(liveEntities(), preview.getEntityCount());
+        }
+
+        assertEquals(400, preview.getVertexCount());
+    }
+
+    @Test
+    void sampledPreviewKeepsItsTextsOnTheSameMarkersWhenVerticesChange() {
+        RegionPreview preview = preview(EdgeRenderMode.STRETCHED, MAX_ENTITIES);
+        List<Marker> markers = circle(2000, 500);
+        List<Marker> current = new ArrayList<>();
+
+        for (int i = 0; i < markers.size(); i += 2) {
+            current.add(markers.get(i));
+        }
+
+        // 1000 vertices do not fit next to each other, so only every n-th text is drawn
+        preview.rebuild(current);
+        Set<Marker> labelled = labelledMarkers(current);
+        assertNotEquals(current.size(), labelled.size());
+
+        for (int i = 1; i < 40; i += 2) {
+            int insertIndex = i;
+            current.add(insertIndex, markers.get(i));
+            preview.insertVertex(current, insertIndex);
+
+            // The inserted marker is labelled as well, the others keep their texts
+            labelled.add(markers.get(i));
+            assertEquals(labelled, labelledMarkers(current));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            int removeIndex = (i * 37) % current.size();
+            labelled.remove(current.remove(removeIndex));
+            preview.removeVertex(current, removeIndex);
+
+            assertEquals(labelled, labelledMarkers(current));
+        }
+
+        assertEquals(liveEntities(), preview.getEntityCount());
+    }
+
+    private RegionPreview preview(EdgeRenderMode edgeRenderMode, int maxEntities) {
+        PreviewSpawner spawner = new PreviewSpawner(new VirtualPreviewRenderer(sink), edgeRenderMode, 32, new PreviewDetail(true, 32, 96, maxEntities));
+        return new RegionPreview(viewer, spawner);
+    }
+
+    private static List<Marker> circle(int vertexCount, double radius) {
+        List<Marker> markers = new ArrayList<>();
+
+        for (int i = 0; i < vertexCount; i++) {
+            double angle = 2 * Math.PI * i / vertexCount;
+            markers.add(new Marker(Math.floor(Math.cos(angle) * radius) + 0.5, 63.5, Math.floor(Math.sin(angle) * radius) + 0.5, Material.STONE));
+        }
+
+        return markers;
+    }
+
+    private int countSpawns() {
+        return (int) sink.getPackets().stream().filter(packet -> packet.getKind() == RecordingPacketSink.PacketKind.SPAWN).count();
+    }
+
+    private int countTexts() {
+        return (int) sink.getPackets().stream().filter(packet -> packet.getKind() == RecordingPacketSink.PacketKind.TEXT_METADATA).count();
+    }
+
+    /**
+     * Returns the markers that have a live text and checks that every text shows the current number of its marker.
+     */
+    private Set<Marker> labelledMarkers(List<Marker> markers) {
+        Map<Integer, Location> locations = new HashMap<>();
+        Map<Integer, String> texts = new HashMap<>();
+
+        for (RecordingPacketSink.Packet packet : sink.getPackets()) {
+            switch (packet.getKind()) {
+                case SPAWN -> locations.put(packet.getEntityId(), packet.getLocation());
+                case TEXT_METADATA -> texts.put(packet.getEntityId(), packet.getText());
+                case DESTROY -> {
+                    for (int entityId : packet.getEntityIds()) {
+                        texts.remove(entityId);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        Set<Marker> labelled = new HashSet<>();
+
+        for (Map.Entry<Integer, String> text : texts.entrySet()) {
+            Location location = locations.get(text.getKey());
+            int index = -1;
+
+            for (int i = 0; i < markers.size(); i++) {
+                if (markers.get(i).x == location.getX() && markers.get(i).z == location.getZ()) {
+                    index = i;
+                }
+            }
+
+            assertNotEquals(-1, index, "Text without marker: " + text.getValue());
+            assertEquals(String.valueOf(index + 1), text.getValue());
+            labelled.add(markers.get(index));
+        }
+
+        return labelled;
+    }
+
+    private int liveEntities() {
+        int destroyed = sink.getPackets().stream()
+                .filter(packet -> packet.getKind() == RecordingPacketSink.PacketKind.DESTROY)
+                .mapToInt(packet -> packet.getEntityIds().length)
+                .sum();
+
+        return countSpawns() - destroyed;
+    }
+}
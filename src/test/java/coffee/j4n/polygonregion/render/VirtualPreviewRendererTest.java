@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.render;
+
+import coffee.j4n.polygonregion.BukkitFakes;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Transformation;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualPreviewRendererTest {
+
+    private RecordingPacketSink sink;
+    private VirtualPreviewRenderer renderer;
+    private Player viewer;
+
+    @BeforeEach
+    void setUp() {
+        sink = new RecordingPacketSink();
+        renderer = new VirtualPreviewRenderer(sink);
+        viewer = BukkitFakes.player(0, 64, 0);
+    }
+
+    @Test
+    void blockDisplayIsSpawnedBeforeItsMetadata() {
+        Location location = new Location(null, 1.5, 70, -3.5);
+
+        renderer.spawnBlockDisplay(viewer, location, Material.RED_CONCRETE, transformation());
+
+        List<RecordingPacketSink.Packet> packets = sink.getPackets();
+        assertEquals(2, packets.size());
+
+        RecordingPacketSink.Packet spawn = packets.get(0);
+        assertEquals(RecordingPacketSink.PacketKind.SPAWN, spawn.getKind());
+        assertEquals(EntityType.ITEM_DISPLAY, spawn.getEntityType());
+        assertEquals(location, spawn.getLocation());
+
+        RecordingPacketSink.Packet metadata = packets.get(1);
+        assertEquals(RecordingPacketSink.PacketKind.ITEM_DISPLAY_METADATA, metadata.getKind());
+        assertEquals(Material.RED_CONCRETE, metadata.getMaterial());
+        assertEquals(spawn.getEntityId(), metadata.getEntityId());
+
+        packets.forEach(packet -> assertSame(viewer, packet.getViewer()));
+    }
+
+    @Test
+    void textIsSpawnedAsArmorStandBeforeItsMetadata() {
+        renderer.spawnText(viewer, new Location(null, 0, 70, 0), "7");
+
+        List<RecordingPacketSink.Packet> packets = sink.getPackets();
+        assertEquals(2, packets.size());
+
+        assertEquals(RecordingPacketSink.PacketKind.SPAWN, packets.get(0).getKind());
+        assertEquals(EntityType.ARMOR_STAND, packets.get(0).getEntityType());
+
+        assertEquals(RecordingPacketSink.PacketKind.TEXT_METADATA, packets.get(1).getKind());
+        assertEquals("7", packets.get(1).getText());
+        assertEquals(packets.get(0).getEntityId(), packets.get(1).getEntityId());
+    }
+
+    @Test
+    void everyVisualGetsItsOwnEntityId() {
+        renderer.spawnText(viewer, new Location(null, 0, 70, 0), "1");
+        renderer.spawnBlockDisplay(viewer, new Location(null, 0, 70, 0), Material.YELLOW_CONCRETE, transformation());
+
+        assertNotEquals(sink.getPackets().get(0).getEntityId(), sink.getPackets().get(2).getEntityId());
+    }
+
+    @Test
+    void changingTheTextOnlySendsMetadata() {
+        PreviewHandle handle = renderer.spawnText(viewer, new Location(null, 0, 70, 0), "1");
+        int entityId = sink.getPackets().get(0).getEntityId();
+        sink.clear();
+
+        handle.setText("2");
+
+        assertEquals(1, sink.getPackets().size());
+        assertEquals(RecordingPacketSink.PacketKind.TEXT_METADATA, sink.getPackets().get(0).getKind());
+        assertEquals(entityId, sink.getPackets().get(0).getEntityId());
+        assertEquals("2", sink.getPackets().get(0).getText());
+    }
+
+    @Test
+    void removingAHandleDestroysItsEntity() {
+        PreviewHandle handle = renderer.spawnBlockDisplay(viewer, new Location(null, 0, 70, 0), Material.RED_CONCRETE, transformation());
+        int entityId = sink.getPackets().get(0).getEntityId();
+        sink.clear();
+
+        handle.remove();
+
+        assertEquals(1, sink.getPackets().size());
+        assertEquals(RecordingPacketSink.PacketKind.DESTROY, sink.getPackets().get(0).getKind());
+        assertArrayEquals(new int[]{entityId}, sink.getPackets().get(0).getEntityIds());
+    }
+
+    @Test
+    void removingSeveralHandlesSendsOneDestroy() {
+        List<PreviewHandle> handles = new ArrayList<>();
+        List<Integer> entityIds = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            handles.add(renderer.spawnBlockDisplay(viewer, new Location(null, i, 70, 0), Material.RED_CONCRETE, transformation()));
+            entityIds.add(sink.getPackets().get(sink.getPackets().size() - 2).getEntityId());
+        }
+
+        sink.clear();
+        renderer.remove(viewer, handles);
+
+        assertEquals(1, sink.getPackets().size());
+
+        RecordingPacketSink.Packet destroy = sink.getPackets().get(0);
+        assertEquals(RecordingPacketSink.PacketKind.DESTROY, destroy.getKind());
+        assertArrayEquals(entityIds.stream().mapToInt(Integer::intValue).toArray(), destroy.getEntityIds());
+    }
+
+    @Test
+    void removingNoHandlesSendsNothing() {
+        renderer.remove(viewer, List.of());
+
+        assertTrue(sink.getPackets().isEmpty());
+    }
+
+    private static Transformation transformation() {
+        return new Transformation(new Vector3f(), new Quaternionf(), new Vector3f(0.333f, 0.333f, 0.333f), new Quaternionf());
+    }
+}
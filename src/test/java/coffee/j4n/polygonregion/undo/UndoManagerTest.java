@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.undo;
+
+import coffee.j4n.polygonregion.BukkitFakes;
+import coffee.j4n.polygonregion.FakePlayer;
+import coffee.j4n.polygonregion.FakePolygonRegion;
+import coffee.j4n.polygonregion.FakeServer;
+import coffee.j4n.polygonregion.FakeWorld;
+import coffee.j4n.polygonregion.metrics.OperationCounters;
+import coffee.j4n.polygonregion.util.BlockKeys;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Restores of journals that have been spilled to disk, with small segments and a small block budget.
+ */
+class UndoManagerTest {
+
+    private static final int Y = 64;
+    private static final int BLOCKS_PER_TICK = 100;
+
+    @TempDir
+    File dataFolder;
+
+    private FakeServer server;
+    private FakeWorld world;
+    private FakePlayer player;
+    private FakePolygonRegion plugin;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = FakeServer.reset();
+        world = new FakeWorld("world");
+        player = new FakePlayer(world, 0, Y, 0);
+
+        server.addWorld(world);
+        server.addPlayer(player.getPlayer());
+
+        // The other settings are the defaults of the shipped config
+        Files.writeString(dataFolder.toPath().resolve("config.yml"), "undo:\n  memory-entries: 256\n  blocks-per-tick: " + BLOCKS_PER_TICK + "\n");
+
+        plugin = FakePolygonRegion.enable(server, dataFolder);
+    }
+
+    @Test
+    void spilledSegmentsAreReadOneAtATimeAndTheirChunksLoadedAsynchronously() throws IOException {
+        recordLayer();
+
+        assertEquals(3, spilledSegmentCount());
+
+        plugin.getUndoManager().undoLast(player.getPlayer());
+        server.getScheduler().tickUntilIdle(100);
+
+        for (int z = 0; z < 10; z++) {
+            for (int x = 0; x < 100; x++) {
+                assertEquals(Material.GRASS_BLOCK, world.getType(x, Y, z));
+            }
+        }
+
+        OperationCounters.OperationStats stats = plugin.getOperationCounters().getStats().get("undo-tick");
+
+        // Every spilled segment is read by its own task, once the segment after it has been restored
+        assertEquals(3, stats.getTotal(OperationCounters.Counter.SCHEDULED_TASKS));
+        assertTrue(stats.getMax(OperationCounters.Counter.BLOCK_WRITES) <= BLOCKS_PER_TICK);
+        assertEquals(1000, stats.getTotal(OperationCounters.Counter.BLOCK_WRITES));
+
+        // Every segment covers all 7 chunks of the layer, the chunks are released once their blocks are restored
+        assertEquals(28, world.getChunkLoads());
+        assertEquals(0, world.getChunkTickets());
+        assertTrue(player.getMessages().stream().anyMatch(message -> message.contains("erfolgreich") && message.contains("1000")), player.getMessages().toString());
+    }
+
+    @Test
+    void blocksChangedSinceAreLeftUntouchedAndNotCountedAgainstTheBudget() {
+        recordLayer();
+
+        for (int x = 0; x < 100; x++) {
+            world.setType(x, Y, 9, Material.DIRT);
+        }
+
+        plugin.getUndoManager().undoLast(player.getPlayer());
+        server.getScheduler().tickUntilIdle(100);
+
+        for (int x = 0; x < 100; x++) {
+            assertEquals(Material.DIRT, world.getType(x, Y, 9));
+            assertEquals(Material.GRASS_BLOCK, world.getType(x, Y, 8));
+        }
+
+        OperationCounters.OperationStats stats = plugin.getOperationCounters().getStats().get("undo-tick");
+        assertEquals(900, stats.getTotal(OperationCounters.Counter.BLOCK_WRITES));
+        assertTrue(stats.getMax(OperationCounters.Counter.BLOCK_WRITES) <= BLOCKS_PER_TICK);
+    }
+
+    @Test
+    void shutdownDuringARestoreReleasesTheLoadedChunks() {
+        recordLayer();
+
+        plugin.getUndoManager().undoLast(player.getPlayer());
+        server.getScheduler().tick();
+        server.getScheduler().tick();
+
+        assertTrue(world.getChunkTickets() > 0);
+
+        plugin.getUndoManager().shutdown();
+
+        assertEquals(0, world.getChunkTickets());
+    }
+
+    /**
+     * Records a fill of 100 x 10 blocks (7 chunks) with stone, which spills 3 segments of 256 entries and keeps 232 entries in memory.
+     */
+    private void recordLayer() {
+        UndoJournal journal = plugin.getUndoManager().begin(player.getPlayer(), world.getWorld(), "layer", UndoJournal.Kind.FILL, Material.STONE);
+        BlockData grass = BukkitFakes.blockData(Material.GRASS_BLOCK);
+
+        for (int z = 0; z < 10; z++) {
+            for (int x = 0; x < 100; x++) {
+                journal.record(BlockKeys.pack(x, Y, z), grass);
+                world.setType(x, Y, z, Material.STONE);
+            }
+        }
+
+        // Writes the spilled segments
+        server.getScheduler().tick();
+    }
+
+    private long spilledSegmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dataFolder.toPath().resolve("undo"))) {
+            return files.count();
+        }
+    }
+}
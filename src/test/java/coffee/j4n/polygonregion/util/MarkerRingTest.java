@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarkerRingTest {
+
+    @Test
+    void smallRingsInsertWhereTheBruteForceSearchInserts() {
+        Random random = new Random(1);
+
+        // Below the linear search limit of 16 markers, in a small area with few heights, so ties and height-only edges are common
+        for (int run = 0; run < 2000; run++) {
+            assertSameInsertIndices(random, 2 + random.nextInt(14), 6, 3, false);
+        }
+    }
+
+    @Test
+    void ringsAroundTheLinearSearchLimitInsertWhereTheBruteForceSearchInserts() {
+        Random random = new Random(2);
+
+        // Crosses the limit of 16 markers in both directions while inserting and removing
+        for (int run = 0; run < 1000; run++) {
+            assertSameInsertIndices(random, 20, 10, 3, true);
+        }
+    }
+
+    @Test
+    void largeRingsInsertWhereTheBruteForceSearchInserts() {
+        Random random = new Random(3);
+
+        // Spans many grid cells, including negative ones
+        for (int run = 0; run < 50; run++) {
+            assertSameInsertIndices(random, 400, 300, 20, false);
+        }
+
+        // Dense rings where many edges are equally near
+        for (int run = 0; run < 50; run++) {
+            assertSameInsertIndices(random, 200, 16, 2, false);
+        }
+    }
+
+    @Test
+    void heightOnlyEdgesAreMeasuredAsAPoint() {
+        MarkerRing ring = new MarkerRing();
+
+        // The first edge only differs in height
+        ring.add(marker(0, 64, 0));
+        ring.add(marker(0, 70, 0));
+        ring.add(marker(40, 64, 0));
+
+        assertEquals(1, ring.findInsertIndex(marker(-1, 64, 1)));
+        assertEquals(bruteForceInsertIndex(ring.asList(), marker(-1, 64, 1)), ring.findInsertIndex(marker(-1, 64, 1)));
+    }
+
+    /**
+     * Inserts random markers at the found index (and removes some again), checking every index against the brute-force search.
+     *
+     * @param random       The random source
+     * @param markerCount  The number of markers to insert
+     * @param extent       The range of the horizontal coordinates (centered around 0)
+     * @param heights      The number of different heights
+     * @param withRemovals Whether markers are removed in between
+     */
+    private static void assertSameInsertIndices(Random random, int markerCount, int extent, int heights, boolean withRemovals) {
+        MarkerRing ring = new MarkerRing();
+
+        for (int i = 0; i < markerCount; i++) {
+            Marker marker = marker(random.nextInt(extent) - extent / 2, 64 + random.nextInt(heights), random.nextInt(extent) - extent / 2);
+
+            if (ring.contains(marker)) {
+                continue;
+            }
+
+            int expected = bruteForceInsertIndex(ring.asList(), marker);
+            assertEquals(expected, ring.findInsertIndex(marker), () -> "Ring " + ring.asList() + ", marker " + marker);
+            assertTrue(ring.insert(expected, marker));
+
+            if (withRemovals && ring.size() > 14 && random.nextInt(3) == 0) {
+                ring.remove(random.nextInt(ring.size()));
+            }
+        }
+    }
+
+    /**
+     * The search used before the edge grid: every edge is checked, the distance is compared through its square root and ties go to the first edge.<br />
+     * - Edges whose markers only differ in height are measured as a point (the old search threw an exception for them)
+     */
+    private static int bruteForceInsertIndex(List<Marker> points, Marker comparisonMarker) {
+        if (points.isEmpty()) {
+            return 0;
+        }
+
+        double minDistance = Double.MAX_VALUE;
+        int insertIndex = points.size();
+
+        for (int i = 0; i < points.size(); i++) {
+            Marker marker1 = points.get(i);
+            Marker marker2 = points.get((i + 1) % points.size());
+
+            if (marker1.equals(marker2)) {
+                continue;
+            }
+
+            double distance = comparisonMarker.getDistanceTo(closestPoint(marker1, marker2, comparisonMarker));
+
+            if (distance < minDistance) {
+                minDistance = distance;
+                insertIndex = i + 1;
+            }
+        }
+
+        return insertIndex;
+    }
+
+    private static Marker closestPoint(Marker marker1, Marker marker2, Marker comparisonMarker) {
+        double xDelta = marker2.x - marker1.x;
+        double zDelta = marker2.z - marker1.z;
+
+        if (xDelta == 0 && zDelta == 0) {
+            return marker1;
+        }
+
+        double closestPointFactor = ((comparisonMarker.x - marker1.x) * xDelta + (comparisonMarker.z - marker1.z) * zDelta) / (xDelta * xDelta + zDelta * zDelta);
+
+        if (closestPointFactor < 0) {
+            return marker1;
+        } else if (closestPointFactor > 1) {
+            return marker2;
+        }
+
+        return new Marker(marker1.x + closestPointFactor * xDelta, marker1.y, marker1.z + closestPointFactor * zDelta, marker1.getOriginalMaterial());
+    }
+
+    private static Marker marker(int x, int y, int z) {
+        return new Marker(x, y, z, Material.STONE);
+    }
+}
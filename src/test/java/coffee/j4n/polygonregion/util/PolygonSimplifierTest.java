@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class PolygonSimplifierTest {
+
+    @Test
+    void toleranceZeroOnlyDropsDuplicatePoints() {
+        // The point at (5, 1) is a block off the line, the first point is repeated in the middle and at the end
+        double[] xs = {0, 0, 5, 10, 10, 0, 0};
+        double[] zs = {0, 0, 1, 0, 10, 10, 0};
+
+        assertArrayEquals(new int[]{0, 2, 3, 4, 5}, PolygonSimplifier.simplify(xs, zs, 0));
+    }
+
+    @Test
+    void toleranceZeroDropsCollinearPoints() {
+        // Every corner of the square has points on a straight line between it and its neighbours
+        double[] xs = {0, 5, 10, 10, 10, 10, 5, 0, 0};
+        double[] zs = {0, 0, 0, 3, 7, 10, 10, 10, 5};
+
+        assertArrayEquals(new int[]{0, 2, 5, 7}, PolygonSimplifier.simplify(xs, zs, 0));
+    }
+
+    @Test
+    void pointsWithinTheToleranceAreDropped() {
+        double[] xs = {0, 5, 10, 10, 0};
+        double[] zs = {0, 1, 0, 10, 10};
+
+        assertArrayEquals(new int[]{0, 2, 3, 4}, PolygonSimplifier.simplify(xs, zs, 1));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, PolygonSimplifier.simplify(xs, zs, 0.5));
+    }
+
+    @Test
+    void atLeastThreePointsAreKept() {
+        // A flat outline that is within the tolerance of a single line
+        double[] xs = {0, 50, 100, 100, 50, 0};
+        double[] zs = {0, 1, 0, 2, 3, 2};
+
+        assertArrayEquals(new int[]{0, 2, 3}, PolygonSimplifier.simplify(xs, zs, 100));
+
+        // Triangles and rings that only have three distinct points are returned as they are
+        assertArrayEquals(new int[]{0, 1, 2}, PolygonSimplifier.simplify(new double[]{0, 10, 0}, new double[]{0, 0, 10}, 100));
+        assertArrayEquals(new int[]{0, 1, 3}, PolygonSimplifier.simplify(new double[]{0, 10, 10, 0, 0}, new double[]{0, 0, 0, 10, 0}, 100));
+
+        // Points that are all on one line are not reduced below three
+        assertArrayEquals(new int[]{1, 2, 3}, PolygonSimplifier.simplify(new double[]{0, 1, 2, 3}, new double[]{0, 1, 2, 3}, 0));
+    }
+}
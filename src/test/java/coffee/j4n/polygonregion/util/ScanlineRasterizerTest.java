@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2024 J4N
+ * This code is licensed under GNU GPLv3 license.
+ * For more information, please refer to the LICENSE file.
+ */
+package coffee.j4n.polygonregion.util;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanlineRasterizerTest {
+
+    @Test
+    void concavePolygonsAreRasterizedLikeWorldGuardsPointTest() {
+        Random random = new Random(5);
+
+        for (int i = 0; i < 150; i++) {
+            assertRasterizedLikeWorldGuard(randomStar(random, false));
+        }
+    }
+
+    @Test
+    void polygonsWithPointsOnChunkBordersAreRasterizedLikeWorldGuardsPointTest() {
+        Random random = new Random(6);
+
+        for (int i = 0; i < 150; i++) {
+            assertRasterizedLikeWorldGuard(randomStar(random, true));
+        }
+    }
+
+    @Test
+    void edgeCasesAreRasterizedLikeWorldGuardsPointTest() {
+        // A concave outline whose notch ends exactly on a chunk corner
+        assertRasterizedLikeWorldGuard(polygon("notch", new int[]{0, 64, 64, 32, 32, 0}, new int[]{0, 0, 64, 64, 16, 16}));
+        // A notch whose tip is a point between two rows of the outline
+        assertRasterizedLikeWorldGuard(polygon("v-notch", new int[]{0, 10, 10, 5, 0}, new int[]{0, 0, 10, 3, 10}));
+        // Collinear points on a horizontal edge
+        assertRasterizedLikeWorldGuard(polygon("collinear", new int[]{0, 10, 20, 20, 0}, new int[]{0, 0, 0, 10, 10}));
+        // A sliver that is thinner than a block in most rows
+        assertRasterizedLikeWorldGuard(polygon("sliver", new int[]{0, 100, 0}, new int[]{0, 1, 2}));
+        // A square around the origin
+        assertRasterizedLikeWorldGuard(polygon("origin", new int[]{-5, 5, 5, -5}, new int[]{-5, -5, 5, 5}));
+    }
+
+    @Test
+    void polygonsWithMoreBlocksThanTheLimitAreRejected() {
+        int[] xs = {0, 99, 99, 0};
+        int[] zs = {0, 0, 99, 99};
+
+        assertNull(ScanlineRasterizer.rasterize(xs, zs, 9_999));
+        assertNotNull(ScanlineRasterizer.rasterize(xs, zs, 10_000));
+    }
+
+    /**
+     * Checks that the rasterized blocks are exactly the blocks in the bounding box (and one block around it) that WorldGuard counts as part of the region.
+     */
+    private static void assertRasterizedLikeWorldGuard(ProtectedPolygonalRegion region) {
+        int[] xs = new int[region.getPoints().size()];
+        int[] zs = new int[region.getPoints().size()];
+
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = region.getPoints().get(i).x();
+            zs[i] = region.getPoints().get(i).z();
+        }
+
+        long[] spans = ScanlineRasterizer.rasterize(xs, zs, Long.MAX_VALUE);
+        assertNotNull(spans);
+
+        Set<Long> rasterized = new HashSet<>();
+
+        for (long span : spans) {
+            int z = ScanlineRasterizer.getZ(span);
+
+            // Spans are clipped to their chunk
+            assertEquals(ScanlineRasterizer.getFromX(span) >> 4, ScanlineRasterizer.getToX(span) >> 4, region.getId());
+
+            for (int x = ScanlineRasterizer.getFromX(span); x <= ScanlineRasterizer.getToX(span); x++) {
+                assertTrue(region.contains(BlockVector3.at(x, 64, z)), region.getId() + " rasterized " + x + ", " + z + " outside of the region");
+                assertTrue(rasterized.add(BlockKeys.packColumn(x, z)), region.getId() + " rasterized " + x + ", " + z + " twice");
+            }
+        }
+
+        for (int x = region.getMinimumPoint().x() - 1; x <= region.getMaximumPoint().x() + 1; x++) {
+            for (int z = region.getMinimumPoint().z() - 1; z <= region.getMaximumPoint().z() + 1; z++) {
+                if (region.contains(BlockVector3.at(x, 64, z))) {
+                    assertTrue(rasterized.contains(BlockKeys.packColumn(x, z)), region.getId() + " did not rasterize " + x + ", " + z);
+                }
+            }
+        }
+
+        assertFalse(rasterized.isEmpty());
+    }
+
+    /**
+     * Returns a star-shaped (and thus simple, but usually concave) polygon.
+     *
+     * @param onChunkBorders Whether the points are moved onto the first or the last block of their chunk
+     */
+    private static ProtectedPolygonalRegion randomStar(Random random, boolean onChunkBorders) {
+        int centerX = random.nextInt(2000) - 1000;
+        int centerZ = random.nextInt(2000) - 1000;
+        int pointCount = 3 + random.nextInt(14);
+
+        int[] xs = new int[pointCount];
+        int[] zs = new int[pointCount];
+
+        for (int i = 0; i < pointCount; i++) {
+            double angle = 2 * Math.PI * i / pointCount;
+            int radius = 8 + random.nextInt(120);
+            xs[i] = centerX + (int) Math.round(Math.cos(angle) * radius);
+            zs[i] = centerZ + (int) Math.round(Math.sin(angle) * radius);
+
+            if (onChunkBorders) {
+                xs[i] = (xs[i] & ~15) + (random.nextBoolean() ? 0 : 15);
+                zs[i] = (zs[i] & ~15) + (random.nextBoolean() ? 0 : 15);
+            }
+        }
+
+        return polygon(onChunkBorders ? "border-star" : "star", xs, zs);
+    }
+
+    private static ProtectedPolygonalRegion polygon(String id, int[] xs, int[] zs) {
+        List<BlockVector2> points = new ArrayList<>();
+
+        for (int i = 0; i < xs.length; i++) {
+            points.add(BlockVector2.at(xs[i], zs[i]));
+        }
+
+        return new ProtectedPolygonalRegion(id, points, 0, 255);
+    }
+}